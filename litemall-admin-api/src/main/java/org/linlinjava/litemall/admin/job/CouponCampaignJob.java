@@ -0,0 +1,95 @@
+package org.linlinjava.litemall.admin.job;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.linlinjava.litemall.db.domain.LitemallCouponCampaign;
+import org.linlinjava.litemall.db.service.CouponCampaignService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 优惠券批量发放任务
+ * <p>
+ * 定时检查等待中的发放任务，在单独的线程中逐批发放，不占用其它定时任务的线程。
+ * 每批写入后才查询下一批，批间暂停一段时间，避免长时间占满数据库写入。
+ * 节点停止时进行中的任务在心跳超时后由任意节点继续。
+ */
+@Component
+public class CouponCampaignJob {
+    private final Log logger = LogFactory.getLog(CouponCampaignJob.class);
+
+    @Autowired
+    private CouponCampaignService campaignService;
+
+    @Value("${litemall.coupon.campaign.batch-size:1000}")
+    private int batchSize;
+    @Value("${litemall.coupon.campaign.pause:100}")
+    private long pause; // 批间暂停时间，毫秒
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "coupon-campaign");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 每隔十秒检查，上一轮未结束时跳过
+     */
+    @Scheduled(initialDelay = 30 * 1000, fixedDelay = 10 * 1000)
+    public void dispatch() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                for (Integer id : campaignService.queryRunnable()) {
+                    if (!run(id)) {
+                        break;
+                    }
+                }
+            } catch (RuntimeException e) {
+                logger.error(e.getMessage(), e);
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    /**
+     * @return 是否继续执行其它任务，线程被中断时返回false
+     */
+    private boolean run(Integer id) {
+        LitemallCouponCampaign campaign = campaignService.start(id);
+        if (campaign == null) {
+            return true;
+        }
+        logger.info("开始批量发放优惠券，任务 " + id + "，目标用户 " + campaign.getTarget() + " 个");
+        try {
+            while (campaignService.distribute(campaign, batchSize)) {
+                Thread.sleep(pause);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (RuntimeException e) {
+            // 任务保持进行中，心跳超时后从记录的位置重试
+            logger.error("批量发放优惠券失败，任务 " + id, e);
+            return true;
+        }
+        logger.info("结束批量发放优惠券，任务 " + id);
+        return true;
+    }
+}
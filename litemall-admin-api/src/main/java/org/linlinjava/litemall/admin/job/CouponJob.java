@@ -2,50 +2,32 @@ package org.linlinjava.litemall.admin.job;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.linlinjava.litemall.db.domain.LitemallCoupon;
-import org.linlinjava.litemall.db.domain.LitemallCouponUser;
-import org.linlinjava.litemall.db.service.LitemallCouponService;
-import org.linlinjava.litemall.db.service.LitemallCouponUserService;
-import org.linlinjava.litemall.db.util.CouponConstant;
-import org.linlinjava.litemall.db.util.CouponUserConstant;
+import org.linlinjava.litemall.db.service.CouponExpiryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
-
 /**
  * 检测优惠券过期情况
+ * <p>
+ * 优惠券和用户优惠券在截止时间由 {@link CouponExpiryService} 的时间轮准时设为过期，
+ * 该任务只负责补偿遗漏的记录，并把即将到期的截止时间加载到时间轮。
  */
 @Component
 public class CouponJob {
     private final Log logger = LogFactory.getLog(CouponJob.class);
 
     @Autowired
-    private LitemallCouponService couponService;
-    @Autowired
-    private LitemallCouponUserService couponUserService;
+    private CouponExpiryService expiryService;
 
     /**
-     * 每隔一个小时检查
-     * TODO
-     * 注意，因为是相隔一个小时检查，因此导致优惠券真正超时时间可能比设定时间延迟1个小时
+     * 系统启动时执行，之后每隔一个小时检查，间隔需小于时间轮加载的时间范围
      */
     @Scheduled(fixedDelay = 60 * 60 * 1000)
     public void checkCouponExpired() {
         logger.info("系统开启任务检查优惠券是否已经过期");
 
-        List<LitemallCoupon> couponList = couponService.queryExpired();
-        for (LitemallCoupon coupon : couponList) {
-            coupon.setStatus(CouponConstant.STATUS_EXPIRED);
-            couponService.updateById(coupon);
-        }
-
-        List<LitemallCouponUser> couponUserList = couponUserService.queryExpired();
-        for (LitemallCouponUser couponUser : couponUserList) {
-            couponUser.setStatus(CouponUserConstant.STATUS_EXPIRED);
-            couponUserService.update(couponUser);
-        }
+        expiryService.scan();
 
         logger.info("系统结束任务检查优惠券是否已经过期");
     }
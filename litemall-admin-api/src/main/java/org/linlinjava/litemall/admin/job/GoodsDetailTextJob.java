@@ -0,0 +1,52 @@
+package org.linlinjava.litemall.admin.job;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.linlinjava.litemall.core.llm.util.GoodsDetailFilter;
+import org.linlinjava.litemall.db.service.LitemallGoodsDetailTextService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 商品详情纯文本回填任务
+ * <p>
+ * 商品创建和编辑时会同步生成详情纯文本，
+ * 该任务用于为已有商品以及绕过管理后台修改的商品补齐纯文本。
+ */
+@Component
+public class GoodsDetailTextJob {
+    private final Log logger = LogFactory.getLog(GoodsDetailTextJob.class);
+
+    private static final int BATCH_SIZE = 200;
+
+    @Autowired
+    private LitemallGoodsDetailTextService goodsDetailTextService;
+
+    /**
+     * 系统启动一分钟后执行，之后每隔一个小时检查
+     */
+    @Scheduled(initialDelay = 60 * 1000, fixedDelay = 60 * 60 * 1000)
+    public void backfill() {
+        logger.info("系统开启任务回填商品详情纯文本");
+
+        int total = 0;
+        int afterId = 0;
+        while (true) {
+            Map<Integer, String> staleGoods = goodsDetailTextService.queryStale(afterId, BATCH_SIZE);
+            for (Map.Entry<Integer, String> entry : staleGoods.entrySet()) {
+                goodsDetailTextService.save(entry.getKey(), GoodsDetailFilter.filterDetail(entry.getValue()));
+                afterId = entry.getKey();
+            }
+            total += staleGoods.size();
+            if (staleGoods.size() < BATCH_SIZE) {
+                break;
+            }
+        }
+
+        logger.info("系统结束任务回填商品详情纯文本，共处理 " + total + " 个商品");
+    }
+
+}
@@ -3,14 +3,10 @@ package org.linlinjava.litemall.admin.job;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.linlinjava.litemall.core.system.SystemConfig;
-import org.linlinjava.litemall.db.domain.*;
-import org.linlinjava.litemall.db.service.*;
-import org.linlinjava.litemall.db.util.OrderUtil;
+import org.linlinjava.litemall.db.service.OrderDeadlineService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import java.time.LocalDateTime;
-import java.util.List;
 
 /**
  * 检测订单状态
@@ -19,71 +15,29 @@ import java.util.List;
 public class OrderJob {
     private final Log logger = LogFactory.getLog(OrderJob.class);
 
-    @Autowired
-    private LitemallOrderGoodsService orderGoodsService;
-    @Autowired
-    private LitemallOrderService orderService;
-    @Autowired
-    private LitemallGoodsProductService productService;
-    @Autowired
-    private LitemallGrouponService grouponService;
-    @Autowired
-    private LitemallGrouponRulesService rulesService;
-
-    /**
-     * 自动确认订单
-     * <p>
-     * 定时检查订单未确认情况，如果超时 LITEMALL_ORDER_UNCONFIRM 天则自动确认订单
-     * 定时时间是每天凌晨3点。
-     * <p>
-     * TODO
-     * 注意，因为是相隔一天检查，因此导致订单真正超时时间是 [LITEMALL_ORDER_UNCONFIRM, 1 + LITEMALL_ORDER_UNCONFIRM]
-     */
-    @Scheduled(cron = "0 0 3 * * ?")
-    public void checkOrderUnconfirm() {
-        logger.info("系统开启定时任务检查订单是否已经超期自动确认收货");
+    private static final int BATCH_SIZE = 100;
 
-        List<LitemallOrder> orderList = orderService.queryUnconfirm(SystemConfig.getOrderUnconfirm());
-        for (LitemallOrder order : orderList) {
-
-            // 设置订单已取消状态
-            order.setOrderStatus(OrderUtil.STATUS_AUTO_CONFIRM);
-            order.setConfirmTime(LocalDateTime.now());
-            if (orderService.updateWithOptimisticLocker(order) == 0) {
-                logger.info("订单 ID=" + order.getId() + " 数据已经更新，放弃自动确认收货");
-            } else {
-                logger.info("订单 ID=" + order.getId() + " 已经超期自动确认收货");
-            }
-        }
-
-        logger.info("系统结束定时任务检查订单是否已经超期自动确认收货");
-    }
+    @Autowired
+    private OrderDeadlineService deadlineService;
 
     /**
-     * 可评价订单商品超期
+     * 自动确认订单和可评价订单商品超期
      * <p>
-     * 定时检查订单商品评价情况，如果确认商品超时 LITEMALL_ORDER_COMMENT 天则取消可评价状态
-     * 定时时间是每天凌晨4点。
-     * <p>
-     * TODO
-     * 注意，因为是相隔一天检查，因此导致订单真正超时时间是 [LITEMALL_ORDER_COMMENT, 1 + LITEMALL_ORDER_COMMENT]
+     * 订单发货时登记 LITEMALL_ORDER_UNCONFIRM 天后自动确认收货，
+     * 确认收货时登记 LITEMALL_ORDER_COMMENT 天后取消可评价状态。
+     * 每秒检查一次到期的事件，每批处理 BATCH_SIZE 个，因此订单在到期后一秒左右处理。
      */
-    @Scheduled(cron = "0 0 4 * * ?")
-    public void checkOrderComment() {
-        logger.info("系统开启任务检查订单是否已经超期未评价");
-
-        List<LitemallOrder> orderList = orderService.queryComment(SystemConfig.getOrderComment());
-        for (LitemallOrder order : orderList) {
-            order.setComments((short) 0);
-            orderService.updateWithOptimisticLocker(order);
-
-            List<LitemallOrderGoods> orderGoodsList = orderGoodsService.queryByOid(order.getId());
-            for (LitemallOrderGoods orderGoods : orderGoodsList) {
-                orderGoods.setComment(-1);
-                orderGoodsService.updateById(orderGoods);
-            }
+    @Scheduled(fixedDelay = 1000)
+    public void checkOrderDeadline() {
+        int total = 0;
+        int count;
+        do {
+            count = deadlineService.processDue(BATCH_SIZE, SystemConfig.getOrderComment());
+            total += count;
+        } while (count == BATCH_SIZE);
+
+        if (total > 0) {
+            logger.info("系统处理订单自动确认收货和评价超期 " + total + " 个");
         }
-
-        logger.info("系统结束任务检查订单是否已经超期未评价");
     }
 }
@@ -0,0 +1,117 @@
+package org.linlinjava.litemall.admin.job;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.linlinjava.litemall.core.wordcloud.WordCloudIndex;
+import org.linlinjava.litemall.db.service.DashboardCounterService;
+import org.linlinjava.litemall.db.service.LitemallCommentService;
+import org.linlinjava.litemall.db.service.OrderStatStore;
+import org.linlinjava.litemall.db.service.StatService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 统计相关任务
+ * <p>
+ * 维护 litemall_stat_daily 和 litemall_stat_order_category_daily 每日汇总表。
+ * 每次重新计算今天、昨天、缺失的日期，以及上次执行以来有订单状态变化
+ * （支付、发货、收货、退款等都会更新 update_time）的下单日期。
+ * 上次执行的开始时间保存在汇总表的 update_time 中，重启后从上次完成的执行继续检查。
+ * 同时负责订单统计存储、评论词云索引和评论汇总的加载与重建，以及仪表盘计数的校正。
+ */
+@Component
+public class StatJob {
+    private final Log logger = LogFactory.getLog(StatJob.class);
+
+    @Autowired
+    private StatService statService;
+    @Autowired
+    private OrderStatStore orderStatStore;
+    @Autowired
+    private WordCloudIndex wordCloudIndex;
+    @Autowired
+    private LitemallCommentService commentService;
+    @Autowired
+    private DashboardCounterService counterService;
+
+    private LocalDateTime lastRefreshTime;
+
+    /**
+     * 系统启动一分钟后执行，之后每隔五分钟执行
+     */
+    @Scheduled(initialDelay = 60 * 1000, fixedDelay = 5 * 60 * 1000)
+    public void refresh() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+
+        Set<LocalDate> days = new TreeSet<>();
+        if (lastRefreshTime == null) {
+            lastRefreshTime = statService.queryLastRefreshTime();
+        }
+        LocalDate start = statService.queryLatestRollupDay();
+        if (start == null) {
+            start = statService.queryFirstActivityDay();
+        }
+        if (start != null) {
+            for (LocalDate day = start; !day.isAfter(today); day = day.plusDays(1)) {
+                days.add(day);
+            }
+        }
+        if (lastRefreshTime != null) {
+            days.addAll(statService.queryOrderDaysUpdatedSince(lastRefreshTime));
+        }
+        days.add(today.minusDays(1));
+        days.add(today);
+
+        for (LocalDate day : days) {
+            statService.refreshDay(day, now);
+        }
+        // 下次从本次开始时间起检查，避免遗漏执行期间更新的订单
+        lastRefreshTime = now;
+
+        if (days.size() > 2) {
+            logger.info("统计汇总任务重新计算 " + days.size() + " 天的汇总");
+        }
+    }
+
+    /**
+     * 系统启动三十秒后加载订单统计存储，之后每隔一个小时重新加载，修正退款等状态变化
+     */
+    @Scheduled(initialDelay = 30 * 1000, fixedDelay = 60 * 60 * 1000)
+    public void reloadOrderStatStore() {
+        orderStatStore.reload();
+    }
+
+    /**
+     * 系统启动两分钟后构建评论词云索引，之后每隔六个小时重建，修正评论删除等变化
+     */
+    @Scheduled(initialDelay = 2 * 60 * 1000, fixedDelay = 6 * 60 * 60 * 1000)
+    public void rebuildWordCloudIndex() {
+        wordCloudIndex.rebuild();
+    }
+
+    /**
+     * 系统启动一分钟后重新生成一次评论汇总，补齐绕过评论服务写入的数据。
+     * 之后评论汇总随评论的新增和删除在同一事务中更新
+     */
+    @Scheduled(initialDelay = 60 * 1000)
+    public void rebuildCommentSummary() {
+        commentService.rebuildSummary();
+        logger.info("评论汇总重新生成完成");
+    }
+
+    /**
+     * 每隔十分钟按数据库校正仪表盘计数，首次加载在第一次访问仪表盘时进行
+     */
+    @Scheduled(initialDelay = 10 * 60 * 1000, fixedDelay = 10 * 60 * 1000)
+    public void reconcileDashboardCounters() {
+        counterService.reconcile();
+    }
+
+}
@@ -0,0 +1,371 @@
+package org.linlinjava.litemall.admin.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ibatis.session.ResultHandler;
+import org.linlinjava.litemall.db.service.ExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 数据导出服务
+ * <p>
+ * 订单、用户和商品导出为CSV：数据库流式读取，每读到一行立即写入响应输出流，
+ * 内存占用与数据量无关。导出在独立的有界线程池中执行，限制同时占用的数据库连接数；
+ * 导出过程中可以通过导出ID取消，已写出的部分不会补全。
+ */
+@Service
+public class AdminExportService {
+    private final Log logger = LogFactory.getLog(AdminExportService.class);
+
+    public static final String TYPE_ORDER = "order";
+    public static final String TYPE_USER = "user";
+    public static final String TYPE_GOODS = "goods";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final LinkedHashMap<String, String> ORDER_COLUMNS = new LinkedHashMap<>();
+    private static final LinkedHashMap<String, String> USER_COLUMNS = new LinkedHashMap<>();
+    private static final LinkedHashMap<String, String> GOODS_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        ORDER_COLUMNS.put("id", "订单ID");
+        ORDER_COLUMNS.put("order_sn", "订单编号");
+        ORDER_COLUMNS.put("user_id", "用户ID");
+        ORDER_COLUMNS.put("nickname", "用户昵称");
+        ORDER_COLUMNS.put("order_status", "订单状态");
+        ORDER_COLUMNS.put("consignee", "收货人");
+        ORDER_COLUMNS.put("mobile", "收货人手机号");
+        ORDER_COLUMNS.put("address", "收货地址");
+        ORDER_COLUMNS.put("message", "用户留言");
+        ORDER_COLUMNS.put("goods_price", "商品总费用");
+        ORDER_COLUMNS.put("freight_price", "配送费用");
+        ORDER_COLUMNS.put("coupon_price", "优惠券减免");
+        ORDER_COLUMNS.put("integral_price", "积分减免");
+        ORDER_COLUMNS.put("groupon_price", "团购优惠");
+        ORDER_COLUMNS.put("order_price", "订单费用");
+        ORDER_COLUMNS.put("actual_price", "实付费用");
+        ORDER_COLUMNS.put("pay_time", "付款时间");
+        ORDER_COLUMNS.put("ship_channel", "快递公司");
+        ORDER_COLUMNS.put("ship_sn", "快递单号");
+        ORDER_COLUMNS.put("ship_time", "发货时间");
+        ORDER_COLUMNS.put("confirm_time", "确认收货时间");
+        ORDER_COLUMNS.put("add_time", "下单时间");
+
+        USER_COLUMNS.put("id", "用户ID");
+        USER_COLUMNS.put("username", "用户名");
+        USER_COLUMNS.put("nickname", "昵称");
+        USER_COLUMNS.put("gender", "性别");
+        USER_COLUMNS.put("birthday", "生日");
+        USER_COLUMNS.put("mobile", "手机号");
+        USER_COLUMNS.put("user_level", "用户等级");
+        USER_COLUMNS.put("status", "状态");
+        USER_COLUMNS.put("last_login_time", "最近登录时间");
+        USER_COLUMNS.put("last_login_ip", "最近登录IP");
+        USER_COLUMNS.put("add_time", "注册时间");
+
+        GOODS_COLUMNS.put("id", "商品ID");
+        GOODS_COLUMNS.put("goods_sn", "商品编号");
+        GOODS_COLUMNS.put("name", "商品名称");
+        GOODS_COLUMNS.put("category_id", "分类ID");
+        GOODS_COLUMNS.put("category_name", "分类名称");
+        GOODS_COLUMNS.put("brand_id", "品牌ID");
+        GOODS_COLUMNS.put("brand_name", "品牌名称");
+        GOODS_COLUMNS.put("unit", "单位");
+        GOODS_COLUMNS.put("counter_price", "专柜价格");
+        GOODS_COLUMNS.put("retail_price", "零售价格");
+        GOODS_COLUMNS.put("is_on_sale", "是否上架");
+        GOODS_COLUMNS.put("is_new", "是否新品");
+        GOODS_COLUMNS.put("is_hot", "是否热卖");
+        GOODS_COLUMNS.put("sort_order", "排序");
+        GOODS_COLUMNS.put("add_time", "添加时间");
+    }
+
+    @Autowired
+    private ExportService exportService;
+
+    @Value("${litemall.export.threads:2}")
+    private int threads;
+
+    @Value("${litemall.export.queue-capacity:4}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    private final Map<String, Export> exports = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "export-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        exports.values().forEach(Export::cancel);
+        executor.shutdownNow();
+        // 排队中的导出不会再执行，直接结束，等待中的请求线程不会一直阻塞
+        for (Export export : exports.values()) {
+            if (!export.running) {
+                export.result.completeExceptionally(new CancellationException());
+            }
+        }
+    }
+
+    /**
+     * 导出订单
+     *
+     * @param exportId 导出ID，为空时自动生成
+     * @param out      输出流，导出线程写入后不关闭
+     * @return 导出任务
+     * @throws RejectedExecutionException 导出队列已满
+     * @throws IllegalStateException      导出ID正在使用
+     */
+    public Export exportOrders(String exportId, String nickname, String consignee, String orderSn,
+                               LocalDateTime start, LocalDateTime end, List<Short> orderStatusArray, OutputStream out) {
+        return submit(exportId, TYPE_ORDER, ORDER_COLUMNS,
+                handler -> exportService.exportOrders(nickname, consignee, orderSn, start, end, orderStatusArray, handler), out);
+    }
+
+    /**
+     * 导出用户
+     *
+     * @see #exportOrders
+     */
+    public Export exportUsers(String exportId, String username, String mobile, OutputStream out) {
+        return submit(exportId, TYPE_USER, USER_COLUMNS, handler -> exportService.exportUsers(username, mobile, handler), out);
+    }
+
+    /**
+     * 导出商品
+     *
+     * @see #exportOrders
+     */
+    public Export exportGoods(String exportId, String goodsSn, String name, OutputStream out) {
+        return submit(exportId, TYPE_GOODS, GOODS_COLUMNS, handler -> exportService.exportGoods(goodsSn, name, handler), out);
+    }
+
+    /**
+     * 取消导出
+     *
+     * @param exportId 导出ID
+     * @return 是否找到正在进行的导出
+     */
+    public boolean cancel(String exportId) {
+        Export export = exports.get(exportId);
+        if (export == null) {
+            return false;
+        }
+        export.cancel();
+        return true;
+    }
+
+    /**
+     * @return 正在排队或进行中的导出
+     */
+    public List<Map<String, Object>> list() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Export export : exports.values()) {
+            result.add(export.toView());
+        }
+        return result;
+    }
+
+    private Export submit(String exportId, String type, LinkedHashMap<String, String> columns,
+                          Consumer<ResultHandler<Map<String, Object>>> query, OutputStream out) {
+        if (exportId == null || exportId.isEmpty()) {
+            exportId = UUID.randomUUID().toString().replace("-", "");
+        }
+        Export export = new Export(exportId, type);
+        if (exports.putIfAbsent(export.id, export) != null) {
+            throw new IllegalStateException("导出ID正在使用: " + export.id);
+        }
+        try {
+            executor.execute(() -> run(export, columns, query, out));
+        } catch (RejectedExecutionException e) {
+            exports.remove(export.id);
+            throw e;
+        }
+        return export;
+    }
+
+    private void run(Export export, LinkedHashMap<String, String> columns,
+                     Consumer<ResultHandler<Map<String, Object>>> query, OutputStream out) {
+        try {
+            // 先标记为运行中再检查取消，与destroy配合
+            export.running = true;
+            if (export.cancelled) {
+                throw new CancellationException();
+            }
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            // BOM，Excel据此按UTF-8打开
+            writer.write('\uFEFF');
+            writeRow(writer, columns.values());
+
+            IOException[] error = new IOException[1];
+            List<Object> values = new ArrayList<>(columns.size());
+            query.accept(context -> {
+                if (export.cancelled) {
+                    context.stop();
+                    return;
+                }
+                Map<String, Object> row = context.getResultObject();
+                values.clear();
+                for (String key : columns.keySet()) {
+                    values.add(row.get(key));
+                }
+                try {
+                    writeRow(writer, values);
+                    export.rows++;
+                } catch (IOException e) {
+                    // 客户端断开连接
+                    error[0] = e;
+                    context.stop();
+                }
+            });
+            if (error[0] != null) {
+                throw error[0];
+            }
+            if (export.cancelled) {
+                throw new CancellationException();
+            }
+            writer.flush();
+            export.result.complete(export.rows);
+        } catch (Throwable e) {
+            export.result.completeExceptionally(e);
+        } finally {
+            exports.remove(export.id);
+        }
+        logger.info("导出" + export.type + "结束，ID " + export.id + "，共 " + export.rows + " 行"
+                + (export.result.isCompletedExceptionally() ? "，未完成" : ""));
+    }
+
+    static void writeRow(Writer writer, Collection<?> values) throws IOException {
+        boolean first = true;
+        for (Object value : values) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+            writeCell(writer, value);
+        }
+        writer.write("\r\n");
+    }
+
+    static void writeCell(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Boolean) {
+            writer.write((Boolean) value ? "1" : "0");
+            return;
+        }
+        if (value instanceof Number) {
+            writer.write(value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString());
+            return;
+        }
+        String text = value.toString();
+        // 防止Excel把文本当作公式执行
+        if (!text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    /**
+     * 导出任务
+     */
+    public static class Export {
+        private final String id;
+        private final String type;
+        private final LocalDateTime addTime = LocalDateTime.now();
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+        private volatile boolean cancelled;
+        private volatile boolean running;
+        private volatile long rows;
+
+        Export(String id, String type) {
+            this.id = id;
+            this.type = type;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * 等待导出结束
+         * <p>
+         * 等待被中断时取消导出，并等导出线程停止写出后再返回，调用方随后可以安全地关闭输出流。
+         *
+         * @return 导出的行数
+         * @throws CancellationException 导出被取消
+         * @throws IOException           写出失败，一般是客户端断开连接
+         */
+        public long await() throws IOException, InterruptedException {
+            try {
+                return result.get();
+            } catch (InterruptedException e) {
+                cancel();
+                // 不可中断地等待导出线程在下一行检查到取消后结束
+                result.exceptionally(t -> null).join();
+                throw e;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof CancellationException) {
+                    throw (CancellationException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+
+        Map<String, Object> toView() {
+            Map<String, Object> view = new HashMap<>();
+            view.put("exportId", id);
+            view.put("type", type);
+            view.put("status", cancelled ? "cancelling" : running ? "running" : "pending");
+            view.put("rows", rows);
+            view.put("addTime", addTime);
+            return view;
+        }
+    }
+}
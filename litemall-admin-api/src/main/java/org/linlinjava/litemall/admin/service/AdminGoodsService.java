@@ -4,6 +4,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.linlinjava.litemall.admin.dto.GoodsAllinone;
 import org.linlinjava.litemall.admin.vo.CatVo;
+import org.linlinjava.litemall.core.llm.util.GoodsDetailFilter;
 import org.linlinjava.litemall.core.qcode.QCodeService;
 import org.linlinjava.litemall.core.util.ResponseUtil;
 import org.linlinjava.litemall.db.domain.*;
@@ -40,6 +41,8 @@ public class AdminGoodsService {
     @Autowired
     private LitemallCartService cartService;
     @Autowired
+    private LitemallGoodsDetailTextService goodsDetailTextService;
+    @Autowired
     private QCodeService qCodeService;
 
     public Object list(Integer goodsId, String goodsSn, String name,
@@ -152,10 +155,6 @@ public class AdminGoodsService {
         LitemallGoodsSpecification[] specifications = goodsAllinone.getSpecifications();
         LitemallGoodsProduct[] products = goodsAllinone.getProducts();
 
-        //将生成的分享图片地址写入数据库
-        String url = qCodeService.createGoodShareImage(goods.getId().toString(), goods.getPicUrl(), goods.getName());
-        goods.setShareUrl(url);
-
         // 商品表里面有一个字段retailPrice记录当前商品的最低价
         BigDecimal retailPrice = new BigDecimal(Integer.MAX_VALUE);
         for (LitemallGoodsProduct product : products) {
@@ -170,9 +169,16 @@ public class AdminGoodsService {
         if (goodsService.updateById(goods) == 0) {
             throw new RuntimeException("更新数据失败");
         }
+        //后台生成分享图，完成后写入数据库
+        qCodeService.scheduleGoodShareImage(goods.getId());
 
         Integer gid = goods.getId();
 
+        // 商品详情纯文本表litemall_goods_detail_text
+        if (goods.getDetail() != null) {
+            goodsDetailTextService.save(gid, GoodsDetailFilter.filterDetail(goods.getDetail()));
+        }
+
         // 商品规格表litemall_goods_specification
         for (LitemallGoodsSpecification specification : specifications) {
             // 目前只支持更新规格表的图片字段
@@ -258,14 +264,11 @@ public class AdminGoodsService {
         // 商品基本信息表litemall_goods
         goodsService.add(goods);
 
-        //将生成的分享图片地址写入数据库
-        String url = qCodeService.createGoodShareImage(goods.getId().toString(), goods.getPicUrl(), goods.getName());
-        if (url != null && !url.isEmpty()) {
-            goods.setShareUrl(url);
-            if (goodsService.updateById(goods) == 0) {
-                throw new RuntimeException("更新数据失败");
-            }
-        }
+        //后台生成分享图，完成后写入数据库
+        qCodeService.scheduleGoodShareImage(goods.getId());
+
+        // 商品详情纯文本表litemall_goods_detail_text
+        goodsDetailTextService.save(goods.getId(), GoodsDetailFilter.filterDetail(goods.getDetail()));
 
         // 商品规格表litemall_goods_specification
         for (LitemallGoodsSpecification specification : specifications) {
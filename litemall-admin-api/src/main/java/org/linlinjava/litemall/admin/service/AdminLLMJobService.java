@@ -0,0 +1,250 @@
+package org.linlinjava.litemall.admin.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.linlinjava.litemall.core.llm.model.GoodsQARequest;
+import org.linlinjava.litemall.core.llm.model.GoodsQAResponse;
+import org.linlinjava.litemall.core.llm.service.LLMQAService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 大模型问答异步任务服务
+ * <p>
+ * 统计类问题需要调用大模型并扫描大量商品数据，耗时较长。
+ * 提交后立即返回任务ID，任务在独立的有界线程池中执行，结果保留一段时间供轮询或SSE推送，
+ * 避免长时间占用HTTP请求线程。
+ */
+@Service
+public class AdminLLMJobService {
+    private final Log logger = LogFactory.getLog(AdminLLMJobService.class);
+
+    public static final String STATUS_PENDING = "pending";
+    public static final String STATUS_RUNNING = "running";
+    public static final String STATUS_DONE = "done";
+    public static final String STATUS_FAILED = "failed";
+
+    @Autowired
+    private LLMQAService llmqaService;
+
+    @Value("${litemall.llm.job.threads:2}")
+    private int threads;
+
+    @Value("${litemall.llm.job.queue-capacity:20}")
+    private int queueCapacity;
+
+    @Value("${litemall.llm.job.result-ttl:600}")
+    private int resultTtl; // 结果保留时间（秒）
+
+    private ThreadPoolExecutor executor;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "llm-job-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 提交问答任务
+     *
+     * @param question  问题
+     * @param sessionId 会话ID，可为空
+     * @return 任务ID
+     * @throws RejectedExecutionException 任务队列已满
+     */
+    public String submit(String question, String sessionId) {
+        Job job = new Job(UUID.randomUUID().toString().replace("-", ""), question, sessionId);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw e;
+        }
+        return job.id;
+    }
+
+    /**
+     * 查询任务
+     *
+     * @param jobId 任务ID
+     * @return 任务信息，不存在或已过期返回null
+     */
+    public Map<String, Object> query(String jobId) {
+        Job job = jobs.get(jobId);
+        return job == null ? null : job.toView();
+    }
+
+    /**
+     * 订阅任务结果，任务完成后通过SSE推送一次结果并结束
+     *
+     * @param jobId 任务ID
+     * @return SSE连接，任务不存在返回null
+     */
+    public SseEmitter subscribe(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            return null;
+        }
+
+        SseEmitter emitter = new SseEmitter(resultTtl * 1000L);
+        boolean finished;
+        synchronized (job) {
+            finished = job.isFinished();
+            if (!finished) {
+                job.emitters.add(emitter);
+                emitter.onCompletion(() -> removeEmitter(job, emitter));
+                emitter.onTimeout(() -> removeEmitter(job, emitter));
+            }
+        }
+        if (finished) {
+            send(emitter, job.toView());
+        }
+        return emitter;
+    }
+
+    /**
+     * 每分钟清理一次过期的任务结果
+     */
+    @Scheduled(fixedDelay = 60 * 1000)
+    public void cleanupExpiredJobs() {
+        long expireBefore = System.currentTimeMillis() - resultTtl * 1000L;
+        int removed = 0;
+        Iterator<Job> iterator = jobs.values().iterator();
+        while (iterator.hasNext()) {
+            Job job = iterator.next();
+            if (job.isFinished() && job.finishTime < expireBefore) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            logger.info("清理过期的大模型问答任务 " + removed + " 个");
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private void run(Job job) {
+        job.status = STATUS_RUNNING;
+        job.startTime = System.currentTimeMillis();
+        try {
+            GoodsQARequest request = new GoodsQARequest();
+            request.setQuestion(job.question);
+            request.setSessionId(job.sessionId);
+            GoodsQAResponse response = llmqaService.processQuestion(request);
+            if (response.getErrno() != 0) {
+                finish(job, STATUS_FAILED, null, response.getErrmsg());
+            } else {
+                finish(job, STATUS_DONE, toData(response), null);
+            }
+        } catch (Exception e) {
+            logger.error("大模型问答任务执行失败 " + job.id, e);
+            finish(job, STATUS_FAILED, null, "处理请求时发生错误：" + e.getMessage());
+        }
+    }
+
+    private void finish(Job job, String status, Map<String, Object> data, String errmsg) {
+        List<SseEmitter> emitters;
+        synchronized (job) {
+            job.data = data;
+            job.errmsg = errmsg;
+            job.finishTime = System.currentTimeMillis();
+            job.status = status;
+            emitters = new ArrayList<>(job.emitters);
+            job.emitters.clear();
+        }
+        Map<String, Object> view = job.toView();
+        for (SseEmitter emitter : emitters) {
+            send(emitter, view);
+        }
+    }
+
+    private void send(SseEmitter emitter, Map<String, Object> view) {
+        try {
+            emitter.send(SseEmitter.event().name("result").data(view));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void removeEmitter(Job job, SseEmitter emitter) {
+        synchronized (job) {
+            job.emitters.remove(emitter);
+        }
+    }
+
+    private Map<String, Object> toData(GoodsQAResponse response) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("answer", response.getAnswer());
+        data.put("goods", response.getGoods() != null ? response.getGoods() : List.of());
+        data.put("sessionId", response.getSessionId());
+        data.put("queryTime", response.getQueryTime());
+        data.put("fromCache", response.isFromCache());
+        data.put("timestamp", response.getTimestamp() != null ? response.getTimestamp() : LocalDateTime.now());
+        return data;
+    }
+
+    /**
+     * 问答任务
+     */
+    private static class Job {
+        private final String id;
+        private final String question;
+        private final String sessionId;
+        private final long createTime = System.currentTimeMillis();
+        private volatile String status = STATUS_PENDING;
+        private volatile long startTime;
+        private volatile long finishTime;
+        private volatile Map<String, Object> data;
+        private volatile String errmsg;
+        private final List<SseEmitter> emitters = new ArrayList<>();
+
+        Job(String id, String question, String sessionId) {
+            this.id = id;
+            this.question = question;
+            this.sessionId = sessionId;
+        }
+
+        boolean isFinished() {
+            return STATUS_DONE.equals(status) || STATUS_FAILED.equals(status);
+        }
+
+        Map<String, Object> toView() {
+            Map<String, Object> view = new HashMap<>();
+            view.put("jobId", id);
+            view.put("status", status);
+            view.put("question", question);
+            view.put("createTime", createTime);
+            view.put("startTime", startTime);
+            view.put("finishTime", finishTime);
+            view.put("errmsg", errmsg);
+            view.put("data", data);
+            return view;
+        }
+    }
+}
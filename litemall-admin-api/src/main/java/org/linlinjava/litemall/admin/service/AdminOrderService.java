@@ -9,6 +9,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.linlinjava.litemall.core.notify.NotifyService;
 import org.linlinjava.litemall.core.notify.NotifyType;
+import org.linlinjava.litemall.core.system.SystemConfig;
 import org.linlinjava.litemall.core.util.DateTimeUtil;
 import org.linlinjava.litemall.core.util.JacksonUtil;
 import org.linlinjava.litemall.core.util.ResponseUtil;
@@ -41,6 +42,8 @@ public class AdminOrderService {
     @Autowired
     private LitemallOrderService orderService;
     @Autowired
+    private OrderStatStore orderStatStore;
+    @Autowired
     private LitemallGoodsProductService productService;
     @Autowired
     private LitemallUserService userService;
@@ -54,6 +57,8 @@ public class AdminOrderService {
     private LogHelper logHelper;
     @Autowired
     private LitemallCouponUserService couponUserService;
+    @Autowired
+    private OrderDeadlineService deadlineService;
 
     public Object list(String nickname, String consignee, String orderSn, LocalDateTime start, LocalDateTime end, List<Short> orderStatusArray,
                        Integer page, Integer limit, String sort, String order) {
@@ -61,6 +66,11 @@ public class AdminOrderService {
         return ResponseUtil.ok(data);
     }
 
+    public Object listByCursor(String nickname, String consignee, String orderSn, LocalDateTime start, LocalDateTime end, List<Short> orderStatusArray,
+                               String cursor, Integer limit, String sort, String order, boolean count) {
+        return ResponseUtil.okList(orderService.queryVoSelectiveByCursor(nickname, consignee, orderSn, start, end, orderStatusArray, cursor, limit, sort, order, count));
+    }
+
     public Object detail(Integer id) {
         LitemallOrder order = orderService.findById(id);
         List<LitemallOrderGoods> orderGoods = orderGoodsService.queryByOid(id);
@@ -191,6 +201,7 @@ public class AdminOrderService {
      * 成功则 { errno: 0, errmsg: '成功' }
      * 失败则 { errno: XXX, errmsg: XXX }
      */
+    @Transactional
     public Object ship(String body) {
         Integer orderId = JacksonUtil.parseInteger(body, "orderId");
         String shipSn = JacksonUtil.parseString(body, "shipSn");
@@ -216,6 +227,7 @@ public class AdminOrderService {
         if (orderService.updateWithOptimisticLocker(order) == 0) {
             return ResponseUtil.updatedDateExpired();
         }
+        deadlineService.scheduleConfirm(orderId, order.getShipTime(), SystemConfig.getOrderUnconfirm());
 
         //TODO 发送邮件和短信通知，这里采用异步发送
         // 发货会发送通知短信给用户:          *
@@ -312,6 +324,7 @@ public class AdminOrderService {
         if (orderService.updateWithOptimisticLocker(order) == 0) {
             return WxPayNotifyResponse.fail("更新数据已失效");
         }
+        orderStatStore.append(orderId);
 
         return ResponseUtil.ok();
     }
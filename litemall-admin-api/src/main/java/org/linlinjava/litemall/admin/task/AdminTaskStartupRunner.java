@@ -1,8 +1,12 @@
 package org.linlinjava.litemall.admin.task;
 
+import org.linlinjava.litemall.core.qcode.QCodeService;
+import org.linlinjava.litemall.core.system.SystemConfig;
 import org.linlinjava.litemall.core.task.TaskService;
 import org.linlinjava.litemall.db.domain.LitemallGrouponRules;
+import org.linlinjava.litemall.db.service.CouponClaimService;
 import org.linlinjava.litemall.db.service.LitemallGrouponRulesService;
+import org.linlinjava.litemall.db.service.OrderDeadlineService;
 import org.linlinjava.litemall.db.util.GrouponConstant;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.ApplicationArguments;
@@ -20,6 +24,12 @@ public class AdminTaskStartupRunner implements ApplicationRunner {
     private LitemallGrouponRulesService rulesService;
     @Autowired
     private TaskService taskService;
+    @Autowired
+    private OrderDeadlineService deadlineService;
+    @Autowired
+    private CouponClaimService claimService;
+    @Autowired
+    private QCodeService qCodeService;
 
     @Override
     public void run(ApplicationArguments args) throws Exception {
@@ -37,5 +47,14 @@ public class AdminTaskStartupRunner implements ApplicationRunner {
                 taskService.addTask(new GrouponRuleExpiredTask(grouponRules.getId(), delay));
             }
         }
+
+        // 升级前已发货或待评价的订单没有到期事件
+        deadlineService.backfill(SystemConfig.getOrderUnconfirm(), SystemConfig.getOrderComment());
+
+        // 修正升级前预占未归还的数量和注册赠送等途径未计入的数量
+        claimService.reconcile();
+
+        // 重启前尚未生成分享图的商品
+        qCodeService.scheduleMissingShareImages();
     }
 }
\ No newline at end of file
@@ -28,5 +28,7 @@ public class AdminResponseCode {
     public static final Integer GROUPON_GOODS_OFFLINE = 652;
     public static final Integer NOTICE_UPDATE_NOT_ALLOWED = 660;
     public static final Integer AFTERSALE_NOT_ALLOWED = 670;
+    public static final Integer EXPORT_BUSY = 680;
+    public static final Integer EXPORT_NOT_FOUND = 681;
 
 }
@@ -30,10 +30,7 @@ public class AdminConfigController {
 
     @PostMapping("/mall")
     public Object updateMall(@RequestBody String body) {
-        Map<String, String> data = JacksonUtil.toMap(body);
-        systemConfigService.updateConfig(data);
-        SystemConfig.updateConfigs(data);
-        return ResponseUtil.ok();
+        return updateConfigs(body);
     }
 
     @GetMapping("/express")
@@ -44,10 +41,7 @@ public class AdminConfigController {
 
     @PostMapping("/express")
     public Object updateExpress(@RequestBody String body) {
-        Map<String, String> data = JacksonUtil.toMap(body);
-        systemConfigService.updateConfig(data);
-        SystemConfig.updateConfigs(data);
-        return ResponseUtil.ok();
+        return updateConfigs(body);
     }
 
     @GetMapping("/order")
@@ -58,9 +52,7 @@ public class AdminConfigController {
 
     @PostMapping("/order")
     public Object updateOrder(@RequestBody String body) {
-        Map<String, String> data = JacksonUtil.toMap(body);
-        systemConfigService.updateConfig(data);
-        return ResponseUtil.ok();
+        return updateConfigs(body);
     }
 
     @GetMapping("/wx")
@@ -71,9 +63,23 @@ public class AdminConfigController {
 
     @PostMapping("/wx")
     public Object updateWx(@RequestBody String body) {
+        return updateConfigs(body);
+    }
+
+    /**
+     * 先生成新的配置快照，数值格式正确时保存到数据库，保存成功后才替换内存中的配置
+     */
+    private Object updateConfigs(String body) {
         Map<String, String> data = JacksonUtil.toMap(body);
-        systemConfigService.updateConfig(data);
-        SystemConfig.updateConfigs(data);
+        if (data == null) {
+            return ResponseUtil.badArgument();
+        }
+        try {
+            SystemConfig.updateConfigs(data, systemConfigService::updateConfig);
+        } catch (IllegalArgumentException e) {
+            logger.warn(e.getMessage());
+            return ResponseUtil.badArgumentValue();
+        }
         return ResponseUtil.ok();
     }
 }
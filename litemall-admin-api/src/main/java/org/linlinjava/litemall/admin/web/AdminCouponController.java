@@ -2,13 +2,17 @@ package org.linlinjava.litemall.admin.web;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.linlinjava.litemall.core.util.JacksonUtil;
 import org.linlinjava.litemall.core.util.ResponseUtil;
 import org.linlinjava.litemall.core.validator.Order;
 import org.linlinjava.litemall.core.validator.Sort;
 import org.linlinjava.litemall.db.domain.LitemallCoupon;
+import org.linlinjava.litemall.db.domain.LitemallCouponCampaign;
 import org.linlinjava.litemall.db.domain.LitemallCouponUser;
+import org.linlinjava.litemall.db.service.CouponCampaignService;
 import org.linlinjava.litemall.db.service.LitemallCouponService;
 import org.linlinjava.litemall.db.service.LitemallCouponUserService;
+import org.linlinjava.litemall.db.util.CouponCampaignConstant;
 import org.linlinjava.litemall.db.util.CouponConstant;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -17,6 +21,7 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.constraints.NotNull;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -29,6 +34,8 @@ public class AdminCouponController {
     private LitemallCouponService couponService;
     @Autowired
     private LitemallCouponUserService couponUserService;
+    @Autowired
+    private CouponCampaignService campaignService;
 
     @GetMapping("/list")
     public Object list(String name, Short type, Short status,
@@ -97,4 +104,70 @@ public class AdminCouponController {
         return ResponseUtil.ok();
     }
 
+    @GetMapping("/campaign/list")
+    public Object campaignList(Integer couponId,
+                               @RequestParam(defaultValue = "1") Integer page,
+                               @RequestParam(defaultValue = "10") Integer limit) {
+        List<LitemallCouponCampaign> campaignList = campaignService.querySelective(couponId, page, limit);
+        return ResponseUtil.okList(campaignList);
+    }
+
+    /**
+     * 发放任务及进度，target为开始时统计的目标用户数量，assigned为已发放数量
+     */
+    @GetMapping("/campaign/read")
+    public Object campaignRead(@NotNull Integer id) {
+        LitemallCouponCampaign campaign = campaignService.findById(id);
+        if (campaign == null) {
+            return ResponseUtil.badArgumentValue();
+        }
+        return ResponseUtil.ok(campaign);
+    }
+
+    /**
+     * 新增批量发放任务，由定时任务在后台发放
+     *
+     * @param body {couponId: xxx, segment: all|register|order, startTime: xxx, endTime: xxx, minOrders: xxx}
+     */
+    @PostMapping("/campaign/create")
+    public Object campaignCreate(@RequestBody String body) {
+        Integer couponId = JacksonUtil.parseInteger(body, "couponId");
+        String segment = JacksonUtil.parseString(body, "segment");
+        LocalDateTime startTime = JacksonUtil.parseObject(body, "startTime", LocalDateTime.class);
+        LocalDateTime endTime = JacksonUtil.parseObject(body, "endTime", LocalDateTime.class);
+        Integer minOrders = JacksonUtil.parseInteger(body, "minOrders");
+        if (couponId == null || segment == null) {
+            return ResponseUtil.badArgument();
+        }
+        if (!segment.equals(CouponCampaignConstant.SEGMENT_ALL) && !segment.equals(CouponCampaignConstant.SEGMENT_REGISTER)
+                && !segment.equals(CouponCampaignConstant.SEGMENT_ORDER)) {
+            return ResponseUtil.badArgumentValue();
+        }
+        if (minOrders != null && minOrders < 1) {
+            return ResponseUtil.badArgumentValue();
+        }
+        LitemallCoupon coupon = couponService.findById(couponId);
+        if (coupon == null || coupon.getDeleted() || !coupon.getStatus().equals(CouponConstant.STATUS_NORMAL)) {
+            return ResponseUtil.badArgumentValue();
+        }
+
+        Integer id = campaignService.add(couponId, segment, startTime, endTime, minOrders);
+        return ResponseUtil.ok(campaignService.findById(id));
+    }
+
+    /**
+     * 取消等待中或进行中的发放任务，已发放的优惠券不回收
+     */
+    @PostMapping("/campaign/cancel")
+    public Object campaignCancel(@RequestBody String body) {
+        Integer id = JacksonUtil.parseInteger(body, "id");
+        if (id == null) {
+            return ResponseUtil.badArgument();
+        }
+        if (!campaignService.cancel(id)) {
+            return ResponseUtil.updatedDataFailed();
+        }
+        return ResponseUtil.ok();
+    }
+
 }
@@ -3,10 +3,7 @@ package org.linlinjava.litemall.admin.web;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.linlinjava.litemall.core.util.ResponseUtil;
-import org.linlinjava.litemall.db.service.LitemallGoodsProductService;
-import org.linlinjava.litemall.db.service.LitemallGoodsService;
-import org.linlinjava.litemall.db.service.LitemallOrderService;
-import org.linlinjava.litemall.db.service.LitemallUserService;
+import org.linlinjava.litemall.db.service.DashboardCounterService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
@@ -24,26 +21,18 @@ public class AdminDashbordController {
     private final Log logger = LogFactory.getLog(AdminDashbordController.class);
 
     @Autowired
-    private LitemallUserService userService;
-    @Autowired
-    private LitemallGoodsService goodsService;
-    @Autowired
-    private LitemallGoodsProductService productService;
-    @Autowired
-    private LitemallOrderService orderService;
+    private DashboardCounterService counterService;
 
     @PreAuthorize("hasPermission('admin:dashboard:info', 'admin')")
     @GetMapping("")
     public Object info() {
-        int userTotal = userService.count();
-        int goodsTotal = goodsService.count();
-        int productTotal = productService.count();
-        int orderTotal = orderService.count();
-        Map<String, Integer> data = new HashMap<>();
-        data.put("userTotal", userTotal);
-        data.put("goodsTotal", goodsTotal);
-        data.put("productTotal", productTotal);
-        data.put("orderTotal", orderTotal);
+        Map<String, Object> data = new HashMap<>();
+        data.put("userTotal", counterService.userTotal());
+        data.put("goodsTotal", counterService.goodsTotal());
+        data.put("productTotal", counterService.productTotal());
+        data.put("orderTotal", counterService.orderTotal());
+        data.put("ordersPerMinute", counterService.ordersPerMinute());
+        data.put("gmvPerMinute", counterService.gmvPerMinute());
 
         return ResponseUtil.ok(data);
     }
@@ -0,0 +1,128 @@
+package org.linlinjava.litemall.admin.web;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.linlinjava.litemall.admin.service.AdminExportService;
+import org.linlinjava.litemall.core.util.JacksonUtil;
+import org.linlinjava.litemall.core.util.ResponseUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiFunction;
+
+import static org.linlinjava.litemall.admin.util.AdminResponseCode.EXPORT_BUSY;
+import static org.linlinjava.litemall.admin.util.AdminResponseCode.EXPORT_NOT_FOUND;
+
+/**
+ * 数据导出
+ * <p>
+ * 导出接口直接返回CSV文件。客户端可以通过exportId参数指定导出ID，
+ * 导出过程中调用取消接口中止导出；未指定时服务端生成，通过响应头X-Export-Id返回。
+ */
+@RestController
+@RequestMapping("/admin/export")
+public class AdminExportController {
+    private final Log logger = LogFactory.getLog(AdminExportController.class);
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    @Autowired
+    private AdminExportService exportService;
+
+    @GetMapping("/order")
+    public Object order(String exportId, String nickname, String consignee, String orderSn,
+                        @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                        @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                        @RequestParam(required = false) List<Short> orderStatusArray,
+                        HttpServletResponse response) throws IOException {
+        return export(AdminExportService.TYPE_ORDER, exportId, response, (id, out) ->
+                exportService.exportOrders(id, nickname, consignee, orderSn, start, end, orderStatusArray, out));
+    }
+
+    @GetMapping("/user")
+    public Object user(String exportId, String username, String mobile, HttpServletResponse response) throws IOException {
+        return export(AdminExportService.TYPE_USER, exportId, response, (id, out) ->
+                exportService.exportUsers(id, username, mobile, out));
+    }
+
+    @GetMapping("/goods")
+    public Object goods(String exportId, String goodsSn, String name, HttpServletResponse response) throws IOException {
+        return export(AdminExportService.TYPE_GOODS, exportId, response, (id, out) ->
+                exportService.exportGoods(id, goodsSn, name, out));
+    }
+
+    /**
+     * 正在排队或进行中的导出
+     */
+    @GetMapping("/list")
+    public Object list() {
+        return ResponseUtil.okList(exportService.list());
+    }
+
+    /**
+     * 取消导出
+     *
+     * @param body { exportId: xxx }
+     */
+    @PostMapping("/cancel")
+    public Object cancel(@RequestBody String body) {
+        String exportId = JacksonUtil.parseString(body, "exportId");
+        if (exportId == null) {
+            return ResponseUtil.badArgument();
+        }
+        if (!exportService.cancel(exportId)) {
+            return ResponseUtil.fail(EXPORT_NOT_FOUND, "导出不存在或已结束");
+        }
+        return ResponseUtil.ok();
+    }
+
+    /**
+     * 设置响应头后提交导出，当前线程等待导出线程写完响应。
+     * 提交失败时响应尚未写出，重置后返回错误信息；提交成功后返回null，表示响应已处理。
+     */
+    private Object export(String type, String exportId, HttpServletResponse response,
+                          BiFunction<String, OutputStream, AdminExportService.Export> submit) throws IOException {
+        if (exportId == null || exportId.isEmpty()) {
+            exportId = UUID.randomUUID().toString().replace("-", "");
+        }
+        String filename = type + "-" + LocalDateTime.now().format(FILE_TIME) + ".csv";
+        response.setContentType("text/csv;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+        response.setHeader("X-Export-Id", exportId);
+        response.setHeader(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, "X-Export-Id");
+
+        AdminExportService.Export export;
+        try {
+            export = submit.apply(exportId, response.getOutputStream());
+        } catch (RejectedExecutionException e) {
+            logger.warn("导出队列已满，拒绝导出" + type);
+            response.reset();
+            return ResponseUtil.fail(EXPORT_BUSY, "导出任务过多，请稍后重试");
+        } catch (IllegalStateException e) {
+            response.reset();
+            return ResponseUtil.fail(EXPORT_BUSY, "导出ID正在使用");
+        }
+
+        try {
+            export.await();
+        } catch (CancellationException e) {
+            logger.info("导出" + type + "已取消，ID " + export.getId());
+        } catch (IOException e) {
+            logger.info("导出" + type + "中断，ID " + export.getId() + "：" + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+}
@@ -2,12 +2,15 @@ package org.linlinjava.litemall.admin.web;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.linlinjava.litemall.admin.service.AdminLLMJobService;
 import org.linlinjava.litemall.core.llm.model.GoodsQARequest;
 import org.linlinjava.litemall.core.llm.model.GoodsQAResponse;
 import org.linlinjava.litemall.core.llm.service.LLMQAService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.validation.Valid;
 
@@ -16,6 +19,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 大模型商品问答管理控制器
@@ -30,6 +34,9 @@ public class AdminLLMQAController {
     @Autowired
     private LLMQAService llmqaService;
 
+    @Autowired
+    private AdminLLMJobService jobService;
+
     /**
      * 处理商品问答请求
      *
@@ -329,5 +336,79 @@ public class AdminLLMQAController {
         }
     }
 
+    /**
+     * 异步提交商品问答任务
+     * 适用于统计类等耗时较长的问题，立即返回任务ID，通过轮询或SSE获取结果
+     *
+     * @param body 包含问题的请求体
+     * @return 任务ID
+     */
+    @PostMapping("/job/submit")
+    public Map<String, Object> submitJob(@RequestBody Map<String, String> body) {
+        String question = body.get("question");
+        String sessionId = body.get("sessionId");
+
+        Map<String, Object> result = new HashMap<>();
+        if (question == null || question.trim().isEmpty()) {
+            result.put("errno", 400);
+            result.put("errmsg", "问题不能为空");
+            result.put("data", null);
+            return result;
+        }
 
-}
\ No newline at end of file
+        try {
+            String jobId = jobService.submit(question, sessionId);
+            Map<String, Object> data = new HashMap<>();
+            data.put("jobId", jobId);
+            result.put("errno", 0);
+            result.put("errmsg", "success");
+            result.put("data", data);
+        } catch (RejectedExecutionException e) {
+            logger.warn("大模型问答任务队列已满，拒绝提交");
+            result.put("errno", 503);
+            result.put("errmsg", "任务队列已满，请稍后重试");
+            result.put("data", null);
+        }
+        return result;
+    }
+
+    /**
+     * 查询商品问答任务状态和结果
+     *
+     * @param jobId 任务ID
+     * @return 任务信息
+     */
+    @GetMapping("/job/{jobId}")
+    public Map<String, Object> getJob(@PathVariable String jobId) {
+        Map<String, Object> job = jobService.query(jobId);
+
+        Map<String, Object> result = new HashMap<>();
+        if (job == null) {
+            result.put("errno", 404);
+            result.put("errmsg", "任务不存在或已过期");
+            result.put("data", null);
+            return result;
+        }
+        result.put("errno", 0);
+        result.put("errmsg", "success");
+        result.put("data", job);
+        return result;
+    }
+
+    /**
+     * 订阅商品问答任务结果
+     * 任务完成后推送一次result事件并关闭连接
+     *
+     * @param jobId 任务ID
+     * @return SSE连接
+     */
+    @GetMapping(value = "/job/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeJob(@PathVariable String jobId) {
+        SseEmitter emitter = jobService.subscribe(jobId);
+        if (emitter == null) {
+            emitter = new SseEmitter(0L);
+            emitter.completeWithError(new IllegalArgumentException("任务不存在或已过期"));
+        }
+        return emitter;
+    }
+}
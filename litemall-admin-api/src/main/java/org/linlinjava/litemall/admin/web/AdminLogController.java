@@ -36,7 +36,12 @@ public class AdminLogController {
                        @RequestParam(defaultValue = "1") Integer page,
                        @RequestParam(defaultValue = "10") Integer limit,
                        @Sort @RequestParam(defaultValue = "add_time") String sort,
-                       @Order @RequestParam(defaultValue = "desc") String order) {
+                       @Order @RequestParam(defaultValue = "desc") String order,
+                       String cursor,
+                       @RequestParam(defaultValue = "false") Boolean count) {
+        if (cursor != null) {
+            return ResponseUtil.okList(logService.querySelectiveByCursor(name, startTime, endTime, status, cursor, limit, sort, order, count));
+        }
         List<LitemallLog> logList = logService.querySelective(name, startTime, endTime, status, page, limit, sort, order);
         return ResponseUtil.okList(logList);
     }
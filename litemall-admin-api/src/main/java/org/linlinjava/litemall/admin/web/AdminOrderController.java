@@ -38,6 +38,8 @@ public class AdminOrderController {
      * @param limit
      * @param sort
      * @param order
+     * @param cursor 游标，传入时按游标分页，忽略page；第一页传空字符串
+     * @param count  游标分页时是否统计总数
      * @return
      */
     @GetMapping("/list")
@@ -48,10 +50,15 @@ public class AdminOrderController {
                        @RequestParam(defaultValue = "1") Integer page,
                        @RequestParam(defaultValue = "10") Integer limit,
                        @Sort @RequestParam(defaultValue = "add_time") String sort,
-                       @Order @RequestParam(defaultValue = "desc") String order) {
+                       @Order @RequestParam(defaultValue = "desc") String order,
+                       String cursor,
+                       @RequestParam(defaultValue = "false") Boolean count) {
         if (consignee == null || consignee.isEmpty()) {
             return ResponseUtil.badArgument();
         }
+        if (cursor != null) {
+            return adminOrderService.listByCursor(nickname, consignee, orderSn, start, end, orderStatusArray, cursor, limit, sort, order, count);
+        }
         return adminOrderService.list(nickname, consignee, orderSn, start, end, orderStatusArray, page, limit, sort, order);
     }
 
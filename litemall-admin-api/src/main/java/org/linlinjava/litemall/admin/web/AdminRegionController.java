@@ -1,5 +1,7 @@
 package org.linlinjava.litemall.admin.web;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.linlinjava.litemall.admin.vo.RegionVo;
@@ -7,16 +9,15 @@ import org.linlinjava.litemall.core.util.ResponseUtil;
 import org.linlinjava.litemall.db.domain.LitemallRegion;
 import org.linlinjava.litemall.db.service.LitemallRegionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import jakarta.validation.constraints.NotNull;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 import org.springframework.security.access.prepost.PreAuthorize;
 
 @RestController
@@ -27,62 +28,36 @@ public class AdminRegionController {
 
     @Autowired
     private LitemallRegionService regionService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private volatile byte[] regionTree;
 
     @GetMapping("/clist")
     public Object clist(@NotNull Integer id) {
-        List<LitemallRegion> regionList = regionService.queryByPid(id);
+        List<LitemallRegion> regionList = regionService.getIndex().getChildren(id);
         return ResponseUtil.okList(regionList);
     }
 
+    /**
+     * 省市区树，首次请求时由区域索引生成并序列化，之后直接返回序列化结果
+     */
     @GetMapping("/list")
-    public Object list() {
-        List<RegionVo> regionVoList = new ArrayList<>();
-
-        List<LitemallRegion> litemallRegions = regionService.getAll();
-        Map<Byte, List<LitemallRegion>> collect = litemallRegions.stream().collect(Collectors.groupingBy(LitemallRegion::getType));
-        byte provinceType = 1;
-        List<LitemallRegion> provinceList = collect.get(provinceType);
-        byte cityType = 2;
-        List<LitemallRegion> city = collect.get(cityType);
-        Map<Integer, List<LitemallRegion>> cityListMap = city.stream().collect(Collectors.groupingBy(LitemallRegion::getPid));
-        byte areaType = 3;
-        List<LitemallRegion> areas = collect.get(areaType);
-        Map<Integer, List<LitemallRegion>> areaListMap = areas.stream().collect(Collectors.groupingBy(LitemallRegion::getPid));
-
-        for (LitemallRegion province : provinceList) {
-            RegionVo provinceVO = new RegionVo();
-            provinceVO.setId(province.getId());
-            provinceVO.setName(province.getName());
-            provinceVO.setCode(province.getCode());
-            provinceVO.setType(province.getType());
-
-            List<LitemallRegion> cityList = cityListMap.get(province.getId());
-            List<RegionVo> cityVOList = new ArrayList<>();
-            for (LitemallRegion cityVo : cityList) {
-                RegionVo cityVO = new RegionVo();
-                cityVO.setId(cityVo.getId());
-                cityVO.setName(cityVo.getName());
-                cityVO.setCode(cityVo.getCode());
-                cityVO.setType(cityVo.getType());
-
-                List<LitemallRegion> areaList = areaListMap.get(cityVo.getId());
-                List<RegionVo> areaVOList = new ArrayList<>();
-                for (LitemallRegion area : areaList) {
-                    RegionVo areaVO = new RegionVo();
-                    areaVO.setId(area.getId());
-                    areaVO.setName(area.getName());
-                    areaVO.setCode(area.getCode());
-                    areaVO.setType(area.getType());
-                    areaVOList.add(areaVO);
-                }
-
-                cityVO.setChildren(areaVOList);
-                cityVOList.add(cityVO);
-            }
-            provinceVO.setChildren(cityVOList);
-            regionVoList.add(provinceVO);
+    public ResponseEntity<byte[]> list() throws JsonProcessingException {
+        byte[] body = regionTree;
+        if (body == null) {
+            List<RegionVo> regionVoList = regionService.getIndex().toTree((region, children) -> {
+                RegionVo regionVo = new RegionVo();
+                regionVo.setId(region.getId());
+                regionVo.setName(region.getName());
+                regionVo.setCode(region.getCode());
+                regionVo.setType(region.getType());
+                regionVo.setChildren(children);
+                return regionVo;
+            });
+            body = objectMapper.writeValueAsBytes(ResponseUtil.okList(regionVoList));
+            regionTree = body;
         }
-
-        return ResponseUtil.okList(regionVoList);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 }
@@ -5,6 +5,7 @@ import org.apache.commons.logging.LogFactory;
 import org.linlinjava.litemall.admin.vo.StatVo;
 import org.linlinjava.litemall.core.util.ResponseUtil;
 import org.linlinjava.litemall.db.service.StatService;
+import org.linlinjava.litemall.core.wordcloud.WordCloudIndex;
 import org.linlinjava.litemall.core.wordcloud.WordCloudService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -34,6 +35,9 @@ public class AdminStatController {
     @Autowired
     private WordCloudService wordCloudService;
 
+    @Autowired
+    private WordCloudIndex wordCloudIndex;
+
     @PreAuthorize("hasPermission('admin:stat:user', 'admin')")
     @GetMapping("/user")
     public Object statUser() {
@@ -271,6 +275,12 @@ public class AdminStatController {
         if (maxWords > 200) {
             maxWords = 200;
         }
+
+        // 词云索引已构建时直接读取词频
+        if (wordCloudIndex.isReady()) {
+            return ResponseUtil.ok(toWordCloudResult(
+                wordCloudService.generateWordCloud(wordCloudIndex.goodsTerms(goodsId), maxWords)));
+        }
         
         // 获取商品评论内容
         List<Map<String, Object>> comments = statService.getGoodsComments(goodsId);
@@ -290,17 +300,7 @@ public class AdminStatController {
         
         // 生成词云
         List<WordCloudService.WordCloudData> wordCloudData = wordCloudService.generateWordCloud(commentTexts, maxWords);
-        
-        // 转换为前端期望的格式
-        List<Map<String, Object>> result = new ArrayList<>();
-        for (WordCloudService.WordCloudData data : wordCloudData) {
-            Map<String, Object> item = new HashMap<>();
-            item.put("name", data.getText());
-            item.put("value", data.getFrequency());
-            result.add(item);
-        }
-        
-        return ResponseUtil.ok(result);
+        return ResponseUtil.ok(toWordCloudResult(wordCloudData));
     }
     
     /**
@@ -321,6 +321,13 @@ public class AdminStatController {
         if (maxWords > 200) {
             maxWords = 200;
         }
+
+        // 词云索引已构建时直接读取词频，覆盖全部评论
+        if (wordCloudIndex.isReady()) {
+            Map<String, Integer> terms = categoryId != null && categoryId > 0
+                ? wordCloudIndex.categoryTerms(categoryId) : wordCloudIndex.allTerms();
+            return ResponseUtil.ok(toWordCloudResult(wordCloudService.generateWordCloud(terms, maxWords)));
+        }
         
         // 获取评论内容
         List<Map<String, Object>> comments;
@@ -348,8 +355,13 @@ public class AdminStatController {
         
         // 生成词云
         List<WordCloudService.WordCloudData> wordCloudData = wordCloudService.generateWordCloud(commentTexts, maxWords);
-        
-        // 转换为前端期望的格式
+        return ResponseUtil.ok(toWordCloudResult(wordCloudData));
+    }
+
+    /**
+     * 转换为前端期望的格式
+     */
+    private List<Map<String, Object>> toWordCloudResult(List<WordCloudService.WordCloudData> wordCloudData) {
         List<Map<String, Object>> result = new ArrayList<>();
         for (WordCloudService.WordCloudData data : wordCloudData) {
             Map<String, Object> item = new HashMap<>();
@@ -357,7 +369,6 @@ public class AdminStatController {
             item.put("value", data.getFrequency());
             result.add(item);
         }
-        
-        return ResponseUtil.ok(result);
+        return result;
     }
 }
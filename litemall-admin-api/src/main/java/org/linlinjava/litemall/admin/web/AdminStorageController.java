@@ -71,8 +71,8 @@ public class AdminStorageController {
         if (key == null || key.isEmpty()) {
             return ResponseUtil.badArgument();
         }
-        litemallStorageService.deleteByKey(key);
-        storageService.delete(key);
+        // 相同内容的其它上传仍在引用时只减少引用次数，不删除文件
+        storageService.release(key);
         return ResponseUtil.ok();
     }
 }
@@ -35,7 +35,12 @@ public class AdminUserController {
                        @RequestParam(defaultValue = "1") Integer page,
                        @RequestParam(defaultValue = "10") Integer limit,
                        @Sort @RequestParam(defaultValue = "add_time") String sort,
-                       @Order @RequestParam(defaultValue = "desc") String order) {
+                       @Order @RequestParam(defaultValue = "desc") String order,
+                       String cursor,
+                       @RequestParam(defaultValue = "false") Boolean count) {
+        if (cursor != null) {
+            return ResponseUtil.okList(userService.querySelectiveByCursor(username, mobile, cursor, limit, sort, order, count));
+        }
         List<LitemallUser> userList = userService.querySelective(username, mobile, page, limit, sort, order);
         return ResponseUtil.okList(userList);
     }
@@ -0,0 +1,111 @@
+package org.linlinjava.litemall.admin.service;
+
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.linlinjava.litemall.db.service.ExportService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class AdminExportServiceTest {
+
+    private ExportService exportService;
+    private AdminExportService adminExportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = mock(ExportService.class);
+        adminExportService = new AdminExportService();
+        ReflectionTestUtils.setField(adminExportService, "exportService", exportService);
+        ReflectionTestUtils.setField(adminExportService, "threads", 1);
+        ReflectionTestUtils.setField(adminExportService, "queueCapacity", 1);
+        adminExportService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        adminExportService.destroy();
+    }
+
+    @Test
+    void testWriteCell() throws IOException {
+        assertEquals("", cell(null));
+        assertEquals("1", cell(true));
+        assertEquals("0", cell(false));
+        assertEquals("12", cell(12));
+        assertEquals("100", cell(new BigDecimal("1E+2")));
+        assertEquals("abc", cell("abc"));
+
+        // 包含逗号、引号或换行时加引号，引号重复转义
+        assertEquals("\"a,b\"", cell("a,b"));
+        assertEquals("\"say \"\"hi\"\"\"", cell("say \"hi\""));
+        assertEquals("\"a\r\nb\"", cell("a\r\nb"));
+        assertEquals("\"a\nb\"", cell("a\nb"));
+    }
+
+    @Test
+    void testWriteCellFormulaGuard() throws IOException {
+        assertEquals("'=SUM(A1:A2)", cell("=SUM(A1:A2)"));
+        assertEquals("'+86 123", cell("+86 123"));
+        assertEquals("'-1", cell("-1"));
+        assertEquals("'@cmd", cell("@cmd"));
+        assertEquals("\"'=HYPERLINK(\"\"x\"\",1)\"", cell("=HYPERLINK(\"x\",1)"));
+        assertEquals("a=b", cell("a=b"));
+        // 数字不是文本，负数不加前缀
+        assertEquals("-1", cell(-1));
+    }
+
+    @Test
+    void testWriteRow() throws IOException {
+        StringWriter writer = new StringWriter();
+        AdminExportService.writeRow(writer, Arrays.asList("a", null, 1, "b,c"));
+        assertEquals("a,,1,\"b,c\"\r\n", writer.toString());
+    }
+
+    @Test
+    void testAwaitInterrupted() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean finished = new AtomicBoolean();
+        doAnswer(invocation -> {
+            ResultHandler<Map<String, Object>> handler = invocation.getArgument(2);
+            DefaultResultContext<Map<String, Object>> context = new DefaultResultContext<>();
+            while (!context.isStopped()) {
+                context.nextResultObject(Map.of("username", "user"));
+                handler.handleResult(context);
+                started.countDown();
+                Thread.sleep(5);
+            }
+            finished.set(true);
+            return null;
+        }).when(exportService).exportUsers(any(), any(), any());
+
+        AdminExportService.Export export = adminExportService.exportUsers(null, null, null, new ByteArrayOutputStream());
+        started.await();
+
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedException.class, export::await);
+        // 返回前导出线程已经停止写出
+        assertTrue(finished.get());
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    private static String cell(Object value) throws IOException {
+        StringWriter writer = new StringWriter();
+        AdminExportService.writeCell(writer, value);
+        return writer.toString();
+    }
+}
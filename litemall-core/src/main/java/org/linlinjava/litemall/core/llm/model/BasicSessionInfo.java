@@ -1,5 +1,6 @@
 package org.linlinjava.litemall.core.llm.model;
 
+import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -10,7 +11,9 @@ import java.util.Set;
  * 基础会话信息
  * 用于维护用户会话的基本信息和偏好设置
  */
-public class BasicSessionInfo {
+public class BasicSessionInfo implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
     private String sessionId;
     private List<String> recentQueries;     // 最近5个查询
     private String pricePreference;         // 价格偏好：高/中/低
@@ -1,5 +1,6 @@
 package org.linlinjava.litemall.core.llm.model;
 
+import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -8,8 +9,11 @@ import java.util.UUID;
 /**
  * 会话模型
  * 用于管理多轮对话的会话状态
+ * 会话因容量被淘汰时会序列化到磁盘，字段需可序列化
  */
-public class ConversationSession {
+public class ConversationSession implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
     
     /**
      * 会话ID
@@ -41,15 +45,25 @@ public class ConversationSession {
      */
     private ConversationContext context;
     
+    /**
+     * 滚动对话摘要，随对话轮次增量维护
+     */
+    private final ConversationSummary summary = new ConversationSummary();
+    
     /**
      * 会话是否过期
      */
     private boolean expired;
     
     /**
-     * 会话过期时间（分钟）
+     * 会话默认过期时间（毫秒）
+     */
+    private static final long DEFAULT_TIMEOUT_MILLIS = 30 * 60 * 1000L;
+    
+    /**
+     * 会话过期时间（毫秒），由会话管理器按会话存储配置设置
      */
-    private static final int SESSION_TIMEOUT_MINUTES = 30;
+    private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
     
     /**
      * 默认构造函数
@@ -88,10 +102,28 @@ public class ConversationSession {
         conversationHistory.add(turn);
         lastActiveTime = LocalDateTime.now();
         
+        summary.append("用户问题", question);
+        summary.append("助手回复", describeAnswer(answer, queryIntent));
+        
         // 更新上下文
         updateContext(queryIntent);
     }
     
+    /**
+     * 助手回复连同查询意图一起记入摘要
+     */
+    private String describeAnswer(String answer, QueryIntent queryIntent) {
+        if (queryIntent == null) {
+            return answer;
+        }
+        StringBuilder text = new StringBuilder(answer == null ? "" : answer);
+        text.append("（查询类型：").append(queryIntent.getQueryType());
+        if (queryIntent.getConditions() != null && !queryIntent.getConditions().isEmpty()) {
+            text.append("，查询条件：").append(queryIntent.getConditions());
+        }
+        return text.append("）").toString();
+    }
+    
     /**
      * 更新上下文
      * @param queryIntent 查询意图
@@ -115,7 +147,7 @@ public class ConversationSession {
         }
         
         LocalDateTime now = LocalDateTime.now();
-        LocalDateTime expireTime = lastActiveTime.plusMinutes(SESSION_TIMEOUT_MINUTES);
+        LocalDateTime expireTime = lastActiveTime.plusNanos(timeoutMillis * 1_000_000L);
         return now.isAfter(expireTime);
     }
     
@@ -205,6 +237,10 @@ public class ConversationSession {
         this.conversationHistory = conversationHistory;
     }
     
+    public ConversationSummary getSummary() {
+        return summary;
+    }
+    
     public ConversationContext getContext() {
         return context;
     }
@@ -213,6 +249,14 @@ public class ConversationSession {
         this.context = context;
     }
     
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+    
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+    
     public boolean isExpired() {
         return expired;
     }
@@ -236,7 +280,9 @@ public class ConversationSession {
     /**
      * 对话轮次内部类
      */
-    public static class ConversationTurn {
+    public static class ConversationTurn implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
         private String question;
         private String answer;
         private QueryIntent queryIntent;
@@ -287,7 +333,9 @@ public class ConversationSession {
     /**
      * 对话上下文内部类
      */
-    public static class ConversationContext {
+    public static class ConversationContext implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
         private String lastQueryType;
         private java.util.Map<String, Object> lastConditions;
         private String lastSort;
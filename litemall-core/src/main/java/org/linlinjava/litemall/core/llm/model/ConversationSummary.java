@@ -0,0 +1,144 @@
+package org.linlinjava.litemall.core.llm.model;
+
+import org.linlinjava.litemall.core.llm.util.TokenEstimator;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 滚动对话摘要
+ * 最近的消息保留原文，超出历史预算的较早消息折叠为一行简短摘要，摘要超出预算时丢弃最早的摘要行。
+ * 每条消息的token数量只在加入时计算一次，每条消息最多被折叠一次，
+ * 因此每轮对话的维护开销只与新增消息有关，与对话总长度无关。
+ */
+public class ConversationSummary implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // 未执行压缩时保留原文的最大消息数
+    private static final int MAX_RECENT = 50;
+
+    // 摘要行保留的最大字符数
+    private static final int SUMMARY_LINE_LENGTH = 40;
+
+    // 每行的格式开销（角色、分隔符、换行）
+    private static final int LINE_OVERHEAD = 3;
+
+    private final ArrayDeque<Entry> recent = new ArrayDeque<>();
+    private final ArrayDeque<Entry> summary = new ArrayDeque<>();
+    private int recentTokens;
+    private int summaryTokens;
+    private int omittedCount;
+
+    /**
+     * 追加一条消息
+     * @param role 角色
+     * @param content 消息内容
+     */
+    public synchronized void append(String role, String content) {
+        if (content == null) {
+            return;
+        }
+        Entry entry = new Entry(role, content);
+        recent.addLast(entry);
+        recentTokens += entry.tokens;
+        if (recent.size() > MAX_RECENT) {
+            fold();
+        }
+    }
+
+    /**
+     * 按预算压缩：较早的原文消息折叠进摘要，摘要超出预算时丢弃最早的摘要行
+     * @param historyBudget 原文消息的token预算
+     * @param summaryBudget 摘要的token预算
+     */
+    public synchronized void compact(int historyBudget, int summaryBudget) {
+        while (recent.size() > 1 && recentTokens > historyBudget) {
+            fold();
+        }
+        while (!summary.isEmpty() && summaryTokens > summaryBudget) {
+            summaryTokens -= summary.pollFirst().tokens;
+            omittedCount++;
+        }
+    }
+
+    /**
+     * 在预算内输出摘要和最近消息，预算不足时优先保留最近的消息
+     * @param out 输出
+     * @param budget token预算
+     */
+    public synchronized void appendTo(StringBuilder out, int budget) {
+        List<Entry> recentFit = new ArrayList<>();
+        int used = takeNewest(recent, budget, recentFit);
+        List<Entry> summaryFit = new ArrayList<>();
+        takeNewest(summary, budget - used, summaryFit);
+
+        int omitted = omittedCount + summary.size() - summaryFit.size();
+        if (!summaryFit.isEmpty() || omitted > 0) {
+            out.append("较早对话摘要:\n");
+            if (omitted > 0) {
+                out.append("（更早的").append(omitted).append("条消息已省略）\n");
+            }
+            for (int i = summaryFit.size() - 1; i >= 0; i--) {
+                Entry entry = summaryFit.get(i);
+                out.append("- ").append(entry.role).append(": ").append(entry.text).append("\n");
+            }
+        }
+        if (!recentFit.isEmpty()) {
+            out.append("历史对话:\n");
+            for (int i = recentFit.size() - 1; i >= 0; i--) {
+                Entry entry = recentFit.get(i);
+                out.append(entry.role).append(": ").append(entry.text).append("\n");
+            }
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return recent.isEmpty() && summary.isEmpty() && omittedCount == 0;
+    }
+
+    private int takeNewest(ArrayDeque<Entry> entries, int budget, List<Entry> taken) {
+        int used = 0;
+        Iterator<Entry> iterator = entries.descendingIterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (used + entry.tokens + LINE_OVERHEAD > budget) {
+                break;
+            }
+            used += entry.tokens + LINE_OVERHEAD;
+            taken.add(entry);
+        }
+        return used;
+    }
+
+    private void fold() {
+        Entry oldest = recent.pollFirst();
+        recentTokens -= oldest.tokens;
+        String text = oldest.text.replaceAll("\\s+", " ").trim();
+        if (text.length() > SUMMARY_LINE_LENGTH) {
+            text = text.substring(0, SUMMARY_LINE_LENGTH) + "...";
+        }
+        Entry line = new Entry(oldest.role, text);
+        summary.addLast(line);
+        summaryTokens += line.tokens;
+    }
+
+    /**
+     * 摘要中的一行
+     */
+    private static class Entry implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String role;
+        private final String text;
+        private final int tokens;
+
+        Entry(String role, String text) {
+            this.role = role;
+            this.text = text;
+            this.tokens = TokenEstimator.estimate(role) + TokenEstimator.estimate(text);
+        }
+    }
+}
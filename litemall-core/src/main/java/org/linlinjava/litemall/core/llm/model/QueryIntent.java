@@ -1,12 +1,15 @@
 package org.linlinjava.litemall.core.llm.model;
 
+import java.io.Serializable;
 import java.util.Map;
 
 /**
  * 查询意图模型
  * 用于表示LLM解析后的查询意图
  */
-public class QueryIntent {
+public class QueryIntent implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
     
     /**
      * 查询类型
@@ -4,48 +4,65 @@ import org.linlinjava.litemall.core.llm.model.ConversationSession;
 import org.linlinjava.litemall.core.llm.model.QueryIntent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 对话会话管理器
  * 负责管理多轮对话的会话状态
+ * 会话保存在 {@link LLMSessionStore} 中，与 LLMSessionManager 共享会话数量和内存上限
  */
 @Component
 public class ConversationManager {
     
     private static final Logger logger = LoggerFactory.getLogger(ConversationManager.class);
     
-    @Value("${litemall.llm.session.timeout:1800}")
-    private int sessionTimeout; // 会话超时时间（秒）
+    // 会话存储分区名称
+    private static final String REGION = "conversation";
+    
+    // 会话对象本身的估算开销（字节）
+    private static final long BASE_SIZE = 512;
+    
+    // 每轮对话除文本外的估算开销（字节）
+    private static final long TURN_OVERHEAD = 128;
     
     @Value("${litemall.llm.session.max-turns:10}")
     private int maxTurns; // 最大对话轮数
     
+    private final LLMSessionStore sessionStore;
+    
+    private final LLMPromptBuilder promptBuilder;
+    
+    // 会话存储
+    private final LLMSessionStore.Region<ConversationSession> sessions;
+    
     /**
-     * 构造函数（用于测试）
+     * 构造函数（用于测试，使用独立的会话存储）
      * @param sessionTimeout 会话超时时间（毫秒）
      * @param maxTurns 最大对话轮数
      */
     public ConversationManager(long sessionTimeout, int maxTurns) {
-        this.sessionTimeout = (int) (sessionTimeout / 1000); // 转换为秒
+        this(new LLMSessionStore(sessionTimeout, 10000, 64L * 1024 * 1024), new LLMPromptBuilder());
         this.maxTurns = maxTurns;
     }
     
     /**
      * 构造函数（Spring注入使用）
+     * @param sessionStore 会话存储
+     * @param promptBuilder 提示词构建器
      */
-    public ConversationManager() {
+    @Autowired
+    public ConversationManager(LLMSessionStore sessionStore, LLMPromptBuilder promptBuilder) {
+        this.sessionStore = sessionStore;
+        this.promptBuilder = promptBuilder;
+        this.sessions = sessionStore.region(REGION, ConversationSession.class, ConversationManager::estimateSize);
     }
     
-    // 会话存储
-    private final Map<String, ConversationSession> sessions = new ConcurrentHashMap<>();
-    
     /**
      * 获取或创建会话
      * @param sessionId 会话ID
@@ -60,15 +77,13 @@ public class ConversationManager {
         ConversationSession session = sessions.get(sessionId);
         
         if (session == null) {
-            session = new ConversationSession(userId);
-            session.setSessionId(sessionId);
+            session = newSession(sessionId, userId);
             sessions.put(sessionId, session);
             logger.info("创建新会话：{}，用户ID：{}", sessionId, userId);
         } else if (session.isSessionExpired()) {
             // 会话已过期，创建新会话
             logger.info("会话{}已过期，创建新会话", sessionId);
-            session = new ConversationSession(userId);
-            session.setSessionId(sessionId);
+            session = newSession(sessionId, userId);
             sessions.put(sessionId, session);
         } else {
             // 更新会话最后访问时间
@@ -78,6 +93,13 @@ public class ConversationManager {
         return session;
     }
     
+    private ConversationSession newSession(String sessionId, String userId) {
+        ConversationSession session = new ConversationSession(userId);
+        session.setSessionId(sessionId);
+        session.setTimeoutMillis(sessionStore.getSessionTimeoutMillis());
+        return session;
+    }
+    
     /**
      * 获取会话
      * @param sessionId 会话ID
@@ -142,6 +164,7 @@ public class ConversationManager {
         // 添加对话轮次
         session.addTurn(userMessage, assistantMessage, queryIntent);
         session.setLastActiveTime(LocalDateTime.now());
+        sessions.resize(sessionId);
         
         logger.debug("会话{}添加对话轮次，当前轮数：{}", sessionId, session.getConversationHistory().size());
         return true;
@@ -198,6 +221,7 @@ public class ConversationManager {
         }
         
         session.setLastActiveTime(LocalDateTime.now());
+        sessions.resize(sessionId);
         
         logger.debug("会话{}更新上下文：{} = {}", sessionId, contextKey, contextValue);
         return true;
@@ -222,16 +246,14 @@ public class ConversationManager {
      * 清理过期会话
      */
     public void cleanupExpiredSessions() {
-        int removedCount = 0;
+        int removedCount = sessionStore.cleanupExpiredSessions();
         
-        for (Map.Entry<String, ConversationSession> entry : sessions.entrySet()) {
-            String sessionId = entry.getKey();
-            ConversationSession session = entry.getValue();
-            
+        // 会话对象自身也有过期判断，两者取先到者
+        for (ConversationSession session : sessions.values()) {
             if (session.isSessionExpired()) {
-                sessions.remove(sessionId);
+                sessions.remove(session.getSessionId());
                 removedCount++;
-                logger.debug("清理过期会话：{}", sessionId);
+                logger.debug("清理过期会话：{}", session.getSessionId());
             }
         }
         
@@ -245,8 +267,8 @@ public class ConversationManager {
      * @return 活跃会话数量
      */
     public int getActiveSessionCount() {
-        return (int) sessions.entrySet().stream()
-                .filter(entry -> !entry.getValue().isSessionExpired())
+        return (int) sessions.values().stream()
+                .filter(session -> !session.isSessionExpired())
                 .count();
     }
     
@@ -260,6 +282,7 @@ public class ConversationManager {
 
     /**
      * 构建会话上下文
+     * 对话历史由会话的滚动摘要增量维护，构建时不再遍历全部对话轮次
      * @param sessionId 会话ID
      * @return 会话上下文字符串
      */
@@ -276,32 +299,15 @@ public class ConversationManager {
             return "";
         }
         
-        // 获取最近5轮对话历史
-        List<ConversationSession.ConversationTurn> recentHistory = session.getRecentHistory(5);
-        
-        if (recentHistory.isEmpty()) {
+        if (session.getSummary().isEmpty()) {
             logger.debug("会话{}没有对话历史，返回空上下文", sessionId);
             return "";
         }
         
-        // 构建上下文字符串
+        // 较早的对话以摘要形式出现，最近的对话保留原文，整体受提示词预算限制
         StringBuilder contextBuilder = new StringBuilder();
         contextBuilder.append("以下是最近的对话历史，用于理解当前查询的上下文：\n");
-        
-        for (int i = 0; i < recentHistory.size(); i++) {
-            ConversationSession.ConversationTurn turn = recentHistory.get(i);
-            contextBuilder.append("\n[轮次 ").append(i + 1).append("]\n");
-            contextBuilder.append("用户问题：").append(turn.getQuestion()).append("\n");
-            contextBuilder.append("助手回复：").append(turn.getAnswer()).append("\n");
-            
-            if (turn.getQueryIntent() != null) {
-                QueryIntent intent = turn.getQueryIntent();
-                contextBuilder.append("查询类型：").append(intent.getQueryType()).append("\n");
-                if (intent.getConditions() != null && !intent.getConditions().isEmpty()) {
-                    contextBuilder.append("查询条件：").append(intent.getConditions()).append("\n");
-                }
-            }
-        }
+        promptBuilder.appendHistory(contextBuilder, session.getSummary(), Integer.MAX_VALUE);
         
         // 添加上下文信息
         ConversationSession.ConversationContext context = session.getContext();
@@ -330,15 +336,14 @@ public class ConversationManager {
      * @return 是否存在
      */
     public boolean sessionExists(String sessionId) {
-        return sessionId != null && sessions.containsKey(sessionId);
+        return sessionId != null && sessions.contains(sessionId);
     }
     
     /**
      * 清除所有会话
      */
     public void clearAllSessions() {
-        int count = sessions.size();
-        sessions.clear();
+        int count = sessions.clear();
         logger.info("清除了{}个会话", count);
     }
     
@@ -396,6 +401,28 @@ public class ConversationManager {
         );
     }
     
+    /**
+     * 估算会话占用的内存，用于会话存储的容量控制
+     * @param session 会话
+     * @return 估算字节数
+     */
+    private static long estimateSize(ConversationSession session) {
+        long size = BASE_SIZE;
+        List<ConversationSession.ConversationTurn> history = session.getConversationHistory();
+        if (history != null) {
+            for (ConversationSession.ConversationTurn turn : history) {
+                size += TURN_OVERHEAD;
+                if (turn.getQuestion() != null) {
+                    size += 2L * turn.getQuestion().length();
+                }
+                if (turn.getAnswer() != null) {
+                    size += 2L * turn.getAnswer().length();
+                }
+            }
+        }
+        return size;
+    }
+    
     /**
      * 会话状态信息
      */
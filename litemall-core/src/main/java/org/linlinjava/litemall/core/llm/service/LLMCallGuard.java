@@ -0,0 +1,273 @@
+package org.linlinjava.litemall.core.llm.service;
+
+import jakarta.annotation.PostConstruct;
+import org.linlinjava.litemall.core.llm.exception.RateLimitException;
+import org.linlinjava.litemall.core.llm.exception.ServiceUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LLM调用保护
+ * 上游模型接口变慢时，避免请求线程全部阻塞在HTTP调用上：
+ * <ul>
+ *     <li>舱壁：信号量限制同时进行的调用数，获取许可最多等待一小段时间；</li>
+ *     <li>自适应并发限制（AIMD）：调用耗时低于目标值时并发上限加性增长，超时或失败时乘性下降；</li>
+ *     <li>熔断器：最近调用失败率过高时打开熔断，一段时间后放行一个试探调用，成功则恢复。</li>
+ * </ul>
+ * 被拒绝的调用抛出 {@link RateLimitException} 或 {@link ServiceUnavailableException}，由调用方决定是否降级。
+ */
+@Component
+public class LLMCallGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(LLMCallGuard.class);
+
+    // 乘性下降系数
+    private static final double DECREASE_FACTOR = 0.7;
+
+    // 最小并发上限
+    private static final double MIN_LIMIT = 1;
+
+    // 耗时滑动平均的平滑系数
+    private static final double LATENCY_ALPHA = 0.2;
+
+    /**
+     * 熔断器状态
+     */
+    public enum CircuitState {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    @Value("${litemall.llm.resilience.max-concurrent:8}")
+    private int maxConcurrent;
+
+    @Value("${litemall.llm.resilience.bulkhead-wait-ms:200}")
+    private long bulkheadWaitMs;
+
+    @Value("${litemall.llm.resilience.target-latency-ms:15000}")
+    private long targetLatencyMs;
+
+    @Value("${litemall.llm.resilience.window-size:20}")
+    private int windowSize;
+
+    @Value("${litemall.llm.resilience.min-calls:10}")
+    private int minCalls;
+
+    @Value("${litemall.llm.resilience.failure-rate-threshold:50}")
+    private int failureRateThreshold; // 百分比
+
+    @Value("${litemall.llm.resilience.open-duration-ms:30000}")
+    private long openDurationMs;
+
+    private Semaphore bulkhead;
+
+    // 以下状态需持有this锁
+    private double limit;
+    private int inFlight;
+    private CircuitState state = CircuitState.CLOSED;
+    private long openedAt;
+    private boolean trialInFlight;
+    private boolean[] outcomes; // 最近调用结果的环形窗口，true表示失败
+    private int outcomeIndex;
+    private int outcomeCount;
+    private int failureCount;
+    private double avgLatencyMs;
+
+    private final AtomicLong totalCalls = new AtomicLong();
+    private final AtomicLong successCalls = new AtomicLong();
+    private final AtomicLong failedCalls = new AtomicLong();
+    private final AtomicLong bulkheadRejected = new AtomicLong();
+    private final AtomicLong limitRejected = new AtomicLong();
+    private final AtomicLong circuitRejected = new AtomicLong();
+    private final AtomicLong fallbackCalls = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        bulkhead = new Semaphore(maxConcurrent);
+        limit = maxConcurrent;
+        outcomes = new boolean[windowSize];
+        logger.info("LLM调用保护已启动，最大并发：{}，目标耗时：{}毫秒", maxConcurrent, targetLatencyMs);
+    }
+
+    /**
+     * 执行受保护的调用
+     * @param call 调用
+     * @return 调用结果
+     * @throws RateLimitException 舱壁已满或超过自适应并发上限
+     * @throws ServiceUnavailableException 熔断器打开
+     * @throws Exception 调用本身抛出的异常
+     */
+    public <T> T execute(Callable<T> call) throws Exception {
+        Semaphore permits = bulkhead;
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(bulkheadWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RateLimitException("等待LLM调用许可时被中断", e);
+        }
+        if (!acquired) {
+            bulkheadRejected.incrementAndGet();
+            throw new RateLimitException("LLM并发调用已达上限，请稍后重试", "bulkhead",
+                maxConcurrent, maxConcurrent, 1);
+        }
+
+        boolean trial;
+        try {
+            trial = admit();
+        } catch (Exception e) {
+            permits.release();
+            throw e;
+        }
+
+        totalCalls.incrementAndGet();
+        long start = System.currentTimeMillis();
+        try {
+            T result = call.call();
+            onComplete(trial, false, System.currentTimeMillis() - start);
+            successCalls.incrementAndGet();
+            return result;
+        } catch (Exception e) {
+            onComplete(trial, true, System.currentTimeMillis() - start);
+            failedCalls.incrementAndGet();
+            throw e;
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 记录一次降级调用
+     */
+    public void recordFallback() {
+        fallbackCalls.incrementAndGet();
+    }
+
+    /**
+     * @return 熔断器是否处于打开状态
+     */
+    public synchronized boolean isCircuitOpen() {
+        return currentState() == CircuitState.OPEN;
+    }
+
+    /**
+     * 调用保护的统计信息
+     * @return 统计信息
+     */
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("circuitState", currentState().name());
+        metrics.put("concurrencyLimit", (int) Math.floor(limit));
+        metrics.put("maxConcurrent", maxConcurrent);
+        metrics.put("inFlight", inFlight);
+        metrics.put("avgLatencyMs", Math.round(avgLatencyMs));
+        metrics.put("windowFailureRate", outcomeCount == 0 ? 0 : failureCount * 100 / outcomeCount);
+        metrics.put("totalCalls", totalCalls.get());
+        metrics.put("successCalls", successCalls.get());
+        metrics.put("failedCalls", failedCalls.get());
+        metrics.put("bulkheadRejected", bulkheadRejected.get());
+        metrics.put("limitRejected", limitRejected.get());
+        metrics.put("circuitRejected", circuitRejected.get());
+        metrics.put("fallbackCalls", fallbackCalls.get());
+        return metrics;
+    }
+
+    /**
+     * 判断是否放行调用
+     * @return 是否为半开状态下的试探调用
+     */
+    private synchronized boolean admit() throws Exception {
+        CircuitState current = currentState();
+        if (current == CircuitState.OPEN || (current == CircuitState.HALF_OPEN && trialInFlight)) {
+            circuitRejected.incrementAndGet();
+            long retryAfter = Math.max(1, (openedAt + openDurationMs - System.currentTimeMillis()) / 1000);
+            throw new ServiceUnavailableException("LLM服务暂时不可用（熔断中），请稍后重试", "qwen3", (int) retryAfter);
+        }
+        if (inFlight >= (int) Math.floor(limit)) {
+            limitRejected.incrementAndGet();
+            throw new RateLimitException("LLM服务响应变慢，已限制并发调用，请稍后重试", "adaptive",
+                inFlight, (long) Math.floor(limit), 1);
+        }
+        inFlight++;
+        if (current == CircuitState.HALF_OPEN) {
+            trialInFlight = true;
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void onComplete(boolean trial, boolean failed, long latencyMs) {
+        inFlight--;
+        avgLatencyMs = avgLatencyMs == 0 ? latencyMs : avgLatencyMs + LATENCY_ALPHA * (latencyMs - avgLatencyMs);
+
+        // AIMD：正常时每个调用使上限增加1/limit，慢调用或失败时乘性下降
+        if (failed || latencyMs > targetLatencyMs) {
+            limit = Math.max(MIN_LIMIT, limit * DECREASE_FACTOR);
+        } else {
+            limit = Math.min(maxConcurrent, limit + 1.0 / limit);
+        }
+
+        if (trial) {
+            trialInFlight = false;
+            if (failed) {
+                open();
+            } else {
+                logger.info("LLM调用试探成功，关闭熔断");
+                state = CircuitState.CLOSED;
+                resetWindow();
+            }
+            return;
+        }
+
+        recordOutcome(failed);
+        if (state == CircuitState.CLOSED && outcomeCount >= minCalls
+                && failureCount * 100 >= failureRateThreshold * outcomeCount) {
+            open();
+        }
+    }
+
+    private void open() {
+        logger.warn("LLM调用失败率过高，打开熔断{}毫秒", openDurationMs);
+        state = CircuitState.OPEN;
+        openedAt = System.currentTimeMillis();
+        resetWindow();
+    }
+
+    private CircuitState currentState() {
+        if (state == CircuitState.OPEN && System.currentTimeMillis() - openedAt >= openDurationMs) {
+            state = CircuitState.HALF_OPEN;
+        }
+        return state;
+    }
+
+    private void recordOutcome(boolean failed) {
+        if (outcomeCount == outcomes.length) {
+            if (outcomes[outcomeIndex]) {
+                failureCount--;
+            }
+        } else {
+            outcomeCount++;
+        }
+        outcomes[outcomeIndex] = failed;
+        if (failed) {
+            failureCount++;
+        }
+        outcomeIndex = (outcomeIndex + 1) % outcomes.length;
+    }
+
+    private void resetWindow() {
+        outcomeIndex = 0;
+        outcomeCount = 0;
+        failureCount = 0;
+        Arrays.fill(outcomes, false);
+    }
+}
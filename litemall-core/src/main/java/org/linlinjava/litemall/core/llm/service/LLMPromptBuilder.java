@@ -0,0 +1,153 @@
+package org.linlinjava.litemall.core.llm.service;
+
+import org.linlinjava.litemall.core.llm.model.ConversationSummary;
+import org.linlinjava.litemall.core.llm.util.PromptTemplate;
+import org.linlinjava.litemall.core.llm.util.TokenEstimator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 提示词构建器
+ * 负责在token预算内组装提示词：
+ * 静态的系统提示词使用预编译模板，会话历史使用 {@link ConversationSummary} 的滚动摘要，
+ * 每轮只需要处理新增的消息，提示词长度不再随对话轮数线性增长。
+ */
+@Component
+public class LLMPromptBuilder {
+
+    private static final Logger logger = LoggerFactory.getLogger(LLMPromptBuilder.class);
+
+    /**
+     * 商品问答提示词模板
+     */
+    private static final PromptTemplate QA_TEMPLATE = PromptTemplate.compile(
+        "你是一个智能商品问答助手。请分析用户问题并自主决定是否需要查询商品数据库。\n" +
+        "重要规则：\n" +
+        "1. 禁止执行任何模糊查询，只允许明确的查询条件（如价格范围、是否在售等）\n" +
+        "2. 对于基于上下文的后续问题，优先使用已有信息回答，避免不必要的数据库查询\n" +
+        "3. 如果需要查询数据库，请同时提供自然语言解释和JSON查询条件\n\n" +
+        "=== 判断标准 ===\n" +
+        "【需要查询数据库的情况】\n" +
+        "- 用户询问具体商品价格范围（必须明确指定价格区间）\n" +
+        "- 用户查询商品是否在售\n" +
+        "- 用户需要特定分类的商品列表\n" +
+        "- 用户需要基于明确条件的商品筛选\n" +
+        "【不需要查询数据库的情况】\n" +
+        "- 用户询问基于之前查询结果的后续问题（如\"其中哪些适合送给长辈？\"）\n" +
+        "- 用户询问系统功能或操作指南\n" +
+        "- 用户进行一般性对话或问候\n" +
+        "- 用户询问商品使用建议或解释\n" +
+        "- 用户的问题不涉及具体商品信息\n" +
+        "- 用户的问题可以通过已有知识或上下文回答\n\n" +
+        "{{context}}" +
+        "=== 分析步骤 ===\n" +
+        "1. 理解用户查询意图\n" +
+        "2. 检查会话上下文，判断是否可以基于已有信息回答\n" +
+        "3. 如果需要查询：提取明确的查询条件和参数\n" +
+        "4. 如果不需要查询：直接给出自然语言回答\n\n" +
+        "=== 输出格式 ===\n" +
+        "【如果需要查询数据库】请按以下格式输出：\n" +
+        "自然语言解释（说明您将要执行什么查询）\n" +
+        "```json\n" +
+        "{\n" +
+        "  \"query_type\": \"price_range|category_filter|is_on_sale\",\n" +
+        "  \"conditions\": {\n" +
+        "    \"minPrice\": \"最小价格（分，必须为整数）\",\n" +
+        "    \"maxPrice\": \"最大价格（分，必须为整数）\",\n" +
+        "    \"categoryId\": \"分类ID（必须为整数）\",\n" +
+        "    \"isOnSale\": \"是否在售（true/false）\"\n" +
+        "  }\n" +
+        "}\n" +
+        "```\n\n" +
+        "【如果不需要查询数据库】请直接输出自然语言回答。\n\n" +
+        "=== 查询类型说明 ===\n" +
+        "- price_range: 价格范围查询（必须同时提供minPrice和maxPrice）\n" +
+        "- category_filter: 分类筛选（必须提供categoryId）\n" +
+        "- is_on_sale: 是否在售查询（必须提供isOnSale参数）\n\n" +
+        "=== 当前用户问题 ===\n" +
+        "用户问题：{{question}}\n\n" +
+        "请基于以上判断标准和分析步骤，自主决定是否需要查询数据库，并选择相应的输出格式。"
+    );
+
+    @Value("${litemall.llm.prompt.max-tokens:4000}")
+    private int maxTokens = 4000; // 提示词总预算
+
+    @Value("${litemall.llm.prompt.history-tokens:1200}")
+    private int historyTokens = 1200; // 保留原文的历史消息预算
+
+    @Value("${litemall.llm.prompt.summary-tokens:300}")
+    private int summaryTokens = 300; // 较早对话摘要的预算
+
+    /**
+     * 构建商品问答提示词
+     * @param sessionInfo 会话基本信息和用户偏好，可为空
+     * @param summary 会话的滚动摘要，可为null
+     * @param question 用户问题
+     * @return 提示词
+     */
+    public String buildQAPrompt(CharSequence sessionInfo, ConversationSummary summary, String question) {
+        int available = maxTokens - QA_TEMPLATE.getStaticTokens() - TokenEstimator.estimate(question);
+
+        StringBuilder context = new StringBuilder();
+        boolean hasInfo = sessionInfo != null && sessionInfo.length() > 0;
+        boolean hasHistory = summary != null && !summary.isEmpty();
+        if (hasInfo || hasHistory) {
+            context.append("=== 会话上下文 ===\n");
+            if (hasInfo) {
+                context.append(sessionInfo);
+            }
+            if (hasHistory) {
+                appendHistory(context, summary, available - TokenEstimator.estimate(context));
+            }
+            context.append("\n");
+        }
+
+        if (TokenEstimator.estimate(context) > Math.max(available, 0)) {
+            logger.warn("会话上下文超出提示词预算，进行截断处理。预算：{}", available);
+            context = new StringBuilder(TokenEstimator.keepTail(context.toString(), available));
+        }
+
+        Map<String, CharSequence> values = new HashMap<>();
+        values.put("context", context);
+        values.put("question", question);
+        return QA_TEMPLATE.render(values);
+    }
+
+    /**
+     * 输出会话历史：先按配置的预算压缩摘要，再在给定预算内输出
+     * @param out 输出
+     * @param summary 会话的滚动摘要
+     * @param budget 本次可用的token预算
+     */
+    public void appendHistory(StringBuilder out, ConversationSummary summary, int budget) {
+        summary.compact(historyTokens, summaryTokens);
+        summary.appendTo(out, Math.min(budget, historyTokens + summaryTokens));
+    }
+
+    /**
+     * 在提示词后追加会话上下文，上下文超出剩余预算时保留最近的部分
+     * @param prompt 提示词
+     * @param sessionContext 会话上下文
+     * @return 完整提示词
+     */
+    public String appendContext(String prompt, String sessionContext) {
+        if (sessionContext == null || sessionContext.trim().isEmpty()) {
+            return prompt;
+        }
+        int available = maxTokens - TokenEstimator.estimate(prompt);
+        String context = TokenEstimator.keepTail(sessionContext, available);
+        if (context.length() < sessionContext.length()) {
+            logger.warn("会话上下文过长，进行截断处理。原长度：{}，截断后长度：{}",
+                sessionContext.length(), context.length());
+        }
+        if (context.isEmpty()) {
+            return prompt;
+        }
+        return prompt + "\n\n会话上下文：\n" + context;
+    }
+}
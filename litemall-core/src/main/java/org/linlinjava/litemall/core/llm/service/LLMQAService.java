@@ -5,10 +5,10 @@ import org.linlinjava.litemall.core.llm.exception.LLMOutputParseException;
 import org.linlinjava.litemall.core.llm.exception.LLMServiceException;
 import org.linlinjava.litemall.core.llm.model.*;
 import org.linlinjava.litemall.core.llm.parser.*;
-import org.linlinjava.litemall.core.llm.util.GoodsDetailFilter;
 import org.linlinjava.litemall.db.domain.LitemallGoods;
 import org.linlinjava.litemall.db.dao.LitemallGoodsMapper;
 import org.linlinjava.litemall.db.domain.LitemallGoodsExample;
+import org.linlinjava.litemall.db.service.LitemallGoodsDetailTextService;
 import org.linlinjava.litemall.db.service.LitemallGoodsService;
 import com.github.pagehelper.PageHelper;
 import org.slf4j.Logger;
@@ -52,6 +52,9 @@ public class LLMQAService {
     @Autowired
     private LLMSessionManager sessionManager;
     
+    @Autowired
+    private LLMPromptBuilder promptBuilder;
+    
     @Autowired
     private QueryIntentBuilder queryIntentBuilder;
     
@@ -59,7 +62,7 @@ public class LLMQAService {
     private LLMOutputParser llmOutputParser;
     
     @Autowired
-    private GoodsDetailFilter goodsDetailFilter;
+    private LitemallGoodsDetailTextService goodsDetailTextService;
     
     // 本地缓存
     private final Map<String, GoodsQAResponse> responseCache = new ConcurrentHashMap<>();
@@ -76,10 +79,13 @@ public class LLMQAService {
      * @return 问答响应
      */
     public GoodsQAResponse processQuestion(GoodsQARequest request) {
-        // 处理sessionId为null的情况，生成默认会话ID
+        // 未携带会话ID的请求使用临时会话，不写入会话存储
         String sessionId = request.getSessionId();
-        if (sessionId == null || sessionId.trim().isEmpty()) {
-            sessionId = "default-session-" + System.currentTimeMillis();
+        boolean transientSession = sessionId == null || sessionId.trim().isEmpty();
+        LLMSessionManager.Session session = null;
+        if (transientSession) {
+            session = sessionManager.createTransientSession(1);
+            sessionId = session.getSessionId();
             request.setSessionId(sessionId);
         }
         
@@ -92,25 +98,28 @@ public class LLMQAService {
             }
             
             // 创建或获取会话
-            LLMSessionManager.Session session = sessionManager.getSession(sessionId);
-            if (session == null) {
-                // 先创建会话，然后获取会话对象
-                sessionManager.createSession(1, sessionId); // 使用默认用户ID 1
+            if (!transientSession) {
                 session = sessionManager.getSession(sessionId);
+                if (session == null) {
+                    // 先创建会话，然后获取会话对象
+                    sessionManager.createSession(1, sessionId); // 使用默认用户ID 1
+                    session = sessionManager.getSession(sessionId);
+                }
             }
             
             // 更新会话中的用户问题
-            session.addMessage("user", request.getQuestion());
+            session.addMessage(request.getQuestion(), "user");
+            sessionManager.touch(session);
             
             // 构建提示词并调用LLM
-            String prompt = buildEnhancedPrompt(request);
+            String prompt = buildEnhancedPrompt(request, session);
             logger.info("=== 构建的提示词开始 ===");
             logger.info("提示词内容：{}", prompt);
             logger.info("提示词长度：{}", prompt.length());
             logger.info("=== 构建的提示词结束 ===");
             
-            String sessionContext = getSessionContextAsString(request.getSessionId());
-            String llmResponse = qwen3Service.callLLM(prompt, sessionContext);
+            // 会话上下文已包含在提示词中，无需再单独传入
+            String llmResponse = qwen3Service.callLLM(prompt);
             
             // 详细记录LLM响应
             logger.info("=== LLM响应处理开始 ===");
@@ -140,7 +149,7 @@ public class LLMQAService {
                     logger.info("查询完成，找到 {} 个商品", goodsList.size());
                     
                     // 生成基于查询结果的答案
-                    answer = generateAnswerFromQueryResults(request, goodsList, queryIntent);
+                    answer = generateAnswerFromQueryResults(request, session, goodsList, queryIntent);
                     logger.info("生成的答案：{}", answer);
                 }
             } else {
@@ -160,7 +169,8 @@ public class LLMQAService {
             response.setGoods(goodsList);
             
             // 更新会话历史
-            session.addMessage("assistant", answer);
+            session.addMessage(answer, "assistant");
+            sessionManager.touch(session);
             
             logger.info("问答处理完成，会话ID: {}", request.getSessionId());
             return response;
@@ -191,115 +201,38 @@ public class LLMQAService {
     
     /**
      * 构建增强提示词
+     * 系统提示词使用预编译模板，会话历史使用滚动摘要，整体长度受提示词预算限制
      * @param request 问答请求
+     * @param session 当前会话
      * @return 提示词
      */
-    private String buildEnhancedPrompt(GoodsQARequest request) {
-        StringBuilder prompt = new StringBuilder();
-        
-        // 系统提示词 - 智能判断版
-        prompt.append("你是一个智能商品问答助手。请分析用户问题并自主决定是否需要查询商品数据库。\n");
-        prompt.append("重要规则：\n");
-        prompt.append("1. 禁止执行任何模糊查询，只允许明确的查询条件（如价格范围、是否在售等）\n");
-        prompt.append("2. 对于基于上下文的后续问题，优先使用已有信息回答，避免不必要的数据库查询\n");
-        prompt.append("3. 如果需要查询数据库，请同时提供自然语言解释和JSON查询条件\n\n");
-        
-        // 判断标准
-        prompt.append("=== 判断标准 ===\n");
-        prompt.append("【需要查询数据库的情况】\n");
-        prompt.append("- 用户询问具体商品价格范围（必须明确指定价格区间）\n");
-        prompt.append("- 用户查询商品是否在售\n");
-        prompt.append("- 用户需要特定分类的商品列表\n");
-        prompt.append("- 用户需要基于明确条件的商品筛选\n");
-        prompt.append("【不需要查询数据库的情况】\n");
-        prompt.append("- 用户询问基于之前查询结果的后续问题（如\"其中哪些适合送给长辈？\"）\n");
-        prompt.append("- 用户询问系统功能或操作指南\n");
-        prompt.append("- 用户进行一般性对话或问候\n");
-        prompt.append("- 用户询问商品使用建议或解释\n");
-        prompt.append("- 用户的问题不涉及具体商品信息\n");
-        prompt.append("- 用户的问题可以通过已有知识或上下文回答\n\n");
-        
+    private String buildEnhancedPrompt(GoodsQARequest request, LLMSessionManager.Session session) {
         // 获取会话上下文
-        Map<String, Object> sessionContext = getSessionContext(request.getSessionId());
+        Map<String, Object> sessionContext = getSessionContext(session);
         
-        // 添加上下文信息到提示词
+        StringBuilder sessionInfo = new StringBuilder();
         if (sessionContext != null && !sessionContext.isEmpty()) {
-            prompt.append("=== 会话上下文 ===\n");
-            
             // 会话基本信息
             String sessionId = (String) sessionContext.get("sessionId");
             Integer queryCount = (Integer) sessionContext.get("queryCount");
             if (sessionId != null) {
-                prompt.append("会话ID: ").append(sessionId).append("\n");
+                sessionInfo.append("会话ID: ").append(sessionId).append("\n");
             }
             if (queryCount != null && queryCount > 0) {
-                prompt.append("历史查询次数: ").append(queryCount).append("\n");
+                sessionInfo.append("历史查询次数: ").append(queryCount).append("\n");
             }
             
             // 用户偏好
             Map<String, Object> preferences = (Map<String, Object>) sessionContext.get("preferences");
             if (preferences != null && !preferences.isEmpty()) {
-                prompt.append("用户偏好:\n");
+                sessionInfo.append("用户偏好:\n");
                 for (Map.Entry<String, Object> entry : preferences.entrySet()) {
-                    prompt.append("- ").append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
+                    sessionInfo.append("- ").append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
                 }
             }
-            
-            // 会话历史消息
-            LLMSessionManager.Session session = sessionManager.getSession(request.getSessionId());
-            if (session != null && !session.getMessages().isEmpty()) {
-                prompt.append("历史对话:\n");
-                List<LLMSessionManager.Message> messages = session.getMessages();
-                // 只显示最近5条消息，避免提示词过长
-                int startIndex = Math.max(0, messages.size() - 5);
-                for (int i = startIndex; i < messages.size(); i++) {
-                    LLMSessionManager.Message message = messages.get(i);
-                    prompt.append(message.getType()).append(": ").append(message.getContent()).append("\n");
-                }
-            }
-            
-            prompt.append("\n");
         }
         
-        // 分析步骤
-        prompt.append("=== 分析步骤 ===\n");
-        prompt.append("1. 理解用户查询意图\n");
-        prompt.append("2. 检查会话上下文，判断是否可以基于已有信息回答\n");
-        prompt.append("3. 如果需要查询：提取明确的查询条件和参数\n");
-        prompt.append("4. 如果不需要查询：直接给出自然语言回答\n\n");
-        
-        // 输出格式
-        prompt.append("=== 输出格式 ===\n");
-        prompt.append("【如果需要查询数据库】请按以下格式输出：\n");
-        prompt.append("自然语言解释（说明您将要执行什么查询）\n");
-        prompt.append("```json\n");
-        prompt.append("{\n");
-        prompt.append("  \"query_type\": \"price_range|category_filter|is_on_sale\",\n");
-        prompt.append("  \"conditions\": {\n");
-        prompt.append("    \"minPrice\": \"最小价格（分，必须为整数）\",\n");
-        prompt.append("    \"maxPrice\": \"最大价格（分，必须为整数）\",\n");
-        prompt.append("    \"categoryId\": \"分类ID（必须为整数）\",\n");
-        prompt.append("    \"isOnSale\": \"是否在售（true/false）\"\n");
-        prompt.append("  }\n");
-        prompt.append("}\n");
-        prompt.append("```\n\n");
-        
-        prompt.append("【如果不需要查询数据库】请直接输出自然语言回答。\n\n");
-        
-        // 查询类型说明
-        prompt.append("=== 查询类型说明 ===\n");
-        prompt.append("- price_range: 价格范围查询（必须同时提供minPrice和maxPrice）\n");
-        prompt.append("- category_filter: 分类筛选（必须提供categoryId）\n");
-        prompt.append("- is_on_sale: 是否在售查询（必须提供isOnSale参数）\n\n");
-        
-        // 用户问题
-        prompt.append("=== 当前用户问题 ===\n");
-        prompt.append("用户问题：").append(request.getQuestion()).append("\n\n");
-        
-        // 智能结束语
-        prompt.append("请基于以上判断标准和分析步骤，自主决定是否需要查询数据库，并选择相应的输出格式。");
-        
-        return prompt.toString();
+        return promptBuilder.buildQAPrompt(sessionInfo, session != null ? session.getSummary() : null, request.getQuestion());
     }
     
     /**
@@ -308,76 +241,42 @@ public class LLMQAService {
      * @return 提示词
      */
     private String buildPrompt(GoodsQARequest request) {
-        return buildEnhancedPrompt(request); // 使用增强版提示词
+        return buildEnhancedPrompt(request, sessionManager.getSession(request.getSessionId())); // 使用增强版提示词
     }
     
     /**
      * 获取会话上下文
-     * @param sessionId 会话ID
+     * @param session 当前会话
      * @return 会话上下文
      */
-    private Map<String, Object> getSessionContext(String sessionId) {
-        if (sessionId == null) {
-            logger.warn("会话ID为空，返回空上下文");
+    private Map<String, Object> getSessionContext(LLMSessionManager.Session session) {
+        if (session == null) {
+            logger.warn("会话为空，返回空上下文");
             return new HashMap<>();
         }
         
+        String sessionId = session.getSessionId();
         Map<String, Object> context = new HashMap<>();
         
         try {
-            // 从会话管理器获取会话
-            LLMSessionManager.Session session = sessionManager.getSession(sessionId);
-            if (session == null) {
-                logger.warn("会话不存在，创建新会话: {}", sessionId);
-                // 创建新会话，userId设为默认值1（管理员）
-                sessionManager.createSession(1, sessionId);
-                // 重新获取会话
-                session = sessionManager.getSession(sessionId);
-                if (session == null) {
-                    logger.error("创建会话失败，返回默认上下文: {}", sessionId);
-                    context.put("sessionId", sessionId);
-                    return context;
-                }
-            }
-            
             // 获取已有的上下文数据
             Map<String, Object> existingContext = session.getContext();
             if (existingContext != null && !existingContext.isEmpty()) {
                 context.putAll(existingContext);
             }
             
-            // 构建基础会话信息
-            BasicSessionInfo sessionInfo = new BasicSessionInfo(sessionId);
-            
-            // 从会话消息中提取查询历史
-            List<LLMSessionManager.Message> messages = session.getMessages();
-            for (LLMSessionManager.Message message : messages) {
-                if ("user".equals(message.getType()) && message.getContent() != null) {
-                    sessionInfo.addQuery(message.getContent());
-                }
-            }
-            
-            // 提取用户偏好
-            Map<String, Object> preferences = new HashMap<>();
-            if (sessionInfo.getPricePreference() != null) {
-                preferences.put("price", sessionInfo.getPricePreference());
-            }
-            if (!sessionInfo.getPreferredCategories().isEmpty()) {
-                preferences.put("category", sessionInfo.getPreferredCategories());
-            }
-            if (!sessionInfo.getPreferredBrands().isEmpty()) {
-                preferences.put("brand", sessionInfo.getPreferredBrands());
-            }
-            
+            // 用户偏好随会话消息增量提取
+            Map<String, Object> preferences = session.getPreferences();
             if (!preferences.isEmpty()) {
                 context.put("preferences", preferences);
             }
             
-            context.put("queryCount", sessionInfo.getQueryCount());
+            int queryCount = session.getQueryCount();
+            context.put("queryCount", queryCount);
             context.put("sessionId", sessionId);
             
             logger.debug("成功获取会话上下文: sessionId={}, queryCount={}, hasPreferences={}", 
-                        sessionId, sessionInfo.getQueryCount(), !preferences.isEmpty());
+                        sessionId, queryCount, !preferences.isEmpty());
             
         } catch (Exception e) {
             logger.error("获取会话上下文时发生异常：sessionId={}, error={}", sessionId, e.getMessage(), e);
@@ -454,54 +353,6 @@ public class LLMQAService {
         return null;
     }
     
-    /**
-     * 将会话上下文转换为字符串格式
-     * @param sessionId 会话ID
-     * @return 会话上下文字符串
-     */
-    private String getSessionContextAsString(String sessionId) {
-        Map<String, Object> sessionContext = getSessionContext(sessionId);
-        if (sessionContext == null || sessionContext.isEmpty()) {
-            return "";
-        }
-        
-        StringBuilder contextBuilder = new StringBuilder();
-        
-        // 会话基本信息
-        String sessionIdStr = (String) sessionContext.get("sessionId");
-        Integer queryCount = (Integer) sessionContext.get("queryCount");
-        if (sessionIdStr != null) {
-            contextBuilder.append("会话ID: ").append(sessionIdStr).append("\n");
-        }
-        if (queryCount != null && queryCount > 0) {
-            contextBuilder.append("历史查询次数: ").append(queryCount).append("\n");
-        }
-        
-        // 用户偏好
-        Map<String, Object> preferences = (Map<String, Object>) sessionContext.get("preferences");
-        if (preferences != null && !preferences.isEmpty()) {
-            contextBuilder.append("用户偏好:\n");
-            for (Map.Entry<String, Object> entry : preferences.entrySet()) {
-                contextBuilder.append("- ").append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
-            }
-        }
-        
-        // 会话历史消息
-        LLMSessionManager.Session session = sessionManager.getSession(sessionId);
-        if (session != null && !session.getMessages().isEmpty()) {
-            contextBuilder.append("历史对话:\n");
-            List<LLMSessionManager.Message> messages = session.getMessages();
-            // 只显示最近5条消息，避免上下文过长
-            int startIndex = Math.max(0, messages.size() - 5);
-            for (int i = startIndex; i < messages.size(); i++) {
-                LLMSessionManager.Message message = messages.get(i);
-                contextBuilder.append(message.getType()).append(": ").append(message.getContent()).append("\n");
-            }
-        }
-        
-        return contextBuilder.toString();
-    }
-    
     /**
      * 从LLM响应中提取自然语言回答
      * @param llmResponse LLM响应
@@ -544,11 +395,13 @@ public class LLMQAService {
     /**
      * 根据查询结果生成答案
      * @param request 问答请求
+     * @param session 当前会话
      * @param goodsList 商品列表
      * @param queryIntent 查询意图
      * @return 生成的答案
      */
-    private String generateAnswerFromQueryResults(GoodsQARequest request, List<LitemallGoods> goodsList, QueryIntent queryIntent) {
+    private String generateAnswerFromQueryResults(GoodsQARequest request, LLMSessionManager.Session session,
+                                                  List<LitemallGoods> goodsList, QueryIntent queryIntent) {
         // 如果查询结果为空，提供更有帮助的响应
         if (goodsList == null || goodsList.isEmpty()) {
             StringBuilder helpfulResponse = new StringBuilder();
@@ -562,7 +415,7 @@ public class LLMQAService {
         }
         
         // 有查询结果时，复用原来的generateAnswer逻辑
-        return generateAnswer(request, goodsList, queryIntent);
+        return generateAnswer(request, session, goodsList, queryIntent);
     }
     
     /**
@@ -615,14 +468,9 @@ public class LLMQAService {
             goodsList = goodsService.querySelective(null, null, null, null, null, 0, 100, null, null);
         }
         
-        // 对于非价格范围查询的结果，也需要过滤detail字段
+        // 对于非价格范围查询的结果，也需要填充纯文本detail字段
         if (!"price_range".equals(queryType)) {
-            for (LitemallGoods goods : goodsList) {
-                if (goods.getDetail() != null && !goods.getDetail().trim().isEmpty()) {
-                    String filteredDetail = goodsDetailFilter.filterDetail(goods.getDetail());
-                    goods.setDetail(filteredDetail);
-                }
-            }
+            fillDetailText(goodsList);
         }
         
         // 应用结果过滤
@@ -653,7 +501,8 @@ public class LLMQAService {
             example.setOrderByClause("retail_price ASC");
             
             // 执行查询（先不使用分页，直接查询所有符合条件的商品）
-            List<LitemallGoods> allGoods = goodsMapper.selectByExampleWithBLOBs(example);
+            // 不读取detail等大字段，详情纯文本从litemall_goods_detail_text表获取
+            List<LitemallGoods> allGoods = goodsMapper.selectByExample(example);
             
             // 手动分页
             int startIndex = Math.min(offset, allGoods.size());
@@ -661,13 +510,8 @@ public class LLMQAService {
             
             List<LitemallGoods> resultGoods = allGoods.subList(startIndex, endIndex);
             
-            // 过滤每个商品的detail字段，移除HTML标签和图片URL
-            for (LitemallGoods goods : resultGoods) {
-                if (goods.getDetail() != null && !goods.getDetail().trim().isEmpty()) {
-                    String filteredDetail = goodsDetailFilter.filterDetail(goods.getDetail());
-                    goods.setDetail(filteredDetail);
-                }
-            }
+            // 使用写入时预先生成的纯文本作为detail字段
+            fillDetailText(resultGoods);
             
             return resultGoods;
         } catch (Exception e) {
@@ -676,6 +520,27 @@ public class LLMQAService {
         }
     }
     
+    /**
+     * 使用预先生成的纯文本详情填充商品detail字段
+     * 纯文本在商品创建和编辑时生成，尚未回填的商品detail置空
+     * @param goodsList 商品列表
+     */
+    private void fillDetailText(List<LitemallGoods> goodsList) {
+        if (goodsList == null || goodsList.isEmpty()) {
+            return;
+        }
+        
+        List<Integer> goodsIds = new ArrayList<>(goodsList.size());
+        for (LitemallGoods goods : goodsList) {
+            goodsIds.add(goods.getId());
+        }
+        
+        Map<Integer, String> detailTexts = goodsDetailTextService.queryByGoodsIds(goodsIds);
+        for (LitemallGoods goods : goodsList) {
+            goods.setDetail(detailTexts.get(goods.getId()));
+        }
+    }
+    
     /**
      * 将Map结果转换为LitemallGoods列表
      * @param results Map结果列表
@@ -728,11 +593,13 @@ public class LLMQAService {
     /**
      * 生成答案
      * @param request 问答请求
+     * @param session 当前会话
      * @param goodsList 商品列表
      * @param queryIntent 查询意图
      * @return 答案
      */
-    private String generateAnswer(GoodsQARequest request, List<LitemallGoods> goodsList, QueryIntent queryIntent) {
+    private String generateAnswer(GoodsQARequest request, LLMSessionManager.Session session,
+                                  List<LitemallGoods> goodsList, QueryIntent queryIntent) {
         if (goodsList == null || goodsList.isEmpty()) {
             return "抱歉，没有找到符合条件的商品。";
         }
@@ -740,7 +607,7 @@ public class LLMQAService {
         StringBuilder answer = new StringBuilder();
         
         // 获取会话上下文以个性化答案
-        Map<String, Object> sessionContext = getSessionContext(request.getSessionId());
+        Map<String, Object> sessionContext = getSessionContext(session);
         Map<String, Object> preferences = sessionContext != null ? 
             (Map<String, Object>) sessionContext.get("preferences") : new HashMap<>();
         
@@ -2,6 +2,8 @@ package org.linlinjava.litemall.core.llm.service;
 
 import org.linlinjava.litemall.core.llm.exception.LLMServiceException;
 import org.linlinjava.litemall.core.llm.exception.LLMOutputParseException;
+import org.linlinjava.litemall.core.llm.exception.RateLimitException;
+import org.linlinjava.litemall.core.llm.exception.ServiceUnavailableException;
 import org.linlinjava.litemall.core.llm.model.ConversationSession;
 import org.linlinjava.litemall.core.llm.model.QueryIntent;
 import org.linlinjava.litemall.core.llm.parser.LLMOutputParser;
@@ -88,6 +90,11 @@ public class LLMServiceManager {
             
             return result;
             
+        } catch (RateLimitException | ServiceUnavailableException e) {
+            logger.warn("[{}] LLM调用被拒绝 - userId: {}, error: {}", requestId, userId, e.getMessage());
+            recordFailure(userId, requestId, e instanceof RateLimitException ? "RATE_LIMITED" : "CIRCUIT_OPEN", e.getMessage());
+            return buildErrorResult("LLM服务繁忙，请稍后重试", e);
+            
         } catch (LLMServiceException e) {
             logger.error("[{}] LLM服务异常 - userId: {}, error: {}", requestId, userId, e.getMessage());
             recordFailure(userId, requestId, "LLM_SERVICE_ERROR", e.getMessage());
@@ -208,6 +215,7 @@ public class LLMServiceManager {
         Map<String, Object> status = new HashMap<>();
         status.put("llmServiceStatus", qwen3Service.getServiceStatus());
         status.put("conversationManagerStatus", conversationManager.getServiceStatus());
+        status.put("resilience", qwen3Service.getResilienceMetrics());
         status.put("totalRequests", requestStats.values().stream().mapToLong(s -> s.totalRequests).sum());
         status.put("successfulRequests", requestStats.values().stream().mapToLong(s -> s.successfulRequests).sum());
         status.put("failedRequests", requestStats.values().stream().mapToLong(s -> s.failedRequests).sum());
@@ -1,58 +1,45 @@
 package org.linlinjava.litemall.core.llm.service;
 
+import org.linlinjava.litemall.core.llm.model.BasicSessionInfo;
+import org.linlinjava.litemall.core.llm.model.ConversationSummary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 会话管理服务
  * 负责管理用户会话，包括会话创建、状态维护、超时处理等
+ * 会话保存在 {@link LLMSessionStore} 中，超时清理和容量控制由会话存储统一负责
  */
 @Service
 public class LLMSessionManager {
     
     private static final Logger logger = LoggerFactory.getLogger(LLMSessionManager.class);
     
-    // 会话超时时间（30分钟）
-    private static final long SESSION_TIMEOUT = 30 * 60 * 1000L;
-    
-    // 会话清理间隔（5分钟）
-    private static final long CLEANUP_INTERVAL = 5 * 60 * 1000L;
-    
-    // 会话存储
-    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    // 会话存储分区名称
+    private static final String REGION = "qa";
     
     // 会话ID生成器
     private final AtomicLong sessionIdGenerator = new AtomicLong(System.currentTimeMillis());
     
-    // 定时清理任务
-    private final ScheduledExecutorService cleanupExecutor;
+    private final LLMSessionStore sessionStore;
     
-    public LLMSessionManager() {
-        // 启动定时清理任务
-        cleanupExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread thread = new Thread(r, "SessionCleanupThread");
-            thread.setDaemon(true);
-            return thread;
-        });
-        
-        cleanupExecutor.scheduleWithFixedDelay(
-            this::cleanupExpiredSessions,
-            CLEANUP_INTERVAL,
-            CLEANUP_INTERVAL,
-            TimeUnit.MILLISECONDS
-        );
-        
-        logger.info("会话管理器已启动，清理间隔：{}分钟", CLEANUP_INTERVAL / (60 * 1000));
+    // 会话存储（与ConversationManager共享容量预算）
+    private final LLMSessionStore.Region<Session> sessions;
+    
+    @Autowired
+    public LLMSessionManager(LLMSessionStore sessionStore) {
+        this.sessionStore = sessionStore;
+        this.sessions = sessionStore.region(REGION, Session.class, Session::estimateSize);
     }
     
     /**
@@ -62,13 +49,23 @@ public class LLMSessionManager {
      */
     public String createSession(Integer userId) {
         String sessionId = generateSessionId();
-        Session session = new Session(sessionId, userId);
+        Session session = new Session(sessionId, userId, sessionStore.getSessionTimeoutMillis());
         sessions.put(sessionId, session);
         
         logger.debug("创建新会话：sessionId={}, userId={}", sessionId, userId);
         return sessionId;
     }
     
+    /**
+     * 创建临时会话，不写入会话存储
+     * 用于未携带会话ID的一次性请求，避免每个请求都在内存中留下一个无人再访问的会话
+     * @param userId 用户ID
+     * @return 临时会话
+     */
+    public Session createTransientSession(Integer userId) {
+        return new Session(generateSessionId(), userId, sessionStore.getSessionTimeoutMillis());
+    }
+    
     /**
      * 获取会话
      * @param sessionId 会话ID
@@ -82,12 +79,6 @@ public class LLMSessionManager {
             return null;
         }
         
-        if (session.isExpired()) {
-            sessions.remove(sessionId);
-            logger.debug("会话已过期并移除：sessionId={}", sessionId);
-            return null;
-        }
-        
         // 更新最后访问时间
         session.updateLastAccessTime();
         return session;
@@ -102,6 +93,7 @@ public class LLMSessionManager {
         Session session = getSession(sessionId);
         if (session != null) {
             session.updateContext(context);
+            sessions.resize(sessionId);
             logger.debug("更新会话上下文：sessionId={}", sessionId);
         }
     }
@@ -116,10 +108,21 @@ public class LLMSessionManager {
         Session session = getSession(sessionId);
         if (session != null) {
             session.addMessage(message, messageType);
+            sessions.resize(sessionId);
             logger.debug("添加会话消息：sessionId={}, type={}", sessionId, messageType);
         }
     }
     
+    /**
+     * 会话内容在外部修改后，重新计算其内存占用
+     * @param session 会话
+     */
+    public void touch(Session session) {
+        if (session != null) {
+            sessions.resize(session.getSessionId());
+        }
+    }
+    
     /**
      * 销毁会话
      * @param sessionId 会话ID
@@ -136,7 +139,7 @@ public class LLMSessionManager {
      * @return 活跃会话数量
      */
     public int getActiveSessionCount() {
-        cleanupExpiredSessions();
+        sessionStore.cleanupExpiredSessions();
         return sessions.size();
     }
     
@@ -145,10 +148,9 @@ public class LLMSessionManager {
      * @return 统计信息
      */
     public Map<String, Object> getSessionStatistics() {
-        Map<String, Object> stats = new java.util.HashMap<>();
+        Map<String, Object> stats = new HashMap<>(sessionStore.getStatistics());
         stats.put("totalSessions", sessions.size());
         stats.put("activeSessions", getActiveSessionCount());
-        stats.put("sessionTimeout", SESSION_TIMEOUT);
         
         return stats;
     }
@@ -177,66 +179,57 @@ public class LLMSessionManager {
         return "session_" + sessionIdGenerator.incrementAndGet() + "_" + System.nanoTime();
     }
     
-    /**
-     * 清理过期会话
-     */
-    private void cleanupExpiredSessions() {
-        int expiredCount = 0;
-        
-        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
-            if (entry.getValue().isExpired()) {
-                sessions.remove(entry.getKey());
-                expiredCount++;
-            }
-        }
-        
-        if (expiredCount > 0) {
-            logger.info("清理过期会话：{}个", expiredCount);
-        }
-    }
-    
     /**
      * 销毁会话管理器
      */
     public void destroy() {
-        if (cleanupExecutor != null && !cleanupExecutor.isShutdown()) {
-            cleanupExecutor.shutdown();
-            try {
-                if (!cleanupExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-                    cleanupExecutor.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                cleanupExecutor.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
-        }
-        
         sessions.clear();
         logger.info("会话管理器已销毁");
     }
     
     /**
      * 会话实体类
+     * <p>
+     * 上下文和消息列表采用写时复制：写操作加锁生成新的不可变快照，
+     * 读操作直接返回当前快照，不再每次读取都复制整个集合。
+     * 用户偏好和对话摘要随消息增量维护，构建提示词时不再重新扫描全部消息。
      */
-    public static class Session {
-        private final String sessionId;
-        private final Integer userId;
-        private long lastAccessTime;
-        private final long createTime;
-        private Map<String, Object> context;
-        private final List<Message> messages;
-        private int messageCount;
+    public static class Session implements Serializable {
+        private static final long serialVersionUID = 1L;
         
         private static final int MAX_MESSAGES = 50; // 最大消息数
         
-        public Session(String sessionId, Integer userId) {
+        // 会话对象本身的估算开销（字节）
+        private static final long BASE_SIZE = 256;
+        
+        // 每条消息除内容外的估算开销（字节）
+        private static final long MESSAGE_OVERHEAD = 64;
+        
+        private final String sessionId;
+        private final Integer userId;
+        private volatile long lastAccessTime;
+        private final long createTime;
+        private final long timeout;
+        private volatile Map<String, Object> context;
+        private volatile List<Message> messages;
+        private final BasicSessionInfo sessionInfo;
+        private final ConversationSummary summary;
+        
+        /**
+         * @param sessionId 会话ID
+         * @param userId 用户ID
+         * @param timeout 会话超时时间（毫秒），与会话存储配置一致
+         */
+        public Session(String sessionId, Integer userId, long timeout) {
             this.sessionId = sessionId;
             this.userId = userId;
+            this.timeout = timeout;
             this.createTime = System.currentTimeMillis();
             this.lastAccessTime = createTime;
-            this.context = new java.util.HashMap<>();
-            this.messages = new java.util.ArrayList<>();
-            this.messageCount = 0;
+            this.context = Collections.emptyMap();
+            this.messages = Collections.emptyList();
+            this.sessionInfo = new BasicSessionInfo(sessionId);
+            this.summary = new ConversationSummary();
         }
         
         public String getSessionId() {
@@ -255,41 +248,105 @@ public class LLMSessionManager {
             return createTime;
         }
         
+        /**
+         * @return 上下文的不可变快照
+         */
         public Map<String, Object> getContext() {
-            return new java.util.HashMap<>(context);
+            return context;
         }
         
+        /**
+         * @return 消息列表的不可变快照，按时间先后排列
+         */
         public List<Message> getMessages() {
-            return new java.util.ArrayList<>(messages);
+            return messages;
         }
         
         public int getMessageCount() {
-            return messageCount;
+            return messages.size();
+        }
+        
+        /**
+         * @return 从用户消息中增量提取的用户偏好（价格、类目、品牌）
+         */
+        public synchronized Map<String, Object> getPreferences() {
+            Map<String, Object> preferences = new HashMap<>();
+            if (sessionInfo.getPricePreference() != null) {
+                preferences.put("price", sessionInfo.getPricePreference());
+            }
+            if (!sessionInfo.getPreferredCategories().isEmpty()) {
+                preferences.put("category", sessionInfo.getPreferredCategories());
+            }
+            if (!sessionInfo.getPreferredBrands().isEmpty()) {
+                preferences.put("brand", sessionInfo.getPreferredBrands());
+            }
+            return preferences;
+        }
+        
+        /**
+         * @return 用户查询次数
+         */
+        public synchronized int getQueryCount() {
+            return sessionInfo.getQueryCount();
+        }
+        
+        /**
+         * @return 会话的滚动对话摘要
+         */
+        public ConversationSummary getSummary() {
+            return summary;
         }
         
         public void updateLastAccessTime() {
             this.lastAccessTime = System.currentTimeMillis();
         }
         
-        public void updateContext(Map<String, Object> newContext) {
-            if (newContext != null) {
-                this.context.putAll(newContext);
+        public synchronized void updateContext(Map<String, Object> newContext) {
+            if (newContext != null && !newContext.isEmpty()) {
+                Map<String, Object> updated = new HashMap<>(context);
+                updated.putAll(newContext);
+                this.context = Collections.unmodifiableMap(updated);
             }
         }
         
-        public void addMessage(String content, String type) {
-            if (messageCount >= MAX_MESSAGES) {
-                // 移除最早的消息
-                messages.remove(0);
-            } else {
-                messageCount++;
-            }
+        public synchronized void addMessage(String content, String type) {
+            List<Message> current = messages;
+            // 超出上限时丢弃最早的消息
+            int from = current.size() >= MAX_MESSAGES ? current.size() - MAX_MESSAGES + 1 : 0;
+            List<Message> updated = new ArrayList<>(current.size() - from + 1);
+            updated.addAll(current.subList(from, current.size()));
+            updated.add(new Message(content, type, System.currentTimeMillis()));
+            this.messages = Collections.unmodifiableList(updated);
             
-            messages.add(new Message(content, type, System.currentTimeMillis()));
+            summary.append(type, content);
+            if ("user".equals(type)) {
+                sessionInfo.addQuery(content);
+            }
+        }
+        
+        /**
+         * 估算会话占用的内存，用于会话存储的容量控制
+         * @return 估算字节数
+         */
+        public long estimateSize() {
+            long size = BASE_SIZE;
+            for (Message message : messages) {
+                size += MESSAGE_OVERHEAD;
+                if (message.getContent() != null) {
+                    size += 2L * message.getContent().length();
+                }
+            }
+            for (Map.Entry<String, Object> entry : context.entrySet()) {
+                size += MESSAGE_OVERHEAD + 2L * entry.getKey().length();
+                if (entry.getValue() != null) {
+                    size += 2L * String.valueOf(entry.getValue()).length();
+                }
+            }
+            return size;
         }
         
         public boolean isExpired() {
-            return System.currentTimeMillis() - lastAccessTime > SESSION_TIMEOUT;
+            return System.currentTimeMillis() - lastAccessTime > timeout;
         }
         
         public long getSessionDuration() {
@@ -307,7 +364,7 @@ public class LLMSessionManager {
                    ", userId=" + userId +
                    ", createTime=" + createTime +
                    ", lastAccessTime=" + lastAccessTime +
-                   ", messageCount=" + messageCount +
+                   ", messageCount=" + getMessageCount() +
                    ", expired=" + isExpired() +
                    '}';
         }
@@ -316,7 +373,9 @@ public class LLMSessionManager {
     /**
      * 消息实体类
      */
-    public static class Message {
+    public static class Message implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
         private final String content;
         private final String type; // user/assistant
         private final long timestamp;
@@ -356,9 +415,11 @@ public class LLMSessionManager {
      */
     public Message getLastMessage(String sessionId) {
         Session session = getSession(sessionId);
-        if (session != null && !session.getMessages().isEmpty()) {
+        if (session != null) {
             List<Message> messages = session.getMessages();
-            return messages.get(messages.size() - 1);
+            if (!messages.isEmpty()) {
+                return messages.get(messages.size() - 1);
+            }
         }
         return null;
     }
@@ -387,7 +448,7 @@ public class LLMSessionManager {
             return createSession(userId);
         }
         
-        Session session = new Session(sessionId, userId);
+        Session session = new Session(sessionId, userId, sessionStore.getSessionTimeoutMillis());
         sessions.put(sessionId, session);
         
         logger.info("创建指定ID的会话：sessionId={}, userId={}", sessionId, userId);
@@ -0,0 +1,669 @@
+package org.linlinjava.litemall.core.llm.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * LLM会话存储
+ * <p>
+ * LLMSessionManager 和 ConversationManager 共用的会话存储，统一负责：
+ * <ul>
+ *     <li>会话数量上限和内存占用上限（按估算字节数），超出时按最近最少使用淘汰；</li>
+ *     <li>会话超时（TTL）清理；</li>
+ *     <li>可选的磁盘溢出层：配置 litemall.llm.session.spill-dir 后，因容量被淘汰的会话写入磁盘，
+ *     再次访问时加载回内存，长时间存活的会话不会持续占用堆内存。</li>
+ * </ul>
+ * 不同管理器通过 {@link #region(String, Class, ToLongFunction)} 获取各自的分区，分区之间共享同一份容量预算。
+ * <p>
+ * 磁盘上的会话由内存中的索引记录文件路径和最后访问时间，超时按最后访问时间判断。
+ * 文件读写在释放存储锁之后进行，不阻塞其它会话的访问；索引不持久化，启动时清空溢出目录。
+ */
+@Component
+public class LLMSessionStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LLMSessionStore.class);
+
+    // 会话清理间隔（5分钟）
+    private static final long CLEANUP_INTERVAL = 5 * 60 * 1000L;
+
+    private static final String SPILL_SUFFIX = ".session";
+
+    @Value("${litemall.llm.session.timeout:1800}")
+    private int sessionTimeout; // 会话超时时间（秒）
+
+    // 会话超时时间（毫秒），仅测试构造函数设置，优先于sessionTimeout
+    private long sessionTimeoutMillis;
+
+    @Value("${litemall.llm.session.max-sessions:10000}")
+    private int maxSessions;
+
+    @Value("${litemall.llm.session.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${litemall.llm.session.spill-dir:}")
+    private String spillDir;
+
+    // 按访问顺序排列，头部为最近最少使用的会话，访问需持有this锁
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // 已溢出到磁盘（或正在写入）的会话索引，访问需持有this锁
+    private final Map<String, Spill> spills = new HashMap<>();
+
+    private final Map<String, Region<?>> regions = new HashMap<>();
+
+    private long totalBytes;
+
+    private long evictedCount;
+
+    private long spilledCount;
+
+    private long spillSequence;
+
+    private ScheduledExecutorService cleanupExecutor;
+
+    /**
+     * 构造函数（Spring注入使用）
+     */
+    public LLMSessionStore() {
+    }
+
+    /**
+     * 构造函数（用于测试，不启动定时清理）
+     * @param sessionTimeout 会话超时时间（毫秒）
+     * @param maxSessions 最大会话数
+     * @param maxBytes 最大内存占用（字节）
+     */
+    public LLMSessionStore(long sessionTimeout, int maxSessions, long maxBytes) {
+        this(sessionTimeout, maxSessions, maxBytes, "");
+    }
+
+    /**
+     * 构造函数（用于测试，不启动定时清理）
+     * @param sessionTimeout 会话超时时间（毫秒）
+     * @param maxSessions 最大会话数
+     * @param maxBytes 最大内存占用（字节）
+     * @param spillDir 磁盘溢出目录，需已存在，为空时不启用
+     */
+    public LLMSessionStore(long sessionTimeout, int maxSessions, long maxBytes, String spillDir) {
+        this.sessionTimeoutMillis = sessionTimeout;
+        this.maxSessions = maxSessions;
+        this.maxBytes = maxBytes;
+        this.spillDir = spillDir;
+    }
+
+    @PostConstruct
+    public void init() {
+        cleanupExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "SessionCleanupThread");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        cleanupExecutor.scheduleWithFixedDelay(
+            this::cleanupExpiredSessions,
+            CLEANUP_INTERVAL,
+            CLEANUP_INTERVAL,
+            TimeUnit.MILLISECONDS
+        );
+
+        if (isSpillEnabled()) {
+            try {
+                Path dir = Paths.get(spillDir);
+                Files.createDirectories(dir);
+                // 上次运行留下的文件没有索引，无法再访问
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SPILL_SUFFIX)) {
+                    for (Path path : stream) {
+                        deleteQuietly(path);
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("会话溢出目录创建失败，禁用磁盘溢出：{}", spillDir, e);
+                spillDir = "";
+            }
+        }
+
+        logger.info("会话存储已启动，最大会话数：{}，最大内存：{}字节，磁盘溢出：{}",
+            maxSessions, maxBytes, isSpillEnabled() ? spillDir : "未启用");
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (cleanupExecutor != null && !cleanupExecutor.isShutdown()) {
+            cleanupExecutor.shutdown();
+            try {
+                if (!cleanupExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    cleanupExecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                cleanupExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        PendingIO io = new PendingIO();
+        synchronized (this) {
+            for (Spill spill : spills.values()) {
+                io.deletes.add(spill.path);
+            }
+            spills.clear();
+        }
+        io.run();
+        logger.info("会话存储已关闭");
+    }
+
+    /**
+     * 获取分区，同名分区只会创建一次
+     * @param name 分区名称
+     * @param type 会话类型
+     * @param sizer 会话内存占用估算函数
+     * @return 分区
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <V> Region<V> region(String name, Class<V> type, ToLongFunction<V> sizer) {
+        return (Region<V>) regions.computeIfAbsent(name, n -> new Region<>(n, type, sizer));
+    }
+
+    public long getSessionTimeoutMillis() {
+        return sessionTimeoutMillis > 0 ? sessionTimeoutMillis : sessionTimeout * 1000L;
+    }
+
+    /**
+     * 清理所有分区的过期会话，包括磁盘溢出层
+     * @return 清理数量
+     */
+    public int cleanupExpiredSessions() {
+        int expiredCount = 0;
+        long now = System.currentTimeMillis();
+        PendingIO io = new PendingIO();
+
+        synchronized (this) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (isExpired(entry.lastAccessTime, now)) {
+                    iterator.remove();
+                    detach(entry);
+                    expiredCount++;
+                }
+            }
+
+            Iterator<Spill> spillIterator = spills.values().iterator();
+            while (spillIterator.hasNext()) {
+                Spill spill = spillIterator.next();
+                if (isExpired(spill.lastAccessTime, now)) {
+                    spillIterator.remove();
+                    io.deletes.add(spill.path);
+                    expiredCount++;
+                }
+            }
+        }
+        io.run();
+
+        if (expiredCount > 0) {
+            logger.info("清理过期会话：{}个", expiredCount);
+        }
+        return expiredCount;
+    }
+
+    /**
+     * 会话存储统计信息
+     * @return 统计信息
+     */
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalSessions", entries.size());
+        stats.put("totalBytes", totalBytes);
+        stats.put("maxSessions", maxSessions);
+        stats.put("maxBytes", maxBytes);
+        stats.put("evictedSessions", evictedCount);
+        stats.put("spilledSessions", spilledCount);
+        stats.put("diskSessions", spills.size());
+        stats.put("sessionTimeout", getSessionTimeoutMillis());
+        Map<String, Integer> regionSizes = new HashMap<>();
+        for (Region<?> region : regions.values()) {
+            regionSizes.put(region.name, region.count);
+        }
+        stats.put("regions", regionSizes);
+        return stats;
+    }
+
+    private String key(String region, String sessionId) {
+        return region + ':' + sessionId;
+    }
+
+    private boolean isExpired(long lastAccessTime, long now) {
+        return now - lastAccessTime > getSessionTimeoutMillis();
+    }
+
+    // 以下方法需持有this锁，需要的文件读写记录到PendingIO中，释放锁后执行
+
+    private void attach(Entry entry) {
+        Entry old = entries.put(entry.key, entry);
+        if (old != null) {
+            detach(old);
+        }
+        totalBytes += entry.bytes;
+        entry.region.count++;
+    }
+
+    private void detach(Entry entry) {
+        totalBytes -= entry.bytes;
+        entry.region.count--;
+    }
+
+    private void discardSpill(String key, PendingIO io) {
+        Spill spill = spills.remove(key);
+        if (spill != null) {
+            io.deletes.add(spill.path);
+        }
+    }
+
+    private void enforceBudget(PendingIO io) {
+        while (entries.size() > 1 && (entries.size() > maxSessions || totalBytes > maxBytes)) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            Entry eldest = iterator.next();
+            iterator.remove();
+            detach(eldest);
+            evictedCount++;
+            if (isSpillEnabled() && eldest.value instanceof Serializable) {
+                Spill spill = new Spill(eldest, spillPath(eldest.key));
+                spills.put(eldest.key, spill);
+                io.writes.add(spill);
+            } else {
+                logger.debug("会话容量超限，淘汰会话：{}", eldest.key);
+            }
+        }
+    }
+
+    private boolean isSpillEnabled() {
+        return spillDir != null && !spillDir.trim().isEmpty();
+    }
+
+    // 每次溢出使用新文件，已过时的写入不会覆盖之后的写入
+    private Path spillPath(String key) {
+        String fileName = Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+        return Paths.get(spillDir, fileName + '.' + (++spillSequence) + SPILL_SUFFIX);
+    }
+
+    // 以下方法不持有this锁
+
+    private void write(Spill spill) {
+        boolean written;
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(spill.path)))) {
+            out.writeObject(spill.value);
+            written = true;
+        } catch (IOException e) {
+            logger.warn("会话写入磁盘失败，直接淘汰：{}", spill.key, e);
+            written = false;
+        }
+
+        boolean current;
+        synchronized (this) {
+            current = spills.get(spill.key) == spill;
+            if (current && written) {
+                spill.value = null;
+                spilledCount++;
+            } else if (current) {
+                spills.remove(spill.key);
+            }
+        }
+        // 写入期间会话已被访问、覆盖或移除
+        if (!current || !written) {
+            deleteQuietly(spill.path);
+        }
+    }
+
+    private Object read(Spill spill) {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(spill.path)))) {
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            logger.warn("会话从磁盘加载失败：{}", spill.key, e);
+            return null;
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.debug("删除会话文件失败：{}", path);
+        }
+    }
+
+    /**
+     * 持有存储锁期间产生的文件读写，释放锁后执行
+     */
+    private class PendingIO {
+        private final List<Spill> writes = new ArrayList<>();
+        private final List<Path> deletes = new ArrayList<>();
+
+        void run() {
+            for (Spill spill : writes) {
+                write(spill);
+            }
+            for (Path path : deletes) {
+                deleteQuietly(path);
+            }
+        }
+    }
+
+    /**
+     * 会话条目
+     */
+    private class Entry {
+        private final String key;
+        private final String sessionId;
+        private final Region<?> region;
+        private final Object value;
+        private long bytes;
+        private long lastAccessTime;
+
+        Entry(String key, String sessionId, Region<?> region, Object value, long bytes) {
+            this.key = key;
+            this.sessionId = sessionId;
+            this.region = region;
+            this.value = value;
+            this.bytes = bytes;
+            this.lastAccessTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 溢出到磁盘的会话
+     */
+    private static class Spill {
+        private final String key;
+        private final String sessionId;
+        private final Region<?> region;
+        private final Path path;
+        private final long lastAccessTime;
+        // 写入完成前保留会话对象，期间的访问直接使用，访问需持有存储锁
+        private Object value;
+        // 从磁盘加载的会话，并发访问同一会话时只读取一次，访问需持有Spill锁
+        private boolean loaded;
+        private Object loadedValue;
+
+        Spill(LLMSessionStore.Entry entry, Path path) {
+            this.key = entry.key;
+            this.sessionId = entry.sessionId;
+            this.region = entry.region;
+            this.path = path;
+            this.lastAccessTime = entry.lastAccessTime;
+            this.value = entry.value;
+        }
+
+        synchronized Object load(LLMSessionStore store) {
+            if (!loaded) {
+                loadedValue = store.read(this);
+                loaded = true;
+            }
+            return loadedValue;
+        }
+    }
+
+    /**
+     * 会话分区，每个分区保存一种类型的会话
+     * @param <V> 会话类型
+     */
+    public class Region<V> {
+        private final String name;
+        private final Class<V> type;
+        private final ToLongFunction<V> sizer;
+        private int count;
+
+        private Region(String name, Class<V> type, ToLongFunction<V> sizer) {
+            this.name = name;
+            this.type = type;
+            this.sizer = sizer;
+        }
+
+        /**
+         * 获取会话并刷新访问时间
+         * @param sessionId 会话ID
+         * @return 会话，不存在或已过期返回null
+         */
+        public V get(String sessionId) {
+            if (sessionId == null) {
+                return null;
+            }
+            String key = key(name, sessionId);
+            PendingIO io = new PendingIO();
+            Spill spill;
+            try {
+                synchronized (LLMSessionStore.this) {
+                    Entry entry = entries.get(key);
+                    long now = System.currentTimeMillis();
+                    if (entry != null) {
+                        if (isExpired(entry.lastAccessTime, now)) {
+                            entries.remove(key);
+                            detach(entry);
+                            return null;
+                        }
+                        entry.lastAccessTime = now;
+                        return type.cast(entry.value);
+                    }
+
+                    spill = spills.get(key);
+                    if (spill == null) {
+                        return null;
+                    }
+                    if (isExpired(spill.lastAccessTime, now)) {
+                        discardSpill(key, io);
+                        return null;
+                    }
+                    if (spill.value != null) {
+                        // 尚未写入磁盘，直接放回内存
+                        return restore(spill, spill.value, io);
+                    }
+                }
+
+                Object value = spill.load(LLMSessionStore.this);
+
+                synchronized (LLMSessionStore.this) {
+                    Entry entry = entries.get(key);
+                    if (entry != null) {
+                        // 加载期间已被其它线程放回或覆盖
+                        entry.lastAccessTime = System.currentTimeMillis();
+                        return type.cast(entry.value);
+                    }
+                    if (spills.get(key) != spill) {
+                        // 加载期间已被移除或清理
+                        return null;
+                    }
+                    return restore(spill, value, io);
+                }
+            } finally {
+                io.run();
+            }
+        }
+
+        // 需持有存储锁
+        private V restore(Spill spill, Object value, PendingIO io) {
+            discardSpill(spill.key, io);
+            if (!type.isInstance(value)) {
+                return null;
+            }
+            V session = type.cast(value);
+            attach(new Entry(spill.key, spill.sessionId, this, session, sizer.applyAsLong(session)));
+            enforceBudget(io);
+            return session;
+        }
+
+        /**
+         * 获取会话，不存在时创建
+         * @param sessionId 会话ID
+         * @param factory 会话创建函数
+         * @return 会话
+         */
+        public V computeIfAbsent(String sessionId, Function<String, V> factory) {
+            V value = get(sessionId);
+            if (value != null) {
+                return value;
+            }
+            String key = key(name, sessionId);
+            PendingIO io = new PendingIO();
+            try {
+                synchronized (LLMSessionStore.this) {
+                    Entry entry = entries.get(key);
+                    if (entry != null) {
+                        return type.cast(entry.value);
+                    }
+                    value = factory.apply(sessionId);
+                    store(key, sessionId, value, io);
+                    return value;
+                }
+            } finally {
+                io.run();
+            }
+        }
+
+        /**
+         * 保存会话，已存在则覆盖
+         * @param sessionId 会话ID
+         * @param value 会话
+         */
+        public void put(String sessionId, V value) {
+            PendingIO io = new PendingIO();
+            synchronized (LLMSessionStore.this) {
+                store(key(name, sessionId), sessionId, value, io);
+            }
+            io.run();
+        }
+
+        // 需持有存储锁
+        private void store(String key, String sessionId, V value, PendingIO io) {
+            discardSpill(key, io);
+            attach(new Entry(key, sessionId, this, value, sizer.applyAsLong(value)));
+            enforceBudget(io);
+        }
+
+        /**
+         * 会话内容变化后重新计算内存占用
+         * @param sessionId 会话ID
+         */
+        public void resize(String sessionId) {
+            String key = key(name, sessionId);
+            PendingIO io = new PendingIO();
+            synchronized (LLMSessionStore.this) {
+                Entry entry = entries.get(key);
+                if (entry == null) {
+                    return;
+                }
+                long bytes = sizer.applyAsLong(type.cast(entry.value));
+                totalBytes += bytes - entry.bytes;
+                entry.bytes = bytes;
+                entry.lastAccessTime = System.currentTimeMillis();
+                enforceBudget(io);
+            }
+            io.run();
+        }
+
+        /**
+         * 是否包含会话（不检查过期，不刷新访问时间）
+         * @param sessionId 会话ID
+         * @return 是否包含
+         */
+        public boolean contains(String sessionId) {
+            String key = key(name, sessionId);
+            synchronized (LLMSessionStore.this) {
+                return entries.containsKey(key) || spills.containsKey(key);
+            }
+        }
+
+        /**
+         * 移除会话
+         * @param sessionId 会话ID
+         * @return 被移除的会话，不存在或只在磁盘上时返回null
+         */
+        public V remove(String sessionId) {
+            String key = key(name, sessionId);
+            PendingIO io = new PendingIO();
+            try {
+                synchronized (LLMSessionStore.this) {
+                    discardSpill(key, io);
+                    Entry entry = entries.remove(key);
+                    if (entry == null) {
+                        return null;
+                    }
+                    detach(entry);
+                    return type.cast(entry.value);
+                }
+            } finally {
+                io.run();
+            }
+        }
+
+        /**
+         * 当前分区的内存会话快照
+         * @return 会话列表
+         */
+        public List<V> values() {
+            List<V> values = new ArrayList<>();
+            synchronized (LLMSessionStore.this) {
+                for (Entry entry : entries.values()) {
+                    if (entry.region == this) {
+                        values.add(type.cast(entry.value));
+                    }
+                }
+            }
+            return values;
+        }
+
+        /**
+         * 清除当前分区的所有会话，包括磁盘上的会话
+         * @return 清除的内存会话数量
+         */
+        public int clear() {
+            int removed = 0;
+            PendingIO io = new PendingIO();
+            synchronized (LLMSessionStore.this) {
+                Iterator<Entry> iterator = entries.values().iterator();
+                while (iterator.hasNext()) {
+                    Entry entry = iterator.next();
+                    if (entry.region == this) {
+                        iterator.remove();
+                        detach(entry);
+                        removed++;
+                    }
+                }
+                Iterator<Spill> spillIterator = spills.values().iterator();
+                while (spillIterator.hasNext()) {
+                    Spill spill = spillIterator.next();
+                    if (spill.region == this) {
+                        spillIterator.remove();
+                        io.deletes.add(spill.path);
+                    }
+                }
+            }
+            io.run();
+            return removed;
+        }
+
+        /**
+         * 当前分区内存中的会话数量
+         * @return 会话数量
+         */
+        public int size() {
+            synchronized (LLMSessionStore.this) {
+                return count;
+            }
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package org.linlinjava.litemall.core.llm.service;
 
+import jakarta.annotation.PostConstruct;
 import org.linlinjava.litemall.core.llm.exception.LLMServiceException;
+import org.linlinjava.litemall.core.llm.exception.RateLimitException;
+import org.linlinjava.litemall.core.llm.exception.ServiceUnavailableException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
@@ -44,8 +49,27 @@ public class Qwen3Service {
     @Value("${litemall.modelscope.max-context-length:20000}")
     private int maxContextLength;
     
+    @Value("${litemall.llm.resilience.fallback-enabled:true}")
+    private boolean fallbackEnabled;
+    
     private final RestTemplate restTemplate = new RestTemplate();
     
+    @Autowired
+    private LLMPromptBuilder promptBuilder;
+    
+    // 未注入时（如直接构造的单元测试）不做调用保护
+    @Autowired(required = false)
+    private LLMCallGuard callGuard;
+    
+    @PostConstruct
+    public void init() {
+        // 为上游调用设置超时，避免请求线程无限期等待
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeout);
+        requestFactory.setReadTimeout(timeout);
+        restTemplate.setRequestFactory(requestFactory);
+    }
+    
     /**
      * 调用Qwen3大模型
      * @param prompt 提示词
@@ -71,9 +95,9 @@ public class Qwen3Service {
         // 直接使用传入的提示词，不再重新构建
         String fullPrompt = prompt;
         
-        // 如果需要添加会话上下文，可以在这里添加
+        // 会话上下文在提示词预算内追加
         if (sessionContext != null && !sessionContext.trim().isEmpty()) {
-            fullPrompt = prompt + "\n\n会话上下文：\n" + sessionContext;
+            fullPrompt = promptBuilder.appendContext(prompt, sessionContext);
         }
         
         if (apiKey == null || apiKey.trim().isEmpty()) {
@@ -85,9 +109,16 @@ public class Qwen3Service {
         int retryCount = 0;
         Exception lastException = null;
         
+        final String requestPrompt = fullPrompt;
         while (retryCount < maxRetries) {
             try {
-                return callLLMApi(fullPrompt);
+                if (callGuard == null) {
+                    return callLLMApi(requestPrompt);
+                }
+                return callGuard.execute(() -> callLLMApi(requestPrompt));
+            } catch (RateLimitException | ServiceUnavailableException e) {
+                // 被舱壁、并发限制或熔断拒绝，不再重试
+                return fallback(fullPrompt, e);
             } catch (Exception e) {
                 lastException = e;
                 retryCount++;
@@ -107,6 +138,30 @@ public class Qwen3Service {
         throw new LLMServiceException("API调用失败，已重试" + maxRetries + "次", lastException);
     }
     
+    /**
+     * 调用被拒绝时的降级处理：使用规则生成的模拟响应
+     * @param prompt 提示词
+     * @param cause 拒绝原因
+     * @return 模拟响应
+     * @throws LLMServiceException 未开启降级时抛出拒绝原因
+     */
+    private String fallback(String prompt, LLMServiceException cause) throws LLMServiceException {
+        if (!fallbackEnabled) {
+            throw cause;
+        }
+        logger.warn("Qwen3调用被拒绝，使用降级响应：{}", cause.getMessage());
+        callGuard.recordFallback();
+        return generateMockResponse(prompt);
+    }
+    
+    /**
+     * 获取调用保护的统计信息
+     * @return 统计信息，未启用调用保护时为空
+     */
+    public Map<String, Object> getResilienceMetrics() {
+        return callGuard != null ? callGuard.getMetrics() : new HashMap<>();
+    }
+    
     /**
      * 调用Qwen3 API
      * @param prompt 提示词
@@ -449,6 +504,11 @@ public class Qwen3Service {
                 return true;
             }
             
+            // 熔断期间不再调用上游
+            if (callGuard != null && callGuard.isCircuitOpen()) {
+                return false;
+            }
+            
             // 简单的健康检查调用
             String testPrompt = "你好";
             String response = callLLM(testPrompt);
@@ -460,84 +520,6 @@ public class Qwen3Service {
         }
     }
     
-    /**
-     * 构建完整的提示词
-     * @param userPrompt 用户提示词
-     * @param sessionContext 会话上下文
-     * @return 完整的提示词
-     */
-    private String buildFullPrompt(String userPrompt, String sessionContext) {
-        StringBuilder fullPrompt = new StringBuilder();
-        
-        // 检查并限制会话上下文长度
-        if (sessionContext != null && sessionContext.length() > maxContextLength / 2) {
-            logger.warn("会话上下文过长，进行截断处理。原长度：{}，截断后长度：{}", 
-                sessionContext.length(), maxContextLength / 2);
-            sessionContext = sessionContext.substring(0, maxContextLength / 2);
-        }
-        
-        // 添加系统提示词 - 更明确的要求
-        fullPrompt.append("你是一个智能商品问答助手。请根据用户的商品查询需求，生成结构化的查询意图。\n");
-        fullPrompt.append("请严格按照以下JSON格式返回结果，不要包含任何其他文本：\n");
-        fullPrompt.append("{\n");
-        fullPrompt.append("  \"query_type\": \"查询类型\",\n");
-        fullPrompt.append("  \"conditions\": {\n");
-        fullPrompt.append("    \"条件名\": \"条件值\"\n");
-        fullPrompt.append("  },\n");
-        fullPrompt.append("  \"sort\": \"排序方式\",\n");
-        fullPrompt.append("  \"limit\": 数量,\n");
-        fullPrompt.append("  \"confidence\": 置信度,\n");
-        fullPrompt.append("  \"explanation\": \"查询解释\"\n");
-        fullPrompt.append("}\n\n");
-        
-        // 添加查询类型说明
-        fullPrompt.append("可用的查询类型包括：\n");
-        fullPrompt.append("- price_range: 价格范围查询\n");
-        fullPrompt.append("- stock_check: 库存查询\n");
-        fullPrompt.append("- statistical: 统计查询\n");
-        fullPrompt.append("- name_pattern: 名称模式匹配\n");
-        fullPrompt.append("- keyword_search: 关键词搜索\n");
-        fullPrompt.append("- recommendation: 推荐查询\n");
-        fullPrompt.append("- unknown: 未知查询类型\n\n");
-        
-        // 添加条件说明
-        fullPrompt.append("条件说明：\n");
-        fullPrompt.append("- min_price: 最低价格\n");
-        fullPrompt.append("- max_price: 最高价格\n");
-        fullPrompt.append("- min_number: 最低库存\n");
-        fullPrompt.append("- max_number: 最高库存\n");
-        fullPrompt.append("- is_on_sale: 是否在售（1表示在售）\n");
-        fullPrompt.append("- keyword: 搜索关键词\n");
-        fullPrompt.append("- statistic_type: 统计类型（total_count, price_stats, stock_stats, category_stats）\n\n");
-        
-        // 添加示例
-        fullPrompt.append("示例：\n");
-        fullPrompt.append("用户问题：请推荐一些价格在100元以下的商品\n");
-        fullPrompt.append("正确响应：{\n");
-        fullPrompt.append("  \"query_type\": \"price_range\",\n");
-        fullPrompt.append("  \"conditions\": {\n");
-        fullPrompt.append("    \"max_price\": 100,\n");
-        fullPrompt.append("    \"is_on_sale\": 1\n");
-        fullPrompt.append("  },\n");
-        fullPrompt.append("  \"sort\": \"retail_price ASC\",\n");
-        fullPrompt.append("  \"limit\": 10,\n");
-        fullPrompt.append("  \"confidence\": 0.85,\n");
-        fullPrompt.append("  \"explanation\": \"根据用户询问100元以下商品，设置价格上限为100元\"\n");
-        fullPrompt.append("}\n\n");
-        
-        // 添加会话上下文（如果有）
-        if (sessionContext != null && !sessionContext.trim().isEmpty()) {
-            fullPrompt.append("之前的对话上下文：\n");
-            fullPrompt.append(sessionContext).append("\n\n");
-        }
-        
-        // 添加用户问题
-        fullPrompt.append("用户问题：").append(userPrompt).append("\n");
-        fullPrompt.append("请生成查询意图JSON：");
-        
-        return fullPrompt.toString();
-    }
-    
     /**
      * 获取服务状态信息
      * @return 状态信息
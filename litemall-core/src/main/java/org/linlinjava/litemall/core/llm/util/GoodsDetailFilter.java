@@ -1,27 +1,24 @@
 package org.linlinjava.litemall.core.llm.util;
 
-import java.util.regex.Pattern;
 import org.springframework.stereotype.Component;
 
 /**
  * 商品详情过滤工具类
  * 用于移除HTML标签、图片URL等非文本信息，保留纯文本内容
+ * <p>
+ * 过滤采用单次扫描完成，不再对同一详情执行多次正则替换。
+ * 商品写入时调用一次，结果保存在 litemall_goods_detail_text 表中，查询时直接读取。
  */
 @Component
 public class GoodsDetailFilter {
-    
-    // HTML标签正则表达式
-    private static final Pattern HTML_TAG_PATTERN = Pattern.compile("<[^>]+>");
-    
-    // 图片URL正则表达式
-    private static final Pattern IMAGE_URL_PATTERN = Pattern.compile("(http[s]?://[^\\s]+(jpg|jpeg|png|gif|webp))");
-    
-    // HTML属性正则表达式
-    private static final Pattern HTML_ATTRIBUTE_PATTERN = Pattern.compile("\\s+[a-zA-Z-]+\\s*=\\s*(\"[^\"]*\"|'[^']*'|[^\\s>]+)");
-    
-    // 多个空白字符正则表达式
-    private static final Pattern MULTIPLE_WHITESPACE_PATTERN = Pattern.compile("\\s+");
-    
+
+    /**
+     * 纯文本详情最大长度
+     */
+    public static final int MAX_LENGTH = 500;
+
+    private static final String[] IMAGE_SUFFIXES = {"jpg", "jpeg", "png", "gif", "webp"};
+
     /**
      * 过滤商品详情，移除HTML标签和图片URL
      * @param detail 原始详情
@@ -31,30 +28,178 @@ public class GoodsDetailFilter {
         if (detail == null || detail.trim().isEmpty()) {
             return "";
         }
-        
-        // 1. 移除所有图片URL
-        String result = IMAGE_URL_PATTERN.matcher(detail).replaceAll("");
-        
-        // 2. 移除HTML属性
-        result = HTML_ATTRIBUTE_PATTERN.matcher(result).replaceAll("");
-        
-        // 3. 移除HTML标签
-        result = HTML_TAG_PATTERN.matcher(result).replaceAll("");
-        
-        // 4. 规范化空白字符
-        result = MULTIPLE_WHITESPACE_PATTERN.matcher(result).replaceAll(" ");
-        
-        // 5. 去除首尾空白
-        result = result.trim();
-        
-        // 6. 限制长度，避免过长的文本
-        if (result.length() > 500) {
-            result = result.substring(0, 500) + "...";
+
+        // 多读一个字符，用于判断是否需要截断
+        String result = toPlainText(detail, MAX_LENGTH + 1);
+
+        // 限制长度，避免过长的文本
+        if (result.length() > MAX_LENGTH) {
+            result = result.substring(0, MAX_LENGTH) + "...";
         }
-        
+
         return result;
     }
-    
+
+    /**
+     * 单次扫描将HTML转换为纯文本
+     * <p>
+     * 扫描过程中跳过标签（含属性）、script/style内容和图片URL，
+     * 解码常见HTML实体，并将连续空白压缩为一个空格。
+     * 输出达到maxLength后立即停止扫描。
+     *
+     * @param html 原始HTML
+     * @param maxLength 最大输出长度
+     * @return 纯文本
+     */
+    public static String toPlainText(String html, int maxLength) {
+        if (html == null || html.isEmpty()) {
+            return "";
+        }
+
+        int length = html.length();
+        StringBuilder out = new StringBuilder(Math.min(length, maxLength));
+        boolean pendingSpace = false;
+        int i = 0;
+
+        while (i < length && out.length() < maxLength) {
+            char c = html.charAt(i);
+
+            if (c == '<') {
+                int end = skipTag(html, i);
+                pendingSpace = true;
+                i = end;
+                continue;
+            }
+
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                i++;
+                continue;
+            }
+
+            if ((c == 'h' || c == 'H') && startsWithUrl(html, i)) {
+                int end = i;
+                while (end < length && !Character.isWhitespace(html.charAt(end)) && html.charAt(end) != '<') {
+                    end++;
+                }
+                if (isImageUrl(html, i, end)) {
+                    pendingSpace = true;
+                    i = end;
+                    continue;
+                }
+            }
+
+            if (c == '&') {
+                int semicolon = html.indexOf(';', i);
+                if (semicolon > i && semicolon - i <= 8) {
+                    char decoded = decodeEntity(html, i + 1, semicolon);
+                    if (decoded != 0) {
+                        if (decoded == ' ') {
+                            pendingSpace = true;
+                        } else {
+                            appendChar(out, decoded, pendingSpace);
+                            pendingSpace = false;
+                        }
+                        i = semicolon + 1;
+                        continue;
+                    }
+                }
+            }
+
+            appendChar(out, c, pendingSpace);
+            pendingSpace = false;
+            i++;
+        }
+
+        return out.toString();
+    }
+
+    private static void appendChar(StringBuilder out, char c, boolean pendingSpace) {
+        if (pendingSpace && out.length() > 0) {
+            out.append(' ');
+        }
+        out.append(c);
+    }
+
+    /**
+     * 跳过从start开始的标签，script和style标签连同其内容一起跳过
+     * @return 标签之后的位置
+     */
+    private static int skipTag(String html, int start) {
+        int close = html.indexOf('>', start);
+        if (close < 0) {
+            return html.length();
+        }
+
+        String rawTag = null;
+        if (regionMatches(html, start + 1, "script")) {
+            rawTag = "</script";
+        } else if (regionMatches(html, start + 1, "style")) {
+            rawTag = "</style";
+        }
+        if (rawTag == null) {
+            return close + 1;
+        }
+
+        int rawEnd = indexOfIgnoreCase(html, rawTag, close + 1);
+        if (rawEnd < 0) {
+            return html.length();
+        }
+        int rawClose = html.indexOf('>', rawEnd);
+        return rawClose < 0 ? html.length() : rawClose + 1;
+    }
+
+    private static boolean startsWithUrl(String html, int i) {
+        return regionMatches(html, i, "http://") || regionMatches(html, i, "https://");
+    }
+
+    private static boolean isImageUrl(String html, int start, int end) {
+        // 与原有规则一致：URL中出现图片后缀即视为图片地址
+        for (int i = start; i < end; i++) {
+            for (String suffix : IMAGE_SUFFIXES) {
+                if (i + suffix.length() <= end && html.regionMatches(true, i, suffix, 0, suffix.length())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static char decodeEntity(String html, int start, int end) {
+        String name = html.substring(start, end);
+        switch (name) {
+            case "nbsp":
+                return ' ';
+            case "amp":
+                return '&';
+            case "lt":
+                return '<';
+            case "gt":
+                return '>';
+            case "quot":
+                return '"';
+            case "apos":
+            case "#39":
+                return '\'';
+            default:
+                return 0;
+        }
+    }
+
+    private static boolean regionMatches(String html, int offset, String prefix) {
+        return html.regionMatches(true, offset, prefix, 0, prefix.length());
+    }
+
+    private static int indexOfIgnoreCase(String html, String target, int from) {
+        int last = html.length() - target.length();
+        for (int i = from; i <= last; i++) {
+            if (html.regionMatches(true, i, target, 0, target.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     /**
      * 提取商品详情的纯文本摘要
      * @param detail 原始详情
@@ -66,11 +211,11 @@ public class GoodsDetailFilter {
         if (filtered.length() <= maxLength) {
             return filtered;
         }
-        
+
         // 尝试在句子边界截断
         String[] sentences = filtered.split("[。！？]");
         StringBuilder summary = new StringBuilder();
-        
+
         for (String sentence : sentences) {
             if (summary.length() + sentence.length() > maxLength) {
                 break;
@@ -80,11 +225,11 @@ public class GoodsDetailFilter {
             }
             summary.append(sentence);
         }
-        
+
         if (summary.length() == 0) {
             return filtered.substring(0, maxLength) + "...";
         }
-        
+
         return summary.toString();
     }
-}
\ No newline at end of file
+}
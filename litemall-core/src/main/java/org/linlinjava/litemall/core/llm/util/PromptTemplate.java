@@ -0,0 +1,89 @@
+package org.linlinjava.litemall.core.llm.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译的提示词模板
+ * 模板中使用 {{name}} 作为占位符，编译时将模板拆分为静态片段和占位符，
+ * 渲染时只需依次拼接，不再重复构建静态部分。静态部分的token数量在编译时计算一次。
+ */
+public class PromptTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    // 静态片段与占位符交替排列：segments[0], names[0], segments[1], names[1], ..., segments[n]
+    private final String[] segments;
+    private final String[] names;
+    private final int staticLength;
+    private final int staticTokens;
+
+    private PromptTemplate(String[] segments, String[] names) {
+        this.segments = segments;
+        this.names = names;
+        int length = 0;
+        int tokens = 0;
+        for (String segment : segments) {
+            length += segment.length();
+            tokens += TokenEstimator.estimate(segment);
+        }
+        this.staticLength = length;
+        this.staticTokens = tokens;
+    }
+
+    /**
+     * 编译模板
+     * @param template 模板文本
+     * @return 编译后的模板
+     */
+    public static PromptTemplate compile(String template) {
+        List<String> segments = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int from = 0;
+        while (true) {
+            int open = template.indexOf(OPEN, from);
+            int close = open < 0 ? -1 : template.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                segments.add(template.substring(from));
+                break;
+            }
+            segments.add(template.substring(from, open));
+            names.add(template.substring(open + OPEN.length(), close).trim());
+            from = close + CLOSE.length();
+        }
+        return new PromptTemplate(segments.toArray(new String[0]), names.toArray(new String[0]));
+    }
+
+    /**
+     * 渲染模板，缺失的占位符按空字符串处理
+     * @param values 占位符取值
+     * @return 提示词
+     */
+    public String render(Map<String, ? extends CharSequence> values) {
+        int length = staticLength;
+        for (CharSequence value : values.values()) {
+            if (value != null) {
+                length += value.length();
+            }
+        }
+        StringBuilder out = new StringBuilder(length);
+        for (int i = 0; i < names.length; i++) {
+            out.append(segments[i]);
+            CharSequence value = values.get(names[i]);
+            if (value != null) {
+                out.append(value);
+            }
+        }
+        out.append(segments[names.length]);
+        return out.toString();
+    }
+
+    /**
+     * @return 静态部分的token数量
+     */
+    public int getStaticTokens() {
+        return staticTokens;
+    }
+}
@@ -0,0 +1,78 @@
+package org.linlinjava.litemall.core.llm.util;
+
+/**
+ * Token数量估算工具类
+ * 不依赖具体模型的分词器，按字符类型粗略估算：
+ * 中文等非ASCII字符每个字符计1个token，ASCII字符每4个计1个token。
+ * 估算结果只用于提示词长度预算控制。
+ */
+public class TokenEstimator {
+
+    private static final int ASCII_CHARS_PER_TOKEN = 4;
+
+    private TokenEstimator() {
+    }
+
+    /**
+     * 估算文本的token数量
+     * @param text 文本
+     * @return token数量
+     */
+    public static int estimate(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+        return estimate(text, 0, text.length());
+    }
+
+    /**
+     * 估算文本片段的token数量
+     * @param text 文本
+     * @param start 起始位置（包含）
+     * @param end 结束位置（不包含）
+     * @return token数量
+     */
+    public static int estimate(CharSequence text, int start, int end) {
+        int ascii = 0;
+        int other = 0;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) < 0x80) {
+                ascii++;
+            } else {
+                other++;
+            }
+        }
+        return other + (ascii + ASCII_CHARS_PER_TOKEN - 1) / ASCII_CHARS_PER_TOKEN;
+    }
+
+    /**
+     * 保留文本末尾不超过maxTokens的部分
+     * 会话上下文按时间先后排列，超出预算时优先保留最近的内容
+     * @param text 文本
+     * @param maxTokens 最大token数量
+     * @return 截断后的文本
+     */
+    public static String keepTail(String text, int maxTokens) {
+        if (text == null || maxTokens <= 0) {
+            return "";
+        }
+        if (estimate(text) <= maxTokens) {
+            return text;
+        }
+        int ascii = 0;
+        int other = 0;
+        int i = text.length();
+        while (i > 0) {
+            char c = text.charAt(i - 1);
+            int nextAscii = c < 0x80 ? ascii + 1 : ascii;
+            int nextOther = c < 0x80 ? other : other + 1;
+            if (nextOther + (nextAscii + ASCII_CHARS_PER_TOKEN - 1) / ASCII_CHARS_PER_TOKEN > maxTokens) {
+                break;
+            }
+            ascii = nextAscii;
+            other = nextOther;
+            i--;
+        }
+        return text.substring(i);
+    }
+}
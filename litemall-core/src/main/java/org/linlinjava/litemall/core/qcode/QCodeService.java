@@ -1,51 +1,197 @@
 package org.linlinjava.litemall.core.qcode;
 
 import cn.binarywang.wx.miniapp.api.WxMaService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import me.chanjar.weixin.common.error.WxErrorException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.linlinjava.litemall.core.storage.StorageService;
 import org.linlinjava.litemall.core.system.SystemConfig;
+import org.linlinjava.litemall.db.domain.LitemallGoods;
 import org.linlinjava.litemall.db.domain.LitemallGroupon;
 import org.linlinjava.litemall.db.domain.LitemallStorage;
+import org.linlinjava.litemall.db.service.LitemallGoodsService;
+import org.linlinjava.litemall.db.util.LruCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.*;
-import java.net.URL;
-
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分享图生成
+ * <p>
+ * 商品分享图通过 {@link #scheduleGoodShareImage(Integer)} 放入后台队列，请求线程只在当前事务中清空商品的分享图地址。
+ * 同一商品在防抖时间内的多次修改只生成一次，生成时重新读取商品信息，完成后只更新商品的分享图地址。
+ * 分享图地址为空即表示等待生成，重启后由 {@link #scheduleMissingShareImages()} 重新安排，
+ * 每轮最多安排 {@code litemall.share-image.startup-limit} 个商品，相邻两次生成间隔 {@code litemall.share-image.interval}，
+ * 避免启动时集中请求小程序码接口，超出的商品在本轮结束后的下一轮安排。
+ * 底图解码后缓存，商品小程序码缓存请求得到的PNG数据，团购小程序码的场景值不重复，不缓存。
+ */
 @Service
 public class QCodeService {
     private final Log logger = LogFactory.getLog(QCodeService.class);
+
+    private static final Font NAME_FONT = new Font("Microsoft YaHei", Font.PLAIN, 28);
+    private static final Color TEXT_COLOR = new Color(167, 136, 69);
+    private static final int QR_CACHE_SIZE = 64;
+    private static final int TIMEOUT = 10000; // 下载商品图片的超时时间，毫秒
+
     @Autowired
     WxMaService wxMaService;
 
     @Autowired
     private StorageService storageService;
+    @Autowired
+    private LitemallGoodsService goodsService;
+
+    @Value("${litemall.share-image.threads:1}")
+    private int threads;
+    @Value("${litemall.share-image.debounce:3000}")
+    private long debounce; // 毫秒
+    @Value("${litemall.share-image.startup-limit:200}")
+    private int startupLimit; // 每轮补生成的商品数量
+    @Value("${litemall.share-image.interval:1000}")
+    private long interval; // 补生成时相邻两次的间隔，毫秒
+
+    private ScheduledThreadPoolExecutor executor;
+    // 商品ID -> 等待执行的生成任务，任务开始执行时移除
+    private final Map<Integer, ScheduledFuture<?>> pending = new ConcurrentHashMap<>();
+
+    private volatile BufferedImage background;
+    // 商品小程序码场景值 -> PNG数据
+    private final LruCache<String, byte[]> qrCodes = new LruCache<>(QR_CACHE_SIZE);
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ScheduledThreadPoolExecutor(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "share-image-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 安排生成商品分享图，在当前事务中清空分享图地址，提交后开始计时
+     *
+     * @param goodsId 商品ID
+     */
+    public void scheduleGoodShareImage(Integer goodsId) {
+        if (!SystemConfig.isAutoCreateShareImage()) {
+            return;
+        }
+        goodsService.updateShareUrl(goodsId, "");
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    schedule(goodsId);
+                }
+            });
+        } else {
+            schedule(goodsId);
+        }
+    }
+
+    /**
+     * 为没有分享图的商品安排生成，包括重启前尚未生成的商品
+     * <p>
+     * 按商品ID顺序每轮最多安排startupLimit个商品并按interval错开，还有剩余时在本轮最后一个之后
+     * 从本轮最后的商品ID继续，每次调用只遍历一遍，生成失败的商品等待下次重启或修改
+     *
+     * @return 第一轮安排生成的商品数量
+     */
+    public int scheduleMissingShareImages() {
+        if (!SystemConfig.isAutoCreateShareImage()) {
+            return 0;
+        }
+        return scheduleMissingShareImages(0);
+    }
+
+    private int scheduleMissingShareImages(int afterId) {
+        List<Integer> goodsIds = new ArrayList<>();
+        for (Integer goodsId : goodsService.queryIdsWithoutShareUrl()) {
+            if (goodsId > afterId) {
+                goodsIds.add(goodsId);
+            }
+        }
+        int count = Math.min(goodsIds.size(), Math.max(1, startupLimit));
+        for (int i = 0; i < count; i++) {
+            schedule(goodsIds.get(i), debounce + i * interval);
+        }
+        if (goodsIds.size() > count) {
+            int lastId = goodsIds.get(count - 1);
+            executor.schedule(() -> scheduleMissingShareImages(lastId), debounce + count * interval, TimeUnit.MILLISECONDS);
+            logger.info("分享图补生成：本轮安排 " + count + " 个商品，剩余 " + (goodsIds.size() - count) + " 个在下一轮安排");
+        }
+        return count;
+    }
+
+    private void schedule(Integer goodsId) {
+        schedule(goodsId, debounce);
+    }
 
+    private void schedule(Integer goodsId, long delay) {
+        pending.compute(goodsId, (id, previous) -> {
+            if (previous != null) {
+                previous.cancel(false);
+            }
+            return executor.schedule(() -> {
+                pending.remove(id);
+                generateGoodShareImage(id);
+            }, delay, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private void generateGoodShareImage(Integer goodsId) {
+        LitemallGoods goods = goodsService.findById(goodsId);
+        if (goods == null) {
+            return;
+        }
+        String url = createGoodShareImage(goodsId.toString(), goods.getPicUrl(), goods.getName());
+        if (!url.isEmpty()) {
+            goodsService.updateShareUrl(goodsId, url);
+        }
+    }
 
     public String createGrouponShareImage(String goodName, String goodPicUrl, LitemallGroupon groupon) {
         try {
-            //创建该商品的二维码
-            File file = wxMaService.getQrcodeService().createWxaCodeUnlimit("groupon," + groupon.getId(), "pages" +
-                    "/index/index");
-            FileInputStream inputStream = new FileInputStream(file);
+            //创建该团购的二维码
+            BufferedImage qrCode = qrCode("groupon," + groupon.getId(), false);
             //将商品图片，商品名字,商城名字画到模版图中
-            byte[] imageData = drawPicture(inputStream, goodPicUrl, goodName);
-            ByteArrayInputStream inputStream2 = new ByteArrayInputStream(imageData);
+            byte[] imageData = drawPicture(qrCode, goodPicUrl, goodName);
+            ByteArrayInputStream inputStream = new ByteArrayInputStream(imageData);
             //存储分享图
-            LitemallStorage storageInfo = storageService.store(inputStream2, imageData.length, "image/jpeg",
+            LitemallStorage storageInfo = storageService.store(inputStream, imageData.length, "image/jpeg",
                     getKeyName(groupon.getId().toString()));
 
             return storageInfo.getUrl();
         } catch (WxErrorException e) {
             logger.error(e.getMessage(), e);
-        } catch (FileNotFoundException e) {
-            logger.error(e.getMessage(), e);
         } catch (IOException e) {
             logger.error(e.getMessage(), e);
         }
@@ -67,20 +213,17 @@ public class QCodeService {
 
         try {
             //创建该商品的二维码
-            File file = wxMaService.getQrcodeService().createWxaCodeUnlimit("goods," + goodId, "pages/index/index");
-            FileInputStream inputStream = new FileInputStream(file);
+            BufferedImage qrCode = qrCode("goods," + goodId, true);
             //将商品图片，商品名字,商城名字画到模版图中
-            byte[] imageData = drawPicture(inputStream, goodPicUrl, goodName);
-            ByteArrayInputStream inputStream2 = new ByteArrayInputStream(imageData);
+            byte[] imageData = drawPicture(qrCode, goodPicUrl, goodName);
+            ByteArrayInputStream inputStream = new ByteArrayInputStream(imageData);
             //存储分享图
-            LitemallStorage litemallStorage = storageService.store(inputStream2, imageData.length, "image/jpeg",
+            LitemallStorage litemallStorage = storageService.store(inputStream, imageData.length, "image/jpeg",
                     getKeyName(goodId));
 
             return litemallStorage.getUrl();
         } catch (WxErrorException e) {
             logger.error(e.getMessage(), e);
-        } catch (FileNotFoundException e) {
-            logger.error(e.getMessage(), e);
         } catch (IOException e) {
             logger.error(e.getMessage(), e);
         }
@@ -92,96 +235,101 @@ public class QCodeService {
         return "GOOD_QCODE_" + goodId + ".jpg";
     }
 
+    /**
+     * 小程序码
+     *
+     * @param cache 是否缓存，缓存时同一场景值只请求一次
+     */
+    private BufferedImage qrCode(String scene, boolean cache) throws WxErrorException, IOException {
+        byte[] data = cache ? qrCodes.get(scene) : null;
+        if (data == null) {
+            File file = wxMaService.getQrcodeService().createWxaCodeUnlimit(scene, "pages/index/index");
+            try {
+                data = Files.readAllBytes(file.toPath());
+            } finally {
+                file.delete();
+            }
+        }
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+        if (image == null) {
+            throw new IOException("无法解析小程序码 " + scene);
+        }
+        if (cache) {
+            qrCodes.put(scene, data);
+        }
+        return image;
+    }
+
+    private BufferedImage background() throws IOException {
+        BufferedImage image = background;
+        if (image == null) {
+            //底图
+            ClassPathResource resource = new ClassPathResource("back.png");
+            try (InputStream in = resource.getInputStream()) {
+                image = ImageIO.read(in);
+            }
+            background = image;
+        }
+        return image;
+    }
+
+    private BufferedImage download(String url) throws IOException {
+        URLConnection connection = java.net.URI.create(url).toURL().openConnection();
+        connection.setConnectTimeout(TIMEOUT);
+        connection.setReadTimeout(TIMEOUT);
+        try (InputStream in = connection.getInputStream()) {
+            BufferedImage image = ImageIO.read(in);
+            if (image == null) {
+                throw new IOException("无法解析商品图片 " + url);
+            }
+            return image;
+        }
+    }
+
     /**
      * 将商品图片，商品名字画到模版图中
      *
-     * @param qrCodeImg  二维码图片
-     * @param goodPicUrl 商品图片地址
-     * @param goodName   商品名称
+     * @param qrCodeImage 二维码图片
+     * @param goodPicUrl  商品图片地址
+     * @param goodName    商品名称
      * @return
      * @throws IOException
      */
-    private byte[] drawPicture(InputStream qrCodeImg, String goodPicUrl, String goodName) throws IOException {
-        //底图
-        ClassPathResource redResource = new ClassPathResource("back.png");
-        BufferedImage red = ImageIO.read(redResource.getInputStream());
-
+    private byte[] drawPicture(BufferedImage qrCodeImage, String goodPicUrl, String goodName) throws IOException {
+        BufferedImage red = background();
 
         //商品图片
-        URL goodPic = java.net.URI.create(goodPicUrl).toURL();
-        BufferedImage goodImage = ImageIO.read(goodPic);
-
-        //小程序二维码
-        BufferedImage qrCodeImage = ImageIO.read(qrCodeImg);
+        BufferedImage goodImage = download(goodPicUrl);
 
         // --- 画图 ---
 
-        //底层空白 bufferedImage
-        BufferedImage baseImage = new BufferedImage(red.getWidth(), red.getHeight(), BufferedImage.TYPE_4BYTE_ABGR_PRE);
-
-        //画上图片
-        drawImgInImg(baseImage, red, 0, 0, red.getWidth(), red.getHeight());
-
-        //画上商品图片
-        drawImgInImg(baseImage, goodImage, 71, 69, 660, 660);
-
-        //画上小程序二维码
-        drawImgInImg(baseImage, qrCodeImage, 448, 767, 300, 300);
-
-        //写上商品名称
-        drawTextInImg(baseImage, goodName, 65, 867);
-
-        //写上商城名称（暂时禁用，因为方法drawTextInImgCenter未使用）
-
+        //直接画在jpg使用的RGB图片上，使用同一个绘图上下文
+        BufferedImage result = new BufferedImage(red.getWidth(), red.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g2D = result.createGraphics();
+        try {
+            //画上底图
+            g2D.drawImage(red, 0, 0, red.getWidth(), red.getHeight(), null);
+
+            //画上商品图片
+            g2D.drawImage(goodImage, 71, 69, 660, 660, null);
+
+            //画上小程序二维码
+            g2D.drawImage(qrCodeImage, 448, 767, 300, 300, null);
+
+            //写上商品名称
+            //TODO 注意，这里的字体必须安装在服务器上
+            g2D.setColor(TEXT_COLOR);
+            g2D.setFont(NAME_FONT);
+            g2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2D.drawString(goodName, 65, 867);
+        } finally {
+            g2D.dispose();
+        }
 
-        //转jpg
-        BufferedImage result = new BufferedImage(baseImage.getWidth(), baseImage
-                .getHeight(), BufferedImage.TYPE_3BYTE_BGR);
-        result.getGraphics().drawImage(baseImage, 0, 0, null);
         ByteArrayOutputStream bs = new ByteArrayOutputStream();
         ImageIO.write(result, "jpg", bs);
 
         //最终byte数组
         return bs.toByteArray();
     }
-
-    private void drawTextInImgCenter(BufferedImage baseImage, String textToWrite, int y) {
-        Graphics2D g2D = (Graphics2D) baseImage.getGraphics();
-        g2D.setColor(new Color(167, 136, 69));
-
-        String fontName = "Microsoft YaHei";
-
-        Font f = new Font(fontName, Font.PLAIN, 28);
-        g2D.setFont(f);
-        g2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-        // 计算文字长度，计算居中的x点坐标
-        FontMetrics fm = g2D.getFontMetrics(f);
-        int textWidth = fm.stringWidth(textToWrite);
-        int widthX = (baseImage.getWidth() - textWidth) / 2;
-        // 表示这段文字在图片上的位置(x,y) .第一个是你设置的内容。
-
-        g2D.drawString(textToWrite, widthX, y);
-        // 释放对象
-        g2D.dispose();
-    }
-
-    private void drawTextInImg(BufferedImage baseImage, String textToWrite, int x, int y) {
-        Graphics2D g2D = (Graphics2D) baseImage.getGraphics();
-        g2D.setColor(new Color(167, 136, 69));
-
-        //TODO 注意，这里的字体必须安装在服务器上
-        g2D.setFont(new Font("Microsoft YaHei", Font.PLAIN, 28));
-        g2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-        g2D.drawString(textToWrite, x, y);
-        g2D.dispose();
-    }
-
-    private void drawImgInImg(BufferedImage baseImage, BufferedImage imageToWrite, int x, int y, int width,
-                              int heigth) {
-        Graphics2D g2D = (Graphics2D) baseImage.getGraphics();
-        g2D.drawImage(imageToWrite, x, y, width, heigth, null);
-        g2D.dispose();
-    }
 }
@@ -13,16 +13,23 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
 /**
  * 服务器本地对象存储服务
+ * <p>
+ * 内容寻址的key（内容摘要+后缀）及其缩略图按摘要前四位分两级子目录存放，避免单个目录下文件过多；
+ * 其它key仍然直接存放在根目录下。
  */
 public class LocalStorage implements Storage {
 
 
     private final Log logger = LogFactory.getLog(LocalStorage.class);
 
+    private static final Pattern CONTENT_KEY = Pattern.compile("[0-9a-f]{40}(_[0-9]+)?(\\.[0-9a-z]+)?");
+    private static final String TEMP_DIR = ".tmp";
+
     private String storagePath;
     private String address;
 
@@ -54,18 +61,47 @@ public class LocalStorage implements Storage {
     @Override
     public void store(InputStream inputStream, long contentLength, String contentType, String keyName) {
         try {
-            Files.copy(inputStream, rootLocation.resolve(keyName), StandardCopyOption.REPLACE_EXISTING);
+            Path file = load(keyName);
+            Files.createDirectories(file.getParent());
+            Files.copy(inputStream, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store file " + keyName, e);
+        }
+    }
+
+    /**
+     * 把同一文件系统上的临时文件移动为存储对象，不再复制内容
+     *
+     * @param source  临时文件，一般位于 {@link #tempDirectory()}
+     * @param keyName 文件名
+     */
+    public void storeFile(Path source, String keyName) {
+        try {
+            Path file = load(keyName);
+            Files.createDirectories(file.getParent());
+            Files.move(source, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
             throw new RuntimeException("Failed to store file " + keyName, e);
         }
     }
 
+    /**
+     * @return 存储目录下的临时文件目录，与存储对象在同一文件系统上
+     */
+    public Path tempDirectory() throws IOException {
+        return Files.createDirectories(rootLocation.resolve(TEMP_DIR));
+    }
+
+    /**
+     * @return 所有存储对象的key
+     */
     @Override
     public Stream<Path> loadAll() {
         try {
-            return Files.walk(rootLocation, 1)
-                    .filter(path -> !path.equals(rootLocation))
-                    .map(path -> rootLocation.relativize(path));
+            Path temp = rootLocation.resolve(TEMP_DIR);
+            return Files.walk(rootLocation, 3)
+                    .filter(path -> !path.startsWith(temp) && Files.isRegularFile(path))
+                    .map(Path::getFileName);
         } catch (IOException e) {
             throw new RuntimeException("Failed to read stored files", e);
         }
@@ -74,6 +110,9 @@ public class LocalStorage implements Storage {
 
     @Override
     public Path load(String filename) {
+        if (CONTENT_KEY.matcher(filename).matches()) {
+            return rootLocation.resolve(filename.substring(0, 2)).resolve(filename.substring(2, 4)).resolve(filename);
+        }
         return rootLocation.resolve(filename);
     }
 
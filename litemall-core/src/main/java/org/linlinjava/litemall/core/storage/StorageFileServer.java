@@ -0,0 +1,310 @@
+package org.linlinjava.litemall.core.storage;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.linlinjava.litemall.db.domain.LitemallStorage;
+import org.linlinjava.litemall.db.service.LitemallStorageService;
+import org.linlinjava.litemall.db.util.LruCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * 存储对象的HTTP访问
+ * <p>
+ * 存储对象的key随机生成，内容不会变化，因此响应带有长期缓存头和基于内容SHA-256的强ETag，
+ * 支持If-None-Match条件请求和单个字节范围的Range请求。
+ * 本地存储的文件在Tomcat支持时交给sendfile发送，否则使用 {@link FileChannel#transferTo}，
+ * 都不经过应用层缓冲；其它存储方式退化为普通的流复制。
+ * 请求图片时可以指定尺寸，缩略图已生成时返回缩略图，否则返回原图。
+ * 本地存储直接检查缩略图文件，其它存储方式只使用 {@link ThumbnailGenerator} 记录的已生成的缩略图。
+ */
+public class StorageFileServer {
+    private final Log logger = LogFactory.getLog(StorageFileServer.class);
+
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+    // 缩略图尚未生成时以原图代替，只短时间缓存
+    private static final String FALLBACK_CACHE_CONTROL = "public, max-age=60";
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final int HASH_CACHE_SIZE = 10000;
+
+    @Autowired
+    private StorageService storageService;
+    @Autowired
+    private LitemallStorageService litemallStorageService;
+
+    // key -> 文件内容摘要，文件大小或修改时间变化时重新计算
+    private final LruCache<String, ContentHash> hashes = new LruCache<>(HASH_CACHE_SIZE);
+
+    /**
+     * 输出存储对象
+     *
+     * @param key        存储对象key
+     * @param attachment 是否作为附件下载
+     */
+    public void serve(String key, boolean attachment, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(key, null, attachment, request, response);
+    }
+
+    /**
+     * 输出存储对象或其缩略图
+     *
+     * @param key        存储对象key
+     * @param size       期望的图片尺寸（最长边像素），可为null
+     * @param attachment 是否作为附件下载
+     */
+    public void serve(String key, Integer size, boolean attachment, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (key == null || key.contains("../")) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        LitemallStorage storageInfo = litemallStorageService.findByKey(key);
+        if (storageInfo == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String type = storageInfo.getType();
+        Path file = null;
+        Resource resource = null;
+        boolean local = storageService.getStorage() instanceof LocalStorage;
+        ThumbnailGenerator thumbnailGenerator = storageService.getThumbnailGenerator();
+        int resolved = thumbnailGenerator == null ? 0 : thumbnailGenerator.resolve(key, size);
+        boolean fallback = false;
+        if (resolved > 0) {
+            String derivativeKey = ThumbnailGenerator.derivativeKey(key, resolved);
+            if (local) {
+                Path derivative = storageService.load(derivativeKey);
+                if (Files.isRegularFile(derivative)) {
+                    file = derivative;
+                } else {
+                    // 触发后台检查，缩略图缺失时补充生成
+                    thumbnailGenerator.isGenerated(key);
+                }
+            } else if (thumbnailGenerator.isGenerated(key)) {
+                // 只加载已确认生成的缩略图，避免每次请求都访问存储判断是否存在
+                resource = storageService.loadAsResource(derivativeKey);
+                if (resource == null) {
+                    thumbnailGenerator.invalidate(key);
+                }
+            }
+            if (file != null || resource != null) {
+                key = derivativeKey;
+                type = ThumbnailGenerator.derivativeType(derivativeKey);
+            } else {
+                fallback = true;
+            }
+        }
+
+        response.setContentType(type);
+        if (attachment) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + key + "\"");
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, fallback ? FALLBACK_CACHE_CONTROL : CACHE_CONTROL);
+
+        if (local) {
+            serveFile(key, file != null ? file : storageService.load(key), request, response);
+        } else {
+            serveResource(resource != null ? resource : storageService.loadAsResource(key), response);
+        }
+    }
+
+    private void serveFile(String key, Path file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!attributes.isRegularFile()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = etag(key, file, length, lastModified);
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] bounds = parseRange(range, length);
+            if (bounds == null) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if (count <= 0 || "HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // 由Tomcat在请求处理结束后直接从文件发送
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    private void serveResource(Resource resource, HttpServletResponse response) throws IOException {
+        if (resource == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        try (InputStream in = resource.getInputStream()) {
+            StreamUtils.copy(in, response.getOutputStream());
+        }
+    }
+
+    /**
+     * 解析Range请求头，只支持单个范围
+     *
+     * @return 包含起止位置的数组；多个范围时返回空数组，表示返回整个文件；范围无效返回null
+     */
+    static long[] parseRange(String range, long length) {
+        if (!range.startsWith("bytes=")) {
+            return new long[0];
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        if (spec.contains(",")) {
+            return new long[0];
+        }
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // 最后N个字节
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            }
+            if (start >= length || start > end) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String etag(String key, Path file, long length, long lastModified) throws IOException {
+        ContentHash cached = hashes.get(key);
+        if (cached != null && cached.length == length && cached.lastModified == lastModified) {
+            return cached.etag;
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        String etag = "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest()) + "\"";
+        hashes.put(key, new ContentHash(length, lastModified, etag));
+        return etag;
+    }
+
+    private static class ContentHash {
+        private final long length;
+        private final long lastModified;
+        private final String etag;
+
+        ContentHash(long length, long lastModified, String etag) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.etag = etag;
+        }
+    }
+}
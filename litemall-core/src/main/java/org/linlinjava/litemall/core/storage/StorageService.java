@@ -6,19 +6,48 @@ import org.linlinjava.litemall.db.service.LitemallStorageService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.Resource;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.stream.Stream;
 
 /**
  * 提供存储服务类，所有存储服务均由该类对外提供
+ * <p>
+ * 默认按内容寻址：上传的文件在写入临时文件的同时计算SHA-256，key由摘要和文件后缀组成，
+ * 相同内容重复上传时只增加已有记录的引用次数，不再保存新文件。
+ * 新保存的图片交给 {@link ThumbnailGenerator} 异步生成缩略图，{@link #generateUrl(String, Integer)} 按尺寸返回缩略图地址。
  */
 public class StorageService {
+    private static final int KEY_HASH_LENGTH = 40;
+    private static final int MAX_SUFFIX_LENGTH = 16;
+    private static final int LOCK_STRIPES = 64;
+    /**
+     * 商品列表等小图展示使用的图片尺寸（最长边像素）
+     */
+    public static final int LIST_IMAGE_SIZE = 240;
+
     private String active;
     private Storage storage;
+    private boolean contentAddressed = true;
+    private ThumbnailGenerator thumbnailGenerator;
+    // 同一个key的引用计数和插入需要串行执行
+    private final Object[] locks = new Object[LOCK_STRIPES];
     @Autowired
     private LitemallStorageService litemallStorageService;
 
+    {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
     public String getActive() {
         return active;
     }
@@ -35,6 +64,22 @@ public class StorageService {
         this.storage = storage;
     }
 
+    public boolean isContentAddressed() {
+        return contentAddressed;
+    }
+
+    public void setContentAddressed(boolean contentAddressed) {
+        this.contentAddressed = contentAddressed;
+    }
+
+    public ThumbnailGenerator getThumbnailGenerator() {
+        return thumbnailGenerator;
+    }
+
+    public void setThumbnailGenerator(ThumbnailGenerator thumbnailGenerator) {
+        this.thumbnailGenerator = thumbnailGenerator;
+    }
+
     /**
      * 存储一个文件对象
      *
@@ -44,9 +89,83 @@ public class StorageService {
      * @param fileName      文件索引名
      */
     public LitemallStorage store(InputStream inputStream, long contentLength, String contentType, String fileName) {
+        if (contentAddressed) {
+            return storeByContent(inputStream, contentType, fileName);
+        }
+
         String key = generateKey(fileName);
         storage.store(inputStream, contentLength, contentType, key);
+        return addStorage(key, contentLength, contentType, fileName);
+    }
+
+    private LitemallStorage storeByContent(InputStream inputStream, String contentType, String fileName) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        Path temp = null;
+        try {
+            // 本地存储的临时文件与存储目录在同一文件系统，保存时直接移动
+            temp = storage instanceof LocalStorage
+                    ? Files.createTempFile(((LocalStorage) storage).tempDirectory(), "upload", null)
+                    : Files.createTempFile("litemall-upload", null);
+            long contentLength;
+            try (DigestInputStream in = new DigestInputStream(inputStream, digest)) {
+                contentLength = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String key = HexFormat.of().formatHex(digest.digest()).substring(0, KEY_HASH_LENGTH) + suffix(fileName);
+
+            synchronized (lock(key)) {
+                LitemallStorage existing = litemallStorageService.retainByKey(key);
+                if (existing != null) {
+                    return existing;
+                }
+                if (storage instanceof LocalStorage) {
+                    ((LocalStorage) storage).storeFile(temp, key);
+                } else {
+                    try (InputStream in = Files.newInputStream(temp)) {
+                        storage.store(in, contentLength, contentType, key);
+                    }
+                }
+                return addStorage(key, contentLength, contentType, fileName);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store file " + fileName, e);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * 文件后缀，只保留字母和数字并转为小写，作为key的一部分
+     */
+    private static String suffix(String fileName) {
+        int index = fileName == null ? -1 : fileName.lastIndexOf('.');
+        if (index < 0) {
+            return "";
+        }
+        StringBuilder suffix = new StringBuilder();
+        for (char c : fileName.substring(index + 1).toLowerCase().toCharArray()) {
+            if (((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) && suffix.length() < MAX_SUFFIX_LENGTH) {
+                suffix.append(c);
+            }
+        }
+        return suffix.length() == 0 ? "" : "." + suffix;
+    }
+
+    private Object lock(String key) {
+        return locks[(key.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
 
+    private LitemallStorage addStorage(String key, long contentLength, String contentType, String fileName) {
         String url = generateUrl(key);
         LitemallStorage storageInfo = new LitemallStorage();
         storageInfo.setName(fileName);
@@ -55,6 +174,9 @@ public class StorageService {
         storageInfo.setKey(key);
         storageInfo.setUrl(url);
         litemallStorageService.add(storageInfo);
+        if (thumbnailGenerator != null) {
+            thumbnailGenerator.submit(key);
+        }
 
         return storageInfo;
     }
@@ -91,7 +213,70 @@ public class StorageService {
         storage.delete(keyName);
     }
 
+    /**
+     * 释放一次对存储对象的引用，最后一个引用释放时删除记录、文件和缩略图，
+     * 相同内容的其它上传仍在引用时只减少引用次数
+     *
+     * @param keyName 文件索引名
+     */
+    public void release(String keyName) {
+        synchronized (lock(keyName)) {
+            if (litemallStorageService.releaseByKey(keyName)) {
+                storage.delete(keyName);
+                if (thumbnailGenerator != null) {
+                    thumbnailGenerator.delete(keyName);
+                }
+            }
+        }
+    }
+
     private String generateUrl(String keyName) {
         return storage.generateUrl(keyName);
     }
+
+    /**
+     * 生成访问地址
+     * <p>
+     * 本地存储返回带尺寸参数的访问地址，由本地访问接口选择缩略图；
+     * 其它存储方式只在缩略图已确认生成时返回缩略图地址，否则返回原图地址。
+     *
+     * @param keyName 文件索引名
+     * @param size    期望的图片尺寸（最长边像素），为null或大于所有缩略图尺寸时返回原图地址
+     */
+    public String generateUrl(String keyName, Integer size) {
+        int resolved = thumbnailGenerator == null ? 0 : thumbnailGenerator.resolve(keyName, size);
+        if (resolved == 0) {
+            return generateUrl(keyName);
+        }
+        if (storage instanceof LocalStorage) {
+            // 缩略图尚未生成时本地访问接口返回原图
+            return generateUrl(keyName) + "?size=" + resolved;
+        }
+        if (!thumbnailGenerator.isGenerated(keyName)) {
+            return generateUrl(keyName);
+        }
+        return generateUrl(ThumbnailGenerator.derivativeKey(keyName, resolved));
+    }
+
+    /**
+     * 已保存文件的访问地址转换为指定尺寸的图片地址，用于列表等展示小图的场景
+     *
+     * @param url  {@link #generateUrl(String)} 生成的访问地址
+     * @param size 期望的图片尺寸（最长边像素）
+     * @return 缩略图地址；不是当前存储的地址或没有合适的缩略图时返回原地址
+     */
+    public String generateThumbnailUrl(String url, Integer size) {
+        if (url == null || thumbnailGenerator == null) {
+            return url;
+        }
+        String prefix = generateUrl("");
+        if (!url.startsWith(prefix) || url.length() == prefix.length()) {
+            return url;
+        }
+        String keyName = url.substring(prefix.length());
+        if (keyName.indexOf('/') >= 0 || keyName.indexOf('?') >= 0) {
+            return url;
+        }
+        return generateUrl(keyName, size);
+    }
 }
@@ -0,0 +1,312 @@
+package org.linlinjava.litemall.core.storage;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.linlinjava.litemall.core.storage.config.StorageProperties;
+import org.linlinjava.litemall.db.util.LruCache;
+import org.springframework.core.io.Resource;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 图片缩略图生成
+ * <p>
+ * 图片保存后提交到有界线程池，按配置的尺寸（最长边像素）生成缩略图，并通过当前的存储方式保存。
+ * 缩略图的key由原图key和尺寸组成，不写入数据库；PNG保存为PNG以保留透明度，其它格式保存为JPEG。
+ * 大图按目标尺寸降采样解码，再用双线性插值逐级减半缩放。队列已满时放弃生成，访问时退回原图。
+ * <p>
+ * 缩略图是否已生成记录在内存中，{@link #isGenerated(String)} 只查询记录，不访问存储。
+ * 未知的原图（重启前或其它节点上传、生成任务被放弃）在访问时异步检查，缩略图不存在时补充生成。
+ */
+public class ThumbnailGenerator {
+    private final Log logger = LogFactory.getLog(ThumbnailGenerator.class);
+
+    private static final Set<String> IMAGE_SUFFIXES = Set.of("jpg", "jpeg", "png", "gif", "bmp");
+    // 超过该像素数的图片不生成缩略图，避免解码过大的图片
+    private static final long MAX_PIXELS = 50_000_000L;
+    private static final int STATE_CACHE_SIZE = 10000;
+    // 缩略图未确认存在时，再次检查的最短间隔
+    private static final long RECHECK_INTERVAL = 10 * 60 * 1000L;
+    private static final long GENERATED = -1L;
+
+    private final Storage storage;
+    private final int[] sizes; // 升序
+    private final float quality;
+    private final ThreadPoolExecutor executor;
+    // 原图key -> GENERATED，或最近一次提交生成、检查的时间
+    private final LruCache<String, Long> states = new LruCache<>(STATE_CACHE_SIZE);
+
+    public ThumbnailGenerator(Storage storage, StorageProperties.Thumbnail properties) {
+        this.storage = storage;
+        this.sizes = properties.getSizes().stream().filter(size -> size != null && size > 0)
+                .mapToInt(Integer::intValue).sorted().distinct().toArray();
+        this.quality = properties.getQuality();
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(properties.getThreads(), properties.getThreads(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(properties.getQueueCapacity()), runnable -> {
+            Thread thread = new Thread(runnable, "thumbnail-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 提交生成任务，不是图片或者队列已满时直接返回
+     *
+     * @param key 原图key
+     */
+    public void submit(String key) {
+        if (sizes.length == 0 || !isImage(key)) {
+            return;
+        }
+        states.put(key, System.currentTimeMillis());
+        execute(key, () -> generate(key));
+    }
+
+    /**
+     * 缩略图是否已确认生成，只查询内存记录
+     * <p>
+     * 未确认时在后台检查存储中是否已有缩略图，没有则补充生成，同一原图在间隔内只检查一次。
+     *
+     * @param key 原图key
+     * @return 所有尺寸的缩略图都已生成时返回true
+     */
+    public boolean isGenerated(String key) {
+        if (sizes.length == 0 || !isImage(key)) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        Long state = states.get(key);
+        if (state != null && (state == GENERATED || now - state < RECHECK_INTERVAL)) {
+            return state == GENERATED;
+        }
+        // 并发访问时可能重复检查，检查和生成都可以重复执行
+        states.put(key, now);
+        execute(key, () -> check(key));
+        return false;
+    }
+
+    /**
+     * 记录的缩略图已不存在时调用，下次访问重新检查
+     *
+     * @param key 原图key
+     */
+    public void invalidate(String key) {
+        states.remove(key);
+    }
+
+    private void execute(String key, Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            logger.warn("缩略图队列已满，跳过 " + key);
+        }
+    }
+
+    private void markGenerated(String key) {
+        states.put(key, GENERATED);
+    }
+
+    /**
+     * 缩略图从大到小生成，最小尺寸存在时所有尺寸都已生成
+     */
+    void check(String key) {
+        if (storage.loadAsResource(derivativeKey(key, sizes[0])) != null) {
+            markGenerated(key);
+        } else {
+            generate(key);
+        }
+    }
+
+    /**
+     * 删除原图的所有缩略图
+     *
+     * @param key 原图key
+     */
+    public void delete(String key) {
+        if (!isImage(key)) {
+            return;
+        }
+        invalidate(key);
+        for (int size : sizes) {
+            storage.delete(derivativeKey(key, size));
+        }
+    }
+
+    /**
+     * 选择不小于期望尺寸的最小缩略图尺寸
+     *
+     * @param key  原图key
+     * @param hint 期望的尺寸（最长边像素）
+     * @return 缩略图尺寸，0表示应使用原图
+     */
+    public int resolve(String key, Integer hint) {
+        if (hint == null || hint <= 0 || !isImage(key)) {
+            return 0;
+        }
+        for (int size : sizes) {
+            if (size >= hint) {
+                return size;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 缩略图的key，例如 abc.jpg 的480尺寸缩略图是 abc_480.jpg
+     */
+    public static String derivativeKey(String key, int size) {
+        int index = key.lastIndexOf('.');
+        String base = index < 0 ? key : key.substring(0, index);
+        return base + "_" + size + (isPng(key) ? ".png" : ".jpg");
+    }
+
+    /**
+     * 缩略图的文件类型
+     */
+    public static String derivativeType(String key) {
+        return isPng(key) ? "image/png" : "image/jpeg";
+    }
+
+    void generate(String key) {
+        try {
+            BufferedImage image = read(key);
+            if (image == null) {
+                return;
+            }
+            boolean png = isPng(key);
+            // 从大到小生成，每个尺寸在上一个尺寸的基础上缩放
+            for (int i = sizes.length - 1; i >= 0; i--) {
+                image = scale(image, sizes[i], png);
+                byte[] bytes = encode(image, png);
+                storage.store(new ByteArrayInputStream(bytes), bytes.length, derivativeType(key), derivativeKey(key, sizes[i]));
+            }
+            markGenerated(key);
+        } catch (IOException | RuntimeException e) {
+            logger.error("生成缩略图失败 " + key, e);
+        }
+    }
+
+    private BufferedImage read(String key) throws IOException {
+        Resource resource = storage.loadAsResource(key);
+        if (resource == null) {
+            return null;
+        }
+        try (InputStream in = resource.getInputStream(); ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_PIXELS) {
+                    logger.warn("图片过大，不生成缩略图 " + key);
+                    return null;
+                }
+                // 解码时隔行隔列采样，保留最大尺寸的两倍以上供后续平滑缩放
+                int step = Math.max(1, Math.max(width, height) / (sizes[sizes.length - 1] * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 缩放到最长边不超过size，每次最多缩小一半
+     */
+    static BufferedImage scale(BufferedImage source, int size, boolean alpha) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double ratio = Math.min(1.0, (double) size / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+
+        BufferedImage current = source;
+        int w = width;
+        int h = height;
+        do {
+            w = Math.max(targetWidth, w / 2);
+            h = Math.max(targetHeight, h / 2);
+            BufferedImage next = new BufferedImage(w, h, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                if (!alpha) {
+                    g.setColor(Color.WHITE);
+                    g.fillRect(0, 0, w, h);
+                }
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (w != targetWidth || h != targetHeight);
+        return current;
+    }
+
+    private byte[] encode(BufferedImage image, boolean png) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (png) {
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean isImage(String key) {
+        return IMAGE_SUFFIXES.contains(suffix(key));
+    }
+
+    private static boolean isPng(String key) {
+        return "png".equals(suffix(key));
+    }
+
+    private static String suffix(String key) {
+        int index = key == null ? -1 : key.lastIndexOf('.');
+        return index < 0 ? "" : key.substring(index + 1).toLowerCase();
+    }
+}
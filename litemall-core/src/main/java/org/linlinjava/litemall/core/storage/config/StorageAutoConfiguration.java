@@ -1,6 +1,8 @@
 package org.linlinjava.litemall.core.storage.config;
 
 import org.linlinjava.litemall.core.storage.*;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -16,23 +18,39 @@ public class StorageAutoConfiguration {
     }
 
     @Bean
-    public StorageService storageService() {
+    public StorageService storageService(ObjectProvider<ThumbnailGenerator> thumbnailGenerator) {
         StorageService storageService = new StorageService();
+        storageService.setActive(this.properties.getActive());
+        storageService.setContentAddressed(this.properties.isContentAddressed());
+        storageService.setStorage(activeStorage());
+        storageService.setThumbnailGenerator(thumbnailGenerator.getIfAvailable());
+        return storageService;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "litemall.storage.thumbnail", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public ThumbnailGenerator thumbnailGenerator() {
+        return new ThumbnailGenerator(activeStorage(), this.properties.getThumbnail());
+    }
+
+    private Storage activeStorage() {
         String active = this.properties.getActive();
-        storageService.setActive(active);
         if (active.equals("local")) {
-            storageService.setStorage(localStorage());
+            return localStorage();
         } else if (active.equals("aliyun")) {
-            storageService.setStorage(aliyunStorage());
+            return aliyunStorage();
         } else if (active.equals("tencent")) {
-            storageService.setStorage(tencentStorage());
+            return tencentStorage();
         } else if (active.equals("qiniu")) {
-            storageService.setStorage(qiniuStorage());
+            return qiniuStorage();
         } else {
             throw new RuntimeException("当前存储模式 " + active + " 不支持");
         }
+    }
 
-        return storageService;
+    @Bean
+    public StorageFileServer storageFileServer() {
+        return new StorageFileServer();
     }
 
     @Bean
@@ -2,9 +2,14 @@ package org.linlinjava.litemall.core.storage.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @ConfigurationProperties(prefix = "litemall.storage")
 public class StorageProperties {
     private String active;
+    private boolean contentAddressed = true;
+    private Thumbnail thumbnail = new Thumbnail();
     private Local local;
     private Aliyun aliyun;
     private Tencent tencent;
@@ -18,6 +23,22 @@ public class StorageProperties {
         this.active = active;
     }
 
+    public boolean isContentAddressed() {
+        return contentAddressed;
+    }
+
+    public void setContentAddressed(boolean contentAddressed) {
+        this.contentAddressed = contentAddressed;
+    }
+
+    public Thumbnail getThumbnail() {
+        return thumbnail;
+    }
+
+    public void setThumbnail(Thumbnail thumbnail) {
+        this.thumbnail = thumbnail;
+    }
+
     public Local getLocal() {
         return local;
     }
@@ -50,6 +71,55 @@ public class StorageProperties {
         this.qiniu = qiniu;
     }
 
+    public static class Thumbnail {
+        private boolean enabled = true;
+        // 缩略图最长边的像素数
+        private List<Integer> sizes = new ArrayList<>(List.of(240, 480, 960));
+        private int threads = 2;
+        private int queueCapacity = 256;
+        private float quality = 0.8f;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public List<Integer> getSizes() {
+            return sizes;
+        }
+
+        public void setSizes(List<Integer> sizes) {
+            this.sizes = sizes;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public float getQuality() {
+            return quality;
+        }
+
+        public void setQuality(float quality) {
+            this.quality = quality;
+        }
+    }
+
     public static class Local {
         private String address;
         private String storagePath;
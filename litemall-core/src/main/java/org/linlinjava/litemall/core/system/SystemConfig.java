@@ -1,11 +1,23 @@
 package org.linlinjava.litemall.core.system;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
 import java.math.BigDecimal;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * 系统设置
+ * <p>
+ * 配置保存在不可变的快照中，数值在生成快照时解析一次，读取时不再解析字符串。
+ * 修改配置时基于当前快照生成新快照，保存到数据库后通过volatile引用整体替换，然后通知监听器，
+ * 读取方总是看到某一次修改后的完整配置。
  */
 public class SystemConfig {
     // 小程序相关配置
@@ -31,104 +43,266 @@ public class SystemConfig {
     public final static String LITEMALL_MALL_LONGITUDE = "litemall_mall_longitude";
     public final static String LITEMALL_MALL_Latitude = "litemall_mall_latitude";
 
-    //所有的配置均保存在该 HashMap 中
-    private static Map<String, String> SYSTEM_CONFIGS = new HashMap<>();
-
-    private static String getConfig(String keyName) {
-        return SYSTEM_CONFIGS.get(keyName);
-    }
+    private static final Log logger = LogFactory.getLog(SystemConfig.class);
 
-    private static Integer getConfigInt(String keyName) {
-        return Integer.parseInt(SYSTEM_CONFIGS.get(keyName));
-    }
+    private static volatile Snapshot snapshot = new Snapshot(Collections.emptyMap());
+    private static final List<Listener> LISTENERS = new CopyOnWriteArrayList<>();
 
-    private static Boolean getConfigBoolean(String keyName) {
-        return Boolean.valueOf(SYSTEM_CONFIGS.get(keyName));
+    /**
+     * @return 当前配置快照，多个配置需要一致时应使用同一个快照读取
+     */
+    public static Snapshot getSnapshot() {
+        return snapshot;
     }
 
-    private static BigDecimal getConfigBigDec(String keyName) {
-        return new BigDecimal(SYSTEM_CONFIGS.get(keyName));
+    /**
+     * 注册配置修改监听器，依赖配置的缓存可以在配置修改后刷新
+     */
+    public static void addListener(Listener listener) {
+        LISTENERS.add(listener);
     }
 
     public static Integer getNewLimit() {
-        return getConfigInt(LITEMALL_WX_INDEX_NEW);
+        return snapshot.newLimit;
     }
 
     public static Integer getHotLimit() {
-        return getConfigInt(LITEMALL_WX_INDEX_HOT);
+        return snapshot.hotLimit;
     }
 
     public static Integer getBrandLimit() {
-        return getConfigInt(LITEMALL_WX_INDEX_BRAND);
+        return snapshot.brandLimit;
     }
 
     public static Integer getTopicLimit() {
-        return getConfigInt(LITEMALL_WX_INDEX_TOPIC);
+        return snapshot.topicLimit;
     }
 
     public static Integer getCatlogListLimit() {
-        return getConfigInt(LITEMALL_WX_INDEX_CATLOG_LIST);
+        return snapshot.catlogListLimit;
     }
 
     public static Integer getCatlogMoreLimit() {
-        return getConfigInt(LITEMALL_WX_INDEX_CATLOG_GOODS);
+        return snapshot.catlogMoreLimit;
     }
 
     public static boolean isAutoCreateShareImage() {
-        return getConfigBoolean(LITEMALL_WX_SHARE);
+        return snapshot.autoCreateShareImage;
     }
 
     public static BigDecimal getFreight() {
-        return getConfigBigDec(LITEMALL_EXPRESS_FREIGHT_VALUE);
+        return snapshot.freight;
     }
 
     public static BigDecimal getFreightLimit() {
-        return getConfigBigDec(LITEMALL_EXPRESS_FREIGHT_MIN);
+        return snapshot.freightLimit;
+    }
+
+    /**
+     * @param goodsPrice 商品总价
+     * @return 商品总价未达到免运费金额时返回运费，否则返回0
+     */
+    public static BigDecimal getFreightPrice(BigDecimal goodsPrice) {
+        return snapshot.getFreightPrice(goodsPrice);
     }
 
     public static Integer getOrderUnpaid() {
-        return getConfigInt(LITEMALL_ORDER_UNPAID);
+        return snapshot.orderUnpaid;
     }
 
     public static Integer getOrderUnconfirm() {
-        return getConfigInt(LITEMALL_ORDER_UNCONFIRM);
+        return snapshot.orderUnconfirm;
     }
 
     public static Integer getOrderComment() {
-        return getConfigInt(LITEMALL_ORDER_COMMENT);
+        return snapshot.orderComment;
     }
 
     public static String getMallName() {
-        return getConfig(LITEMALL_MALL_NAME);
+        return snapshot.get(LITEMALL_MALL_NAME);
     }
 
     public static String getMallAddress() {
-        return getConfig(LITEMALL_MALL_ADDRESS);
+        return snapshot.get(LITEMALL_MALL_ADDRESS);
     }
 
     public static String getMallPhone() {
-        return getConfig(LITEMALL_MALL_PHONE);
+        return snapshot.get(LITEMALL_MALL_PHONE);
     }
 
     public static String getMallQQ() {
-        return getConfig(LITEMALL_MALL_QQ);
+        return snapshot.get(LITEMALL_MALL_QQ);
     }
 
     public static String getMallLongitude() {
-        return getConfig(LITEMALL_MALL_LONGITUDE);
+        return snapshot.get(LITEMALL_MALL_LONGITUDE);
     }
 
     public static String getMallLatitude() {
-        return getConfig(LITEMALL_MALL_Latitude);
+        return snapshot.get(LITEMALL_MALL_Latitude);
     }
 
     public static void setConfigs(Map<String, String> configs) {
-        SYSTEM_CONFIGS = configs;
+        replace(new Snapshot(configs));
+    }
+
+    /**
+     * 修改部分配置，新快照生成后先保存修改，保存成功后才替换快照并通知监听器
+     *
+     * @param data    修改的配置
+     * @param persist 保存修改的配置，抛出异常时配置不变
+     * @throws IllegalArgumentException 数值配置格式错误，此时配置不变且不保存
+     */
+    public static synchronized void updateConfigs(Map<String, String> data, Consumer<Map<String, String>> persist) {
+        Map<String, String> configs = new HashMap<>(snapshot.configs);
+        configs.putAll(data);
+        Snapshot current = new Snapshot(configs);
+        persist.accept(data);
+        replace(current);
+    }
+
+    private static synchronized void replace(Snapshot current) {
+        Snapshot previous = snapshot;
+        snapshot = current;
+        for (Listener listener : LISTENERS) {
+            try {
+                listener.onChange(previous, current);
+            } catch (Exception e) {
+                logger.error("系统配置监听器处理失败", e);
+            }
+        }
+    }
+
+    public interface Listener {
+        /**
+         * @param previous 修改前的配置
+         * @param current  修改后的配置
+         */
+        void onChange(Snapshot previous, Snapshot current);
     }
 
-    public static void updateConfigs(Map<String, String> data) {
-        for (Map.Entry<String, String> entry : data.entrySet()) {
-            SYSTEM_CONFIGS.put(entry.getKey(), entry.getValue());
+    /**
+     * 配置快照，生成后不再修改
+     */
+    public static final class Snapshot {
+        private final Map<String, String> configs;
+        private final Integer newLimit;
+        private final Integer hotLimit;
+        private final Integer brandLimit;
+        private final Integer topicLimit;
+        private final Integer catlogListLimit;
+        private final Integer catlogMoreLimit;
+        private final boolean autoCreateShareImage;
+        private final BigDecimal freight;
+        private final BigDecimal freightLimit;
+        private final Integer orderUnpaid;
+        private final Integer orderUnconfirm;
+        private final Integer orderComment;
+
+        Snapshot(Map<String, String> configs) {
+            this.configs = Collections.unmodifiableMap(new HashMap<>(configs));
+            newLimit = parseInt(LITEMALL_WX_INDEX_NEW);
+            hotLimit = parseInt(LITEMALL_WX_INDEX_HOT);
+            brandLimit = parseInt(LITEMALL_WX_INDEX_BRAND);
+            topicLimit = parseInt(LITEMALL_WX_INDEX_TOPIC);
+            catlogListLimit = parseInt(LITEMALL_WX_INDEX_CATLOG_LIST);
+            catlogMoreLimit = parseInt(LITEMALL_WX_INDEX_CATLOG_GOODS);
+            autoCreateShareImage = Boolean.parseBoolean(get(LITEMALL_WX_SHARE));
+            freight = parseBigDec(LITEMALL_EXPRESS_FREIGHT_VALUE);
+            freightLimit = parseBigDec(LITEMALL_EXPRESS_FREIGHT_MIN);
+            orderUnpaid = parseInt(LITEMALL_ORDER_UNPAID);
+            orderUnconfirm = parseInt(LITEMALL_ORDER_UNCONFIRM);
+            orderComment = parseInt(LITEMALL_ORDER_COMMENT);
+        }
+
+        private Integer parseInt(String keyName) {
+            String value = configs.get(keyName);
+            if (value == null) {
+                return null;
+            }
+            try {
+                return Integer.valueOf(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(keyName + " 不是整数：" + value);
+            }
+        }
+
+        private BigDecimal parseBigDec(String keyName) {
+            String value = configs.get(keyName);
+            if (value == null) {
+                return null;
+            }
+            try {
+                return new BigDecimal(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(keyName + " 不是数字：" + value);
+            }
+        }
+
+        public String get(String keyName) {
+            return configs.get(keyName);
+        }
+
+        /**
+         * @return 首页各区域的显示数量是否与另一个快照相同
+         */
+        public boolean sameHomeLimits(Snapshot other) {
+            return Objects.equals(newLimit, other.newLimit) && Objects.equals(hotLimit, other.hotLimit)
+                    && Objects.equals(brandLimit, other.brandLimit) && Objects.equals(topicLimit, other.topicLimit)
+                    && Objects.equals(catlogListLimit, other.catlogListLimit)
+                    && Objects.equals(catlogMoreLimit, other.catlogMoreLimit);
+        }
+
+        public Integer getNewLimit() {
+            return newLimit;
+        }
+
+        public Integer getHotLimit() {
+            return hotLimit;
+        }
+
+        public Integer getBrandLimit() {
+            return brandLimit;
+        }
+
+        public Integer getTopicLimit() {
+            return topicLimit;
+        }
+
+        public Integer getCatlogListLimit() {
+            return catlogListLimit;
+        }
+
+        public Integer getCatlogMoreLimit() {
+            return catlogMoreLimit;
+        }
+
+        public boolean isAutoCreateShareImage() {
+            return autoCreateShareImage;
+        }
+
+        public BigDecimal getFreight() {
+            return freight;
+        }
+
+        public BigDecimal getFreightLimit() {
+            return freightLimit;
+        }
+
+        public BigDecimal getFreightPrice(BigDecimal goodsPrice) {
+            return goodsPrice.compareTo(freightLimit) < 0 ? freight : BigDecimal.ZERO;
+        }
+
+        public Integer getOrderUnpaid() {
+            return orderUnpaid;
+        }
+
+        public Integer getOrderUnconfirm() {
+            return orderUnconfirm;
+        }
+
+        public Integer getOrderComment() {
+            return orderComment;
         }
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package org.linlinjava.litemall.core.util;
 
 import com.github.pagehelper.Page;
+import org.linlinjava.litemall.db.util.CursorPage;
 
 import java.util.HashMap;
 import java.util.List;
@@ -59,7 +60,9 @@ public class ResponseUtil {
         Map<String, Object> data = new HashMap<String, Object>();
         data.put("list", list);
 
-        if (list instanceof Page<?>) {
+        if (list instanceof CursorPage<?>) {
+            putCursor(data, (CursorPage<?>) list);
+        } else if (list instanceof Page<?>) {
             Page<?> page = (Page<?>) list;
             data.put("total", page.getTotal());
             data.put("page", page.getPageNum());
@@ -79,7 +82,9 @@ public class ResponseUtil {
         Map<String, Object> data = new HashMap<String, Object>();
         data.put("list", list);
 
-        if (pagedList instanceof Page<?>) {
+        if (pagedList instanceof CursorPage<?>) {
+            putCursor(data, (CursorPage<?>) pagedList);
+        } else if (pagedList instanceof Page<?>) {
             Page<?> page = (Page<?>) pagedList;
             data.put("total", page.getTotal());
             data.put("page", page.getPageNum());
@@ -95,6 +100,18 @@ public class ResponseUtil {
         return ok(data);
     }
 
+    /**
+     * 游标分页：没有page和pages，total只在要求统计时返回
+     */
+    private static void putCursor(Map<String, Object> data, CursorPage<?> page) {
+        data.put("limit", page.getLimit());
+        data.put("nextCursor", page.getNextCursor());
+        data.put("hasMore", page.hasMore());
+        if (page.getTotal() != null) {
+            data.put("total", page.getTotal());
+        }
+    }
+
     public static Object fail() {
         Map<String, Object> obj = new HashMap<String, Object>();
         obj.put("errno", -1);
@@ -0,0 +1,285 @@
+package org.linlinjava.litemall.core.wordcloud;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.linlinjava.litemall.db.domain.LitemallComment;
+import org.linlinjava.litemall.db.domain.LitemallGoods;
+import org.linlinjava.litemall.db.service.LitemallGoodsService;
+import org.linlinjava.litemall.db.service.StatService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 商品评论词频索引
+ * <p>
+ * 按商品、商品分类和全站分别维护评论的词频，生成词云时直接读取，不再在请求时分词。
+ * 新评论通过 {@link #addComment(LitemallComment)} 增量加入；
+ * {@link #rebuild()} 分批读取全部评论，每批在独立的ForkJoin线程池中并行分词后合并，
+ * 用于首次构建以及修正评论删除等变化。
+ */
+@Service
+public class WordCloudIndex {
+    private static final Logger logger = LoggerFactory.getLogger(WordCloudIndex.class);
+
+    private static final int BATCH_SIZE = 2000;
+    // 单个分词任务处理的评论数
+    private static final int TASK_THRESHOLD = 128;
+
+    @Autowired
+    private WordCloudService wordCloudService;
+    @Autowired
+    private StatService statService;
+    @Autowired
+    private LitemallGoodsService goodsService;
+
+    @Value("${litemall.wordcloud.parallelism:0}")
+    private int parallelism; // 0表示使用CPU核数
+
+    private ForkJoinPool pool;
+
+    private volatile Index index;
+
+    // 以下状态需持有this锁
+    private boolean rebuilding;
+    private List<LitemallComment> pending; // 重建期间新增的评论
+
+    @PostConstruct
+    public void init() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(threads);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * @return 是否已经完成首次构建
+     */
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /**
+     * 商品评论的词频
+     * @param goodsId 商品ID
+     * @return 词频
+     */
+    public Map<String, Integer> goodsTerms(Integer goodsId) {
+        Index current = index;
+        return current == null ? Collections.emptyMap() : copy(current.byGoods.get(goodsId));
+    }
+
+    /**
+     * 分类下所有商品评论的词频
+     * @param categoryId 分类ID
+     * @return 词频
+     */
+    public Map<String, Integer> categoryTerms(Integer categoryId) {
+        Index current = index;
+        return current == null ? Collections.emptyMap() : copy(current.byCategory.get(categoryId));
+    }
+
+    /**
+     * 全站商品评论的词频
+     * @return 词频
+     */
+    public Map<String, Integer> allTerms() {
+        Index current = index;
+        return current == null ? Collections.emptyMap() : copy(current.all);
+    }
+
+    /**
+     * 加入一条新评论，只处理商品评论
+     * @param comment 已保存的评论
+     */
+    public void addComment(LitemallComment comment) {
+        if (comment == null || comment.getType() == null || comment.getType() != 0) {
+            return;
+        }
+        Index current;
+        synchronized (this) {
+            if (pending != null) {
+                pending.add(comment);
+            }
+            current = index;
+        }
+        if (current != null) {
+            current.add(comment.getId(), comment.getValueId(), null, comment.getContent());
+        }
+    }
+
+    /**
+     * 从数据库全量重建索引
+     */
+    public void rebuild() {
+        synchronized (this) {
+            if (rebuilding) {
+                return;
+            }
+            rebuilding = true;
+            pending = new ArrayList<>();
+        }
+
+        Index built = new Index();
+        try {
+            // 读取下一批的同时，上一批在线程池中分词
+            List<ForkJoinTask<Index>> tasks = new ArrayList<>();
+            int afterId = 0;
+            while (true) {
+                List<Map<String, Object>> rows = statService.queryGoodsComments(afterId, BATCH_SIZE);
+                if (!rows.isEmpty()) {
+                    tasks.add(pool.submit(new SegmentTask(rows, 0, rows.size())));
+                    afterId = ((Number) rows.get(rows.size() - 1).get("id")).intValue();
+                }
+                if (rows.size() < BATCH_SIZE) {
+                    break;
+                }
+            }
+            for (ForkJoinTask<Index> task : tasks) {
+                built.merge(task.join());
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                rebuilding = false;
+                pending = null;
+            }
+            throw e;
+        }
+
+        List<LitemallComment> missed = new ArrayList<>();
+        synchronized (this) {
+            for (LitemallComment comment : pending) {
+                if (comment.getId() == null || comment.getId() > built.maxCommentId) {
+                    missed.add(comment);
+                }
+            }
+            index = built;
+            rebuilding = false;
+            pending = null;
+        }
+        for (LitemallComment comment : missed) {
+            built.add(comment.getId(), comment.getValueId(), null, comment.getContent());
+        }
+        logger.info("词云索引重建完成，共 {} 个商品", built.byGoods.size());
+    }
+
+    private static Map<String, Integer> copy(TermCounts counts) {
+        return counts == null ? Collections.emptyMap() : counts.toMap();
+    }
+
+    /**
+     * 对一段评论分词，数量较多时一分为二并行处理
+     */
+    private class SegmentTask extends RecursiveTask<Index> {
+        private final List<Map<String, Object>> rows;
+        private final int from;
+        private final int to;
+
+        SegmentTask(List<Map<String, Object>> rows, int from, int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Index compute() {
+            if (to - from <= TASK_THRESHOLD) {
+                Index partial = new Index();
+                for (int i = from; i < to; i++) {
+                    Map<String, Object> row = rows.get(i);
+                    Number categoryId = (Number) row.get("category_id");
+                    partial.add(((Number) row.get("id")).intValue(),
+                        ((Number) row.get("value_id")).intValue(),
+                        categoryId == null ? null : categoryId.intValue(),
+                        (String) row.get("content"));
+                }
+                return partial;
+            }
+            int middle = (from + to) >>> 1;
+            SegmentTask left = new SegmentTask(rows, from, middle);
+            left.fork();
+            Index right = new SegmentTask(rows, middle, to).compute();
+            Index result = left.join();
+            result.merge(right);
+            return result;
+        }
+    }
+
+    /**
+     * 词频索引
+     */
+    private class Index {
+        private final Map<Integer, TermCounts> byGoods = new ConcurrentHashMap<>();
+        private final Map<Integer, TermCounts> byCategory = new ConcurrentHashMap<>();
+        private final Map<Integer, Integer> goodsCategory = new ConcurrentHashMap<>();
+        private final TermCounts all = new TermCounts();
+        private int maxCommentId;
+
+        /**
+         * 加入一条评论
+         * @param categoryId 商品分类ID，为null时根据商品查询
+         */
+        void add(Integer commentId, Integer goodsId, Integer categoryId, String content) {
+            if (goodsId == null) {
+                return;
+            }
+            if (categoryId == null) {
+                categoryId = goodsCategory.computeIfAbsent(goodsId, id -> {
+                    LitemallGoods goods = goodsService.findById(id);
+                    return goods == null || goods.getCategoryId() == null ? 0 : goods.getCategoryId();
+                });
+            } else {
+                goodsCategory.putIfAbsent(goodsId, categoryId);
+            }
+
+            Map<String, Integer> terms = new HashMap<>();
+            wordCloudService.segment(content, word -> terms.merge(word, 1, Integer::sum));
+            byGoods.computeIfAbsent(goodsId, id -> new TermCounts()).addAll(terms);
+            if (categoryId != 0) {
+                byCategory.computeIfAbsent(categoryId, id -> new TermCounts()).addAll(terms);
+            }
+            all.addAll(terms);
+            if (commentId != null) {
+                synchronized (this) {
+                    maxCommentId = Math.max(maxCommentId, commentId);
+                }
+            }
+        }
+
+        void merge(Index other) {
+            other.byGoods.forEach((id, counts) -> byGoods.computeIfAbsent(id, k -> new TermCounts()).addAll(counts.toMap()));
+            other.byCategory.forEach((id, counts) -> byCategory.computeIfAbsent(id, k -> new TermCounts()).addAll(counts.toMap()));
+            goodsCategory.putAll(other.goodsCategory);
+            all.addAll(other.all.toMap());
+            synchronized (this) {
+                maxCommentId = Math.max(maxCommentId, other.maxCommentId);
+            }
+        }
+    }
+
+    /**
+     * 线程安全的词频计数
+     */
+    private static class TermCounts {
+        private final Map<String, Integer> counts = new HashMap<>();
+
+        synchronized void addAll(Map<String, Integer> terms) {
+            terms.forEach((word, count) -> counts.merge(word, count, Integer::sum));
+        }
+
+        synchronized Map<String, Integer> toMap() {
+            return new HashMap<>(counts);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package org.linlinjava.litemall.core.wordcloud;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * 基于词典的分词器
+ * <p>
+ * 词典在构造时编译成Aho–Corasick自动机（完整的状态转移表），
+ * 扫描文本时一次遍历找到所有词典词，再按“从左到右、优先最长”的规则切分，
+ * 分词过程中不为候选窗口创建子串。连续的英文字母和数字作为一个词，HTML标签被忽略。
+ */
+public class WordSegmenter {
+    private static final char CJK_FIRST = 0x4E00;
+    private static final char CJK_LAST = 0x9FA5;
+
+    private final String[] words;
+    private final boolean[] emit; // 是否输出该词，停用词和单字只参与切分
+    private final Set<String> stopWords;
+
+    private final int[] alphabet; // 汉字到字母表下标，-1表示不在词典中
+    private final int alphabetSize;
+    private final int[] delta; // 状态转移表，state * alphabetSize + c
+    private final int[] wordAt; // 状态对应的词ID，-1表示不是词尾
+    private final int[] output; // 从该状态开始第一个词尾状态（自身或后缀链接），-1表示没有
+    private final int[] outputLink; // 下一个更短的词尾状态
+
+    public WordSegmenter(Collection<String> dictionary, Set<String> stopWords) {
+        this.stopWords = stopWords;
+        List<String> wordList = new ArrayList<>();
+        for (String word : new LinkedHashSet<>(dictionary)) {
+            if (isAllChinese(word)) {
+                wordList.add(word);
+            }
+        }
+        words = wordList.toArray(new String[0]);
+        emit = new boolean[words.length];
+        for (int i = 0; i < words.length; i++) {
+            emit[i] = words[i].length() >= 2 && !stopWords.contains(words[i]);
+        }
+
+        alphabet = new int[CJK_LAST - CJK_FIRST + 1];
+        Arrays.fill(alphabet, -1);
+        int size = 0;
+        for (String word : words) {
+            for (int i = 0; i < word.length(); i++) {
+                int index = word.charAt(i) - CJK_FIRST;
+                if (alphabet[index] < 0) {
+                    alphabet[index] = size++;
+                }
+            }
+        }
+        alphabetSize = Math.max(size, 1);
+
+        // 构建字典树，-1表示没有子节点
+        List<int[]> children = new ArrayList<>();
+        List<Integer> terminal = new ArrayList<>();
+        children.add(newNode());
+        terminal.add(-1);
+        for (int id = 0; id < words.length; id++) {
+            int state = 0;
+            String word = words[id];
+            for (int i = 0; i < word.length(); i++) {
+                int c = alphabet[word.charAt(i) - CJK_FIRST];
+                if (children.get(state)[c] < 0) {
+                    children.get(state)[c] = children.size();
+                    children.add(newNode());
+                    terminal.add(-1);
+                }
+                state = children.get(state)[c];
+            }
+            terminal.set(state, id);
+        }
+
+        int states = children.size();
+        delta = new int[states * alphabetSize];
+        wordAt = new int[states];
+        output = new int[states];
+        outputLink = new int[states];
+        int[] fail = new int[states];
+        for (int s = 0; s < states; s++) {
+            wordAt[s] = terminal.get(s);
+        }
+
+        // 按层次遍历计算失败链接，并把缺失的转移补全为失败状态的转移
+        Deque<Integer> queue = new ArrayDeque<>();
+        output[0] = -1;
+        outputLink[0] = -1;
+        for (int c = 0; c < alphabetSize; c++) {
+            int next = children.get(0)[c];
+            if (next < 0) {
+                delta[c] = 0;
+            } else {
+                delta[c] = next;
+                fail[next] = 0;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int link = output[fail[state]];
+            outputLink[state] = link;
+            output[state] = wordAt[state] >= 0 ? state : link;
+            for (int c = 0; c < alphabetSize; c++) {
+                int next = children.get(state)[c];
+                if (next < 0) {
+                    delta[state * alphabetSize + c] = delta[fail[state] * alphabetSize + c];
+                } else {
+                    delta[state * alphabetSize + c] = next;
+                    fail[next] = delta[fail[state] * alphabetSize + c];
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * 分词
+     * @param text 文本
+     * @param sink 接收有效的词，英文转为小写，不包含停用词、单字和纯数字
+     */
+    public void segment(String text, Consumer<String> sink) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        int length = text.length();
+
+        // 第一遍：自动机扫描，记录每个位置开始的最长词典词（词ID + 1）
+        int[] longest = new int[length];
+        int state = 0;
+        for (int i = 0; i < length; i++) {
+            char ch = text.charAt(i);
+            int c = isChinese(ch) ? alphabet[ch - CJK_FIRST] : -1;
+            if (c < 0) {
+                state = 0;
+                continue;
+            }
+            state = delta[state * alphabetSize + c];
+            for (int s = output[state]; s >= 0; s = outputLink[s]) {
+                int id = wordAt[s];
+                int start = i - words[id].length() + 1;
+                int current = longest[start] - 1;
+                if (current < 0 || words[id].length() > words[current].length()) {
+                    longest[start] = id + 1;
+                }
+            }
+        }
+
+        // 第二遍：从左到右切分
+        int i = 0;
+        while (i < length) {
+            char ch = text.charAt(i);
+            if (ch == '<') {
+                int end = text.indexOf('>', i);
+                if (end > 0) {
+                    i = end + 1;
+                    continue;
+                }
+            }
+            if (isAsciiLetterOrDigit(ch)) {
+                int start = i;
+                boolean hasLetter = false;
+                while (i < length && isAsciiLetterOrDigit(text.charAt(i))) {
+                    hasLetter |= !Character.isDigit(text.charAt(i));
+                    i++;
+                }
+                if (hasLetter && i - start > 1) {
+                    String word = text.substring(start, i).toLowerCase();
+                    if (!stopWords.contains(word)) {
+                        sink.accept(word);
+                    }
+                }
+            } else if (isChinese(ch) && longest[i] > 0) {
+                int id = longest[i] - 1;
+                if (emit[id]) {
+                    sink.accept(words[id]);
+                }
+                i += words[id].length();
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private int[] newNode() {
+        int[] node = new int[alphabetSize];
+        Arrays.fill(node, -1);
+        return node;
+    }
+
+    private static boolean isChinese(char c) {
+        return c >= CJK_FIRST && c <= CJK_LAST;
+    }
+
+    private static boolean isAsciiLetterOrDigit(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isAllChinese(String word) {
+        if (word == null || word.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (!isChinese(word.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
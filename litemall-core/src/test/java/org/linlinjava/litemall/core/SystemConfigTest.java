@@ -0,0 +1,62 @@
+package org.linlinjava.litemall.core;
+
+import org.junit.jupiter.api.Test;
+import org.linlinjava.litemall.core.system.SystemConfig;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SystemConfigTest {
+
+    @Test
+    void testUpdate() {
+        Map<String, String> configs = new HashMap<>();
+        configs.put(SystemConfig.LITEMALL_WX_INDEX_NEW, "6");
+        configs.put(SystemConfig.LITEMALL_EXPRESS_FREIGHT_VALUE, "8");
+        configs.put(SystemConfig.LITEMALL_EXPRESS_FREIGHT_MIN, "88");
+        SystemConfig.setConfigs(configs);
+
+        List<SystemConfig.Snapshot> changes = new ArrayList<>();
+        SystemConfig.addListener((previous, current) -> changes.add(current));
+
+        SystemConfig.Snapshot before = SystemConfig.getSnapshot();
+        assertEquals(Integer.valueOf(6), SystemConfig.getNewLimit());
+        assertEquals(new BigDecimal("8"), SystemConfig.getFreightPrice(new BigDecimal("87.99")));
+        assertEquals(0, SystemConfig.getFreightPrice(new BigDecimal("88")).signum());
+
+        Map<String, String> data = new HashMap<>();
+        data.put(SystemConfig.LITEMALL_WX_INDEX_NEW, "10");
+        List<Map<String, String>> saved = new ArrayList<>();
+        SystemConfig.updateConfigs(data, update -> {
+            // 保存时还未替换快照
+            assertEquals(Integer.valueOf(6), SystemConfig.getNewLimit());
+            saved.add(new HashMap<>(update));
+        });
+        assertEquals(List.of(Map.of(SystemConfig.LITEMALL_WX_INDEX_NEW, "10")), saved);
+        assertEquals(Integer.valueOf(10), SystemConfig.getNewLimit());
+        assertEquals(new BigDecimal("88"), SystemConfig.getFreightLimit());
+        assertEquals(Integer.valueOf(6), before.getNewLimit());
+        assertFalse(before.sameHomeLimits(SystemConfig.getSnapshot()));
+        assertEquals(1, changes.size());
+
+        // 格式错误时保留原配置，不保存
+        data.put(SystemConfig.LITEMALL_EXPRESS_FREIGHT_MIN, "abc");
+        assertThrows(IllegalArgumentException.class, () -> SystemConfig.updateConfigs(data, saved::add));
+        assertEquals(new BigDecimal("88"), SystemConfig.getFreightLimit());
+        assertEquals(1, saved.size());
+        assertEquals(1, changes.size());
+
+        // 保存失败时不替换快照，不通知监听器
+        data.put(SystemConfig.LITEMALL_EXPRESS_FREIGHT_MIN, "99");
+        assertThrows(IllegalStateException.class, () -> SystemConfig.updateConfigs(data, update -> {
+            throw new IllegalStateException("update failed");
+        }));
+        assertEquals(new BigDecimal("88"), SystemConfig.getFreightLimit());
+        assertEquals(1, changes.size());
+    }
+}
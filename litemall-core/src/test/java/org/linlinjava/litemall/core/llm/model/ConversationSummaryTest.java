@@ -0,0 +1,94 @@
+package org.linlinjava.litemall.core.llm.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 滚动对话摘要单元测试
+ */
+class ConversationSummaryTest {
+
+    @Test
+    @DisplayName("测试最近消息保留原文")
+    void testRecent() {
+        ConversationSummary summary = new ConversationSummary();
+        assertTrue(summary.isEmpty());
+        assertEquals("", render(summary, 1000));
+
+        summary.append("用户", null);
+        assertTrue(summary.isEmpty());
+
+        summary.append("用户", "你好");
+        summary.append("助手", "您好");
+        assertFalse(summary.isEmpty());
+        assertEquals("历史对话:\n用户: 你好\n助手: 您好\n", render(summary, 1000));
+    }
+
+    @Test
+    @DisplayName("测试超出历史预算时较早消息折叠为摘要")
+    void testCompact() {
+        ConversationSummary summary = new ConversationSummary();
+        summary.append("用户", "消息一");
+        summary.append("助手", "消息二");
+        summary.append("用户", "消息三");
+
+        // 每条消息 2 + 3 = 5个token，预算10只保留最近两条原文
+        summary.compact(10, 1000);
+        assertEquals("较早对话摘要:\n- 用户: 消息一\n历史对话:\n助手: 消息二\n用户: 消息三\n", render(summary, 1000));
+
+        // 摘要超出预算时丢弃最早的摘要行
+        summary.compact(10, 0);
+        assertEquals("较早对话摘要:\n（更早的1条消息已省略）\n历史对话:\n助手: 消息二\n用户: 消息三\n",
+            render(summary, 1000));
+        assertFalse(summary.isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试摘要行压缩空白并截断")
+    void testSummaryLine() {
+        ConversationSummary summary = new ConversationSummary();
+        summary.append("助手", "第一行\n\n第二行  " + "很".repeat(50));
+        summary.append("用户", "继续");
+        summary.compact(0, 1000);
+
+        String text = render(summary, 1000);
+        String line = "- 助手: " + ("第一行 第二行 " + "很".repeat(50)).substring(0, 40) + "...\n";
+        assertTrue(text.contains(line), text);
+        assertTrue(text.endsWith("历史对话:\n用户: 继续\n"), text);
+    }
+
+    @Test
+    @DisplayName("测试输出预算不足时优先保留最近的消息")
+    void testBudget() {
+        ConversationSummary summary = new ConversationSummary();
+        summary.append("用户", "消息一");
+        summary.append("助手", "消息二");
+
+        // 每条消息5个token，加上每行3个token的格式开销
+        assertEquals("历史对话:\n助手: 消息二\n", render(summary, 8));
+        assertEquals("", render(summary, 7));
+
+        summary.compact(5, 1000);
+        assertEquals("较早对话摘要:\n（更早的1条消息已省略）\n历史对话:\n助手: 消息二\n", render(summary, 8));
+    }
+
+    @Test
+    @DisplayName("测试消息数量超过上限时自动折叠")
+    void testMaxRecent() {
+        ConversationSummary summary = new ConversationSummary();
+        for (int i = 1; i <= 51; i++) {
+            summary.append("用户", "消息" + i);
+        }
+        String text = render(summary, 100000);
+        assertTrue(text.startsWith("较早对话摘要:\n- 用户: 消息1\n历史对话:\n用户: 消息2\n"), text);
+        assertTrue(text.endsWith("用户: 消息51\n"), text);
+    }
+
+    private static String render(ConversationSummary summary, int budget) {
+        StringBuilder out = new StringBuilder();
+        summary.appendTo(out, budget);
+        return out.toString();
+    }
+}
@@ -0,0 +1,78 @@
+package org.linlinjava.litemall.core.llm.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.linlinjava.litemall.core.llm.exception.RateLimitException;
+import org.linlinjava.litemall.core.llm.exception.ServiceUnavailableException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LLM调用保护单元测试
+ */
+class LLMCallGuardTest {
+
+    private LLMCallGuard callGuard;
+
+    @BeforeEach
+    void setUp() {
+        callGuard = new LLMCallGuard();
+        ReflectionTestUtils.setField(callGuard, "maxConcurrent", 1);
+        ReflectionTestUtils.setField(callGuard, "bulkheadWaitMs", 10L);
+        ReflectionTestUtils.setField(callGuard, "targetLatencyMs", 1000L);
+        ReflectionTestUtils.setField(callGuard, "windowSize", 4);
+        ReflectionTestUtils.setField(callGuard, "minCalls", 4);
+        ReflectionTestUtils.setField(callGuard, "failureRateThreshold", 50);
+        ReflectionTestUtils.setField(callGuard, "openDurationMs", 100L);
+        callGuard.init();
+    }
+
+    @Test
+    @DisplayName("测试失败率过高时打开熔断，超时后试探成功关闭熔断")
+    void testCircuitBreaker() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalStateException.class, () -> callGuard.execute(() -> {
+                throw new IllegalStateException("upstream error");
+            }));
+        }
+        assertTrue(callGuard.isCircuitOpen());
+        assertThrows(ServiceUnavailableException.class, () -> callGuard.execute(() -> "ok"));
+
+        Thread.sleep(150);
+
+        assertEquals("ok", callGuard.execute(() -> "ok"));
+        assertFalse(callGuard.isCircuitOpen());
+        assertEquals("CLOSED", callGuard.getMetrics().get("circuitState"));
+    }
+
+    @Test
+    @DisplayName("测试舱壁已满时拒绝调用")
+    void testBulkheadRejection() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            try {
+                callGuard.execute(() -> {
+                    started.countDown();
+                    release.await();
+                    return "done";
+                });
+            } catch (Exception e) {
+                fail(e);
+            }
+        });
+        holder.start();
+        started.await();
+
+        assertThrows(RateLimitException.class, () -> callGuard.execute(() -> "ok"));
+        assertEquals(1L, callGuard.getMetrics().get("bulkheadRejected"));
+
+        release.countDown();
+        holder.join();
+        assertEquals("ok", callGuard.execute(() -> "ok"));
+    }
+}
@@ -0,0 +1,167 @@
+package org.linlinjava.litemall.core.llm.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.linlinjava.litemall.core.llm.model.ConversationSession;
+import org.linlinjava.litemall.core.llm.model.QueryIntent;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 会话存储单元测试
+ */
+class LLMSessionStoreTest {
+
+    @TempDir
+    Path spillDir;
+
+    @Test
+    @DisplayName("测试超出会话数量上限时淘汰最近最少使用的会话")
+    void testLruEviction() {
+        LLMSessionStore store = new LLMSessionStore(60_000, 2, Long.MAX_VALUE);
+        LLMSessionStore.Region<String> region = store.region("test", String.class, s -> 100);
+
+        region.put("a", "A");
+        region.put("b", "B");
+        assertEquals("A", region.get("a"));
+        region.put("c", "C");
+
+        assertTrue(region.contains("a"));
+        assertFalse(region.contains("b"));
+        assertTrue(region.contains("c"));
+        assertEquals(2, region.size());
+        assertEquals(1L, store.getStatistics().get("evictedSessions"));
+    }
+
+    @Test
+    @DisplayName("测试超出内存上限时淘汰会话，分区共享容量预算")
+    void testByteBudget() {
+        LLMSessionStore store = new LLMSessionStore(60_000, 100, 250);
+        LLMSessionStore.Region<String> first = store.region("first", String.class, s -> 100);
+        LLMSessionStore.Region<StringBuilder> second = store.region("second", StringBuilder.class, StringBuilder::length);
+
+        first.put("a", "A");
+        first.put("b", "B");
+        StringBuilder text = new StringBuilder("x");
+        second.put("c", text);
+        assertEquals(201L, store.getStatistics().get("totalBytes"));
+
+        // 会话变大后重新计算内存占用，超出预算时淘汰最早访问的会话
+        text.append("x".repeat(99));
+        second.resize("c");
+
+        assertFalse(first.contains("a"));
+        assertTrue(first.contains("b"));
+        assertTrue(second.contains("c"));
+        assertEquals(200L, store.getStatistics().get("totalBytes"));
+    }
+
+    @Test
+    @DisplayName("测试淘汰的会话写入磁盘，再次访问时加载回内存")
+    void testSpillRoundTrip() throws IOException {
+        LLMSessionStore store = new LLMSessionStore(60_000, 1, Long.MAX_VALUE, spillDir.toString());
+        LLMSessionStore.Region<ConversationSession> region =
+            store.region("conversation", ConversationSession.class, s -> 100);
+
+        ConversationSession session = new ConversationSession("user-1");
+        session.setSessionId("s1");
+        QueryIntent intent = new QueryIntent();
+        intent.setQueryType("price_range");
+        Map<String, Object> conditions = new HashMap<>();
+        conditions.put("price", Map.of("min", 100, "max", 200));
+        intent.setConditions(conditions);
+        session.addTurn("100到200元的商品", "找到3件商品", intent);
+        region.put("s1", session);
+
+        region.put("s2", new ConversationSession("user-2"));
+        assertTrue(region.contains("s1"));
+        assertEquals(1, region.size());
+        assertEquals(1, countSpillFiles());
+        assertEquals(1L, store.getStatistics().get("spilledSessions"));
+
+        ConversationSession loaded = region.get("s1");
+        assertNotNull(loaded);
+        assertNotSame(session, loaded);
+        assertEquals("user-1", loaded.getUserId());
+        assertEquals(1, loaded.getConversationHistory().size());
+        assertEquals("price_range", loaded.getConversationHistory().get(0).getQueryIntent().getQueryType());
+        assertEquals(conditions, loaded.getContext().getLastConditions());
+        assertEquals(summaryText(session), summaryText(loaded));
+
+        // s1加载回内存后s2被淘汰，s1的文件已删除
+        assertTrue(region.contains("s2"));
+        assertEquals(1, countSpillFiles());
+        assertNotNull(region.get("s2"));
+
+        region.remove("s1");
+        region.remove("s2");
+        assertFalse(region.contains("s1"));
+        assertEquals(0, countSpillFiles());
+    }
+
+    @Test
+    @DisplayName("测试会话按最后访问时间超时，包括磁盘上的会话")
+    void testTtl() throws Exception {
+        LLMSessionStore store = new LLMSessionStore(100, 1, Long.MAX_VALUE, spillDir.toString());
+        LLMSessionStore.Region<String> region = store.region("test", String.class, s -> 100);
+
+        region.put("a", "A");
+        region.put("b", "B");
+        assertEquals(1, countSpillFiles());
+
+        Thread.sleep(200);
+        // 文件修改时间不影响超时判断
+        try (Stream<Path> files = Files.list(spillDir)) {
+            for (Path file : files.toList()) {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            }
+        }
+
+        assertEquals(2, store.cleanupExpiredSessions());
+        assertFalse(region.contains("a"));
+        assertFalse(region.contains("b"));
+        assertEquals(0, countSpillFiles());
+
+        region.put("c", "C");
+        Thread.sleep(200);
+        assertNull(region.get("c"));
+    }
+
+    @Test
+    @DisplayName("测试会话过期判断使用会话存储配置的超时时间")
+    void testSessionTimeoutFromStore() throws InterruptedException {
+        LLMSessionManager manager = new LLMSessionManager(new LLMSessionStore(100, 10, Long.MAX_VALUE));
+        LLMSessionManager.Session session = manager.createTransientSession(1);
+        assertTrue(session.isActive());
+
+        Thread.sleep(200);
+        assertTrue(session.isExpired());
+
+        ConversationManager conversationManager = new ConversationManager(100, 10);
+        ConversationSession conversation = conversationManager.getOrCreateSession("s1", "user-1");
+        assertEquals(100, conversation.getTimeoutMillis());
+        Thread.sleep(200);
+        assertTrue(conversation.isSessionExpired());
+    }
+
+    private String summaryText(ConversationSession session) {
+        StringBuilder out = new StringBuilder();
+        session.getSummary().appendTo(out, 1000);
+        return out.toString();
+    }
+
+    private int countSpillFiles() throws IOException {
+        try (Stream<Path> files = Files.list(spillDir)) {
+            return (int) files.count();
+        }
+    }
+}
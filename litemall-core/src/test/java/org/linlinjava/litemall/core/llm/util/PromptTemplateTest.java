@@ -0,0 +1,53 @@
+package org.linlinjava.litemall.core.llm.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 提示词模板单元测试
+ */
+class PromptTemplateTest {
+
+    @Test
+    @DisplayName("测试渲染占位符")
+    void testRender() {
+        PromptTemplate template = PromptTemplate.compile("你好{{name}}，欢迎来到{{ shop }}!");
+        assertEquals("你好张三，欢迎来到litemall!",
+            template.render(Map.of("name", "张三", "shop", new StringBuilder("litemall"))));
+    }
+
+    @Test
+    @DisplayName("测试缺失的占位符按空字符串处理")
+    void testMissingValue() {
+        PromptTemplate template = PromptTemplate.compile("问题：{{question}}\n上下文：{{context}}");
+        Map<String, String> values = new HashMap<>();
+        values.put("question", "有哪些手机");
+        values.put("context", null);
+        assertEquals("问题：有哪些手机\n上下文：", template.render(values));
+        assertEquals("问题：\n上下文：", template.render(Map.of()));
+    }
+
+    @Test
+    @DisplayName("测试重复、相邻和未闭合的占位符")
+    void testPlaceholders() {
+        assertEquals("x-x", PromptTemplate.compile("{{a}}-{{a}}").render(Map.of("a", "x")));
+        assertEquals("12", PromptTemplate.compile("{{a}}{{b}}").render(Map.of("a", "1", "b", "2")));
+        assertEquals("plain", PromptTemplate.compile("plain").render(Map.of()));
+        assertEquals("价格{{price", PromptTemplate.compile("价格{{price").render(Map.of("price", "100")));
+        assertEquals("a}}b", PromptTemplate.compile("a}}b").render(Map.of()));
+    }
+
+    @Test
+    @DisplayName("测试静态部分的token数量")
+    void testStaticTokens() {
+        assertEquals(2, PromptTemplate.compile("你好{{name}}").getStaticTokens());
+        assertEquals(TokenEstimator.estimate("问题：\n回答："),
+            PromptTemplate.compile("问题：{{q}}\n回答：{{a}}").getStaticTokens());
+        assertEquals(0, PromptTemplate.compile("{{a}}").getStaticTokens());
+    }
+}
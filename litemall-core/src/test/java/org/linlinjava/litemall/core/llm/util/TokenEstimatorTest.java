@@ -0,0 +1,51 @@
+package org.linlinjava.litemall.core.llm.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Token估算单元测试
+ */
+class TokenEstimatorTest {
+
+    @Test
+    @DisplayName("测试按字符类型估算token数量")
+    void testEstimate() {
+        assertEquals(0, TokenEstimator.estimate(null));
+        assertEquals(0, TokenEstimator.estimate(""));
+        assertEquals(1, TokenEstimator.estimate("a"));
+        assertEquals(1, TokenEstimator.estimate("abcd"));
+        assertEquals(2, TokenEstimator.estimate("abcde"));
+        assertEquals(2, TokenEstimator.estimate("中文"));
+        assertEquals(3, TokenEstimator.estimate("中文ab"));
+        assertEquals(4, TokenEstimator.estimate(new StringBuilder("价格100元")));
+    }
+
+    @Test
+    @DisplayName("测试估算文本片段")
+    void testEstimateRange() {
+        assertEquals(1, TokenEstimator.estimate("xxabcdxx", 2, 6));
+        assertEquals(2, TokenEstimator.estimate("一二三四", 1, 3));
+        assertEquals(0, TokenEstimator.estimate("abc", 1, 1));
+    }
+
+    @Test
+    @DisplayName("测试保留文本末尾")
+    void testKeepTail() {
+        assertEquals("", TokenEstimator.keepTail(null, 5));
+        assertEquals("", TokenEstimator.keepTail("abc", 0));
+        assertEquals("hello world", TokenEstimator.keepTail("hello world", 100));
+        assertEquals("四五", TokenEstimator.keepTail("一二三四五", 2));
+        assertEquals("efgh", TokenEstimator.keepTail("abcdefgh", 1));
+        assertEquals("二abcd", TokenEstimator.keepTail("一二abcd", 2));
+
+        String text = "用户: 推荐一款手机\n助手: 推荐iPhone 15，价格5999元\n";
+        for (int budget = 1; budget <= TokenEstimator.estimate(text); budget++) {
+            String tail = TokenEstimator.keepTail(text, budget);
+            assertTrue(text.endsWith(tail));
+            assertTrue(TokenEstimator.estimate(tail) <= budget);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.linlinjava.litemall.core.qcode;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.linlinjava.litemall.core.system.SystemConfig;
+import org.linlinjava.litemall.db.service.LitemallGoodsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class QCodeServiceTest {
+    private LitemallGoodsService goodsService;
+    private QCodeService qCodeService;
+    private Map<String, String> previous;
+
+    @BeforeEach
+    void setUp() {
+        previous = new HashMap<>();
+        previous.put(SystemConfig.LITEMALL_WX_SHARE, SystemConfig.getSnapshot().get(SystemConfig.LITEMALL_WX_SHARE));
+        SystemConfig.setConfigs(Map.of(SystemConfig.LITEMALL_WX_SHARE, "true"));
+
+        goodsService = mock(LitemallGoodsService.class);
+        qCodeService = new QCodeService();
+        ReflectionTestUtils.setField(qCodeService, "goodsService", goodsService);
+        ReflectionTestUtils.setField(qCodeService, "threads", 1);
+        ReflectionTestUtils.setField(qCodeService, "debounce", 60_000L);
+        ReflectionTestUtils.setField(qCodeService, "startupLimit", 2);
+        ReflectionTestUtils.setField(qCodeService, "interval", 1000L);
+        qCodeService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        qCodeService.destroy();
+        previous.values().removeIf(Objects::isNull);
+        SystemConfig.setConfigs(previous);
+    }
+
+    @Test
+    void testScheduleMissingShareImages() {
+        when(goodsService.queryIdsWithoutShareUrl()).thenReturn(List.of(1, 2, 3, 4, 5));
+
+        // 每轮只安排两个商品，按间隔错开，第三个位置是下一轮
+        assertEquals(2, qCodeService.scheduleMissingShareImages());
+        Map<Integer, ScheduledFuture<?>> pending = pending();
+        assertEquals(Set.of(1, 2), pending.keySet());
+        long first = pending.get(1).getDelay(TimeUnit.MILLISECONDS);
+        long second = pending.get(2).getDelay(TimeUnit.MILLISECONDS);
+        assertTrue(second - first > 500 && second - first < 1500);
+
+        ScheduledThreadPoolExecutor executor = (ScheduledThreadPoolExecutor) ReflectionTestUtils.getField(qCodeService, "executor");
+        assertEquals(3, executor.getQueue().size());
+    }
+
+    @Test
+    void testScheduleWithinLimit() {
+        when(goodsService.queryIdsWithoutShareUrl()).thenReturn(List.of(1, 2));
+        assertEquals(2, qCodeService.scheduleMissingShareImages());
+        ScheduledThreadPoolExecutor executor = (ScheduledThreadPoolExecutor) ReflectionTestUtils.getField(qCodeService, "executor");
+        assertEquals(2, executor.getQueue().size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Integer, ScheduledFuture<?>> pending() {
+        return (Map<Integer, ScheduledFuture<?>>) ReflectionTestUtils.getField(qCodeService, "pending");
+    }
+}
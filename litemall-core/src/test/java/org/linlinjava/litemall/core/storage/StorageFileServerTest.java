@@ -0,0 +1,90 @@
+package org.linlinjava.litemall.core.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.linlinjava.litemall.db.domain.LitemallStorage;
+import org.linlinjava.litemall.db.service.LitemallStorageService;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StorageFileServerTest {
+    @TempDir
+    Path root;
+
+    private StorageFileServer server;
+
+    @BeforeEach
+    void setUp() {
+        LocalStorage localStorage = new LocalStorage();
+        localStorage.setStoragePath(root.toString());
+        byte[] content = "0123456789".getBytes(StandardCharsets.UTF_8);
+        localStorage.store(new ByteArrayInputStream(content), content.length, "text/plain", "a.txt");
+        StorageService storageService = new StorageService();
+        storageService.setStorage(localStorage);
+
+        LitemallStorage storageInfo = new LitemallStorage();
+        storageInfo.setKey("a.txt");
+        storageInfo.setType("text/plain");
+        LitemallStorageService litemallStorageService = mock(LitemallStorageService.class);
+        when(litemallStorageService.findByKey("a.txt")).thenReturn(storageInfo);
+
+        server = new StorageFileServer();
+        ReflectionTestUtils.setField(server, "storageService", storageService);
+        ReflectionTestUtils.setField(server, "litemallStorageService", litemallStorageService);
+    }
+
+    @Test
+    void testServe() throws Exception {
+        MockHttpServletResponse response = serve(new MockHttpServletRequest("GET", "/"));
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+        String etag = response.getHeader("ETag");
+        assertNotNull(etag);
+        assertTrue(response.getHeader("Cache-Control").contains("max-age"));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader("If-None-Match", etag);
+        assertEquals(304, serve(request).getStatus());
+
+        request = new MockHttpServletRequest("GET", "/");
+        request.addHeader("Range", "bytes=2-4");
+        response = serve(request);
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-4/10", response.getHeader("Content-Range"));
+        assertEquals("234", response.getContentAsString());
+
+        request = new MockHttpServletRequest("GET", "/");
+        request.addHeader("Range", "bytes=20-");
+        assertEquals(416, serve(request).getStatus());
+
+        MockHttpServletResponse missing = new MockHttpServletResponse();
+        server.serve("b.txt", false, new MockHttpServletRequest("GET", "/"), missing);
+        assertEquals(404, missing.getStatus());
+    }
+
+    @Test
+    void testParseRange() {
+        assertArrayEquals(new long[]{7, 9}, StorageFileServer.parseRange("bytes=-3", 10));
+        assertArrayEquals(new long[]{5, 9}, StorageFileServer.parseRange("bytes=5-", 10));
+        assertArrayEquals(new long[]{0, 9}, StorageFileServer.parseRange("bytes=0-100", 10));
+        assertEquals(0, StorageFileServer.parseRange("bytes=0-1,3-4", 10).length);
+        assertNull(StorageFileServer.parseRange("bytes=5-2", 10));
+        assertNull(StorageFileServer.parseRange("bytes=x-", 10));
+    }
+
+    private MockHttpServletResponse serve(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        server.serve("a.txt", false, request, response);
+        return response;
+    }
+}
@@ -0,0 +1,109 @@
+package org.linlinjava.litemall.core.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.linlinjava.litemall.core.storage.config.StorageProperties;
+import org.linlinjava.litemall.db.domain.LitemallStorage;
+import org.linlinjava.litemall.db.service.LitemallStorageService;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class StorageServiceTest {
+    @TempDir
+    Path root;
+
+    private LitemallStorageService litemallStorageService;
+    private StorageService storageService;
+
+    @BeforeEach
+    void setUp() {
+        LocalStorage localStorage = new LocalStorage();
+        localStorage.setStoragePath(root.toString());
+        localStorage.setAddress("http://localhost/");
+        litemallStorageService = mock(LitemallStorageService.class);
+        storageService = new StorageService();
+        storageService.setStorage(localStorage);
+        ReflectionTestUtils.setField(storageService, "litemallStorageService", litemallStorageService);
+    }
+
+    @Test
+    void testStoreByContent() throws Exception {
+        byte[] content = "hello".getBytes(StandardCharsets.UTF_8);
+        LitemallStorage stored = storageService.store(new ByteArrayInputStream(content), content.length, "text/plain", "Hello.TXT");
+
+        // sha256("hello") 前40位
+        String key = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c.txt";
+        assertEquals(key, stored.getKey());
+        assertEquals(5, stored.getSize());
+        Path file = root.resolve("2c").resolve("f2").resolve(key);
+        assertArrayEquals(content, Files.readAllBytes(file));
+        assertEquals(file, storageService.load(key));
+        verify(litemallStorageService).add(any());
+
+        List<String> keys = storageService.loadAll().map(Path::toString).collect(Collectors.toList());
+        assertEquals(List.of(key), keys);
+
+        // 相同内容再次上传只增加引用
+        when(litemallStorageService.retainByKey(key)).thenReturn(stored);
+        LitemallStorage again = storageService.store(new ByteArrayInputStream(content), content.length, "text/plain", "copy.txt");
+        assertSame(stored, again);
+        verify(litemallStorageService, times(1)).add(any());
+
+        // 还有其它引用时只减少引用次数，最后一个引用释放时删除文件
+        when(litemallStorageService.releaseByKey(key)).thenReturn(false, true);
+        storageService.release(key);
+        assertTrue(Files.exists(file));
+        storageService.release(key);
+        assertFalse(Files.exists(file));
+        verify(litemallStorageService, never()).deleteByKey(any());
+    }
+
+    @Test
+    void testGenerateThumbnailUrl() {
+        Storage storage = mock(Storage.class);
+        when(storage.generateUrl(anyString())).thenAnswer(invocation -> "http://cdn/" + invocation.getArgument(0));
+        StorageService remote = new StorageService();
+        remote.setStorage(storage);
+        assertEquals("http://cdn/a.jpg", remote.generateThumbnailUrl("http://cdn/a.jpg", 200));
+
+        ThumbnailGenerator generator = new ThumbnailGenerator(storage, new StorageProperties.Thumbnail());
+        try {
+            remote.setThumbnailGenerator(generator);
+            // 缩略图未确认生成时返回原图
+            assertEquals("http://cdn/a.jpg", remote.generateThumbnailUrl("http://cdn/a.jpg", 200));
+            assertEquals("http://other/a.jpg", remote.generateThumbnailUrl("http://other/a.jpg", 200));
+
+            when(storage.loadAsResource("a_240.jpg")).thenReturn(new ByteArrayResource(new byte[1]));
+            generator.check("a.jpg");
+            assertEquals("http://cdn/a_240.jpg", remote.generateThumbnailUrl("http://cdn/a.jpg", 200));
+            assertEquals("http://cdn/a_480.jpg", remote.generateUrl("a.jpg", 300));
+            assertEquals("http://cdn/a.jpg", remote.generateUrl("a.jpg", 2000));
+            assertEquals("http://cdn/a.txt", remote.generateThumbnailUrl("http://cdn/a.txt", 200));
+
+            generator.invalidate("a.jpg");
+            reset(storage);
+            when(storage.generateUrl(anyString())).thenAnswer(invocation -> "http://cdn/" + invocation.getArgument(0));
+            assertEquals("http://cdn/a.jpg", remote.generateUrl("a.jpg", 200));
+        } finally {
+            generator.shutdown();
+        }
+
+        // 本地存储由访问接口选择缩略图
+        storageService.setThumbnailGenerator(new ThumbnailGenerator(storageService.getStorage(), new StorageProperties.Thumbnail()));
+        assertEquals("http://localhost/a.jpg?size=240", storageService.generateThumbnailUrl("http://localhost/a.jpg", 200));
+        storageService.getThumbnailGenerator().shutdown();
+    }
+}
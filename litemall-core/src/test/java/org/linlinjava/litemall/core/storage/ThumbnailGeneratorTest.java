@@ -0,0 +1,68 @@
+package org.linlinjava.litemall.core.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.linlinjava.litemall.core.storage.config.StorageProperties;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThumbnailGeneratorTest {
+    @TempDir
+    Path root;
+
+    private LocalStorage localStorage;
+    private ThumbnailGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        localStorage = new LocalStorage();
+        localStorage.setStoragePath(root.toString());
+        StorageProperties.Thumbnail properties = new StorageProperties.Thumbnail();
+        properties.setSizes(List.of(480, 120));
+        generator = new ThumbnailGenerator(localStorage, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        generator.shutdown();
+    }
+
+    @Test
+    void testGenerate() throws Exception {
+        BufferedImage image = new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        byte[] bytes = out.toByteArray();
+        localStorage.store(new ByteArrayInputStream(bytes), bytes.length, "image/png", "a.png");
+
+        generator.generate("a.png");
+
+        BufferedImage large = ImageIO.read(Files.newInputStream(localStorage.load("a_480.png")));
+        assertEquals(480, large.getWidth());
+        assertEquals(240, large.getHeight());
+        BufferedImage small = ImageIO.read(Files.newInputStream(localStorage.load("a_120.png")));
+        assertEquals(120, small.getWidth());
+        assertEquals(60, small.getHeight());
+    }
+
+    @Test
+    void testResolve() {
+        assertEquals(120, generator.resolve("a.jpg", 100));
+        assertEquals(480, generator.resolve("a.jpg", 121));
+        assertEquals(0, generator.resolve("a.jpg", 1000));
+        assertEquals(0, generator.resolve("a.jpg", null));
+        assertEquals(0, generator.resolve("a.txt", 100));
+        assertEquals("a_120.jpg", ThumbnailGenerator.derivativeKey("a.gif", 120));
+        assertEquals("image/png", ThumbnailGenerator.derivativeType("a.PNG"));
+    }
+}
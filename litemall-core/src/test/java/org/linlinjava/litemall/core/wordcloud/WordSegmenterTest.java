@@ -0,0 +1,40 @@
+package org.linlinjava.litemall.core.wordcloud;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 词典分词器单元测试
+ */
+class WordSegmenterTest {
+
+    private final WordSegmenter segmenter = new WordSegmenter(
+        List.of("很好", "非常好", "质量", "做工", "精致", "物美价廉", "价廉", "性价比高", "性价比"),
+        Set.of("质量", "good"));
+
+    private List<String> segment(String text) {
+        List<String> words = new ArrayList<>();
+        segmenter.segment(text, words::add);
+        return words;
+    }
+
+    @Test
+    @DisplayName("测试词典词、英文和HTML标签的切分")
+    void testSegment() {
+        assertEquals(List.of("做工", "精致", "非常好", "very", "很好"),
+            segment("质量不错，做工精致，非常好！Very good 123 <b>很好</b>"));
+    }
+
+    @Test
+    @DisplayName("测试从左到右优先最长匹配")
+    void testLongestMatch() {
+        assertEquals(List.of("物美价廉", "性价比高"), segment("物美价廉性价比高"));
+        assertEquals(List.of("价廉", "性价比"), segment("价廉性价比低"));
+    }
+}
@@ -233,6 +233,30 @@ CREATE TABLE `litemall_comment` (
 ) ENGINE=InnoDB AUTO_INCREMENT=1012 DEFAULT CHARSET=utf8mb4 COMMENT='评论表';
 /*!40101 SET character_set_client = @saved_cs_client */;
 
+--
+-- Table structure for table `litemall_comment_summary`
+--
+
+DROP TABLE IF EXISTS `litemall_comment_summary`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `litemall_comment_summary` (
+  `type` tinyint(3) NOT NULL COMMENT '评论类型，0是商品评论，1是专题评论',
+  `value_id` int(11) NOT NULL COMMENT '商品或专题ID',
+  `comment_count` int(11) NOT NULL DEFAULT '0' COMMENT '评论数量',
+  `star_sum` int(11) NOT NULL DEFAULT '0' COMMENT '评分总和',
+  `star1` int(11) NOT NULL DEFAULT '0' COMMENT '1星评论数量',
+  `star2` int(11) NOT NULL DEFAULT '0' COMMENT '2星评论数量',
+  `star3` int(11) NOT NULL DEFAULT '0' COMMENT '3星评论数量',
+  `star4` int(11) NOT NULL DEFAULT '0' COMMENT '4星评论数量',
+  `star5` int(11) NOT NULL DEFAULT '0' COMMENT '5星评论数量',
+  `picture_count` int(11) NOT NULL DEFAULT '0' COMMENT '含有图片的评论数量',
+  `last_comment_time` datetime DEFAULT NULL COMMENT '最近一次评论时间',
+  `update_time` datetime DEFAULT NULL COMMENT '更新时间',
+  PRIMARY KEY (`type`,`value_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='评论汇总表';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
 --
 -- Table structure for table `litemall_coupon`
 --
@@ -246,6 +270,7 @@ CREATE TABLE `litemall_coupon` (
   `desc` varchar(127) DEFAULT '' COMMENT '优惠券介绍，通常是显示优惠券使用限制文字',
   `tag` varchar(63) DEFAULT '' COMMENT '优惠券标签，例如新人专用',
   `total` int(11) NOT NULL DEFAULT '0' COMMENT '优惠券数量，如果是0，则是无限量',
+  `claimed` int(11) NOT NULL DEFAULT '0' COMMENT '已发放数量，等于领取记录数加上各节点预占尚未发放的数量',
   `discount` decimal(10,2) DEFAULT '0.00' COMMENT '优惠金额，',
   `min` decimal(10,2) DEFAULT '0.00' COMMENT '最少消费金额才能使用优惠券。',
   `limit` smallint(6) DEFAULT '1' COMMENT '用户领券限制数量，如果是0，则是不限制；默认是1，限领一张.',
@@ -266,6 +291,52 @@ CREATE TABLE `litemall_coupon` (
 ) ENGINE=InnoDB AUTO_INCREMENT=9 DEFAULT CHARSET=utf8mb4 COMMENT='优惠券信息及规则表';
 /*!40101 SET character_set_client = @saved_cs_client */;
 
+--
+-- Table structure for table `litemall_coupon_campaign`
+--
+
+DROP TABLE IF EXISTS `litemall_coupon_campaign`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `litemall_coupon_campaign` (
+  `id` int(11) NOT NULL AUTO_INCREMENT,
+  `coupon_id` int(11) NOT NULL COMMENT '优惠券ID',
+  `segment` varchar(15) NOT NULL DEFAULT 'all' COMMENT '目标用户，all是全部用户，register是按注册时间，order是按已付款订单',
+  `start_time` datetime DEFAULT NULL COMMENT '注册时间或下单时间的开始，为空则不限制',
+  `end_time` datetime DEFAULT NULL COMMENT '注册时间或下单时间的结束，为空则不限制',
+  `min_orders` int(11) NOT NULL DEFAULT '1' COMMENT '按已付款订单时最少的订单数量',
+  `status` smallint(6) NOT NULL DEFAULT '0' COMMENT '发放状态，0是等待，1是进行中，2是完成，3是失败，4是取消',
+  `target` int(11) DEFAULT NULL COMMENT '开始时统计的目标用户数量',
+  `assigned` int(11) NOT NULL DEFAULT '0' COMMENT '已发放数量',
+  `last_user_id` int(11) NOT NULL DEFAULT '0' COMMENT '已处理到的用户ID，中断后从这里继续',
+  `message` varchar(255) DEFAULT NULL COMMENT '结束原因',
+  `add_time` datetime DEFAULT NULL COMMENT '创建时间',
+  `update_time` datetime DEFAULT NULL COMMENT '更新时间，进行中时作为心跳',
+  `deleted` tinyint(1) DEFAULT '0' COMMENT '逻辑删除',
+  PRIMARY KEY (`id`),
+  KEY `status` (`status`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='优惠券批量发放表';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Table structure for table `litemall_coupon_lease`
+--
+
+DROP TABLE IF EXISTS `litemall_coupon_lease`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `litemall_coupon_lease` (
+  `id` int(11) NOT NULL AUTO_INCREMENT,
+  `coupon_id` int(11) NOT NULL COMMENT '优惠券ID',
+  `remaining` int(11) NOT NULL DEFAULT '0' COMMENT '已计入优惠券已发放数量但尚未写入领取记录的数量',
+  `expire_time` datetime NOT NULL COMMENT '到期时间，持有的节点定时续期，过期后剩余数量归还优惠券',
+  `add_time` datetime DEFAULT NULL COMMENT '创建时间',
+  PRIMARY KEY (`id`),
+  KEY `coupon_id` (`coupon_id`),
+  KEY `expire_time` (`expire_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='优惠券发放数量预占表';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
 --
 -- Table structure for table `litemall_coupon_user`
 --
@@ -285,7 +356,9 @@ CREATE TABLE `litemall_coupon_user` (
   `add_time` datetime DEFAULT NULL COMMENT '创建时间',
   `update_time` datetime DEFAULT NULL COMMENT '更新时间',
   `deleted` tinyint(1) DEFAULT '0' COMMENT '逻辑删除',
-  PRIMARY KEY (`id`)
+  PRIMARY KEY (`id`),
+  KEY `coupon_user` (`coupon_id`,`user_id`),
+  KEY `status_end_time` (`status`,`end_time`)
 ) ENGINE=InnoDB AUTO_INCREMENT=3 DEFAULT CHARSET=utf8mb4 COMMENT='优惠券用户使用表';
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -389,6 +462,21 @@ CREATE TABLE `litemall_goods_attribute` (
 ) ENGINE=InnoDB AUTO_INCREMENT=877 DEFAULT CHARSET=utf8mb4 COMMENT='商品参数表';
 /*!40101 SET character_set_client = @saved_cs_client */;
 
+--
+-- Table structure for table `litemall_goods_detail_text`
+--
+
+DROP TABLE IF EXISTS `litemall_goods_detail_text`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `litemall_goods_detail_text` (
+  `goods_id` int(11) NOT NULL COMMENT '商品表的商品ID',
+  `detail_text` varchar(1023) NOT NULL DEFAULT '' COMMENT '商品详细介绍的纯文本，由detail富文本在写入时生成',
+  `update_time` datetime DEFAULT NULL COMMENT '更新时间',
+  PRIMARY KEY (`goods_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='商品详情纯文本表';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
 --
 -- Table structure for table `litemall_goods_product`
 --
@@ -620,10 +708,32 @@ CREATE TABLE `litemall_order` (
   `add_time` datetime DEFAULT NULL COMMENT '创建时间',
   `update_time` datetime DEFAULT NULL COMMENT '更新时间',
   `deleted` tinyint(1) DEFAULT '0' COMMENT '逻辑删除',
-  PRIMARY KEY (`id`)
+  PRIMARY KEY (`id`),
+  KEY `add_time` (`add_time`),
+  KEY `update_time` (`update_time`),
+  KEY `user_id` (`user_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单表';
 /*!40101 SET character_set_client = @saved_cs_client */;
 
+--
+-- Table structure for table `litemall_order_deadline`
+--
+
+DROP TABLE IF EXISTS `litemall_order_deadline`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `litemall_order_deadline` (
+  `id` int(11) NOT NULL AUTO_INCREMENT,
+  `order_id` int(11) NOT NULL COMMENT '订单ID',
+  `type` tinyint(3) NOT NULL COMMENT '事件类型，如果是1则发货后超期自动确认收货；如果是2则确认收货后超期不能评价',
+  `deadline` datetime NOT NULL COMMENT '到期时间',
+  `add_time` datetime DEFAULT NULL COMMENT '创建时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `order_type` (`order_id`,`type`),
+  KEY `deadline` (`deadline`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单到期事件表';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
 --
 -- Table structure for table `litemall_order_goods`
 --
@@ -729,6 +839,42 @@ CREATE TABLE `litemall_search_history` (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='搜索历史表';
 /*!40101 SET character_set_client = @saved_cs_client */;
 
+--
+-- Table structure for table `litemall_stat_daily`
+--
+
+DROP TABLE IF EXISTS `litemall_stat_daily`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `litemall_stat_daily` (
+  `day` date NOT NULL COMMENT '统计日期',
+  `users` int(11) NOT NULL DEFAULT '0' COMMENT '当日新增用户数',
+  `orders` int(11) NOT NULL DEFAULT '0' COMMENT '当日下单且已确认收货的订单数',
+  `customers` int(11) NOT NULL DEFAULT '0' COMMENT '当日下单且已确认收货的用户数',
+  `amount` decimal(12,2) NOT NULL DEFAULT '0.00' COMMENT '当日下单且已确认收货的实付金额',
+  `update_time` datetime DEFAULT NULL COMMENT '更新时间',
+  PRIMARY KEY (`day`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='每日统计汇总表';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Table structure for table `litemall_stat_order_category_daily`
+--
+
+DROP TABLE IF EXISTS `litemall_stat_order_category_daily`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `litemall_stat_order_category_daily` (
+  `day` date NOT NULL COMMENT '统计日期',
+  `category_l1` int(11) NOT NULL DEFAULT '0' COMMENT '一级类目ID，0表示全部类目',
+  `category_l2` int(11) NOT NULL DEFAULT '0' COMMENT '二级类目ID，0表示一级类目合计',
+  `orders` int(11) NOT NULL DEFAULT '0' COMMENT '包含该类目商品的已付款订单数',
+  `amount` decimal(12,2) NOT NULL DEFAULT '0.00' COMMENT '包含该类目商品的已付款订单实付金额',
+  `update_time` datetime DEFAULT NULL COMMENT '更新时间',
+  PRIMARY KEY (`day`,`category_l1`,`category_l2`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='每日订单类目统计汇总表';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
 --
 -- Table structure for table `litemall_storage`
 --
@@ -743,6 +889,7 @@ CREATE TABLE `litemall_storage` (
   `type` varchar(20) NOT NULL COMMENT '文件类型',
   `size` int(11) NOT NULL COMMENT '文件大小',
   `url` varchar(255) DEFAULT NULL COMMENT '文件访问链接',
+  `ref_count` int(11) NOT NULL DEFAULT '1' COMMENT '引用次数，相同内容的文件重复上传时累加',
   `add_time` datetime DEFAULT NULL COMMENT '创建时间',
   `update_time` datetime DEFAULT NULL COMMENT '更新时间',
   `deleted` tinyint(1) DEFAULT '0' COMMENT '逻辑删除',
@@ -0,0 +1,50 @@
+package org.linlinjava.litemall.db.dao;
+
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 评论汇总Mapper，对应litemall_comment_summary表
+ */
+public interface CommentSummaryMapper {
+    /**
+     * 新增一条评论后累加汇总
+     * @param type 评论类型
+     * @param valueId 商品或专题ID
+     * @param star 评分
+     * @param hasPicture 是否含有图片
+     * @param addTime 评论时间
+     * @return 影响行数
+     */
+    int increment(@Param("type") Byte type,
+                  @Param("valueId") Integer valueId,
+                  @Param("star") Short star,
+                  @Param("hasPicture") Boolean hasPicture,
+                  @Param("addTime") LocalDateTime addTime);
+
+    /**
+     * 删除一个商品或专题的汇总
+     * @param type 评论类型，为null时删除全部汇总
+     * @param valueId 商品或专题ID
+     * @return 影响行数
+     */
+    int delete(@Param("type") Byte type, @Param("valueId") Integer valueId);
+
+    /**
+     * 从评论表重新生成汇总，需要先调用 {@link #delete(Byte, Integer)}
+     * @param type 评论类型，为null时生成全部商品和专题的汇总
+     * @param valueId 商品或专题ID
+     * @return 影响行数
+     */
+    int insertFromComments(@Param("type") Byte type, @Param("valueId") Integer valueId);
+
+    /**
+     * 查询一个商品或专题的汇总
+     * @param type 评论类型
+     * @param valueId 商品或专题ID
+     * @return 汇总，不存在时返回null
+     */
+    Map<String, Object> selectOne(@Param("type") Byte type, @Param("valueId") Integer valueId);
+}
@@ -0,0 +1,88 @@
+package org.linlinjava.litemall.db.dao;
+
+import org.apache.ibatis.annotations.Param;
+import org.linlinjava.litemall.db.domain.LitemallCouponCampaign;
+
+import java.util.List;
+
+/**
+ * 优惠券批量发放Mapper，对应litemall_coupon_campaign表
+ */
+public interface CouponCampaignMapper {
+    /**
+     * 新增发放任务，生成的ID写回参数的id
+     * @param campaign couponId, segment, startTime, endTime, minOrders
+     * @return 影响行数
+     */
+    int insert(LitemallCouponCampaign campaign);
+
+    /**
+     * @param id 发放任务ID
+     * @return 发放任务，不存在时返回null
+     */
+    LitemallCouponCampaign selectById(@Param("id") Integer id);
+
+    /**
+     * @param couponId 优惠券ID，为null时查询全部
+     * @return 发放任务，按ID倒序
+     */
+    List<LitemallCouponCampaign> selectList(@Param("couponId") Integer couponId);
+
+    /**
+     * 等待中的任务，以及心跳超时的进行中任务
+     * @param timeout 心跳超时时间，秒
+     * @return 发放任务ID
+     */
+    List<Integer> selectRunnable(@Param("timeout") int timeout);
+
+    /**
+     * 开始或接管发放任务，多个节点同时执行时只有一个成功
+     * @param id 发放任务ID
+     * @param timeout 心跳超时时间，秒
+     * @return 影响行数，0表示任务已在其它节点执行或已结束
+     */
+    int start(@Param("id") Integer id, @Param("timeout") int timeout);
+
+    /**
+     * @param id 发放任务ID
+     * @param target 目标用户数量
+     * @return 影响行数
+     */
+    int updateTarget(@Param("id") Integer id, @Param("target") int target);
+
+    /**
+     * 记录一批发放的进度并刷新心跳，处理位置不是from时不更新
+     * @param id 发放任务ID
+     * @param from 本批开始前的处理位置
+     * @param to 本批最后一个用户ID
+     * @param count 本批发放数量
+     * @return 影响行数，0表示任务已被取消或已被其它节点接管
+     */
+    int advance(@Param("id") Integer id, @Param("from") int from, @Param("to") int to, @Param("count") int count);
+
+    /**
+     * 结束等待中或进行中的任务
+     * @param id 发放任务ID
+     * @param status 结束状态
+     * @param message 结束原因
+     * @return 影响行数
+     */
+    int finish(@Param("id") Integer id, @Param("status") Short status, @Param("message") String message);
+
+    /**
+     * 按用户ID顺序查询下一批目标用户，跳过已持有该优惠券的用户
+     * @param campaign 发放任务
+     * @param afterId 从该用户ID之后开始
+     * @param limit 数量
+     * @return 用户ID，升序
+     */
+    List<Integer> selectUserIds(@Param("campaign") LitemallCouponCampaign campaign,
+                                @Param("afterId") int afterId,
+                                @Param("limit") int limit);
+
+    /**
+     * @param campaign 发放任务
+     * @return 目标用户数量
+     */
+    int countUsers(@Param("campaign") LitemallCouponCampaign campaign);
+}
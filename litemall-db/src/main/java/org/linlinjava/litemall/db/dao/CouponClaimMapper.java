@@ -0,0 +1,108 @@
+package org.linlinjava.litemall.db.dao;
+
+import org.apache.ibatis.annotations.Param;
+import org.linlinjava.litemall.db.domain.LitemallCouponLease;
+import org.linlinjava.litemall.db.domain.LitemallCouponUser;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 优惠券领取Mapper，对应litemall_coupon表的claimed列、litemall_coupon_lease表和litemall_coupon_user表的批量写入
+ */
+public interface CouponClaimMapper {
+    /**
+     * 已发放数量修正为未删除的领取记录数加上预占的剩余数量，UPDATE中的子查询是加锁读，读取的是已提交的最新记录
+     * @param couponId 优惠券ID，null表示所有优惠券
+     * @return 影响行数
+     */
+    int reconcileClaimed(@Param("couponId") Integer couponId);
+
+    /**
+     * 增加已发放数量，总数量为0时不限制
+     * @param couponId 优惠券ID
+     * @param count 数量
+     * @return 影响行数，0表示剩余数量不足
+     */
+    int increaseClaimed(@Param("couponId") Integer couponId, @Param("count") int count);
+
+    /**
+     * @param couponId 优惠券ID
+     * @return 剩余可发放数量，不限量的优惠券返回null
+     */
+    Integer remaining(@Param("couponId") Integer couponId);
+
+    /**
+     * 新增预占记录，生成的ID写回lease的id
+     * @param lease 优惠券ID和预占数量
+     * @param ttl 有效期，秒
+     * @return 影响行数
+     */
+    int insertLease(@Param("lease") LitemallCouponLease lease, @Param("ttl") int ttl);
+
+    /**
+     * 扣减预占的剩余数量，预占已过期时不扣减
+     * @param id 预占ID
+     * @param count 数量
+     * @return 影响行数，0表示预占已过期或已回收
+     */
+    int consumeLease(@Param("id") Integer id, @Param("count") int count);
+
+    /**
+     * 延长未过期的预占
+     * @param id 预占ID
+     * @param ttl 有效期，秒
+     * @return 影响行数，0表示预占已过期或已回收
+     */
+    int renewLease(@Param("id") Integer id, @Param("ttl") int ttl);
+
+    /**
+     * 锁定已过期的预占
+     * @return 预占ID
+     */
+    List<Integer> selectExpiredLeasesForUpdate();
+
+    /**
+     * 把预占的剩余数量归还到优惠券的已发放数量
+     * @param ids 预占ID
+     * @return 影响行数
+     */
+    int returnLeases(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * @param ids 预占ID
+     * @return 影响行数
+     */
+    int deleteLeases(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * 按ID顺序锁定用户，同一用户的领取在各节点间串行复核
+     * @param userIds 用户ID
+     * @return 用户ID
+     */
+    List<Integer> lockUsers(@Param("userIds") Collection<Integer> userIds);
+
+    /**
+     * 用户已领取的数量
+     * @param couponId 优惠券ID
+     * @param userId 用户ID
+     * @return 未删除的领取记录数
+     */
+    int countUser(@Param("couponId") Integer couponId, @Param("userId") Integer userId);
+
+    /**
+     * 多个用户已领取的数量
+     * @param couponId 优惠券ID
+     * @param userIds 用户ID
+     * @return user_id, count，没有领取记录的用户没有对应行
+     */
+    List<Map<String, Object>> countByUsers(@Param("couponId") Integer couponId, @Param("userIds") Collection<Integer> userIds);
+
+    /**
+     * 多行写入用户优惠券
+     * @param couponUsers 用户优惠券
+     * @return 影响行数
+     */
+    int insertCouponUsers(@Param("list") List<LitemallCouponUser> couponUsers);
+}
@@ -0,0 +1,36 @@
+package org.linlinjava.litemall.db.dao;
+
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 优惠券过期Mapper，按优惠券批量更新litemall_coupon和litemall_coupon_user的过期状态
+ */
+public interface CouponExpiryMapper {
+    /**
+     * 将截止时间不晚于now的限时优惠券设为过期
+     * @param couponIds 优惠券ID，为null时检查全部优惠券
+     * @param now 应用节点的当前时间，不使用数据库时钟
+     * @return 影响行数
+     */
+    int expireCoupons(@Param("couponIds") Collection<Integer> couponIds, @Param("now") LocalDateTime now);
+
+    /**
+     * 将有效期截止时间不晚于now的用户优惠券设为过期
+     * @param couponIds 优惠券ID，为null时检查全部用户优惠券
+     * @param now 应用节点的当前时间，不使用数据库时钟
+     * @return 影响行数
+     */
+    int expireCouponUsers(@Param("couponIds") Collection<Integer> couponIds, @Param("now") LocalDateTime now);
+
+    /**
+     * 在指定时间前到期的优惠券和用户优惠券，按优惠券和截止时间去重
+     * @param until 截止时间
+     * @return coupon_id, end_time
+     */
+    List<Map<String, Object>> selectUpcoming(@Param("until") LocalDateTime until);
+}
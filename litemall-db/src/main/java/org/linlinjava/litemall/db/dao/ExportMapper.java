@@ -0,0 +1,54 @@
+package org.linlinjava.litemall.db.dao;
+
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 数据导出Mapper
+ * <p>
+ * 查询使用流式结果集逐行回调，不在内存中保存全部结果。
+ * 时间列在SQL中格式化为字符串。
+ */
+public interface ExportMapper {
+    /**
+     * 导出订单
+     * @param nickname 用户昵称，模糊匹配，可为null
+     * @param consignee 收货人，模糊匹配，可为null
+     * @param orderSn 订单编号，可为null
+     * @param start 下单开始时间，可为null
+     * @param end 下单结束时间，可为null
+     * @param orderStatusArray 订单状态，可为null
+     * @param handler 逐行回调
+     */
+    void exportOrders(@Param("nickname") String nickname,
+                      @Param("consignee") String consignee,
+                      @Param("orderSn") String orderSn,
+                      @Param("start") LocalDateTime start,
+                      @Param("end") LocalDateTime end,
+                      @Param("orderStatusArray") List<Short> orderStatusArray,
+                      ResultHandler<Map<String, Object>> handler);
+
+    /**
+     * 导出用户，不包含密码和微信会话等敏感字段
+     * @param username 用户名，模糊匹配，可为null
+     * @param mobile 手机号，可为null
+     * @param handler 逐行回调
+     */
+    void exportUsers(@Param("username") String username,
+                     @Param("mobile") String mobile,
+                     ResultHandler<Map<String, Object>> handler);
+
+    /**
+     * 导出商品
+     * @param goodsSn 商品编号，可为null
+     * @param name 商品名称，模糊匹配，可为null
+     * @param handler 逐行回调
+     */
+    void exportGoods(@Param("goodsSn") String goodsSn,
+                     @Param("name") String name,
+                     ResultHandler<Map<String, Object>> handler);
+}
@@ -0,0 +1,34 @@
+package org.linlinjava.litemall.db.dao;
+
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 商品详情纯文本Mapper，对应litemall_goods_detail_text表
+ */
+public interface GoodsDetailTextMapper {
+    /**
+     * 写入或覆盖商品详情纯文本
+     * @param goodsId 商品ID
+     * @param detailText 纯文本详情
+     * @return 影响行数
+     */
+    int upsert(@Param("goodsId") Integer goodsId, @Param("detailText") String detailText);
+
+    /**
+     * 批量查询商品详情纯文本
+     * @param goodsIds 商品ID列表
+     * @return goods_id, detail_text
+     */
+    List<Map<String, Object>> selectByGoodsIds(@Param("goodsIds") List<Integer> goodsIds);
+
+    /**
+     * 查询纯文本缺失或已过期的商品（用于回填）
+     * @param afterId 起始商品ID（不包含）
+     * @param limit 每批数量
+     * @return id, detail
+     */
+    List<Map<String, Object>> selectStaleGoods(@Param("afterId") Integer afterId, @Param("limit") Integer limit);
+}
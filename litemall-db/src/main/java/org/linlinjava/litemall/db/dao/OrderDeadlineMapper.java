@@ -0,0 +1,78 @@
+package org.linlinjava.litemall.db.dao;
+
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单到期事件Mapper，对应litemall_order_deadline表，以及到期后对订单的批量更新
+ */
+public interface OrderDeadlineMapper {
+    /**
+     * 登记到期事件，同一订单同一类型的事件已存在时更新到期时间
+     * @param orderId 订单ID
+     * @param type 事件类型
+     * @param deadline 到期时间
+     * @return 影响行数
+     */
+    int schedule(@Param("orderId") Integer orderId, @Param("type") Byte type, @Param("deadline") LocalDateTime deadline);
+
+    /**
+     * 为已自动确认收货的订单登记评价超期事件
+     * @param orderIds 订单ID
+     * @param days 确认收货后可评价的天数
+     * @return 影响行数
+     */
+    int scheduleComment(@Param("orderIds") Collection<Integer> orderIds, @Param("days") int days);
+
+    /**
+     * 已到期的事件，按到期时间排序
+     * @param limit 数量
+     * @return id, order_id, type
+     */
+    List<Map<String, Object>> selectDue(@Param("limit") int limit);
+
+    /**
+     * @param ids 事件ID
+     * @return 影响行数
+     */
+    int delete(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * 自动确认仍处于已发货状态的订单
+     * @param orderIds 订单ID
+     * @return 影响行数
+     */
+    int confirm(@Param("orderIds") Collection<Integer> orderIds);
+
+    /**
+     * 订单待评价数量清零
+     * @param orderIds 订单ID
+     * @return 影响行数
+     */
+    int expireOrderComments(@Param("orderIds") Collection<Integer> orderIds);
+
+    /**
+     * 尚未评价的订单商品设为超期不能评价
+     * @param orderIds 订单ID
+     * @return 影响行数
+     */
+    int expireOrderGoodsComments(@Param("orderIds") Collection<Integer> orderIds);
+
+    /**
+     * 为已发货但没有到期事件的订单补充自动确认事件
+     * @param days 发货后自动确认收货的天数
+     * @return 影响行数
+     */
+    int backfillConfirm(@Param("days") int days);
+
+    /**
+     * 为待评价但没有到期事件的订单补充评价超期事件
+     * @param days 确认收货后可评价的天数
+     * @return 影响行数
+     */
+    int backfillComment(@Param("days") int days);
+}
@@ -3,6 +3,7 @@ package org.linlinjava.litemall.db.dao;
 import java.util.List;
 import java.util.Map;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 public interface StatMapper {
     List<Map<String, Object>> statUser();
@@ -104,4 +105,25 @@ public interface StatMapper {
      * @return 评论内容列表
      */
     List<Map<String, Object>> getAllComments();
-}
\ No newline at end of file
+
+    /**
+     * 按ID分批读取商品评论（用于构建词云索引）
+     * @param afterId 起始评论ID（不包含）
+     * @param limit 每批数量
+     * @return id, value_id, category_id, content，按ID升序
+     */
+    List<Map<String, Object>> selectGoodsComments(@Param("afterId") Integer afterId, @Param("limit") Integer limit);
+
+    /**
+     * 流式读取所有已付款订单及其包含的类目，用于加载订单统计存储
+     * @param handler 每行的处理器，行按订单ID、一级类目、二级类目排序
+     */
+    void scanPaidOrderCategories(ResultHandler<Map<String, Object>> handler);
+
+    /**
+     * 查询一个已付款订单包含的类目
+     * @param orderId 订单ID
+     * @return id, user_id, actual_price, epoch_day, category_l1, category_l2
+     */
+    List<Map<String, Object>> selectPaidOrderCategories(@Param("orderId") Integer orderId);
+}
@@ -0,0 +1,83 @@
+package org.linlinjava.litemall.db.dao;
+
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 统计汇总Mapper，对应litemall_stat_daily和litemall_stat_order_category_daily表
+ */
+public interface StatRollupMapper {
+    /**
+     * 重新计算某一天的用户和订单汇总
+     * @param day 统计日期
+     * @param startTime 当天开始时间（包含）
+     * @param endTime 次日开始时间（不包含）
+     * @param refreshTime 本次汇总任务的开始时间，保存为update_time
+     * @return 影响行数
+     */
+    int upsertDaily(@Param("day") LocalDate day,
+                    @Param("startTime") LocalDateTime startTime,
+                    @Param("endTime") LocalDateTime endTime,
+                    @Param("refreshTime") LocalDateTime refreshTime);
+
+    /**
+     * 删除某一天的订单类目汇总
+     * @param day 统计日期
+     * @return 影响行数
+     */
+    int deleteOrderCategory(@Param("day") LocalDate day);
+
+    /**
+     * 重新生成某一天的订单类目汇总，包括二级类目、一级类目合计和全部类目合计三个层级
+     * @param day 统计日期
+     * @param startTime 当天开始时间（包含）
+     * @param endTime 次日开始时间（不包含）
+     * @return 影响行数
+     */
+    int insertOrderCategory(@Param("day") LocalDate day,
+                            @Param("startTime") LocalDateTime startTime,
+                            @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * @return 已汇总的最后一天，没有汇总数据时返回null
+     */
+    LocalDate selectLatestDay();
+
+    /**
+     * @return 最后一天汇总的update_time，即最近一次完成的汇总任务的开始时间，没有汇总数据时返回null
+     */
+    LocalDateTime selectLastRefreshTime();
+
+    /**
+     * @return 最早有用户注册或订单的日期，没有数据时返回null
+     */
+    LocalDate selectFirstActivityDay();
+
+    /**
+     * 查询在指定时间之后有更新的订单的下单日期
+     * @param since 开始时间
+     * @return 下单日期列表
+     */
+    List<LocalDate> selectOrderDaysUpdatedSince(@Param("since") LocalDateTime since);
+
+    List<Map<String, Object>> statUser();
+
+    List<Map<String, Object>> statOrder();
+
+    /**
+     * 按时间维度汇总订单统计
+     * @param groupBy 统计组织方式：year/quarter/month/week/day
+     * @param categoryId 一级或二级类目ID，可为null
+     * @param startDay 开始日期（包含）
+     * @param endDay 结束日期（包含）
+     * @return period, orders, amount
+     */
+    List<Map<String, Object>> statOrderEnhanced(@Param("groupBy") String groupBy,
+                                                @Param("categoryId") Integer categoryId,
+                                                @Param("startDay") LocalDate startDay,
+                                                @Param("endDay") LocalDate endDay);
+}
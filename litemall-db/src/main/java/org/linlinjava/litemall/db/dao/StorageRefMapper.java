@@ -0,0 +1,29 @@
+package org.linlinjava.litemall.db.dao;
+
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 存储对象引用计数Mapper，对应litemall_storage表的ref_count列
+ */
+public interface StorageRefMapper {
+    /**
+     * 增加一次引用
+     * @param key 存储对象key
+     * @return 影响行数，0表示不存在
+     */
+    int retain(@Param("key") String key);
+
+    /**
+     * 减少一次引用，只在还有其它引用时执行
+     * @param key 存储对象key
+     * @return 影响行数，0表示这是最后一次引用或不存在
+     */
+    int release(@Param("key") String key);
+
+    /**
+     * 释放最后一次引用并删除记录，只在没有其它引用时执行
+     * @param key 存储对象key
+     * @return 影响行数，0表示还有其它引用或不存在
+     */
+    int releaseLast(@Param("key") String key);
+}
@@ -0,0 +1,838 @@
+package org.linlinjava.litemall.db.domain;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class LitemallCouponCampaign {
+    /**
+     * This field was generated by MyBatis Generator.
+     * This field corresponds to the database table litemall_coupon_campaign
+     *
+     * @mbg.generated
+     */
+    public static final Boolean IS_DELETED = Deleted.IS_DELETED.value();
+
+    /**
+     * This field was generated by MyBatis Generator.
+     * This field corresponds to the database table litemall_coupon_campaign
+     *
+     * @mbg.generated
+     */
+    public static final Boolean NOT_DELETED = Deleted.NOT_DELETED.value();
+
+    /**
+     *
+     * This field was generated by MyBatis Generator.
+     * This field corresponds to the database column litemall_coupon_campaign.id
+     *
+     * @mbg.generated
+     */
+    private Integer id;
+
+    /**
+     *
+     * This field was generated by MyBatis Generator.
+     * This field corresponds to the database column litemall_coupon_campaign.coupon_id
+     *
+     * @mbg.generated
+     */
+    private Integer couponId;
+
+    /**
+     *
+     * This field was generated by MyBatis Generator.
+     * This field corresponds to the database column litemall_coupon_campaign.segment
+     *
+     * @mbg.generated
+     */
+    private String segment;
+
+    /**
+     *
+     * This field was generated by MyBatis Generator.
+     * This field corresponds to the database column litemall_coupon_campaign.start_time
+     *
+     * @mbg.generated
+     */
+    private LocalDateTime startTime;
+
+    /**
+     *
+     * This field was generated by MyBatis Generator.
+     * This field corresponds to the database column litemall_coupon_campaign.end_time
+     *
+     * @mbg.generated
+     */
+    private LocalDateTime endTime;
+
+    /**
+     *
+     * This field was generated by MyBatis Generator.
+     * This field corresponds to the database column litemall_coupon_campaign.min_orders
+     *
+     * @mbg.generated
+     */
+    private Integer minOrders;
+
+    /**
+     *
+     * This field was generated by MyBatis Generator.
+     * This field corresponds to the database column litemall_coupon_campaign.status
+     *
+     * @mbg.generated
+     */
+    private Short status;
+
+    /**
+     *
+     * This field was generated by MyBatis Generator.
+     * This field corresponds to the database column litemall_coupon_campaign.target
+     *
+     * @mbg.generated
+     */
+    private Integer target;
+
+    /**
+     *
+     * This field was generated by MyBatis Generator.
+     * This field corresponds to the database column litemall_coupon_campaign.assigned
+     *
+     * @mbg.generated
+     */
+    private Integer assigned;
+
+    /**
+     *
+     * This field was generated by MyBatis Generator.
+     * This field corresponds to the database column litemall_coupon_campaign.last_user_id
+     *
+     * @mbg.generated
+     */
+    private Integer lastUserId;
+
+    /**
+     *
+     * This field was generated by MyBatis Generator.
+     * This field corresponds to the database column litemall_coupon_campaign.message
+     *
+     * @mbg.generated
+     */
+    private String message;
+
+    /**
+     *
+     * This field was generated by MyBatis Generator.
+     * This field corresponds to the database column litemall_coupon_campaign.add_time
+     *
+     * @mbg.generated
+     */
+    private LocalDateTime addTime;
+
+    /**
+     *
+     * This field was generated by MyBatis Generator.
+     * This field corresponds to the database column litemall_coupon_campaign.update_time
+     *
+     * @mbg.generated
+     */
+    private LocalDateTime updateTime;
+
+    /**
+     *
+     * This field was generated by MyBatis Generator.
+     * This field corresponds to the database column litemall_coupon_campaign.deleted
+     *
+     * @mbg.generated
+     */
+    private Boolean deleted;
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method returns the value of the database column litemall_coupon_campaign.id
+     *
+     * @return the value of litemall_coupon_campaign.id
+     *
+     * @mbg.generated
+     */
+    public Integer getId() {
+        return id;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method sets the value of the database column litemall_coupon_campaign.id
+     *
+     * @param id the value for litemall_coupon_campaign.id
+     *
+     * @mbg.generated
+     */
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method returns the value of the database column litemall_coupon_campaign.coupon_id
+     *
+     * @return the value of litemall_coupon_campaign.coupon_id
+     *
+     * @mbg.generated
+     */
+    public Integer getCouponId() {
+        return couponId;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method sets the value of the database column litemall_coupon_campaign.coupon_id
+     *
+     * @param couponId the value for litemall_coupon_campaign.coupon_id
+     *
+     * @mbg.generated
+     */
+    public void setCouponId(Integer couponId) {
+        this.couponId = couponId;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method returns the value of the database column litemall_coupon_campaign.segment
+     *
+     * @return the value of litemall_coupon_campaign.segment
+     *
+     * @mbg.generated
+     */
+    public String getSegment() {
+        return segment;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method sets the value of the database column litemall_coupon_campaign.segment
+     *
+     * @param segment the value for litemall_coupon_campaign.segment
+     *
+     * @mbg.generated
+     */
+    public void setSegment(String segment) {
+        this.segment = segment;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method returns the value of the database column litemall_coupon_campaign.start_time
+     *
+     * @return the value of litemall_coupon_campaign.start_time
+     *
+     * @mbg.generated
+     */
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method sets the value of the database column litemall_coupon_campaign.start_time
+     *
+     * @param startTime the value for litemall_coupon_campaign.start_time
+     *
+     * @mbg.generated
+     */
+    public void setStartTime(LocalDateTime startTime) {
+        this.startTime = startTime;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method returns the value of the database column litemall_coupon_campaign.end_time
+     *
+     * @return the value of litemall_coupon_campaign.end_time
+     *
+     * @mbg.generated
+     */
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method sets the value of the database column litemall_coupon_campaign.end_time
+     *
+     * @param endTime the value for litemall_coupon_campaign.end_time
+     *
+     * @mbg.generated
+     */
+    public void setEndTime(LocalDateTime endTime) {
+        this.endTime = endTime;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method returns the value of the database column litemall_coupon_campaign.min_orders
+     *
+     * @return the value of litemall_coupon_campaign.min_orders
+     *
+     * @mbg.generated
+     */
+    public Integer getMinOrders() {
+        return minOrders;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method sets the value of the database column litemall_coupon_campaign.min_orders
+     *
+     * @param minOrders the value for litemall_coupon_campaign.min_orders
+     *
+     * @mbg.generated
+     */
+    public void setMinOrders(Integer minOrders) {
+        this.minOrders = minOrders;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method returns the value of the database column litemall_coupon_campaign.status
+     *
+     * @return the value of litemall_coupon_campaign.status
+     *
+     * @mbg.generated
+     */
+    public Short getStatus() {
+        return status;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method sets the value of the database column litemall_coupon_campaign.status
+     *
+     * @param status the value for litemall_coupon_campaign.status
+     *
+     * @mbg.generated
+     */
+    public void setStatus(Short status) {
+        this.status = status;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method returns the value of the database column litemall_coupon_campaign.target
+     *
+     * @return the value of litemall_coupon_campaign.target
+     *
+     * @mbg.generated
+     */
+    public Integer getTarget() {
+        return target;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method sets the value of the database column litemall_coupon_campaign.target
+     *
+     * @param target the value for litemall_coupon_campaign.target
+     *
+     * @mbg.generated
+     */
+    public void setTarget(Integer target) {
+        this.target = target;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method returns the value of the database column litemall_coupon_campaign.assigned
+     *
+     * @return the value of litemall_coupon_campaign.assigned
+     *
+     * @mbg.generated
+     */
+    public Integer getAssigned() {
+        return assigned;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method sets the value of the database column litemall_coupon_campaign.assigned
+     *
+     * @param assigned the value for litemall_coupon_campaign.assigned
+     *
+     * @mbg.generated
+     */
+    public void setAssigned(Integer assigned) {
+        this.assigned = assigned;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method returns the value of the database column litemall_coupon_campaign.last_user_id
+     *
+     * @return the value of litemall_coupon_campaign.last_user_id
+     *
+     * @mbg.generated
+     */
+    public Integer getLastUserId() {
+        return lastUserId;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method sets the value of the database column litemall_coupon_campaign.last_user_id
+     *
+     * @param lastUserId the value for litemall_coupon_campaign.last_user_id
+     *
+     * @mbg.generated
+     */
+    public void setLastUserId(Integer lastUserId) {
+        this.lastUserId = lastUserId;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method returns the value of the database column litemall_coupon_campaign.message
+     *
+     * @return the value of litemall_coupon_campaign.message
+     *
+     * @mbg.generated
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method sets the value of the database column litemall_coupon_campaign.message
+     *
+     * @param message the value for litemall_coupon_campaign.message
+     *
+     * @mbg.generated
+     */
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method returns the value of the database column litemall_coupon_campaign.add_time
+     *
+     * @return the value of litemall_coupon_campaign.add_time
+     *
+     * @mbg.generated
+     */
+    public LocalDateTime getAddTime() {
+        return addTime;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method sets the value of the database column litemall_coupon_campaign.add_time
+     *
+     * @param addTime the value for litemall_coupon_campaign.add_time
+     *
+     * @mbg.generated
+     */
+    public void setAddTime(LocalDateTime addTime) {
+        this.addTime = addTime;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method returns the value of the database column litemall_coupon_campaign.update_time
+     *
+     * @return the value of litemall_coupon_campaign.update_time
+     *
+     * @mbg.generated
+     */
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method sets the value of the database column litemall_coupon_campaign.update_time
+     *
+     * @param updateTime the value for litemall_coupon_campaign.update_time
+     *
+     * @mbg.generated
+     */
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTime = updateTime;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method corresponds to the database table litemall_coupon_campaign
+     *
+     * @mbg.generated
+     */
+    public void andLogicalDeleted(boolean deleted) {
+        setDeleted(deleted ? Deleted.IS_DELETED.value() : Deleted.NOT_DELETED.value());
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method returns the value of the database column litemall_coupon_campaign.deleted
+     *
+     * @return the value of litemall_coupon_campaign.deleted
+     *
+     * @mbg.generated
+     */
+    public Boolean getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method sets the value of the database column litemall_coupon_campaign.deleted
+     *
+     * @param deleted the value for litemall_coupon_campaign.deleted
+     *
+     * @mbg.generated
+     */
+    public void setDeleted(Boolean deleted) {
+        this.deleted = deleted;
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method corresponds to the database table litemall_coupon_campaign
+     *
+     * @mbg.generated
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(getClass().getSimpleName());
+        sb.append(" [");
+        sb.append("Hash = ").append(hashCode());
+        sb.append(", IS_DELETED=").append(IS_DELETED);
+        sb.append(", NOT_DELETED=").append(NOT_DELETED);
+        sb.append(", id=").append(id);
+        sb.append(", couponId=").append(couponId);
+        sb.append(", segment=").append(segment);
+        sb.append(", startTime=").append(startTime);
+        sb.append(", endTime=").append(endTime);
+        sb.append(", minOrders=").append(minOrders);
+        sb.append(", status=").append(status);
+        sb.append(", target=").append(target);
+        sb.append(", assigned=").append(assigned);
+        sb.append(", lastUserId=").append(lastUserId);
+        sb.append(", message=").append(message);
+        sb.append(", addTime=").append(addTime);
+        sb.append(", updateTime=").append(updateTime);
+        sb.append(", deleted=").append(deleted);
+        sb.append("]");
+        return sb.toString();
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method corresponds to the database table litemall_coupon_campaign
+     *
+     * @mbg.generated
+     */
+    @Override
+    public boolean equals(Object that) {
+        if (this == that) {
+            return true;
+        }
+        if (that == null) {
+            return false;
+        }
+        if (getClass() != that.getClass()) {
+            return false;
+        }
+        LitemallCouponCampaign other = (LitemallCouponCampaign) that;
+        return (this.getId() == null ? other.getId() == null : this.getId().equals(other.getId()))
+            && (this.getCouponId() == null ? other.getCouponId() == null : this.getCouponId().equals(other.getCouponId()))
+            && (this.getSegment() == null ? other.getSegment() == null : this.getSegment().equals(other.getSegment()))
+            && (this.getStartTime() == null ? other.getStartTime() == null : this.getStartTime().equals(other.getStartTime()))
+            && (this.getEndTime() == null ? other.getEndTime() == null : this.getEndTime().equals(other.getEndTime()))
+            && (this.getMinOrders() == null ? other.getMinOrders() == null : this.getMinOrders().equals(other.getMinOrders()))
+            && (this.getStatus() == null ? other.getStatus() == null : this.getStatus().equals(other.getStatus()))
+            && (this.getTarget() == null ? other.getTarget() == null : this.getTarget().equals(other.getTarget()))
+            && (this.getAssigned() == null ? other.getAssigned() == null : this.getAssigned().equals(other.getAssigned()))
+            && (this.getLastUserId() == null ? other.getLastUserId() == null : this.getLastUserId().equals(other.getLastUserId()))
+            && (this.getMessage() == null ? other.getMessage() == null : this.getMessage().equals(other.getMessage()))
+            && (this.getAddTime() == null ? other.getAddTime() == null : this.getAddTime().equals(other.getAddTime()))
+            && (this.getUpdateTime() == null ? other.getUpdateTime() == null : this.getUpdateTime().equals(other.getUpdateTime()))
+            && (this.getDeleted() == null ? other.getDeleted() == null : this.getDeleted().equals(other.getDeleted()));
+    }
+
+    /**
+     * This method was generated by MyBatis Generator.
+     * This method corresponds to the database table litemall_coupon_campaign
+     *
+     * @mbg.generated
+     */
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((getId() == null) ? 0 : getId().hashCode());
+        result = prime * result + ((getCouponId() == null) ? 0 : getCouponId().hashCode());
+        result = prime * result + ((getSegment() == null) ? 0 : getSegment().hashCode());
+        result = prime * result + ((getStartTime() == null) ? 0 : getStartTime().hashCode());
+        result = prime * result + ((getEndTime() == null) ? 0 : getEndTime().hashCode());
+        result = prime * result + ((getMinOrders() == null) ? 0 : getMinOrders().hashCode());
+        result = prime * result + ((getStatus() == null) ? 0 : getStatus().hashCode());
+        result = prime * result + ((getTarget() == null) ? 0 : getTarget().hashCode());
+        result = prime * result + ((getAssigned() == null) ? 0 : getAssigned().hashCode());
+        result = prime * result + ((getLastUserId() == null) ? 0 : getLastUserId().hashCode());
+        result = prime * result + ((getMessage() == null) ? 0 : getMessage().hashCode());
+        result = prime * result + ((getAddTime() == null) ? 0 : getAddTime().hashCode());
+        result = prime * result + ((getUpdateTime() == null) ? 0 : getUpdateTime().hashCode());
+        result = prime * result + ((getDeleted() == null) ? 0 : getDeleted().hashCode());
+        return result;
+    }
+
+    /**
+     * This enum was generated by MyBatis Generator.
+     * This enum corresponds to the database table litemall_coupon_campaign
+     *
+     * @mbg.generated
+     */
+    public enum Deleted {
+        NOT_DELETED(Boolean.FALSE, "未删除"),
+        IS_DELETED(Boolean.TRUE, "已删除");
+
+        /**
+         * This field was generated by MyBatis Generator.
+         * This field corresponds to the database table litemall_coupon_campaign
+         *
+         * @mbg.generated
+         */
+        private final Boolean value;
+
+        /**
+         * This field was generated by MyBatis Generator.
+         * This field corresponds to the database table litemall_coupon_campaign
+         *
+         * @mbg.generated
+         */
+        private final String name;
+
+        /**
+         * This method was generated by MyBatis Generator.
+         * This method corresponds to the database table litemall_coupon_campaign
+         *
+         * @mbg.generated
+         */
+        Deleted(Boolean value, String name) {
+            this.value = value;
+            this.name = name;
+        }
+
+        /**
+         * This method was generated by MyBatis Generator.
+         * This method corresponds to the database table litemall_coupon_campaign
+         *
+         * @mbg.generated
+         */
+        public Boolean getValue() {
+            return this.value;
+        }
+
+        /**
+         * This method was generated by MyBatis Generator.
+         * This method corresponds to the database table litemall_coupon_campaign
+         *
+         * @mbg.generated
+         */
+        public Boolean value() {
+            return this.value;
+        }
+
+        /**
+         * This method was generated by MyBatis Generator.
+         * This method corresponds to the database table litemall_coupon_campaign
+         *
+         * @mbg.generated
+         */
+        public String getName() {
+            return this.name;
+        }
+    }
+
+    /**
+     * This enum was generated by MyBatis Generator.
+     * This enum corresponds to the database table litemall_coupon_campaign
+     *
+     * @mbg.generated
+     */
+    public enum Column {
+        id("id", "id", "INTEGER", false),
+        couponId("coupon_id", "couponId", "INTEGER", false),
+        segment("segment", "segment", "VARCHAR", false),
+        startTime("start_time", "startTime", "TIMESTAMP", false),
+        endTime("end_time", "endTime", "TIMESTAMP", false),
+        minOrders("min_orders", "minOrders", "INTEGER", false),
+        status("status", "status", "SMALLINT", false),
+        target("target", "target", "INTEGER", false),
+        assigned("assigned", "assigned", "INTEGER", false),
+        lastUserId("last_user_id", "lastUserId", "INTEGER", false),
+        message("message", "message", "VARCHAR", false),
+        addTime("add_time", "addTime", "TIMESTAMP", false),
+        updateTime("update_time", "updateTime", "TIMESTAMP", false),
+        deleted("deleted", "deleted", "BIT", false);
+
+        /**
+         * This field was generated by MyBatis Generator.
+         * This field corresponds to the database table litemall_coupon_campaign
+         *
+         * @mbg.generated
+         */
+        private static final String BEGINNING_DELIMITER = "`";
+
+        /**
+         * This field was generated by MyBatis Generator.
+         * This field corresponds to the database table litemall_coupon_campaign
+         *
+         * @mbg.generated
+         */
+        private static final String ENDING_DELIMITER = "`";
+
+        /**
+         * This field was generated by MyBatis Generator.
+         * This field corresponds to the database table litemall_coupon_campaign
+         *
+         * @mbg.generated
+         */
+        private final String column;
+
+        /**
+         * This field was generated by MyBatis Generator.
+         * This field corresponds to the database table litemall_coupon_campaign
+         *
+         * @mbg.generated
+         */
+        private final boolean isColumnNameDelimited;
+
+        /**
+         * This field was generated by MyBatis Generator.
+         * This field corresponds to the database table litemall_coupon_campaign
+         *
+         * @mbg.generated
+         */
+        private final String javaProperty;
+
+        /**
+         * This field was generated by MyBatis Generator.
+         * This field corresponds to the database table litemall_coupon_campaign
+         *
+         * @mbg.generated
+         */
+        private final String jdbcType;
+
+        /**
+         * This method was generated by MyBatis Generator.
+         * This method corresponds to the database table litemall_coupon_campaign
+         *
+         * @mbg.generated
+         */
+        public String value() {
+            return this.column;
+        }
+
+        /**
+         * This method was generated by MyBatis Generator.
+         * This method corresponds to the database table litemall_coupon_campaign
+         *
+         * @mbg.generated
+         */
+        public String getValue() {
+            return this.column;
+        }
+
+        /**
+         * This method was generated by MyBatis Generator.
+         * This method corresponds to the database table litemall_coupon_campaign
+         *
+         * @mbg.generated
+         */
+        public String getJavaProperty() {
+            return this.javaProperty;
+        }
+
+        /**
+         * This method was generated by MyBatis Generator.
+         * This method corresponds to the database table litemall_coupon_campaign
+         *
+         * @mbg.generated
+         */
+        public String getJdbcType() {
+            return this.jdbcType;
+        }
+
+        /**
+         * This method was generated by MyBatis Generator.
+         * This method corresponds to the database table litemall_coupon_campaign
+         *
+         * @mbg.generated
+         */
+        Column(String column, String javaProperty, String jdbcType, boolean isColumnNameDelimited) {
+            this.column = column;
+            this.javaProperty = javaProperty;
+            this.jdbcType = jdbcType;
+            this.isColumnNameDelimited = isColumnNameDelimited;
+        }
+
+        /**
+         * This method was generated by MyBatis Generator.
+         * This method corresponds to the database table litemall_coupon_campaign
+         *
+         * @mbg.generated
+         */
+        public String desc() {
+            return this.getEscapedColumnName() + " DESC";
+        }
+
+        /**
+         * This method was generated by MyBatis Generator.
+         * This method corresponds to the database table litemall_coupon_campaign
+         *
+         * @mbg.generated
+         */
+        public String asc() {
+            return this.getEscapedColumnName() + " ASC";
+        }
+
+        /**
+         * This method was generated by MyBatis Generator.
+         * This method corresponds to the database table litemall_coupon_campaign
+         *
+         * @mbg.generated
+         */
+        public static Column[] excludes(Column ... excludes) {
+            ArrayList<Column> columns = new ArrayList<>(Arrays.asList(Column.values()));
+            if (excludes != null && excludes.length > 0) {
+                columns.removeAll(new ArrayList<>(Arrays.asList(excludes)));
+            }
+            return columns.toArray(new Column[]{});
+        }
+
+        /**
+         * This method was generated by MyBatis Generator.
+         * This method corresponds to the database table litemall_coupon_campaign
+         *
+         * @mbg.generated
+         */
+        public String getEscapedColumnName() {
+            if (this.isColumnNameDelimited) {
+                return new StringBuilder().append(BEGINNING_DELIMITER).append(this.column).append(ENDING_DELIMITER).toString();
+            } else {
+                return this.column;
+            }
+        }
+
+        /**
+         * This method was generated by MyBatis Generator.
+         * This method corresponds to the database table litemall_coupon_campaign
+         *
+         * @mbg.generated
+         */
+        public String getAliasedEscapedColumnName() {
+            return this.getEscapedColumnName();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,61 @@
+package org.linlinjava.litemall.db.domain;
+
+import java.time.LocalDateTime;
+
+public class LitemallCouponLease {
+    private Integer id;
+
+    private Integer couponId;
+
+    private Integer remaining;
+
+    private LocalDateTime expireTime;
+
+    private LocalDateTime addTime;
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Integer getCouponId() {
+        return couponId;
+    }
+
+    public void setCouponId(Integer couponId) {
+        this.couponId = couponId;
+    }
+
+    public Integer getRemaining() {
+        return remaining;
+    }
+
+    public void setRemaining(Integer remaining) {
+        this.remaining = remaining;
+    }
+
+    public LocalDateTime getExpireTime() {
+        return expireTime;
+    }
+
+    public void setExpireTime(LocalDateTime expireTime) {
+        this.expireTime = expireTime;
+    }
+
+    public LocalDateTime getAddTime() {
+        return addTime;
+    }
+
+    public void setAddTime(LocalDateTime addTime) {
+        this.addTime = addTime;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [id=" + id + ", couponId=" + couponId + ", remaining=" + remaining
+                + ", expireTime=" + expireTime + ", addTime=" + addTime + "]";
+    }
+}
@@ -1,13 +1,13 @@
 package org.linlinjava.litemall.db.service;
 
+import org.linlinjava.litemall.db.dao.CouponClaimMapper;
 import org.linlinjava.litemall.db.domain.LitemallCoupon;
 import org.linlinjava.litemall.db.domain.LitemallCouponUser;
-import org.linlinjava.litemall.db.util.CouponConstant;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -17,6 +17,10 @@ public class CouponAssignService {
     private LitemallCouponUserService couponUserService;
     @Autowired
     private LitemallCouponService couponService;
+    @Autowired
+    private CouponClaimMapper claimMapper;
+    @Autowired
+    private CouponExpiryService expiryService;
 
     /**
      * 分发注册优惠券
@@ -26,6 +30,7 @@ public class CouponAssignService {
      */
     public void assignForRegister(Integer userId) {
         List<LitemallCoupon> couponList = couponService.queryRegister();
+        List<LitemallCouponUser> couponUsers = new ArrayList<>();
         for(LitemallCoupon coupon : couponList){
             Integer couponId = coupon.getId();
 
@@ -36,25 +41,17 @@ public class CouponAssignService {
 
             Short limit = coupon.getLimit();
             while(limit > 0){
-                LitemallCouponUser couponUser = new LitemallCouponUser();
-                couponUser.setCouponId(couponId);
-                couponUser.setUserId(userId);
-                Short timeType = coupon.getTimeType();
-                if (timeType.equals(CouponConstant.TIME_TYPE_TIME)) {
-                    couponUser.setStartTime(coupon.getStartTime());
-                    couponUser.setEndTime(coupon.getEndTime());
-                }
-                else{
-                    LocalDateTime now = LocalDateTime.now();
-                    couponUser.setStartTime(now);
-                    couponUser.setEndTime(now.plusDays(coupon.getDays()));
-                }
-                couponUserService.add(couponUser);
+                couponUsers.add(CouponClaimService.newCouponUser(coupon, userId));
 
                 limit--;
             }
         }
 
+        // 所有注册优惠券一次写入
+        if (!couponUsers.isEmpty()) {
+            claimMapper.insertCouponUsers(couponUsers);
+            expiryService.register(couponUsers);
+        }
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,166 @@
+package org.linlinjava.litemall.db.service;
+
+import com.github.pagehelper.PageHelper;
+import jakarta.annotation.Resource;
+import org.linlinjava.litemall.db.dao.CouponCampaignMapper;
+import org.linlinjava.litemall.db.dao.CouponClaimMapper;
+import org.linlinjava.litemall.db.domain.LitemallCoupon;
+import org.linlinjava.litemall.db.domain.LitemallCouponCampaign;
+import org.linlinjava.litemall.db.domain.LitemallCouponUser;
+import org.linlinjava.litemall.db.util.CouponCampaignConstant;
+import org.linlinjava.litemall.db.util.CouponConstant;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 优惠券批量发放
+ * <p>
+ * 按用户ID顺序分批查询目标用户，每批在一个事务中增加已发放数量、批量写入用户优惠券并记录处理到的用户ID，
+ * 中断后从记录的位置继续，已持有该优惠券的用户会被跳过，因此重复执行不会重复发放。
+ * 进行中的任务每批刷新心跳，心跳超时后可由其它节点接管；记录进度时校验处理位置，
+ * 任务被取消或被接管后本批回滚。
+ */
+@Service
+public class CouponCampaignService {
+    private static final int TIMEOUT = 5 * 60; // 心跳超时时间，秒
+
+    @Resource
+    private CouponCampaignMapper campaignMapper;
+    @Resource
+    private CouponClaimMapper claimMapper;
+    @Resource
+    private LitemallCouponService couponService;
+    @Resource
+    private CouponExpiryService expiryService;
+
+    /**
+     * 新增发放任务
+     *
+     * @param couponId  优惠券ID
+     * @param segment   目标用户
+     * @param startTime 注册时间或下单时间的开始
+     * @param endTime   注册时间或下单时间的结束
+     * @param minOrders 按已付款订单时最少的订单数量
+     * @return 发放任务ID
+     */
+    public Integer add(Integer couponId, String segment, LocalDateTime startTime, LocalDateTime endTime, Integer minOrders) {
+        LitemallCouponCampaign campaign = new LitemallCouponCampaign();
+        campaign.setCouponId(couponId);
+        campaign.setSegment(segment);
+        campaign.setStartTime(startTime);
+        campaign.setEndTime(endTime);
+        campaign.setMinOrders(minOrders == null ? 1 : minOrders);
+        campaignMapper.insert(campaign);
+        return campaign.getId();
+    }
+
+    public LitemallCouponCampaign findById(Integer id) {
+        return campaignMapper.selectById(id);
+    }
+
+    public List<LitemallCouponCampaign> querySelective(Integer couponId, Integer page, Integer limit) {
+        PageHelper.startPage(page, limit);
+        return campaignMapper.selectList(couponId);
+    }
+
+    /**
+     * 取消等待中或进行中的任务，已发放的优惠券不回收
+     *
+     * @return 是否取消成功
+     */
+    public boolean cancel(Integer id) {
+        return campaignMapper.finish(id, CouponCampaignConstant.STATUS_CANCELLED, "已取消") > 0;
+    }
+
+    /**
+     * @return 等待中和心跳超时的发放任务ID
+     */
+    public List<Integer> queryRunnable() {
+        return campaignMapper.selectRunnable(TIMEOUT);
+    }
+
+    /**
+     * 开始或接管发放任务，修正优惠券已发放数量，首次开始时统计目标用户数量
+     *
+     * @return 发放任务，已在其它节点执行或已结束时返回null
+     */
+    public LitemallCouponCampaign start(Integer id) {
+        if (campaignMapper.start(id, TIMEOUT) == 0) {
+            return null;
+        }
+        LitemallCouponCampaign campaign = campaignMapper.selectById(id);
+        claimMapper.reconcileClaimed(campaign.getCouponId());
+        if (campaign.getTarget() == null) {
+            int target = campaignMapper.countUsers(campaign);
+            campaignMapper.updateTarget(id, target);
+            campaign.setTarget(target);
+        }
+        return campaign;
+    }
+
+    /**
+     * 发放下一批，成功后更新campaign中的处理位置，用户优惠券的截止时间在提交后登记
+     *
+     * @param campaign  {@link #start(Integer)} 返回的发放任务
+     * @param batchSize 每批用户数量
+     * @return 是否需要继续发放
+     */
+    @Transactional
+    public boolean distribute(LitemallCouponCampaign campaign, int batchSize) {
+        Integer id = campaign.getId();
+        Integer couponId = campaign.getCouponId();
+        LitemallCoupon coupon = couponService.findById(couponId);
+        if (coupon == null || Boolean.TRUE.equals(coupon.getDeleted()) || !CouponConstant.STATUS_NORMAL.equals(coupon.getStatus())) {
+            campaignMapper.finish(id, CouponCampaignConstant.STATUS_FAILED, "优惠券已下架或已删除");
+            return false;
+        }
+
+        int from = campaign.getLastUserId();
+        List<Integer> userIds = campaignMapper.selectUserIds(campaign, from, batchSize);
+        if (userIds.isEmpty()) {
+            campaignMapper.finish(id, CouponCampaignConstant.STATUS_DONE, null);
+            return false;
+        }
+        int count = increaseClaimed(couponId, userIds.size());
+        if (count == 0) {
+            campaignMapper.finish(id, CouponCampaignConstant.STATUS_DONE, "优惠券已发完");
+            return false;
+        }
+
+        List<LitemallCouponUser> couponUsers = new ArrayList<>(count);
+        for (Integer userId : userIds.subList(0, count)) {
+            couponUsers.add(CouponClaimService.newCouponUser(coupon, userId));
+        }
+        claimMapper.insertCouponUsers(couponUsers);
+        expiryService.register(couponUsers);
+
+        int to = userIds.get(count - 1);
+        if (campaignMapper.advance(id, from, to, count) == 0) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return false;
+        }
+        campaign.setLastUserId(to);
+        return true;
+    }
+
+    /**
+     * 增加已发放数量，剩余不足时发放全部剩余数量，与本批写入在同一事务中
+     *
+     * @return 增加的数量，0表示已发完
+     */
+    private int increaseClaimed(Integer couponId, int count) {
+        while (claimMapper.increaseClaimed(couponId, count) == 0) {
+            Integer remaining = claimMapper.remaining(couponId);
+            if (remaining == null || remaining <= 0) {
+                return 0;
+            }
+            count = Math.min(count, remaining);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,527 @@
+package org.linlinjava.litemall.db.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import org.linlinjava.litemall.db.dao.CouponClaimMapper;
+import org.linlinjava.litemall.db.domain.LitemallCoupon;
+import org.linlinjava.litemall.db.domain.LitemallCouponLease;
+import org.linlinjava.litemall.db.domain.LitemallCouponUser;
+import org.linlinjava.litemall.db.util.CouponConstant;
+import org.linlinjava.litemall.db.util.CouponUserConstant;
+import org.linlinjava.litemall.db.util.LruCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 优惠券领取
+ * <p>
+ * 每个节点以批为单位预占发放数量：在一个事务中以带条件的UPDATE增加litemall_coupon.claimed，
+ * 并在litemall_coupon_lease记录预占的剩余数量。所有预占的总数不会超过优惠券总数，因此不会超发。
+ * <p>
+ * 领取时只在内存中扣减本节点预占的数量、检查用户已领取的数量，已领完或超过限领数量时直接返回。
+ * 通过检查的领取放入队列，由后台线程按批在一个事务中锁定用户、按数据库复核用户已领取数量、
+ * 多行写入litemall_coupon_user并扣减预占的剩余数量，提交后才返回领取结果。
+ * 复核包含注册赠送、批量发放和其它节点写入的记录，内存中的用户已领取数量只用于提前拒绝。
+ * <p>
+ * 已发放数量始终等于领取记录数加上预占的剩余数量。节点定时续期持有的预占，空闲或关闭时归还；
+ * 节点宕机后预占过期，由其它节点的 {@link #maintain()} 归还剩余数量。
+ */
+@Service
+public class CouponClaimService {
+    private static final Logger logger = LoggerFactory.getLogger(CouponClaimService.class);
+
+    private static final int LEASE_SIZE = 64;
+    private static final int LEASE_TTL = 60; // 预占有效期，秒
+    private static final long MAINTAIN_INTERVAL = 20; // 续期、归还和回收预占的间隔，秒
+    private static final long LEASE_IDLE = 60 * 1000; // 优惠券超过该时间没有领取时归还预占，毫秒
+    private static final long EXHAUSTED_RETRY = 1000; // 领完后再次查询剩余数量的间隔，毫秒
+    private static final int BATCH_SIZE = 200;
+    private static final long CLAIM_TIMEOUT = 30; // 等待写入的最长时间，秒
+    private static final int USER_CACHE_SIZE = 10000; // 每张优惠券缓存的用户数量
+    private static final long USER_CACHE_TTL = 5 * 60 * 1000; // 毫秒
+
+    public enum Result {
+        SUCCESS,
+        /** 优惠券已领完 */
+        EXCEED_TOTAL,
+        /** 用户已达到限领数量 */
+        EXCEED_LIMIT
+    }
+
+    @Resource
+    private CouponClaimMapper claimMapper;
+    @Resource
+    private CouponExpiryService expiryService;
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    private final Map<Integer, Quota> quotas = new ConcurrentHashMap<>();
+    private final BlockingQueue<Claim> queue = new LinkedBlockingQueue<>();
+    private TransactionTemplate transactionTemplate;
+    private ExecutorService writer;
+    private ScheduledExecutorService maintainer;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // 预占在调用方线程中执行，不加入调用方的事务
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        running = true;
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "coupon-claim-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.execute(this::writeLoop);
+        maintainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "coupon-claim-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintainer.scheduleWithFixedDelay(this::maintain, MAINTAIN_INTERVAL, MAINTAIN_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 写入队列中剩余的领取后归还所有预占
+     */
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        maintainer.shutdownNow();
+        writer.shutdown();
+        try {
+            writer.awaitTermination(CLAIM_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Quota quota : quotas.values()) {
+            List<Lease> leases;
+            synchronized (quota) {
+                leases = new ArrayList<>(quota.leases);
+                quota.leases.clear();
+            }
+            leases.forEach(this::release);
+        }
+    }
+
+    /**
+     * 领取优惠券，调用方需已检查优惠券类型和状态
+     *
+     * @param coupon 优惠券
+     * @param userId 用户ID
+     * @return 领取结果，返回SUCCESS时领取记录已写入
+     * @throws IllegalStateException 写入失败或等待超时，等待超时时领取记录可能稍后写入
+     */
+    public Result claim(LitemallCoupon coupon, Integer userId) {
+        if (!running) {
+            throw new IllegalStateException("优惠券领取服务已关闭");
+        }
+        Integer couponId = coupon.getId();
+        int limit = coupon.getLimit() == null ? 0 : coupon.getLimit();
+        Quota quota = quotas.computeIfAbsent(couponId, id -> new Quota());
+        // 用户已领取数量不在缓存中时在锁外查询
+        Integer loaded = null;
+        if (limit != 0 && quota.users.get(userId) == null) {
+            loaded = claimMapper.countUser(couponId, userId);
+        }
+
+        Claim claim;
+        synchronized (quota) {
+            quota.lastUsed = System.currentTimeMillis();
+            int claimed = 0;
+            if (limit != 0) {
+                Integer cached = quota.users.get(userId);
+                claimed = cached != null ? cached : loaded != null ? loaded : claimMapper.countUser(couponId, userId);
+                if (claimed >= limit) {
+                    quota.users.put(userId, claimed);
+                    return Result.EXCEED_LIMIT;
+                }
+            }
+            Lease lease = quota.take();
+            if (lease == null) {
+                if (!acquire(couponId, quota)) {
+                    return Result.EXCEED_TOTAL;
+                }
+                lease = quota.take();
+            }
+            if (limit != 0) {
+                quota.users.put(userId, claimed + 1);
+            }
+            claim = new Claim(quota, lease, newCouponUser(coupon, userId), limit);
+        }
+        queue.add(claim);
+        return claim.await();
+    }
+
+    /**
+     * 按领取记录和预占修正所有优惠券的已发放数量
+     *
+     * @return 处理的优惠券数量
+     */
+    public int reconcile() {
+        return claimMapper.reconcileClaimed(null);
+    }
+
+    /**
+     * 续期持有的预占，归还已用完或空闲的预占，回收其它节点过期的预占
+     */
+    void maintain() {
+        try {
+            long now = System.currentTimeMillis();
+            for (Quota quota : quotas.values()) {
+                List<Lease> renew = new ArrayList<>();
+                List<Lease> release = new ArrayList<>();
+                synchronized (quota) {
+                    boolean idle = now - quota.lastUsed > LEASE_IDLE;
+                    for (Iterator<Lease> it = quota.leases.iterator(); it.hasNext(); ) {
+                        Lease lease = it.next();
+                        if (lease.inflight == 0 && (lease.available == 0 || idle)) {
+                            it.remove();
+                            release.add(lease);
+                        } else {
+                            renew.add(lease);
+                        }
+                    }
+                }
+                release.forEach(this::release);
+                for (Lease lease : renew) {
+                    if (claimMapper.renewLease(lease.id, LEASE_TTL) == 0) {
+                        logger.warn("优惠券预占已过期 leaseId={}", lease.id);
+                        lose(quota, lease);
+                    }
+                }
+            }
+            recover();
+        } catch (RuntimeException e) {
+            logger.error("维护优惠券预占失败", e);
+        }
+    }
+
+    /**
+     * 归还过期预占的剩余数量
+     *
+     * @return 归还的预占数量
+     */
+    public int recover() {
+        Integer count = transactionTemplate.execute(status -> {
+            List<Integer> ids = claimMapper.selectExpiredLeasesForUpdate();
+            if (!ids.isEmpty()) {
+                claimMapper.returnLeases(ids);
+                claimMapper.deleteLeases(ids);
+            }
+            return ids.size();
+        });
+        if (count != null && count > 0) {
+            logger.info("归还过期的优惠券预占 {} 个", count);
+        }
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 预占一批发放数量，剩余不足一批时预占全部剩余数量，需持有quota锁
+     *
+     * @return 是否预占成功
+     */
+    private boolean acquire(Integer couponId, Quota quota) {
+        long now = System.currentTimeMillis();
+        if (now < quota.retryAt) {
+            return false;
+        }
+        LitemallCouponLease row = transactionTemplate.execute(status -> {
+            int count = LEASE_SIZE;
+            while (claimMapper.increaseClaimed(couponId, count) == 0) {
+                Integer remaining = claimMapper.remaining(couponId);
+                // 不限量的优惠券不会预占失败，返回null只可能是优惠券已不存在
+                if (remaining == null || remaining <= 0) {
+                    return null;
+                }
+                count = Math.min(count, remaining);
+            }
+            LitemallCouponLease lease = new LitemallCouponLease();
+            lease.setCouponId(couponId);
+            lease.setRemaining(count);
+            claimMapper.insertLease(lease, LEASE_TTL);
+            return lease;
+        });
+        if (row == null) {
+            quota.retryAt = now + EXHAUSTED_RETRY;
+            return false;
+        }
+        quota.leases.add(new Lease(row.getId(), row.getRemaining()));
+        return true;
+    }
+
+    private void release(Lease lease) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                claimMapper.returnLeases(List.of(lease.id));
+                claimMapper.deleteLeases(List.of(lease.id));
+            });
+        } catch (RuntimeException e) {
+            // 预占过期后由回收归还
+            logger.error("归还优惠券预占失败 leaseId={}", lease.id, e);
+        }
+    }
+
+    private void lose(Quota quota, Lease lease) {
+        synchronized (quota) {
+            lease.lost = true;
+            quota.leases.remove(lease);
+        }
+    }
+
+    private void writeLoop() {
+        List<Claim> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                Claim first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // 上一批提交期间到达的领取合并为一批
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("写入领取记录失败", e);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * 在一个事务中写入一批领取，失败时逐条重试
+     */
+    void write(List<Claim> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(batch));
+        } catch (RuntimeException e) {
+            if (batch.size() > 1) {
+                logger.warn("批量写入领取记录失败，逐条重试", e);
+                for (Claim claim : batch) {
+                    write(List.of(claim));
+                }
+                return;
+            }
+            Claim claim = batch.get(0);
+            logger.error("写入领取记录失败 userId={} couponId={}", claim.couponUser.getUserId(), claim.couponUser.getCouponId(), e);
+            claim.fail(e);
+            return;
+        }
+        for (Claim claim : batch) {
+            if (claim.result == Result.SUCCESS) {
+                expiryService.register(claim.couponUser.getCouponId(), claim.couponUser.getEndTime());
+            }
+            claim.complete();
+        }
+    }
+
+    /**
+     * 复核用户已领取数量，写入通过复核的领取并扣减预占，结果在事务提交后生效
+     */
+    private void insert(List<Claim> batch) {
+        Set<Integer> userIds = new TreeSet<>();
+        Map<Integer, Set<Integer>> limitedUsers = new HashMap<>();
+        for (Claim claim : batch) {
+            Integer userId = claim.couponUser.getUserId();
+            userIds.add(userId);
+            if (claim.limit != 0) {
+                limitedUsers.computeIfAbsent(claim.couponUser.getCouponId(), id -> new HashSet<>()).add(userId);
+            }
+        }
+        claimMapper.lockUsers(userIds);
+
+        // 优惠券ID -> 用户ID -> 已领取数量，包含本批中已通过的领取
+        Map<Integer, Map<Integer, Integer>> counts = new HashMap<>();
+        limitedUsers.forEach((couponId, users) -> {
+            Map<Integer, Integer> userCounts = new HashMap<>();
+            for (Map<String, Object> row : claimMapper.countByUsers(couponId, users)) {
+                userCounts.put(((Number) row.get("user_id")).intValue(), ((Number) row.get("count")).intValue());
+            }
+            counts.put(couponId, userCounts);
+        });
+
+        List<LitemallCouponUser> couponUsers = new ArrayList<>(batch.size());
+        Map<Lease, Integer> consumed = new LinkedHashMap<>();
+        for (Claim claim : batch) {
+            claim.result = null;
+            claim.claimed = null;
+            if (claim.lease.lost) {
+                continue;
+            }
+            if (claim.limit != 0) {
+                Map<Integer, Integer> userCounts = counts.get(claim.couponUser.getCouponId());
+                int claimed = userCounts.getOrDefault(claim.couponUser.getUserId(), 0);
+                claim.claimed = claimed;
+                if (claimed >= claim.limit) {
+                    claim.result = Result.EXCEED_LIMIT;
+                    continue;
+                }
+                userCounts.put(claim.couponUser.getUserId(), claimed + 1);
+            }
+            claim.result = Result.SUCCESS;
+            couponUsers.add(claim.couponUser);
+            consumed.merge(claim.lease, 1, Integer::sum);
+        }
+
+        for (Map.Entry<Lease, Integer> entry : consumed.entrySet()) {
+            Lease lease = entry.getKey();
+            if (claimMapper.consumeLease(lease.id, entry.getValue()) == 0) {
+                lose(findQuota(batch, lease), lease);
+                throw new IllegalStateException("优惠券预占已过期 leaseId=" + lease.id);
+            }
+        }
+        if (!couponUsers.isEmpty()) {
+            claimMapper.insertCouponUsers(couponUsers);
+        }
+    }
+
+    private static Quota findQuota(List<Claim> batch, Lease lease) {
+        for (Claim claim : batch) {
+            if (claim.lease == lease) {
+                return claim.quota;
+            }
+        }
+        throw new IllegalArgumentException();
+    }
+
+    static LitemallCouponUser newCouponUser(LitemallCoupon coupon, Integer userId) {
+        LitemallCouponUser couponUser = new LitemallCouponUser();
+        couponUser.setCouponId(coupon.getId());
+        couponUser.setUserId(userId);
+        couponUser.setStatus(CouponUserConstant.STATUS_USABLE);
+        LocalDateTime now = LocalDateTime.now();
+        if (CouponConstant.TIME_TYPE_TIME.equals(coupon.getTimeType())) {
+            couponUser.setStartTime(coupon.getStartTime());
+            couponUser.setEndTime(coupon.getEndTime());
+        } else {
+            couponUser.setStartTime(now);
+            couponUser.setEndTime(now.plusDays(coupon.getDays()));
+        }
+        couponUser.setAddTime(now);
+        couponUser.setUpdateTime(now);
+        return couponUser;
+    }
+
+    /**
+     * 本节点持有的一条预占，需持有所属quota的锁访问
+     */
+    private static class Lease {
+        private final Integer id;
+        private int available; // 尚未分配给领取的数量
+        private int inflight; // 已分配但尚未写入完成的领取数量
+        private volatile boolean lost; // 已过期或已被回收，不能再扣减
+
+        Lease(Integer id, int available) {
+            this.id = id;
+            this.available = available;
+        }
+    }
+
+    /**
+     * 优惠券在本节点的领取状态，需持有自身锁访问leases等字段
+     */
+    private static class Quota {
+        private final List<Lease> leases = new ArrayList<>();
+        private long retryAt; // 领完后下次查询剩余数量的时间
+        private long lastUsed;
+        // 用户ID -> 已领取数量，包含正在写入的领取，只用于提前拒绝
+        private final LruCache<Integer, Integer> users = new LruCache<>(USER_CACHE_SIZE, USER_CACHE_TTL);
+
+        /**
+         * @return 分配一个数量的预占，没有剩余时返回null
+         */
+        Lease take() {
+            for (Lease lease : leases) {
+                if (lease.available > 0) {
+                    lease.available--;
+                    lease.inflight++;
+                    return lease;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 一次等待写入的领取
+     */
+    private static class Claim {
+        private final Quota quota;
+        private final Lease lease;
+        private final LitemallCouponUser couponUser;
+        private final int limit;
+        private final CompletableFuture<Result> future = new CompletableFuture<>();
+        // 写入线程在事务中设置，事务提交后生效
+        private Result result; // null表示预占已失效
+        private Integer claimed; // 复核时数据库中的已领取数量
+
+        Claim(Quota quota, Lease lease, LitemallCouponUser couponUser, int limit) {
+            this.quota = quota;
+            this.lease = lease;
+            this.couponUser = couponUser;
+            this.limit = limit;
+        }
+
+        /**
+         * 事务提交后调用
+         */
+        void complete() {
+            if (result == null) {
+                fail(new IllegalStateException("优惠券预占已过期"));
+                return;
+            }
+            synchronized (quota) {
+                lease.inflight--;
+                if (result == Result.EXCEED_LIMIT) {
+                    // 其它途径写入的记录使内存中的数量偏小，以数据库为准
+                    if (!lease.lost) {
+                        lease.available++;
+                    }
+                    quota.users.put(couponUser.getUserId(), claimed);
+                }
+            }
+            future.complete(result);
+        }
+
+        /**
+         * 事务回滚后调用，数量退回预占，用户已领取数量下次重新查询
+         */
+        void fail(Throwable cause) {
+            synchronized (quota) {
+                lease.inflight--;
+                if (!lease.lost) {
+                    lease.available++;
+                }
+                quota.users.remove(couponUser.getUserId());
+            }
+            future.completeExceptionally(cause);
+        }
+
+        Result await() {
+            try {
+                return future.get(CLAIM_TIMEOUT, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待写入领取记录时被中断", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("写入领取记录失败", e.getCause());
+            } catch (TimeoutException e) {
+                throw new IllegalStateException("等待写入领取记录超时", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.linlinjava.litemall.db.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import org.linlinjava.litemall.db.dao.CouponExpiryMapper;
+import org.linlinjava.litemall.db.domain.LitemallCouponUser;
+import org.linlinjava.litemall.db.util.TimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 优惠券过期
+ * <p>
+ * 优惠券创建、修改和用户领取时，把截止时间登记到内存中的时间轮，到期的那一秒按优惠券批量更新
+ * 优惠券和用户优惠券的状态。时间轮只保存未来 {@link #HORIZON} 秒内到期的登记，
+ * 更晚的截止时间以及节点重启前的登记由 {@link #scan()} 定时从数据库加载，
+ * 扫描时同时补偿已过截止时间但仍未过期的记录。
+ * <p>
+ * 截止时间按应用节点的时钟登记和比较，更新时传入到期的时间，不使用数据库的now()。
+ */
+@Service
+public class CouponExpiryService {
+    private static final Logger logger = LoggerFactory.getLogger(CouponExpiryService.class);
+
+    public static final int HORIZON = 2 * 60 * 60; // 秒，需大于扫描间隔
+    private static final int SLOT_COUNT = 4096;
+
+    @Resource
+    private CouponExpiryMapper expiryMapper;
+
+    private final TimingWheel wheel = new TimingWheel(SLOT_COUNT, currentSecond());
+    private ScheduledExecutorService ticker;
+
+    @PostConstruct
+    public void init() {
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "coupon-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * 登记优惠券或用户优惠券的截止时间，截止时间较晚的由扫描加载
+     *
+     * @param couponId 优惠券ID
+     * @param endTime  截止时间
+     */
+    public void register(Integer couponId, LocalDateTime endTime) {
+        if (couponId == null || endTime == null) {
+            return;
+        }
+        long deadline = toSecond(endTime);
+        if (deadline > currentSecond() + HORIZON) {
+            return;
+        }
+        synchronized (wheel) {
+            wheel.add(couponId, deadline);
+        }
+    }
+
+    /**
+     * 登记一批用户优惠券的截止时间，在事务中调用时提交后才登记
+     */
+    public void register(Collection<LitemallCouponUser> couponUsers) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    registerNow(couponUsers);
+                }
+            });
+            return;
+        }
+        registerNow(couponUsers);
+    }
+
+    private void registerNow(Collection<LitemallCouponUser> couponUsers) {
+        for (LitemallCouponUser couponUser : couponUsers) {
+            register(couponUser.getCouponId(), couponUser.getEndTime());
+        }
+    }
+
+    /**
+     * 补偿已过截止时间的记录，并加载即将到期的截止时间
+     */
+    public void scan() {
+        expire(null, LocalDateTime.now());
+        int count = 0;
+        for (Map<String, Object> row : expiryMapper.selectUpcoming(LocalDateTime.now().plusSeconds(HORIZON))) {
+            register(((Number) row.get("coupon_id")).intValue(), (LocalDateTime) row.get("end_time"));
+            count++;
+        }
+        logger.info("加载即将到期的优惠券截止时间 {} 个，时间轮中共 {} 个", count, pending());
+    }
+
+    /**
+     * @return 时间轮中尚未到期的登记数量
+     */
+    public int pending() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    void tick() {
+        long second = currentSecond();
+        Set<Integer> couponIds;
+        synchronized (wheel) {
+            couponIds = wheel.advance(second);
+        }
+        if (couponIds.isEmpty()) {
+            return;
+        }
+        try {
+            // 使用时间轮到期的时间而不是数据库的now()，数据库时钟稍慢时也能更新到期的记录
+            expire(couponIds, toLocalDateTime(second));
+        } catch (RuntimeException e) {
+            // 未更新的记录由下一次扫描补偿
+            logger.error("更新优惠券过期状态失败 couponIds={}", couponIds, e);
+        }
+    }
+
+    private void expire(Collection<Integer> couponIds, LocalDateTime now) {
+        int coupons = expiryMapper.expireCoupons(couponIds, now);
+        int couponUsers = expiryMapper.expireCouponUsers(couponIds, now);
+        if (coupons > 0 || couponUsers > 0) {
+            logger.info("优惠券过期 {} 张，用户优惠券过期 {} 张", coupons, couponUsers);
+        }
+    }
+
+    /**
+     * datetime按秒保存，向上取整后数据库中的截止时间不会晚于到期秒数
+     */
+    private static long toSecond(LocalDateTime time) {
+        long millis = time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return Math.floorDiv(millis + 999, 1000);
+    }
+
+    private static LocalDateTime toLocalDateTime(long second) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(second), ZoneId.systemDefault());
+    }
+
+    private static long currentSecond() {
+        return System.currentTimeMillis() / 1000;
+    }
+}
@@ -3,7 +3,8 @@ package org.linlinjava.litemall.db.service;
 import org.linlinjava.litemall.db.domain.LitemallCart;
 import org.linlinjava.litemall.db.domain.LitemallCoupon;
 import org.linlinjava.litemall.db.domain.LitemallCouponUser;
-import org.linlinjava.litemall.db.util.CouponConstant;
+import org.linlinjava.litemall.db.util.CouponEligibility;
+import org.linlinjava.litemall.db.util.CouponRule;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -21,6 +22,59 @@ public class CouponVerifyService {
     @Autowired
     private LitemallGoodsService goodsService;
 
+    /**
+     * 一次计算用户所有可用优惠券的可用情况
+     * <p>
+     * 优惠券规则批量读取并缓存，购物车商品的分类只查询一次，之后的判断和选择都在内存中完成。
+     *
+     * @param userId            用户ID
+     * @param checkedGoodsPrice 订单商品总价
+     * @param cartList          购物车商品
+     * @return 可用情况
+     */
+    public CouponEligibility evaluate(Integer userId, BigDecimal checkedGoodsPrice, List<LitemallCart> cartList) {
+        return evaluate(couponUserService.queryAll(userId), checkedGoodsPrice, cartList);
+    }
+
+    /**
+     * 计算给定用户优惠券的可用情况
+     */
+    public CouponEligibility evaluate(List<LitemallCouponUser> couponUserList, BigDecimal checkedGoodsPrice, List<LitemallCart> cartList) {
+        CouponEligibility eligibility = new CouponEligibility();
+        if (couponUserList.isEmpty()) {
+            return eligibility;
+        }
+        List<Integer> couponIds = new ArrayList<>(couponUserList.size());
+        for (LitemallCouponUser couponUser : couponUserList) {
+            couponIds.add(couponUser.getCouponId());
+        }
+        Map<Integer, CouponRule> rules = couponService.findRules(couponIds);
+
+        boolean byCategory = false;
+        for (CouponRule rule : rules.values()) {
+            byCategory |= rule.byCategory();
+        }
+        Map<Integer, Integer> categories = byCategory ? goodsService.queryCategoryIds(goodsIds(cartList)) : null;
+        CouponRule.Lines lines = new CouponRule.Lines(cartList, categories);
+
+        LocalDateTime now = LocalDateTime.now();
+        for (LitemallCouponUser couponUser : couponUserList) {
+            CouponRule rule = rules.get(couponUser.getCouponId());
+            if (rule != null && rule.test(couponUser, lines, checkedGoodsPrice, now)) {
+                eligibility.add(couponUser, rule.getCoupon());
+            }
+        }
+        return eligibility;
+    }
+
+    private static List<Integer> goodsIds(List<LitemallCart> cartList) {
+        List<Integer> goodsIds = new ArrayList<>(cartList.size());
+        for (LitemallCart cart : cartList) {
+            goodsIds.add(cart.getGoodsId());
+        }
+        return goodsIds;
+    }
+
     /**
      * 检测优惠券是否适合
      *
@@ -46,67 +100,10 @@ public class CouponVerifyService {
             return null;
         }
 
-        // 检查是否超期
-        Short timeType = coupon.getTimeType();
-        Short days = coupon.getDays();
-        LocalDateTime now = LocalDateTime.now();
-        if (timeType.equals(CouponConstant.TIME_TYPE_TIME)) {
-            if (now.isBefore(coupon.getStartTime()) || now.isAfter(coupon.getEndTime())) {
-                return null;
-            }
-        }
-        else if(timeType.equals(CouponConstant.TIME_TYPE_DAYS)) {
-            LocalDateTime expired = couponUser.getAddTime().plusDays(days);
-            if (now.isAfter(expired)) {
-                return null;
-            }
-        }
-        else {
-            return null;
-        }
-
-        // 检测商品是否符合
-        Map<Integer, List<LitemallCart>> cartMap = new HashMap<>();
-        //可使用优惠券的商品或分类
-        List<Integer> goodsValueList = new ArrayList<>(Arrays.asList(coupon.getGoodsValue()));
-        Short goodType = coupon.getGoodsType();
-
-        if (goodType.equals(CouponConstant.GOODS_TYPE_CATEGORY) ||
-                goodType.equals((CouponConstant.GOODS_TYPE_ARRAY))) {
-            for (LitemallCart cart : cartList) {
-                Integer key = goodType.equals(CouponConstant.GOODS_TYPE_ARRAY) ? cart.getGoodsId() :
-                        goodsService.findById(cart.getGoodsId()).getCategoryId();
-                List<LitemallCart> carts = cartMap.get(key);
-                if (carts == null) {
-                    carts = new LinkedList<>();
-                }
-                carts.add(cart);
-                cartMap.put(key, carts);
-            }
-            //购物车中可以使用优惠券的商品或分类
-            goodsValueList.retainAll(cartMap.keySet());
-            //可使用优惠券的商品的总价格
-            BigDecimal total = new BigDecimal(0);
-
-            for (Integer goodsId : goodsValueList) {
-                List<LitemallCart> carts = cartMap.get(goodsId);
-                for (LitemallCart cart : carts) {
-                    total = total.add(cart.getPrice().multiply(new BigDecimal(cart.getNumber())));
-                }
-            }
-            //是否达到优惠券满减金额
-            if (total.compareTo(coupon.getMin()) == -1) {
-                return null;
-            }
-        }
-
-        // 检测订单状态
-        Short status = coupon.getStatus();
-        if (!status.equals(CouponConstant.STATUS_NORMAL)) {
-            return null;
-        }
-        // 检测是否满足最低消费
-        if (checkedGoodsPrice.compareTo(coupon.getMin()) == -1) {
+        // 检测商品、分类、状态和最低消费
+        CouponRule rule = CouponRule.compile(coupon);
+        Map<Integer, Integer> categories = rule.byCategory() ? goodsService.queryCategoryIds(goodsIds(cartList)) : null;
+        if (!rule.test(couponUser, new CouponRule.Lines(cartList, categories), checkedGoodsPrice, LocalDateTime.now())) {
             return null;
         }
 
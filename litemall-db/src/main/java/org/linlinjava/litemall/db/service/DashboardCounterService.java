@@ -0,0 +1,164 @@
+package org.linlinjava.litemall.db.service;
+
+import org.linlinjava.litemall.db.dao.LitemallGoodsMapper;
+import org.linlinjava.litemall.db.dao.LitemallGoodsProductMapper;
+import org.linlinjava.litemall.db.dao.LitemallOrderMapper;
+import org.linlinjava.litemall.db.dao.LitemallUserMapper;
+import org.linlinjava.litemall.db.domain.LitemallGoodsExample;
+import org.linlinjava.litemall.db.domain.LitemallGoodsProductExample;
+import org.linlinjava.litemall.db.domain.LitemallOrderExample;
+import org.linlinjava.litemall.db.domain.LitemallUserExample;
+import org.linlinjava.litemall.db.util.RateWindow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.Resource;
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 首页仪表盘计数
+ * <p>
+ * 用户、商品、货品和订单总数保存在内存中，由各服务的新增和删除操作增减，
+ * 首次读取时从数据库加载，之后由定时任务调用 {@link #reconcile()} 与数据库校正
+ * （事务回滚、批量删除等不经过计数的变化在校正时修正）。
+ * 最近一分钟的下单数和下单金额使用按秒滑动窗口统计。
+ */
+@Service
+public class DashboardCounterService {
+    private static final Logger logger = LoggerFactory.getLogger(DashboardCounterService.class);
+
+    private static final int RATE_WINDOW = 60;
+
+    @Resource
+    private LitemallUserMapper userMapper;
+    @Resource
+    private LitemallGoodsMapper goodsMapper;
+    @Resource
+    private LitemallGoodsProductMapper productMapper;
+    @Resource
+    private LitemallOrderMapper orderMapper;
+
+    private final LongAdder users = new LongAdder();
+    private final LongAdder goods = new LongAdder();
+    private final LongAdder products = new LongAdder();
+    private final LongAdder orders = new LongAdder();
+    private final RateWindow orderRate = new RateWindow(RATE_WINDOW);
+
+    private volatile boolean seeded;
+
+    public void userAdded() {
+        users.increment();
+    }
+
+    public void userDeleted(int count) {
+        users.add(-count);
+    }
+
+    public void goodsAdded() {
+        goods.increment();
+    }
+
+    public void goodsDeleted(int count) {
+        goods.add(-count);
+    }
+
+    public void productAdded() {
+        products.increment();
+    }
+
+    public void productDeleted(int count) {
+        products.add(-count);
+    }
+
+    /**
+     * 新增订单，同时计入下单速率
+     * @param actualPrice 实付金额
+     */
+    public void orderAdded(BigDecimal actualPrice) {
+        orders.increment();
+        orderRate.record(actualPrice == null ? 0 : actualPrice.movePointRight(2).longValue());
+    }
+
+    public void orderDeleted(int count) {
+        orders.add(-count);
+    }
+
+    public long userTotal() {
+        ensureSeeded();
+        return users.sum();
+    }
+
+    public long goodsTotal() {
+        ensureSeeded();
+        return goods.sum();
+    }
+
+    public long productTotal() {
+        ensureSeeded();
+        return products.sum();
+    }
+
+    public long orderTotal() {
+        ensureSeeded();
+        return orders.sum();
+    }
+
+    /**
+     * @return 最近一分钟的下单数
+     */
+    public long ordersPerMinute() {
+        return orderRate.count();
+    }
+
+    /**
+     * @return 最近一分钟的下单金额
+     */
+    public BigDecimal gmvPerMinute() {
+        return BigDecimal.valueOf(orderRate.amount(), 2);
+    }
+
+    /**
+     * 按数据库中的实际数量校正计数
+     */
+    public synchronized void reconcile() {
+        LitemallUserExample userExample = new LitemallUserExample();
+        userExample.or().andDeletedEqualTo(false);
+        LitemallGoodsExample goodsExample = new LitemallGoodsExample();
+        goodsExample.or().andDeletedEqualTo(false);
+        LitemallGoodsProductExample productExample = new LitemallGoodsProductExample();
+        productExample.or().andDeletedEqualTo(false);
+        LitemallOrderExample orderExample = new LitemallOrderExample();
+        orderExample.or().andDeletedEqualTo(false);
+
+        long drift = adjust(users, userMapper.countByExample(userExample))
+                + adjust(goods, goodsMapper.countByExample(goodsExample))
+                + adjust(products, productMapper.countByExample(productExample))
+                + adjust(orders, orderMapper.countByExample(orderExample));
+        if (seeded && drift != 0) {
+            logger.info("仪表盘计数校正，偏差 {}", drift);
+        }
+        seeded = true;
+    }
+
+    private void ensureSeeded() {
+        if (!seeded) {
+            synchronized (this) {
+                if (!seeded) {
+                    reconcile();
+                }
+            }
+        }
+    }
+
+    /**
+     * 调整计数到数据库中的数量，期间并发的增减会保留到下次校正
+     * @return 调整前的偏差绝对值
+     */
+    private static long adjust(LongAdder counter, long actual) {
+        long diff = actual - counter.sum();
+        counter.add(diff);
+        return Math.abs(diff);
+    }
+}
@@ -0,0 +1,35 @@
+package org.linlinjava.litemall.db.service;
+
+import org.apache.ibatis.session.ResultHandler;
+import org.linlinjava.litemall.db.dao.ExportMapper;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.Resource;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 数据导出服务
+ * <p>
+ * 按主键顺序流式读取订单、用户和商品，每读到一行回调一次，调用期间占用一个数据库连接。
+ * 回调中调用 {@link org.apache.ibatis.session.ResultContext#stop()} 可以提前结束读取。
+ */
+@Service
+public class ExportService {
+    @Resource
+    private ExportMapper exportMapper;
+
+    public void exportOrders(String nickname, String consignee, String orderSn, LocalDateTime start, LocalDateTime end,
+                             List<Short> orderStatusArray, ResultHandler<Map<String, Object>> handler) {
+        exportMapper.exportOrders(nickname, consignee, orderSn, start, end, orderStatusArray, handler);
+    }
+
+    public void exportUsers(String username, String mobile, ResultHandler<Map<String, Object>> handler) {
+        exportMapper.exportUsers(username, mobile, handler);
+    }
+
+    public void exportGoods(String goodsSn, String name, ResultHandler<Map<String, Object>> handler) {
+        exportMapper.exportGoods(goodsSn, name, handler);
+    }
+}
@@ -4,34 +4,100 @@ import com.github.pagehelper.PageHelper;
 import org.linlinjava.litemall.db.dao.LitemallCartMapper;
 import org.linlinjava.litemall.db.domain.LitemallCart;
 import org.linlinjava.litemall.db.domain.LitemallCartExample;
+import org.linlinjava.litemall.db.util.LruCache;
+import org.linlinjava.litemall.db.util.UserCart;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StringUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import jakarta.annotation.Resource;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.UnaryOperator;
 
+/**
+ * 购物车服务
+ * <p>
+ * 活跃用户的购物车以 {@link UserCart} 缓存在本地，购物车页面和商品数量直接读取缓存。
+ * 修改时先写数据库，再在缓存中应用同样的修改；事务中的修改改为失效缓存，事务结束后再次失效。
+ * 同一用户的加载和修改持有同一个锁，加载到的旧数据不会覆盖修改。
+ * 其它节点的修改在缓存过期后生效，下单仍然从数据库读取已选择的商品。
+ */
 @Service
 public class LitemallCartService {
+    private static final int CACHE_SIZE = 10000;
+    private static final long CACHE_TTL = 5 * 60 * 1000; // 毫秒
+    private static final int LOCK_COUNT = 64;
+
     @Resource
     private LitemallCartMapper cartMapper;
 
+    private final LruCache<Integer, UserCart> cache = new LruCache<>(CACHE_SIZE, CACHE_TTL);
+    private final Object[] locks = new Object[LOCK_COUNT];
+
+    public LitemallCartService() {
+        for (int i = 0; i < LOCK_COUNT; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * 用户购物车，结果可能来自缓存，调用方不应修改返回的购物车对象
+     */
+    public UserCart getCart(Integer userId) {
+        UserCart cart = cache.get(userId);
+        if (cart != null) {
+            return cart;
+        }
+        synchronized (lock(userId)) {
+            cart = cache.get(userId);
+            if (cart == null) {
+                cart = new UserCart(queryByUid(userId));
+                cache.put(userId, cart);
+            }
+            return cart;
+        }
+    }
+
+    /**
+     * @return 购物车商品的副本，不存在返回null
+     */
     public LitemallCart queryExist(Integer goodsId, Integer productId, Integer userId) {
-        LitemallCartExample example = new LitemallCartExample();
-        example.or().andGoodsIdEqualTo(goodsId).andProductIdEqualTo(productId).andUserIdEqualTo(userId).andDeletedEqualTo(false);
-        return cartMapper.selectOneByExample(example);
+        LitemallCart cart = getCart(userId).find(goodsId, productId);
+        return cart == null ? null : merge(cart, null);
     }
 
     public void add(LitemallCart cart) {
         cart.setAddTime(LocalDateTime.now());
         cart.setUpdateTime(LocalDateTime.now());
-        cartMapper.insertSelective(cart);
+        synchronized (lock(cart.getUserId())) {
+            cartMapper.insertSelective(cart);
+            LitemallCart item = merge(cart, null);
+            if (item.getDeleted() == null) {
+                item.setDeleted(false);
+            }
+            apply(cart.getUserId(), userCart -> userCart.add(item));
+        }
     }
 
     public int updateById(LitemallCart cart) {
         cart.setUpdateTime(LocalDateTime.now());
-        return cartMapper.updateByPrimaryKeySelective(cart);
+        if (cart.getUserId() == null) {
+            int updated = cartMapper.updateByPrimaryKeySelective(cart);
+            cache.clear();
+            return updated;
+        }
+        synchronized (lock(cart.getUserId())) {
+            int updated = cartMapper.updateByPrimaryKeySelective(cart);
+            if (updated > 0) {
+                apply(cart.getUserId(), userCart -> {
+                    LitemallCart item = userCart.findById(cart.getId());
+                    return item == null ? userCart : userCart.replace(merge(item, cart));
+                });
+            }
+            return updated;
+        }
     }
 
     public List<LitemallCart> queryByUid(int userId) {
@@ -50,17 +116,23 @@ public class LitemallCartService {
     public int delete(List<Integer> productIdList, int userId) {
         LitemallCartExample example = new LitemallCartExample();
         example.or().andUserIdEqualTo(userId).andProductIdIn(productIdList);
-        return cartMapper.logicalDeleteByExample(example);
+        synchronized (lock(userId)) {
+            int deleted = cartMapper.logicalDeleteByExample(example);
+            apply(userId, userCart -> userCart.remove(cart -> productIdList.contains(cart.getProductId())));
+            return deleted;
+        }
     }
 
     public LitemallCart findById(Integer id) {
         return cartMapper.selectByPrimaryKey(id);
     }
 
+    /**
+     * @return 购物车商品的副本，不存在返回null
+     */
     public LitemallCart findById(Integer userId, Integer id) {
-        LitemallCartExample example = new LitemallCartExample();
-        example.or().andUserIdEqualTo(userId).andIdEqualTo(id).andDeletedEqualTo(false);
-        return cartMapper.selectOneByExample(example);
+        LitemallCart cart = getCart(userId).findById(id);
+        return cart == null ? null : merge(cart, null);
     }
 
     public int updateCheck(Integer userId, List<Integer> idsList, Boolean checked) {
@@ -69,7 +141,11 @@ public class LitemallCartService {
         LitemallCart cart = new LitemallCart();
         cart.setChecked(checked);
         cart.setUpdateTime(LocalDateTime.now());
-        return cartMapper.updateByExampleSelective(cart, example);
+        synchronized (lock(userId)) {
+            int updated = cartMapper.updateByExampleSelective(cart, example);
+            apply(userId, userCart -> userCart.map(item -> idsList.contains(item.getProductId()) ? merge(item, cart) : item));
+            return updated;
+        }
     }
 
     public void clearGoods(Integer userId) {
@@ -77,7 +153,10 @@ public class LitemallCartService {
         example.or().andUserIdEqualTo(userId).andCheckedEqualTo(true);
         LitemallCart cart = new LitemallCart();
         cart.setDeleted(true);
-        cartMapper.updateByExampleSelective(cart, example);
+        synchronized (lock(userId)) {
+            cartMapper.updateByExampleSelective(cart, example);
+            apply(userId, userCart -> userCart.remove(item -> Boolean.TRUE.equals(item.getChecked())));
+        }
     }
 
     public List<LitemallCart> querySelective(Integer userId, Integer goodsId, Integer page, Integer limit, String sort, String order) {
@@ -100,8 +179,13 @@ public class LitemallCartService {
         return cartMapper.selectByExample(example);
     }
 
-    public void deleteById(Integer id) {
-        cartMapper.logicalDeleteByPrimaryKey(id);
+    public void deleteById(Integer userId, Integer id) {
+        LitemallCartExample example = new LitemallCartExample();
+        example.or().andUserIdEqualTo(userId).andIdEqualTo(id);
+        synchronized (lock(userId)) {
+            cartMapper.logicalDeleteByExample(example);
+            apply(userId, userCart -> userCart.remove(item -> item.getId().equals(id)));
+        }
     }
 
     public boolean checkExist(Integer goodsId) {
@@ -119,5 +203,78 @@ public class LitemallCartService {
         LitemallCartExample example = new LitemallCartExample();
         example.or().andProductIdEqualTo(id);
         cartMapper.updateByExampleSelective(cart, example);
+        // 影响多个用户，直接清空缓存
+        cache.clear();
+    }
+
+    private Object lock(Integer userId) {
+        return locks[Math.floorMod(userId, LOCK_COUNT)];
+    }
+
+    /**
+     * 数据库修改后在缓存中应用同样的修改，需持有用户锁调用
+     */
+    private void apply(Integer userId, UnaryOperator<UserCart> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // 事务可能回滚，提交前后都失效缓存
+            cache.remove(userId);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.remove(userId);
+                }
+            });
+            return;
+        }
+        cache.computeIfPresent(userId, change);
+    }
+
+    /**
+     * @return base的副本，并按update中非空的字段修改，与updateByPrimaryKeySelective一致
+     */
+    private static LitemallCart merge(LitemallCart base, LitemallCart update) {
+        LitemallCart cart = new LitemallCart();
+        cart.setId(base.getId());
+        cart.setUserId(base.getUserId());
+        cart.setGoodsId(base.getGoodsId());
+        cart.setGoodsSn(base.getGoodsSn());
+        cart.setGoodsName(base.getGoodsName());
+        cart.setProductId(base.getProductId());
+        cart.setPrice(base.getPrice());
+        cart.setNumber(base.getNumber());
+        cart.setSpecifications(base.getSpecifications());
+        cart.setChecked(base.getChecked());
+        cart.setPicUrl(base.getPicUrl());
+        cart.setAddTime(base.getAddTime());
+        cart.setUpdateTime(base.getUpdateTime());
+        cart.setDeleted(base.getDeleted());
+        if (update == null) {
+            return cart;
+        }
+        if (update.getGoodsSn() != null) {
+            cart.setGoodsSn(update.getGoodsSn());
+        }
+        if (update.getGoodsName() != null) {
+            cart.setGoodsName(update.getGoodsName());
+        }
+        if (update.getPrice() != null) {
+            cart.setPrice(update.getPrice());
+        }
+        if (update.getNumber() != null) {
+            cart.setNumber(update.getNumber());
+        }
+        if (update.getSpecifications() != null) {
+            cart.setSpecifications(update.getSpecifications());
+        }
+        if (update.getChecked() != null) {
+            cart.setChecked(update.getChecked());
+        }
+        if (update.getPicUrl() != null) {
+            cart.setPicUrl(update.getPicUrl());
+        }
+        if (update.getUpdateTime() != null) {
+            cart.setUpdateTime(update.getUpdateTime());
+        }
+        return cart;
     }
 }
@@ -4,24 +4,85 @@ import com.github.pagehelper.PageHelper;
 import org.linlinjava.litemall.db.dao.LitemallCategoryMapper;
 import org.linlinjava.litemall.db.domain.LitemallCategory;
 import org.linlinjava.litemall.db.domain.LitemallCategoryExample;
+import org.linlinjava.litemall.db.util.CategoryTree;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import jakarta.annotation.Resource;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 分类服务
+ * <p>
+ * 分类很少修改，不分页的查询从内存中的 {@link CategoryTree} 快照读取。
+ * 本节点修改分类后立即重建快照，其它节点的修改在快照过期后生效。
+ */
 @Service
 public class LitemallCategoryService {
+    private static final long TREE_TTL = 60 * 1000; // 毫秒
+
     @Resource
     private LitemallCategoryMapper categoryMapper;
-    private LitemallCategory.Column[] CHANNEL = {LitemallCategory.Column.id, LitemallCategory.Column.name, LitemallCategory.Column.iconUrl};
 
-    public List<LitemallCategory> queryL1WithoutRecommend(int offset, int limit) {
+    private volatile CategoryTree tree;
+    private volatile long treeExpireAt;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    /**
+     * 当前分类树，过期时由一个线程重建，其它线程继续使用旧的快照
+     */
+    public CategoryTree getTree() {
+        CategoryTree current = tree;
+        if (current == null) {
+            return reload();
+        }
+        if (System.currentTimeMillis() > treeExpireAt && refreshing.compareAndSet(false, true)) {
+            try {
+                return reload();
+            } finally {
+                refreshing.set(false);
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 从数据库重建分类树并整体替换
+     */
+    public synchronized CategoryTree reload() {
         LitemallCategoryExample example = new LitemallCategoryExample();
-        example.or().andLevelEqualTo("L1").andNameNotEqualTo("推荐").andDeletedEqualTo(false);
-        PageHelper.startPage(offset, limit);
-        return categoryMapper.selectByExample(example);
+        example.or().andDeletedEqualTo(false);
+        CategoryTree previous = tree;
+        CategoryTree current = new CategoryTree(previous == null ? 1 : previous.getVersion() + 1,
+                categoryMapper.selectByExample(example));
+        tree = current;
+        treeExpireAt = System.currentTimeMillis() + TREE_TTL;
+        return current;
+    }
+
+    public List<LitemallCategory> queryL1WithoutRecommend(int offset, int limit) {
+        // 与PageHelper一致，页码小于1时作为第一页
+        int skip = offset > 1 ? (offset - 1) * limit : 0;
+        List<LitemallCategory> categoryList = new ArrayList<>(limit);
+        for (LitemallCategory category : getTree().getL1()) {
+            if ("推荐".equals(category.getName())) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            if (categoryList.size() == limit) {
+                break;
+            }
+            categoryList.add(category);
+        }
+        return categoryList;
     }
 
     public List<LitemallCategory> queryL1(int offset, int limit) {
@@ -32,27 +93,35 @@ public class LitemallCategoryService {
     }
 
     public List<LitemallCategory> queryL1() {
-        LitemallCategoryExample example = new LitemallCategoryExample();
-        example.or().andLevelEqualTo("L1").andDeletedEqualTo(false);
-        return categoryMapper.selectByExample(example);
+        return getTree().getL1();
     }
 
     public List<LitemallCategory> queryByPid(Integer pid) {
-        LitemallCategoryExample example = new LitemallCategoryExample();
-        example.or().andPidEqualTo(pid).andDeletedEqualTo(false);
-        return categoryMapper.selectByExample(example);
+        return getTree().getChildren(pid);
     }
 
     public List<LitemallCategory> queryL2ByIds(List<Integer> ids) {
-        LitemallCategoryExample example = new LitemallCategoryExample();
-        example.or().andIdIn(ids).andLevelEqualTo("L2").andDeletedEqualTo(false);
-        return categoryMapper.selectByExample(example);
+        Set<Integer> idSet = new HashSet<>(ids);
+        List<LitemallCategory> categoryList = new ArrayList<>();
+        for (LitemallCategory category : getTree().getL2()) {
+            if (idSet.contains(category.getId())) {
+                categoryList.add(category);
+            }
+        }
+        return categoryList;
     }
 
     public LitemallCategory findById(Integer id) {
         return categoryMapper.selectByPrimaryKey(id);
     }
 
+    /**
+     * 从分类树中查询未删除的分类，调用方不应修改返回的对象
+     */
+    public LitemallCategory findCachedById(Integer id) {
+        return getTree().get(id);
+    }
+
     public List<LitemallCategory> querySelective(String id, String name, Integer page, Integer size, String sort, String order) {
         LitemallCategoryExample example = new LitemallCategoryExample();
         LitemallCategoryExample.Criteria criteria = example.createCriteria();
@@ -75,22 +144,24 @@ public class LitemallCategoryService {
 
     public int updateById(LitemallCategory category) {
         category.setUpdateTime(LocalDateTime.now());
-        return categoryMapper.updateByPrimaryKeySelective(category);
+        int updated = categoryMapper.updateByPrimaryKeySelective(category);
+        reload();
+        return updated;
     }
 
     public void deleteById(Integer id) {
         categoryMapper.logicalDeleteByPrimaryKey(id);
+        reload();
     }
 
     public void add(LitemallCategory category) {
         category.setAddTime(LocalDateTime.now());
         category.setUpdateTime(LocalDateTime.now());
         categoryMapper.insertSelective(category);
+        reload();
     }
 
     public List<LitemallCategory> queryChannel() {
-        LitemallCategoryExample example = new LitemallCategoryExample();
-        example.or().andLevelEqualTo("L1").andDeletedEqualTo(false);
-        return categoryMapper.selectByExampleSelective(example, CHANNEL);
+        return getTree().getChannel();
     }
 }
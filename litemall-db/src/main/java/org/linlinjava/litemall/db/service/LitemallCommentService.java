@@ -1,26 +1,33 @@
 package org.linlinjava.litemall.db.service;
 
 import com.github.pagehelper.PageHelper;
+import org.linlinjava.litemall.db.dao.CommentSummaryMapper;
 import org.linlinjava.litemall.db.dao.LitemallCommentMapper;
 import org.linlinjava.litemall.db.domain.LitemallComment;
 import org.linlinjava.litemall.db.domain.LitemallCommentExample;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import jakarta.annotation.Resource;
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class LitemallCommentService {
     @Resource
     private LitemallCommentMapper commentMapper;
+    @Resource
+    private CommentSummaryMapper summaryMapper;
 
     public List<LitemallComment> queryGoodsByGid(Integer id, int offset, int limit) {
         LitemallCommentExample example = new LitemallCommentExample();
         example.setOrderByClause(LitemallComment.Column.addTime.desc());
         example.or().andValueIdEqualTo(id).andTypeEqualTo((byte) 0).andDeletedEqualTo(false);
-        PageHelper.startPage(offset, limit);
+        // 评论总数从评论汇总读取，这里不再分页计数
+        PageHelper.startPage(offset, limit, false);
         return commentMapper.selectByExample(example);
     }
 
@@ -50,10 +57,41 @@ public class LitemallCommentService {
         return (int) commentMapper.countByExample(example);
     }
 
+    /**
+     * 保存评论，同时累加商品或专题的评论汇总
+     */
+    @Transactional
     public int save(LitemallComment comment) {
         comment.setAddTime(LocalDateTime.now());
         comment.setUpdateTime(LocalDateTime.now());
-        return commentMapper.insertSelective(comment);
+        int count = commentMapper.insertSelective(comment);
+        if (isSummarized(comment.getType())) {
+            Short star = comment.getStar() == null ? 1 : comment.getStar();
+            Boolean hasPicture = comment.getHasPicture() != null && comment.getHasPicture();
+            summaryMapper.increment(comment.getType(), comment.getValueId(), star, hasPicture, comment.getAddTime());
+        }
+        return count;
+    }
+
+    /**
+     * 查询商品或专题的评论汇总
+     *
+     * @param type    评论类型，0是商品评论，1是专题评论
+     * @param valueId 商品或专题ID
+     * @return comment_count, star_sum, star1-star5, picture_count, last_comment_time；没有评论时返回空Map
+     */
+    public Map<String, Object> querySummary(Byte type, Integer valueId) {
+        Map<String, Object> summary = summaryMapper.selectOne(type, valueId);
+        return summary == null ? Collections.emptyMap() : summary;
+    }
+
+    /**
+     * 从评论表重新生成全部评论汇总
+     */
+    @Transactional
+    public void rebuildSummary() {
+        summaryMapper.delete(null, null);
+        summaryMapper.insertFromComments(null, null);
     }
 
     public List<LitemallComment> querySelective(String userId, String valueId, Integer page, Integer size, String sort, String order) {
@@ -79,8 +117,22 @@ public class LitemallCommentService {
         return commentMapper.selectByExample(example);
     }
 
+    /**
+     * 删除评论，同时重新计算商品或专题的评论汇总
+     */
+    @Transactional
     public void deleteById(Integer id) {
+        LitemallComment comment = commentMapper.selectByPrimaryKey(id);
         commentMapper.logicalDeleteByPrimaryKey(id);
+        if (comment != null && isSummarized(comment.getType())) {
+            summaryMapper.delete(comment.getType(), comment.getValueId());
+            summaryMapper.insertFromComments(comment.getType(), comment.getValueId());
+        }
+    }
+
+    // 只汇总商品评论和专题评论，不包括订单商品回复
+    private boolean isSummarized(Byte type) {
+        return type != null && (type == 0 || type == 1);
     }
 
     public LitemallComment findById(Integer id) {
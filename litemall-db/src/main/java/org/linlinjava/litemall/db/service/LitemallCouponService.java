@@ -7,20 +7,29 @@ import org.linlinjava.litemall.db.dao.LitemallCouponUserMapper;
 import org.linlinjava.litemall.db.domain.*;
 import org.linlinjava.litemall.db.domain.LitemallCoupon.Column;
 import org.linlinjava.litemall.db.util.CouponConstant;
+import org.linlinjava.litemall.db.util.CouponRule;
+import org.linlinjava.litemall.db.util.LruCache;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.Resource;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Random;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 public class LitemallCouponService {
+    private static final int RULE_CACHE_SIZE = 10000;
+    private static final long RULE_TTL = 60 * 1000; // 毫秒
+
     @Resource
     private LitemallCouponMapper couponMapper;
     @Resource
     private LitemallCouponUserMapper couponUserMapper;
+    @Resource
+    private CouponExpiryService expiryService;
+
+    // 优惠券ID -> 编译后的使用规则，本节点修改优惠券时失效，其它节点的修改在过期后生效
+    private final LruCache<Integer, CouponRule> rules = new LruCache<>(RULE_CACHE_SIZE, RULE_TTL);
 
     private Column[] result = new Column[]{Column.id, Column.name, Column.desc, Column.tag,
                                             Column.days, Column.startTime, Column.endTime,
@@ -77,6 +86,14 @@ public class LitemallCouponService {
         return couponMapper.selectByPrimaryKey(id);
     }
 
+    /**
+     * 从规则缓存中查询优惠券，可能有短暂延迟，调用方不应修改返回的对象
+     */
+    public LitemallCoupon findCachedById(Integer id) {
+        CouponRule rule = findRules(List.of(id)).get(id);
+        return rule == null ? null : rule.getCoupon();
+    }
+
 
     public LitemallCoupon findByCode(String code) {
         LitemallCouponExample example = new LitemallCouponExample();
@@ -131,15 +148,55 @@ public class LitemallCouponService {
         coupon.setAddTime(LocalDateTime.now());
         coupon.setUpdateTime(LocalDateTime.now());
         couponMapper.insertSelective(coupon);
+        registerExpiry(coupon);
     }
 
     public int updateById(LitemallCoupon coupon) {
         coupon.setUpdateTime(LocalDateTime.now());
-        return couponMapper.updateByPrimaryKeySelective(coupon);
+        int updated = couponMapper.updateByPrimaryKeySelective(coupon);
+        rules.remove(coupon.getId());
+        registerExpiry(coupon);
+        return updated;
+    }
+
+    private void registerExpiry(LitemallCoupon coupon) {
+        if (CouponConstant.TIME_TYPE_TIME.equals(coupon.getTimeType())) {
+            expiryService.register(coupon.getId(), coupon.getEndTime());
+        }
     }
 
     public void deleteById(Integer id) {
         couponMapper.logicalDeleteByPrimaryKey(id);
+        rules.remove(id);
+    }
+
+    /**
+     * 批量获取优惠券的使用规则，缓存中没有的优惠券一次查询
+     *
+     * @param ids 优惠券ID
+     * @return 优惠券ID到使用规则的映射，不存在的优惠券没有对应项
+     */
+    public Map<Integer, CouponRule> findRules(Collection<Integer> ids) {
+        Map<Integer, CouponRule> found = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : new HashSet<>(ids)) {
+            CouponRule cached = rules.get(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            LitemallCouponExample example = new LitemallCouponExample();
+            example.or().andIdIn(missing);
+            for (LitemallCoupon coupon : couponMapper.selectByExample(example)) {
+                CouponRule rule = CouponRule.compile(coupon);
+                rules.put(coupon.getId(), rule);
+                found.put(coupon.getId(), rule);
+            }
+        }
+        return found;
     }
 
     private String getRandomNum(Integer num) {
@@ -167,16 +224,4 @@ public class LitemallCouponService {
         }
         return code;
     }
-
-    /**
-     * 查询过期的优惠券:
-     * 注意：如果timeType=0, 即基于领取时间有效期的优惠券，则优惠券不会过期
-     *
-     * @return
-     */
-    public List<LitemallCoupon> queryExpired() {
-        LitemallCouponExample example = new LitemallCouponExample();
-        example.or().andStatusEqualTo(CouponConstant.STATUS_NORMAL).andTimeTypeEqualTo(CouponConstant.TIME_TYPE_TIME).andEndTimeLessThan(LocalDateTime.now()).andDeletedEqualTo(false);
-        return couponMapper.selectByExample(example);
-    }
 }
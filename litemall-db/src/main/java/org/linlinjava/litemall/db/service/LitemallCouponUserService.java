@@ -86,12 +86,6 @@ public class LitemallCouponUserService {
         return couponUserMapper.updateByPrimaryKeySelective(couponUser);
     }
 
-    public List<LitemallCouponUser> queryExpired() {
-        LitemallCouponUserExample example = new LitemallCouponUserExample();
-        example.or().andStatusEqualTo(CouponUserConstant.STATUS_USABLE).andEndTimeLessThan(LocalDateTime.now()).andDeletedEqualTo(false);
-        return couponUserMapper.selectByExample(example);
-    }
-
     public List<LitemallCouponUser> findByOid(Integer orderId) {
         LitemallCouponUserExample example = new LitemallCouponUserExample();
         example.or().andOrderIdEqualTo(orderId).andDeletedEqualTo(false);
@@ -4,6 +4,8 @@ import com.github.pagehelper.PageHelper;
 import org.linlinjava.litemall.db.dao.LitemallFootprintMapper;
 import org.linlinjava.litemall.db.domain.LitemallFootprint;
 import org.linlinjava.litemall.db.domain.LitemallFootprintExample;
+import org.linlinjava.litemall.db.util.CursorPage;
+import org.linlinjava.litemall.db.util.PageCursor;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
@@ -24,6 +26,26 @@ public class LitemallFootprintService {
         return footprintMapper.selectByExample(example);
     }
 
+    /**
+     * 游标分页查询用户足迹，按时间倒序
+     *
+     * @param cursor 上一页返回的游标，为空表示第一页
+     * @see PageCursor
+     */
+    public CursorPage<LitemallFootprint> queryByAddTime(Integer userId, String cursor, Integer size) {
+        PageCursor after = PageCursor.of(cursor, PageCursor.SORT_ADD_TIME, "desc");
+        LitemallFootprintExample example = new LitemallFootprintExample();
+        after.where(example::or, criteria -> criteria.andUserIdEqualTo(userId).andDeletedEqualTo(false),
+                LitemallFootprintExample.Criteria::andAddTimeLessThan, LitemallFootprintExample.Criteria::andAddTimeGreaterThan,
+                LitemallFootprintExample.Criteria::andAddTimeEqualTo,
+                LitemallFootprintExample.Criteria::andIdLessThan, LitemallFootprintExample.Criteria::andIdGreaterThan);
+        example.setOrderByClause(after.orderBy(null));
+
+        PageHelper.startPage(1, size + 1, false);
+        List<LitemallFootprint> rows = footprintMapper.selectByExample(example);
+        return after.page(rows, size, LitemallFootprint::getAddTime, LitemallFootprint::getId, null);
+    }
+
     public LitemallFootprint findById(Integer id) {
         return footprintMapper.selectByPrimaryKey(id);
     }
@@ -0,0 +1,61 @@
+package org.linlinjava.litemall.db.service;
+
+import org.linlinjava.litemall.db.dao.GoodsDetailTextMapper;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.Resource;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 商品详情纯文本服务
+ * <p>
+ * litemall_goods.detail 是富文本，LLM问答等只需要其中的纯文本。
+ * 纯文本在商品写入时生成一次并保存在 litemall_goods_detail_text 表，读取时不再重复解析HTML。
+ */
+@Service
+public class LitemallGoodsDetailTextService {
+    @Resource
+    private GoodsDetailTextMapper detailTextMapper;
+
+    public int save(Integer goodsId, String detailText) {
+        return detailTextMapper.upsert(goodsId, detailText == null ? "" : detailText);
+    }
+
+    /**
+     * 批量查询商品详情纯文本
+     *
+     * @param goodsIds 商品ID列表
+     * @return 商品ID到纯文本的映射，未生成纯文本的商品不在其中
+     */
+    public Map<Integer, String> queryByGoodsIds(List<Integer> goodsIds) {
+        Map<Integer, String> result = new HashMap<>();
+        if (goodsIds == null || goodsIds.isEmpty()) {
+            return result;
+        }
+
+        for (Map<String, Object> row : detailTextMapper.selectByGoodsIds(goodsIds)) {
+            Integer goodsId = ((Number) row.get("goods_id")).intValue();
+            result.put(goodsId, (String) row.get("detail_text"));
+        }
+        return result;
+    }
+
+    /**
+     * 查询纯文本缺失或者已过期的商品
+     *
+     * @param afterId 起始商品ID（不包含）
+     * @param limit   每批数量
+     * @return 商品ID到原始富文本详情的映射，按ID升序
+     */
+    public Map<Integer, String> queryStale(Integer afterId, Integer limit) {
+        Map<Integer, String> result = new LinkedHashMap<>();
+        for (Map<String, Object> row : detailTextMapper.selectStaleGoods(afterId, limit)) {
+            Integer goodsId = ((Number) row.get("id")).intValue();
+            result.put(goodsId, (String) row.get("detail"));
+        }
+        return result;
+    }
+}
@@ -17,6 +17,8 @@ public class LitemallGoodsProductService {
     private LitemallGoodsProductMapper litemallGoodsProductMapper;
     @Resource
     private GoodsProductMapper goodsProductMapper;
+    @Resource
+    private DashboardCounterService counterService;
 
     public List<LitemallGoodsProduct> queryByGid(Integer gid) {
         LitemallGoodsProductExample example = new LitemallGoodsProductExample();
@@ -29,13 +31,16 @@ public class LitemallGoodsProductService {
     }
 
     public void deleteById(Integer id) {
-        litemallGoodsProductMapper.logicalDeleteByPrimaryKey(id);
+        LitemallGoodsProductExample example = new LitemallGoodsProductExample();
+        example.or().andIdEqualTo(id).andDeletedEqualTo(false);
+        counterService.productDeleted(litemallGoodsProductMapper.logicalDeleteByExample(example));
     }
 
     public void add(LitemallGoodsProduct goodsProduct) {
         goodsProduct.setAddTime(LocalDateTime.now());
         goodsProduct.setUpdateTime(LocalDateTime.now());
         litemallGoodsProductMapper.insertSelective(goodsProduct);
+        counterService.productAdded();
     }
 
     public int count() {
@@ -46,8 +51,8 @@ public class LitemallGoodsProductService {
 
     public void deleteByGid(Integer gid) {
         LitemallGoodsProductExample example = new LitemallGoodsProductExample();
-        example.or().andGoodsIdEqualTo(gid);
-        litemallGoodsProductMapper.logicalDeleteByExample(example);
+        example.or().andGoodsIdEqualTo(gid).andDeletedEqualTo(false);
+        counterService.productDeleted(litemallGoodsProductMapper.logicalDeleteByExample(example));
     }
 
     public int addStock(Integer id, Short num){
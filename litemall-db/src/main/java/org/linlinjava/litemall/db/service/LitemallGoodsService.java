@@ -10,15 +10,15 @@ import org.springframework.util.StringUtils;
 
 import jakarta.annotation.Resource;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
 
 @Service
 public class LitemallGoodsService {
     Column[] columns = new Column[]{Column.id, Column.name, Column.brief, Column.picUrl, Column.isHot, Column.isNew, Column.counterPrice, Column.retailPrice};
     @Resource
     private LitemallGoodsMapper goodsMapper;
+    @Resource
+    private DashboardCounterService counterService;
 
     /**
      * 获取热卖商品
@@ -191,14 +191,61 @@ public class LitemallGoodsService {
         return goodsMapper.updateByPrimaryKeySelective(goods);
     }
 
+    /**
+     * 批量查询商品分类
+     *
+     * @param goodsIds 商品ID
+     * @return 商品ID到分类ID的映射
+     */
+    public Map<Integer, Integer> queryCategoryIds(Collection<Integer> goodsIds) {
+        Map<Integer, Integer> categories = new HashMap<>();
+        if (goodsIds.isEmpty()) {
+            return categories;
+        }
+        LitemallGoodsExample example = new LitemallGoodsExample();
+        example.or().andIdIn(new ArrayList<>(new HashSet<>(goodsIds)));
+        for (LitemallGoods goods : goodsMapper.selectByExampleSelective(example, Column.id, Column.categoryId)) {
+            categories.put(goods.getId(), goods.getCategoryId());
+        }
+        return categories;
+    }
+
+    /**
+     * @return 未删除且分享图地址为空的商品ID，升序
+     */
+    public List<Integer> queryIdsWithoutShareUrl() {
+        LitemallGoodsExample example = new LitemallGoodsExample();
+        example.or().andShareUrlIsNull().andDeletedEqualTo(false);
+        example.or().andShareUrlEqualTo("").andDeletedEqualTo(false);
+        example.setOrderByClause("id");
+        List<Integer> ids = new ArrayList<>();
+        for (LitemallGoods goods : goodsMapper.selectByExampleSelective(example, Column.id)) {
+            ids.add(goods.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * 只更新分享图地址，不修改更新时间
+     */
+    public int updateShareUrl(Integer id, String shareUrl) {
+        LitemallGoods goods = new LitemallGoods();
+        goods.setId(id);
+        goods.setShareUrl(shareUrl);
+        return goodsMapper.updateByPrimaryKeySelective(goods);
+    }
+
     public void deleteById(Integer id) {
-        goodsMapper.logicalDeleteByPrimaryKey(id);
+        LitemallGoodsExample example = new LitemallGoodsExample();
+        example.or().andIdEqualTo(id).andDeletedEqualTo(false);
+        counterService.goodsDeleted(goodsMapper.logicalDeleteByExample(example));
     }
 
     public void add(LitemallGoods goods) {
         goods.setAddTime(LocalDateTime.now());
         goods.setUpdateTime(LocalDateTime.now());
         goodsMapper.insertSelective(goods);
+        counterService.goodsAdded();
     }
 
     /**
@@ -5,6 +5,8 @@ import org.linlinjava.litemall.db.dao.LitemallLogMapper;
 import org.linlinjava.litemall.db.domain.LitemallAd;
 import org.linlinjava.litemall.db.domain.LitemallLog;
 import org.linlinjava.litemall.db.domain.LitemallLogExample;
+import org.linlinjava.litemall.db.util.CursorPage;
+import org.linlinjava.litemall.db.util.PageCursor;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
@@ -29,8 +31,45 @@ public class LitemallLogService {
 
     public List<LitemallLog> querySelective(String name, LocalDateTime startTime, LocalDateTime endTime, Boolean status, Integer page, Integer size, String sort, String order) {
         LitemallLogExample example = new LitemallLogExample();
-        LitemallLogExample.Criteria criteria = example.createCriteria();
+        filter(example.createCriteria(), name, startTime, endTime, status);
 
+        if (!StringUtils.isEmpty(sort) && !StringUtils.isEmpty(order)) {
+            example.setOrderByClause(sort + " " + order);
+        }
+
+        PageHelper.startPage(page, size);
+        return logMapper.selectByExample(example);
+    }
+
+    /**
+     * 游标分页查询操作日志
+     *
+     * @param cursor 上一页返回的游标，为空表示第一页
+     * @param count  是否统计总数
+     * @see PageCursor
+     */
+    public CursorPage<LitemallLog> querySelectiveByCursor(String name, LocalDateTime startTime, LocalDateTime endTime, Boolean status, String cursor, Integer size, String sort, String order, boolean count) {
+        PageCursor after = PageCursor.of(cursor, sort, order);
+        LitemallLogExample example = new LitemallLogExample();
+        after.where(example::or, criteria -> filter(criteria, name, startTime, endTime, status),
+                LitemallLogExample.Criteria::andAddTimeLessThan, LitemallLogExample.Criteria::andAddTimeGreaterThan,
+                LitemallLogExample.Criteria::andAddTimeEqualTo,
+                LitemallLogExample.Criteria::andIdLessThan, LitemallLogExample.Criteria::andIdGreaterThan);
+        example.setOrderByClause(after.orderBy(null));
+
+        PageHelper.startPage(1, size + 1, false);
+        List<LitemallLog> rows = logMapper.selectByExample(example);
+
+        Long total = null;
+        if (count) {
+            LitemallLogExample countExample = new LitemallLogExample();
+            filter(countExample.createCriteria(), name, startTime, endTime, status);
+            total = logMapper.countByExample(countExample);
+        }
+        return after.page(rows, size, LitemallLog::getAddTime, LitemallLog::getId, total);
+    }
+
+    private void filter(LitemallLogExample.Criteria criteria, String name, LocalDateTime startTime, LocalDateTime endTime, Boolean status) {
         if (!StringUtils.isEmpty(name)) {
             criteria.andAdminLike("%" + name + "%");
         }
@@ -50,12 +89,5 @@ public class LitemallLogService {
         }
         
         criteria.andDeletedEqualTo(false);
-
-        if (!StringUtils.isEmpty(sort) && !StringUtils.isEmpty(order)) {
-            example.setOrderByClause(sort + " " + order);
-        }
-
-        PageHelper.startPage(page, size);
-        return logMapper.selectByExample(example);
     }
 }
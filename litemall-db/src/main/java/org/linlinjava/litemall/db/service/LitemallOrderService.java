@@ -7,7 +7,9 @@ import org.linlinjava.litemall.db.dao.OrderMapper;
 import org.linlinjava.litemall.db.domain.LitemallOrder;
 import org.linlinjava.litemall.db.domain.LitemallOrderExample;
 import org.linlinjava.litemall.db.domain.OrderVo;
+import org.linlinjava.litemall.db.util.CursorPage;
 import org.linlinjava.litemall.db.util.OrderUtil;
+import org.linlinjava.litemall.db.util.PageCursor;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
@@ -23,11 +25,17 @@ public class LitemallOrderService {
     private LitemallOrderMapper litemallOrderMapper;
     @Resource
     private OrderMapper orderMapper;
+    @Resource
+    private DashboardCounterService counterService;
 
     public int add(LitemallOrder order) {
         order.setAddTime(LocalDateTime.now());
         order.setUpdateTime(LocalDateTime.now());
-        return litemallOrderMapper.insertSelective(order);
+        int added = litemallOrderMapper.insertSelective(order);
+        if (added > 0) {
+            counterService.orderAdded(order.getActualPrice());
+        }
+        return added;
     }
 
     public int count(Integer userId) {
@@ -127,12 +135,15 @@ public class LitemallOrderService {
     }
 
     public int updateSelective(LitemallOrder order) {
+        order.setUpdateTime(LocalDateTime.now());
         return litemallOrderMapper.updateByPrimaryKeySelective(order);
     }
 
 
     public void deleteById(Integer id) {
-        litemallOrderMapper.logicalDeleteByPrimaryKey(id);
+        LitemallOrderExample example = new LitemallOrderExample();
+        example.or().andIdEqualTo(id).andDeletedEqualTo(false);
+        counterService.orderDeleted(litemallOrderMapper.logicalDeleteByExample(example));
     }
 
     public int count() {
@@ -147,14 +158,6 @@ public class LitemallOrderService {
         return litemallOrderMapper.selectByExample(example);
     }
 
-    public List<LitemallOrder> queryUnconfirm(int days) {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime expired = now.minusDays(days);
-        LitemallOrderExample example = new LitemallOrderExample();
-        example.or().andOrderStatusEqualTo(OrderUtil.STATUS_SHIP).andShipTimeLessThan(expired).andDeletedEqualTo(false);
-        return litemallOrderMapper.selectByExample(example);
-    }
-
     public LitemallOrder findBySn(String orderSn) {
         LitemallOrderExample example = new LitemallOrderExample();
         example.or().andOrderSnEqualTo(orderSn).andDeletedEqualTo(false);
@@ -193,14 +196,6 @@ public class LitemallOrderService {
 
     }
 
-    public List<LitemallOrder> queryComment(int days) {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime expired = now.minusDays(days);
-        LitemallOrderExample example = new LitemallOrderExample();
-        example.or().andCommentsGreaterThan((short) 0).andConfirmTimeLessThan(expired).andDeletedEqualTo(false);
-        return litemallOrderMapper.selectByExample(example);
-    }
-
     public void updateAftersaleStatus(Integer orderId, Short statusReject) {
         LitemallOrder order = new LitemallOrder();
         order.setId(orderId);
@@ -211,27 +206,7 @@ public class LitemallOrderService {
 
 
     public Map<String, Object> queryVoSelective(String nickname, String consignee, String orderSn, LocalDateTime start, LocalDateTime end, List<Short> orderStatusArray, Integer page, Integer limit, String sort, String order) {
-        List<String> querys = new ArrayList<>(4);
-        if (nickname != null && !nickname.isEmpty()) {
-            querys.add(" u.nickname like '%" + nickname + "%' ");
-        }
-        if (consignee != null && !consignee.isEmpty()) {
-            querys.add(" o.consignee like '%" + consignee + "%' ");
-        }
-        if (orderSn != null && !orderSn.isEmpty()) {
-            querys.add(" o.order_sn = '" + orderSn + "' ");
-        }
-        DateTimeFormatter df = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        if (start != null) {
-            querys.add(" o.add_time >= '" + df.format(start) + "' ");
-        }
-        if (end != null) {
-            querys.add(" o.add_time < '" + df.format(end) + "' ");
-        }
-        if (orderStatusArray != null && orderStatusArray.size() > 0) {
-            querys.add(" o.order_status in (" + StringUtils.collectionToDelimitedString(orderStatusArray, ",") + ") ");
-        }
-        querys.add(" o.deleted = 0 and og.deleted = 0 ");
+        List<String> querys = voQuerys(nickname, consignee, orderSn, start, end, orderStatusArray);
         String query = StringUtils.collectionToDelimitedString(querys, "and");
         String orderByClause = null;
         if (sort != null && !sort.isEmpty() && order != null && !order.isEmpty()) {
@@ -260,4 +235,68 @@ public class LitemallOrderService {
         data.put("pages", list1.getPages());
         return data;
     }
+
+    /**
+     * 游标分页查询订单
+     *
+     * @param cursor 上一页返回的游标，为空表示第一页
+     * @param count  是否统计总数
+     * @see PageCursor
+     */
+    public CursorPage<OrderVo> queryVoSelectiveByCursor(String nickname, String consignee, String orderSn, LocalDateTime start, LocalDateTime end, List<Short> orderStatusArray, String cursor, Integer limit, String sort, String order, boolean count) {
+        PageCursor after = PageCursor.of(cursor, sort, order);
+        List<String> querys = voQuerys(nickname, consignee, orderSn, start, end, orderStatusArray);
+        String query = StringUtils.collectionToDelimitedString(querys, "and");
+        String orderByClause = after.orderBy("o");
+
+        Long total = null;
+        if (count) {
+            total = PageHelper.count(() -> orderMapper.getOrderIds(query, null));
+        }
+
+        List<String> seekQuerys = new ArrayList<>(querys);
+        String condition = after.condition("o");
+        if (condition != null) {
+            seekQuerys.add(" " + condition + " ");
+        }
+        PageHelper.startPage(1, limit + 1, false);
+        List<Map<String, Object>> rows = orderMapper.getOrderIds(StringUtils.collectionToDelimitedString(seekQuerys, "and"), orderByClause);
+        CursorPage<Map<String, Object>> ids = after.page(rows, limit, row -> row.get("add_time"), row -> (Integer) row.get("id"), total);
+
+        List<OrderVo> list = new ArrayList<>();
+        if (!ids.isEmpty()) {
+            List<Integer> idList = new ArrayList<>(ids.size());
+            for (Map<String, Object> row : ids) {
+                idList.add((Integer) row.get("id"));
+            }
+            querys.add(" o.id in (" + StringUtils.collectionToDelimitedString(idList, ",") + ") ");
+            list = orderMapper.getOrderList(StringUtils.collectionToDelimitedString(querys, "and"), orderByClause);
+        }
+        return new CursorPage<>(list, limit, ids.getNextCursor(), total);
+    }
+
+    private List<String> voQuerys(String nickname, String consignee, String orderSn, LocalDateTime start, LocalDateTime end, List<Short> orderStatusArray) {
+        List<String> querys = new ArrayList<>(4);
+        if (nickname != null && !nickname.isEmpty()) {
+            querys.add(" u.nickname like '%" + nickname + "%' ");
+        }
+        if (consignee != null && !consignee.isEmpty()) {
+            querys.add(" o.consignee like '%" + consignee + "%' ");
+        }
+        if (orderSn != null && !orderSn.isEmpty()) {
+            querys.add(" o.order_sn = '" + orderSn + "' ");
+        }
+        DateTimeFormatter df = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        if (start != null) {
+            querys.add(" o.add_time >= '" + df.format(start) + "' ");
+        }
+        if (end != null) {
+            querys.add(" o.add_time < '" + df.format(end) + "' ");
+        }
+        if (orderStatusArray != null && orderStatusArray.size() > 0) {
+            querys.add(" o.order_status in (" + StringUtils.collectionToDelimitedString(orderStatusArray, ",") + ") ");
+        }
+        querys.add(" o.deleted = 0 and og.deleted = 0 ");
+        return querys;
+    }
 }
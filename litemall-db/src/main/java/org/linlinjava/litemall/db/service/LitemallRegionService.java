@@ -4,6 +4,7 @@ import com.github.pagehelper.PageHelper;
 import org.linlinjava.litemall.db.dao.LitemallRegionMapper;
 import org.linlinjava.litemall.db.domain.LitemallRegion;
 import org.linlinjava.litemall.db.domain.LitemallRegionExample;
+import org.linlinjava.litemall.db.util.RegionIndex;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
@@ -16,6 +17,8 @@ public class LitemallRegionService {
     @Resource
     private LitemallRegionMapper regionMapper;
 
+    private volatile RegionIndex index;
+
     public List<LitemallRegion> getAll(){
         LitemallRegionExample example = new LitemallRegionExample();
         byte b = 4;
@@ -23,6 +26,23 @@ public class LitemallRegionService {
         return regionMapper.selectByExample(example);
     }
 
+    /**
+     * 省市区索引，行政区域数据不通过系统修改，首次使用时加载一次
+     */
+    public RegionIndex getIndex() {
+        RegionIndex current = index;
+        if (current == null) {
+            synchronized (this) {
+                current = index;
+                if (current == null) {
+                    current = new RegionIndex(getAll());
+                    index = current;
+                }
+            }
+        }
+        return current;
+    }
+
     public List<LitemallRegion> queryByPid(Integer parentId) {
         LitemallRegionExample example = new LitemallRegionExample();
         example.or().andPidEqualTo(parentId);
@@ -2,8 +2,10 @@ package org.linlinjava.litemall.db.service;
 
 import com.github.pagehelper.PageHelper;
 import org.linlinjava.litemall.db.dao.LitemallStorageMapper;
+import org.linlinjava.litemall.db.dao.StorageRefMapper;
 import org.linlinjava.litemall.db.domain.LitemallStorage;
 import org.linlinjava.litemall.db.domain.LitemallStorageExample;
+import org.linlinjava.litemall.db.util.LruCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
@@ -11,32 +13,110 @@ import org.springframework.util.StringUtils;
 import java.time.LocalDateTime;
 import java.util.List;
 
+/**
+ * 存储对象服务
+ * <p>
+ * 访问存储对象时都要按key查询，{@link #findByKey(String)} 的结果缓存在本地，
+ * 本节点的新增、更新和删除会立即失效对应缓存，其它节点的修改在缓存过期后生效。
+ * <p>
+ * 内容寻址存储时相同内容只保存一份，重复上传通过 {@link #retainByKey(String)} 增加引用次数，
+ * 删除时通过 {@link #releaseByKey(String)} 减少引用次数，引用次数减到零时才删除记录，调用方随后删除文件。
+ */
 @Service
 public class LitemallStorageService {
+    private static final int CACHE_SIZE = 10000;
+    private static final long CACHE_TTL = 10 * 60 * 1000; // 毫秒
+
     @Autowired
     private LitemallStorageMapper storageMapper;
+    @Autowired
+    private StorageRefMapper storageRefMapper;
+
+    private final LruCache<String, LitemallStorage> cache = new LruCache<>(CACHE_SIZE, CACHE_TTL);
 
     public void deleteByKey(String key) {
         LitemallStorageExample example = new LitemallStorageExample();
         example.or().andKeyEqualTo(key);
         storageMapper.logicalDeleteByExample(example);
+        evict(key);
     }
 
     public void add(LitemallStorage storageInfo) {
         storageInfo.setAddTime(LocalDateTime.now());
         storageInfo.setUpdateTime(LocalDateTime.now());
         storageMapper.insertSelective(storageInfo);
+        evict(storageInfo.getKey());
     }
 
+    /**
+     * 已存在相同key的存储对象时增加一次引用
+     *
+     * @param key 存储对象key
+     * @return 已存在的存储对象，不存在返回null
+     */
+    public LitemallStorage retainByKey(String key) {
+        if (storageRefMapper.retain(key) == 0) {
+            return null;
+        }
+        evict(key);
+        return findByKey(key);
+    }
+
+    /**
+     * 减少一次引用，最后一次引用时删除记录
+     *
+     * @param key 存储对象key
+     * @return 是否已经没有引用，此时调用方应删除文件；记录不存在时返回false
+     */
+    public boolean releaseByKey(String key) {
+        LitemallStorageExample example = new LitemallStorageExample();
+        example.or().andKeyEqualTo(key).andDeletedEqualTo(false);
+        try {
+            // 两次更新之间其它节点可能增加或减少了引用，此时重试
+            while (storageMapper.countByExample(example) > 0) {
+                if (storageRefMapper.release(key) > 0) {
+                    return false;
+                }
+                if (storageRefMapper.releaseLast(key) > 0) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            evict(key);
+        }
+    }
+
+    /**
+     * 按key查询存储对象，结果可能来自缓存，调用方不应修改返回的对象
+     */
     public LitemallStorage findByKey(String key) {
+        LitemallStorage cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
         LitemallStorageExample example = new LitemallStorageExample();
         example.or().andKeyEqualTo(key).andDeletedEqualTo(false);
-        return storageMapper.selectOneByExample(example);
+        // 多个节点同时上传相同内容时可能有多行，取最早的一行
+        example.setOrderByClause("id");
+        List<LitemallStorage> rows = storageMapper.selectByExample(example);
+        LitemallStorage storage = rows.isEmpty() ? null : rows.get(0);
+        if (storage != null) {
+            cache.put(key, storage);
+        }
+        return storage;
     }
 
     public int update(LitemallStorage storageInfo) {
         storageInfo.setUpdateTime(LocalDateTime.now());
-        return storageMapper.updateByPrimaryKeySelective(storageInfo);
+        int updated = storageMapper.updateByPrimaryKeySelective(storageInfo);
+        if (storageInfo.getKey() != null) {
+            evict(storageInfo.getKey());
+        } else {
+            cache.clear();
+        }
+        return updated;
     }
 
     public LitemallStorage findById(Integer id) {
@@ -62,4 +142,8 @@ public class LitemallStorageService {
         PageHelper.startPage(page, limit);
         return storageMapper.selectByExample(example);
     }
+
+    private void evict(String key) {
+        cache.remove(key);
+    }
 }
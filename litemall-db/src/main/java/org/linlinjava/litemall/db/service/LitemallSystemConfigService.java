@@ -4,6 +4,7 @@ import org.linlinjava.litemall.db.dao.LitemallSystemMapper;
 import org.linlinjava.litemall.db.domain.LitemallSystem;
 import org.linlinjava.litemall.db.domain.LitemallSystemExample;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import jakarta.annotation.Resource;
 import java.time.LocalDateTime;
@@ -73,6 +74,7 @@ public class LitemallSystemConfigService {
         return data;
     }
 
+    @Transactional
     public void updateConfig(Map<String, String> data) {
         for (Map.Entry<String, String> entry : data.entrySet()) {
             LitemallSystemExample example = new LitemallSystemExample();
@@ -5,6 +5,8 @@ import org.linlinjava.litemall.db.dao.LitemallUserMapper;
 import org.linlinjava.litemall.db.domain.LitemallUser;
 import org.linlinjava.litemall.db.domain.LitemallUserExample;
 import org.linlinjava.litemall.db.domain.UserVo;
+import org.linlinjava.litemall.db.util.CursorPage;
+import org.linlinjava.litemall.db.util.PageCursor;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
@@ -16,6 +18,8 @@ import java.util.List;
 public class LitemallUserService {
     @Resource
     private LitemallUserMapper userMapper;
+    @Resource
+    private DashboardCounterService counterService;
 
     public LitemallUser findById(Integer userId) {
         return userMapper.selectByPrimaryKey(userId);
@@ -39,6 +43,7 @@ public class LitemallUserService {
         user.setAddTime(LocalDateTime.now());
         user.setUpdateTime(LocalDateTime.now());
         userMapper.insertSelective(user);
+        counterService.userAdded();
     }
 
     public int updateById(LitemallUser user) {
@@ -48,8 +53,45 @@ public class LitemallUserService {
 
     public List<LitemallUser> querySelective(String username, String mobile, Integer page, Integer size, String sort, String order) {
         LitemallUserExample example = new LitemallUserExample();
-        LitemallUserExample.Criteria criteria = example.createCriteria();
+        filter(example.createCriteria(), username, mobile);
+
+        if (!StringUtils.isEmpty(sort) && !StringUtils.isEmpty(order)) {
+            example.setOrderByClause(sort + " " + order);
+        }
 
+        PageHelper.startPage(page, size);
+        return userMapper.selectByExample(example);
+    }
+
+    /**
+     * 游标分页查询用户
+     *
+     * @param cursor 上一页返回的游标，为空表示第一页
+     * @param count  是否统计总数
+     * @see PageCursor
+     */
+    public CursorPage<LitemallUser> querySelectiveByCursor(String username, String mobile, String cursor, Integer size, String sort, String order, boolean count) {
+        PageCursor after = PageCursor.of(cursor, sort, order);
+        LitemallUserExample example = new LitemallUserExample();
+        after.where(example::or, criteria -> filter(criteria, username, mobile),
+                LitemallUserExample.Criteria::andAddTimeLessThan, LitemallUserExample.Criteria::andAddTimeGreaterThan,
+                LitemallUserExample.Criteria::andAddTimeEqualTo,
+                LitemallUserExample.Criteria::andIdLessThan, LitemallUserExample.Criteria::andIdGreaterThan);
+        example.setOrderByClause(after.orderBy(null));
+
+        PageHelper.startPage(1, size + 1, false);
+        List<LitemallUser> rows = userMapper.selectByExample(example);
+
+        Long total = null;
+        if (count) {
+            LitemallUserExample countExample = new LitemallUserExample();
+            filter(countExample.createCriteria(), username, mobile);
+            total = userMapper.countByExample(countExample);
+        }
+        return after.page(rows, size, LitemallUser::getAddTime, LitemallUser::getId, total);
+    }
+
+    private void filter(LitemallUserExample.Criteria criteria, String username, String mobile) {
         if (!StringUtils.isEmpty(username)) {
             criteria.andUsernameLike("%" + username + "%");
         }
@@ -57,13 +99,6 @@ public class LitemallUserService {
             criteria.andMobileEqualTo(mobile);
         }
         criteria.andDeletedEqualTo(false);
-
-        if (!StringUtils.isEmpty(sort) && !StringUtils.isEmpty(order)) {
-            example.setOrderByClause(sort + " " + order);
-        }
-
-        PageHelper.startPage(page, size);
-        return userMapper.selectByExample(example);
     }
 
     public int count() {
@@ -98,6 +133,8 @@ public class LitemallUserService {
     }
 
     public void deleteById(Integer id) {
-        userMapper.logicalDeleteByPrimaryKey(id);
+        LitemallUserExample example = new LitemallUserExample();
+        example.or().andIdEqualTo(id).andDeletedEqualTo(false);
+        counterService.userDeleted(userMapper.logicalDeleteByExample(example));
     }
 }
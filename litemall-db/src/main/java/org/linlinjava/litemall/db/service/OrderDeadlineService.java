@@ -0,0 +1,97 @@
+package org.linlinjava.litemall.db.service;
+
+import jakarta.annotation.Resource;
+import org.linlinjava.litemall.db.dao.OrderDeadlineMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单到期事件
+ * <p>
+ * 订单发货时登记自动确认收货的到期时间，确认收货时登记评价超期的到期时间，事件保存在litemall_order_deadline表。
+ * 定时任务按到期时间顺序分批取出已到期的事件，按订单批量更新后删除事件。
+ * 到期时间随发货和确认时间分布在全天，更新时以订单当前状态为条件，重复处理不会产生影响。
+ */
+@Service
+public class OrderDeadlineService {
+    public static final Byte TYPE_CONFIRM = 1;
+    public static final Byte TYPE_COMMENT = 2;
+
+    @Resource
+    private OrderDeadlineMapper deadlineMapper;
+
+    /**
+     * 登记自动确认收货事件
+     *
+     * @param orderId  订单ID
+     * @param shipTime 发货时间
+     * @param days     发货后自动确认收货的天数
+     */
+    public void scheduleConfirm(Integer orderId, LocalDateTime shipTime, int days) {
+        deadlineMapper.schedule(orderId, TYPE_CONFIRM, shipTime.plusDays(days));
+    }
+
+    /**
+     * 登记评价超期事件
+     *
+     * @param orderId     订单ID
+     * @param confirmTime 确认收货时间
+     * @param days        确认收货后可评价的天数
+     */
+    public void scheduleComment(Integer orderId, LocalDateTime confirmTime, int days) {
+        deadlineMapper.schedule(orderId, TYPE_COMMENT, confirmTime.plusDays(days));
+    }
+
+    /**
+     * 处理一批已到期的事件
+     *
+     * @param limit       每批数量
+     * @param commentDays 确认收货后可评价的天数，用于自动确认的订单
+     * @return 处理的事件数量
+     */
+    @Transactional
+    public int processDue(int limit, int commentDays) {
+        List<Map<String, Object>> events = deadlineMapper.selectDue(limit);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        List<Integer> ids = new ArrayList<>(events.size());
+        List<Integer> confirmOrderIds = new ArrayList<>();
+        List<Integer> commentOrderIds = new ArrayList<>();
+        for (Map<String, Object> event : events) {
+            ids.add(((Number) event.get("id")).intValue());
+            Integer orderId = ((Number) event.get("order_id")).intValue();
+            if (TYPE_CONFIRM.equals(((Number) event.get("type")).byteValue())) {
+                confirmOrderIds.add(orderId);
+            } else {
+                commentOrderIds.add(orderId);
+            }
+        }
+
+        if (!confirmOrderIds.isEmpty()) {
+            deadlineMapper.confirm(confirmOrderIds);
+            deadlineMapper.scheduleComment(confirmOrderIds, commentDays);
+        }
+        if (!commentOrderIds.isEmpty()) {
+            deadlineMapper.expireOrderComments(commentOrderIds);
+            deadlineMapper.expireOrderGoodsComments(commentOrderIds);
+        }
+        deadlineMapper.delete(ids);
+        return events.size();
+    }
+
+    /**
+     * 为没有到期事件的已发货和待评价订单补充事件，用于升级前的订单
+     *
+     * @return 补充的事件数量
+     */
+    public int backfill(int unconfirmDays, int commentDays) {
+        return deadlineMapper.backfillConfirm(unconfirmDays) + deadlineMapper.backfillComment(commentDays);
+    }
+}
@@ -0,0 +1,363 @@
+package org.linlinjava.litemall.db.service;
+
+import org.linlinjava.litemall.db.dao.StatMapper;
+import org.linlinjava.litemall.db.util.HyperLogLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.Resource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.WeekFields;
+import java.util.*;
+
+/**
+ * 订单统计列式内存存储
+ * <p>
+ * 已付款订单按（订单，二级类目）展开成行，每列是一个基本类型数组：
+ * 下单日期（epoch day）、一级类目编码、二级类目编码、用户ID、实付金额（分）。
+ * 类目ID使用字典编码。所有按时间维度和类目的切片、分组都是对数组的顺序扫描，不访问数据库；
+ * 去重用户数使用 {@link HyperLogLog} 估计。
+ * <p>
+ * 启动后由定时任务调用 {@link #reload()} 全量加载，订单付款时调用 {@link #append(Integer)} 追加，
+ * 在事务中调用时等事务提交后再追加，回滚的付款不会计入统计；退款等其它状态变化由定期的全量加载修正。
+ */
+@Service
+public class OrderStatStore {
+    private static final Logger logger = LoggerFactory.getLogger(OrderStatStore.class);
+
+    // 该行是订单的第一行，用于不按类目筛选时订单去重
+    private static final byte FIRST_IN_ORDER = 1;
+    // 该行是订单在该一级类目下的第一行，用于按一级类目筛选时订单去重
+    private static final byte FIRST_IN_L1 = 2;
+
+    private static final int HLL_PRECISION = 11;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final WeekFields MYSQL_WEEK = WeekFields.of(DayOfWeek.MONDAY, 4);
+
+    @Resource
+    private StatMapper statMapper;
+
+    private volatile Columns columns;
+
+    // 以下状态需持有this锁
+    private Builder builder;
+    private boolean reloading;
+    private List<Integer> pending; // 全量加载期间付款的订单ID
+
+    /**
+     * @return 是否已经完成首次加载
+     */
+    public boolean isLoaded() {
+        return columns != null;
+    }
+
+    /**
+     * 从数据库全量加载已付款订单
+     */
+    public void reload() {
+        synchronized (this) {
+            if (reloading) {
+                return;
+            }
+            reloading = true;
+            pending = new ArrayList<>();
+        }
+
+        Builder loading = new Builder(builder == null ? INITIAL_CAPACITY : builder.size);
+        BitSet loadedIds = new BitSet();
+        try {
+            statMapper.scanPaidOrderCategories(context -> {
+                Map<String, Object> row = context.getResultObject();
+                loading.add(row);
+                loadedIds.set(((Number) row.get("id")).intValue());
+            });
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                reloading = false;
+                pending = null;
+            }
+            throw e;
+        }
+
+        List<Integer> missed;
+        synchronized (this) {
+            builder = loading;
+            columns = loading.snapshot();
+            missed = new ArrayList<>();
+            for (Integer orderId : pending) {
+                if (!loadedIds.get(orderId)) {
+                    missed.add(orderId);
+                }
+            }
+            reloading = false;
+            pending = null;
+        }
+        for (Integer orderId : missed) {
+            appendNow(orderId);
+        }
+        logger.info("订单统计存储加载完成，共 {} 行", loading.size);
+    }
+
+    /**
+     * 追加一个刚付款的订单，在事务中调用时提交后才追加
+     * @param orderId 订单ID
+     */
+    public void append(Integer orderId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    try {
+                        appendNow(orderId);
+                    } catch (RuntimeException e) {
+                        // 付款已提交，统计由下次全量加载修正
+                        logger.warn("订单统计追加失败，订单ID {}", orderId, e);
+                    }
+                }
+            });
+            return;
+        }
+        appendNow(orderId);
+    }
+
+    private void appendNow(Integer orderId) {
+        synchronized (this) {
+            if (pending != null) {
+                pending.add(orderId);
+            }
+            if (builder == null) {
+                return;
+            }
+        }
+
+        List<Map<String, Object>> rows = statMapper.selectPaidOrderCategories(orderId);
+        synchronized (this) {
+            for (Map<String, Object> row : rows) {
+                builder.add(row);
+            }
+            columns = builder.snapshot();
+        }
+    }
+
+    /**
+     * 订单统计
+     * @param groupBy 统计组织方式：year/quarter/month/week/day
+     * @param categoryId 一级或二级类目ID，可为null
+     * @param startDay 开始日期（包含）
+     * @param endDay 结束日期（包含）
+     * @return period, orders, customers, amount, pcr，按period排序
+     */
+    public List<Map<String, Object>> statOrder(String groupBy, Integer categoryId, LocalDate startDay, LocalDate endDay) {
+        Columns c = columns;
+        List<Map<String, Object>> result = new ArrayList<>();
+        if (c == null || endDay.isBefore(startDay)) {
+            return result;
+        }
+
+        // 日期到分组下标的映射，相同的时间段在日期上连续
+        int from = (int) startDay.toEpochDay();
+        int span = (int) (endDay.toEpochDay() - from + 1);
+        int[] groupOfDay = new int[span];
+        List<Object> periods = new ArrayList<>();
+        Object last = null;
+        for (int d = 0; d < span; d++) {
+            Object period = period(groupBy, startDay.plusDays(d));
+            if (!period.equals(last)) {
+                periods.add(period);
+                last = period;
+            }
+            groupOfDay[d] = periods.size() - 1;
+        }
+
+        // 类目筛选：一级类目按(订单, 一级类目)去重，二级类目直接匹配，不筛选时按订单去重
+        int code = -1;
+        boolean byL1 = false;
+        if (categoryId != null) {
+            Integer found = c.codes.get(categoryId);
+            if (found == null) {
+                return result;
+            }
+            code = found;
+            byL1 = c.l1Codes.get(code);
+        }
+
+        int groups = periods.size();
+        long[] orders = new long[groups];
+        long[] amounts = new long[groups];
+        HyperLogLog[] customers = new HyperLogLog[groups];
+        int[] day = c.day;
+        int[] l1 = c.l1;
+        int[] l2 = c.l2;
+        int[] user = c.user;
+        long[] amount = c.amount;
+        byte[] flags = c.flags;
+        for (int i = 0, n = c.size; i < n; i++) {
+            int d = day[i] - from;
+            if (d < 0 || d >= span) {
+                continue;
+            }
+            boolean match;
+            if (code < 0) {
+                match = (flags[i] & FIRST_IN_ORDER) != 0;
+            } else if (byL1) {
+                match = l1[i] == code && (flags[i] & FIRST_IN_L1) != 0;
+            } else {
+                match = l2[i] == code;
+            }
+            if (!match) {
+                continue;
+            }
+            int g = groupOfDay[d];
+            orders[g]++;
+            amounts[g] += amount[i];
+            if (customers[g] == null) {
+                customers[g] = new HyperLogLog(HLL_PRECISION);
+            }
+            customers[g].add(user[i]);
+        }
+
+        for (int g = 0; g < groups; g++) {
+            if (orders[g] == 0) {
+                continue;
+            }
+            long customerCount = Math.max(1, customers[g].estimate());
+            BigDecimal total = BigDecimal.valueOf(amounts[g], 2);
+            Map<String, Object> row = new HashMap<>();
+            row.put("period", periods.get(g));
+            row.put("orders", orders[g]);
+            row.put("customers", customerCount);
+            row.put("amount", total);
+            row.put("pcr", total.divide(BigDecimal.valueOf(customerCount), 2, RoundingMode.HALF_UP));
+            result.add(row);
+        }
+        return result;
+    }
+
+    /**
+     * 与SQL统计保持一致的时间段标签
+     */
+    private static Object period(String groupBy, LocalDate date) {
+        switch (groupBy == null ? "" : groupBy) {
+            case "week":
+                return String.format("%d-%02d", date.getYear(), date.get(MYSQL_WEEK.weekOfYear()));
+            case "month":
+                return String.format("%d-%02d", date.getYear(), date.getMonthValue());
+            case "quarter":
+                return date.getYear() + "-Q" + ((date.getMonthValue() - 1) / 3 + 1);
+            case "year":
+                return date.getYear();
+            default:
+                return date.toString();
+        }
+    }
+
+    /**
+     * 列的只读快照，数组中下标小于size的部分不会再被修改
+     */
+    private static class Columns {
+        private final int size;
+        private final int[] day;
+        private final int[] l1;
+        private final int[] l2;
+        private final int[] user;
+        private final long[] amount;
+        private final byte[] flags;
+        private final Map<Integer, Integer> codes;
+        private final BitSet l1Codes;
+
+        Columns(Builder b) {
+            this.size = b.size;
+            this.day = b.day;
+            this.l1 = b.l1;
+            this.l2 = b.l2;
+            this.user = b.user;
+            this.amount = b.amount;
+            this.flags = b.flags;
+            this.codes = new HashMap<>(b.codes);
+            this.l1Codes = (BitSet) b.l1Codes.clone();
+        }
+    }
+
+    /**
+     * 可追加的列，只在持有锁时修改
+     */
+    private static class Builder {
+        private int size;
+        private int[] day;
+        private int[] l1;
+        private int[] l2;
+        private int[] user;
+        private long[] amount;
+        private byte[] flags;
+        private final Map<Integer, Integer> codes = new HashMap<>();
+        private final BitSet l1Codes = new BitSet();
+        private int lastOrderId = -1;
+        private int lastL1 = -1;
+
+        Builder(int capacity) {
+            capacity = Math.max(capacity, INITIAL_CAPACITY);
+            day = new int[capacity];
+            l1 = new int[capacity];
+            l2 = new int[capacity];
+            user = new int[capacity];
+            amount = new long[capacity];
+            flags = new byte[capacity];
+        }
+
+        /**
+         * 追加一行，同一订单的行必须连续且按一级类目排序
+         */
+        void add(Map<String, Object> row) {
+            if (size == day.length) {
+                int capacity = size + (size >> 1);
+                day = Arrays.copyOf(day, capacity);
+                l1 = Arrays.copyOf(l1, capacity);
+                l2 = Arrays.copyOf(l2, capacity);
+                user = Arrays.copyOf(user, capacity);
+                amount = Arrays.copyOf(amount, capacity);
+                flags = Arrays.copyOf(flags, capacity);
+            }
+
+            int orderId = ((Number) row.get("id")).intValue();
+            int l1Code = encode(((Number) row.get("category_l1")).intValue());
+            int l2Code = encode(((Number) row.get("category_l2")).intValue());
+            l1Codes.set(l1Code);
+
+            byte flag = 0;
+            if (orderId != lastOrderId) {
+                flag = FIRST_IN_ORDER | FIRST_IN_L1;
+            } else if (l1Code != lastL1) {
+                flag = FIRST_IN_L1;
+            }
+            lastOrderId = orderId;
+            lastL1 = l1Code;
+
+            day[size] = ((Number) row.get("epoch_day")).intValue();
+            l1[size] = l1Code;
+            l2[size] = l2Code;
+            user[size] = ((Number) row.get("user_id")).intValue();
+            amount[size] = ((BigDecimal) row.get("actual_price")).movePointRight(2).longValue();
+            flags[size] = flag;
+            size++;
+        }
+
+        Columns snapshot() {
+            return new Columns(this);
+        }
+
+        private int encode(int categoryId) {
+            Integer code = codes.get(categoryId);
+            if (code == null) {
+                code = codes.size();
+                codes.put(categoryId, code);
+            }
+            return code;
+        }
+    }
+}
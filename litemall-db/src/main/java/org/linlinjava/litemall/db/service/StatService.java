@@ -1,26 +1,88 @@
 package org.linlinjava.litemall.db.service;
 
 import org.linlinjava.litemall.db.dao.StatMapper;
+import org.linlinjava.litemall.db.dao.StatRollupMapper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import jakarta.annotation.Resource;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * 统计服务
+ * <p>
+ * 用户和订单统计读取 litemall_stat_daily 和 litemall_stat_order_category_daily 每日汇总表，
+ * 周、月、季度、年的统计由每日汇总相加得到，不再在请求时扫描订单原始数据。
+ * 汇总表由定时任务调用 {@link #refreshDay(LocalDate, LocalDateTime)} 增量维护。
+ * 增强版订单统计在 {@link OrderStatStore} 加载完成后直接在内存中计算。
+ */
 @Service
 public class StatService {
     @Resource
     private StatMapper statMapper;
+    @Resource
+    private StatRollupMapper statRollupMapper;
+    @Resource
+    private OrderStatStore orderStatStore;
 
 
     public List<Map<String, Object>> statUser() {
-        return statMapper.statUser();
+        return statRollupMapper.statUser();
     }
 
     public List<Map<String, Object>> statOrder() {
-        return statMapper.statOrder();
+        return statRollupMapper.statOrder();
+    }
+
+    /**
+     * 从订单和用户原始数据重新计算某一天的汇总
+     * @param day 统计日期
+     * @param refreshTime 本次汇总任务的开始时间
+     */
+    @Transactional
+    public void refreshDay(LocalDate day, LocalDateTime refreshTime) {
+        LocalDateTime startTime = day.atStartOfDay();
+        LocalDateTime endTime = day.plusDays(1).atStartOfDay();
+        statRollupMapper.upsertDaily(day, startTime, endTime, refreshTime);
+        statRollupMapper.deleteOrderCategory(day);
+        statRollupMapper.insertOrderCategory(day, startTime, endTime);
+    }
+
+    /**
+     * @return 已汇总的最后一天，没有汇总数据时返回null
+     */
+    public LocalDate queryLatestRollupDay() {
+        return statRollupMapper.selectLatestDay();
+    }
+
+    /**
+     * 汇总任务按日期顺序重新计算，最后一天总是最后计算，它的更新时间是最近一次完成的汇总任务的开始时间，
+     * 任务中途退出时仍然是上一次任务的开始时间
+     * @return 最近一次完成的汇总任务的开始时间，没有汇总数据时返回null
+     */
+    public LocalDateTime queryLastRefreshTime() {
+        return statRollupMapper.selectLastRefreshTime();
+    }
+
+    /**
+     * @return 最早有用户注册或订单的日期，没有数据时返回null
+     */
+    public LocalDate queryFirstActivityDay() {
+        return statRollupMapper.selectFirstActivityDay();
+    }
+
+    /**
+     * 查询在指定时间之后状态发生变化的订单所在的下单日期，这些日期的汇总需要重新计算
+     * @param since 开始时间
+     * @return 下单日期列表
+     */
+    public List<LocalDate> queryOrderDaysUpdatedSince(LocalDateTime since) {
+        return statRollupMapper.selectOrderDaysUpdatedSince(since);
     }
     
     /**
@@ -37,23 +99,14 @@ public class StatService {
     public List<Map<String, Object>> statOrderEnhanced(String groupBy, Integer categoryId, Integer year, Integer quarter, Integer month, String day) {
         // 构建时间范围参数
         Map<String, Object> timeParams = buildTimeRange(year, quarter, month, day);
-        
-        // 调试日志输出
-        System.out.println("Debug: statOrderEnhanced called with params:");
-        System.out.println("  groupBy=" + groupBy + ", year=" + year + ", quarter=" + quarter + ", month=" + month + ", day=" + day);
-        System.out.println("  startTime=" + timeParams.get("startTime"));
-        System.out.println("  endTime=" + timeParams.get("endTime"));
-        System.out.println("  categoryId=" + categoryId);
-        
-        // 调用Mapper进行查询
-        List<Map<String, Object>> result = statMapper.statOrderEnhancedWithTimeRange(groupBy, categoryId, 
-            (java.time.LocalDateTime) timeParams.get("startTime"), 
-            (java.time.LocalDateTime) timeParams.get("endTime"));
-        
-        // 调试日志输出
-        System.out.println("Debug: SQL query returned " + (result != null ? result.size() : "null") + " rows");
-        
-        return result;
+        LocalDate startDay = ((LocalDateTime) timeParams.get("startTime")).toLocalDate();
+        LocalDate endDay = ((LocalDateTime) timeParams.get("endTime")).toLocalDate();
+
+        if (orderStatStore.isLoaded()) {
+            return orderStatStore.statOrder(groupBy, categoryId, startDay, endDay);
+        }
+        // 内存存储尚未加载时汇总每日统计数据
+        return statRollupMapper.statOrderEnhanced(groupBy, categoryId, startDay, endDay);
     }
     
     /**
@@ -251,4 +304,14 @@ public class StatService {
     public List<Map<String, Object>> getAllComments() {
         return statMapper.getAllComments();
     }
+
+    /**
+     * 按ID分批读取商品评论（用于构建词云索引）
+     * @param afterId 起始评论ID（不包含）
+     * @param limit 每批数量
+     * @return 评论列表，按ID升序
+     */
+    public List<Map<String, Object>> queryGoodsComments(Integer afterId, Integer limit) {
+        return statMapper.selectGoodsComments(afterId, limit);
+    }
 }
@@ -0,0 +1,93 @@
+package org.linlinjava.litemall.db.util;
+
+import org.linlinjava.litemall.db.domain.LitemallCategory;
+
+import java.util.*;
+
+/**
+ * 分类树快照
+ * <p>
+ * 由全部未删除的分类一次构建，之后不再修改。按分类ID和父分类ID建立哈希索引，
+ * 查询分类和子分类列表不需要查询数据库；分类ID不连续（例如1036004）也只占用与分类数量相当的内存。
+ * 分类修改后构建新的快照整体替换。
+ * 返回的分类对象和列表在快照间共享，调用方不应修改。
+ */
+public class CategoryTree {
+    private static final List<LitemallCategory> NONE = Collections.emptyList();
+
+    private final long version;
+    private final Map<Integer, LitemallCategory> nodes; // 分类ID -> 分类
+    private final Map<Integer, List<LitemallCategory>> children; // 分类ID -> 子分类
+    private final List<LitemallCategory> l1;
+    private final List<LitemallCategory> l2;
+    private final List<LitemallCategory> channel; // 一级分类，只包含ID、名称和图标
+
+    public CategoryTree(long version, List<LitemallCategory> categories) {
+        this.version = version;
+        List<LitemallCategory> sorted = new ArrayList<>(categories);
+        sorted.sort(Comparator.comparing(LitemallCategory::getId));
+
+        Map<Integer, LitemallCategory> nodes = new HashMap<>();
+        Map<Integer, List<LitemallCategory>> childMap = new HashMap<>();
+        List<LitemallCategory> l1 = new ArrayList<>();
+        List<LitemallCategory> l2 = new ArrayList<>();
+        List<LitemallCategory> channel = new ArrayList<>();
+        for (LitemallCategory category : sorted) {
+            nodes.put(category.getId(), category);
+            if (category.getPid() != null) {
+                childMap.computeIfAbsent(category.getPid(), pid -> new ArrayList<>()).add(category);
+            }
+            if ("L1".equals(category.getLevel())) {
+                l1.add(category);
+                LitemallCategory brief = new LitemallCategory();
+                brief.setId(category.getId());
+                brief.setName(category.getName());
+                brief.setIconUrl(category.getIconUrl());
+                channel.add(brief);
+            } else if ("L2".equals(category.getLevel())) {
+                l2.add(category);
+            }
+        }
+
+        for (Map.Entry<Integer, List<LitemallCategory>> entry : childMap.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        this.nodes = nodes;
+        this.children = childMap;
+        this.l1 = Collections.unmodifiableList(l1);
+        this.l2 = Collections.unmodifiableList(l2);
+        this.channel = Collections.unmodifiableList(channel);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return 分类，不存在或已删除时返回null
+     */
+    public LitemallCategory get(Integer id) {
+        return id == null ? null : nodes.get(id);
+    }
+
+    /**
+     * @param pid 父分类ID，0表示一级分类
+     * @return 子分类，按ID排序
+     */
+    public List<LitemallCategory> getChildren(Integer pid) {
+        List<LitemallCategory> list = pid == null ? null : children.get(pid);
+        return list == null ? NONE : list;
+    }
+
+    public List<LitemallCategory> getL1() {
+        return l1;
+    }
+
+    public List<LitemallCategory> getL2() {
+        return l2;
+    }
+
+    public List<LitemallCategory> getChannel() {
+        return channel;
+    }
+}
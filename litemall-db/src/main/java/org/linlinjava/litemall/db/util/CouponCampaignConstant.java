@@ -0,0 +1,13 @@
+package org.linlinjava.litemall.db.util;
+
+public class CouponCampaignConstant {
+    public static final String SEGMENT_ALL = "all";
+    public static final String SEGMENT_REGISTER = "register";
+    public static final String SEGMENT_ORDER = "order";
+
+    public static final Short STATUS_WAITING = 0;
+    public static final Short STATUS_RUNNING = 1;
+    public static final Short STATUS_DONE = 2;
+    public static final Short STATUS_FAILED = 3;
+    public static final Short STATUS_CANCELLED = 4;
+}
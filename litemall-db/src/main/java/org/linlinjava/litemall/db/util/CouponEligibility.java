@@ -0,0 +1,82 @@
+package org.linlinjava.litemall.db.util;
+
+import org.linlinjava.litemall.db.domain.LitemallCoupon;
+import org.linlinjava.litemall.db.domain.LitemallCouponUser;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 用户所有优惠券对当前订单的可用情况
+ */
+public class CouponEligibility {
+    // 用户优惠券ID -> 优惠券，只包含可用的优惠券，保持用户优惠券的顺序
+    private final Map<Integer, LitemallCoupon> available = new LinkedHashMap<>();
+    private final Map<Integer, Integer> couponIds = new LinkedHashMap<>();
+    private LitemallCoupon best;
+    private Integer bestUserCouponId;
+
+    public void add(LitemallCouponUser couponUser, LitemallCoupon coupon) {
+        available.put(couponUser.getId(), coupon);
+        couponIds.put(couponUser.getId(), coupon.getId());
+        // 与逐张判断时一致，只选择有优惠金额的，金额相同时保留先出现的
+        if (getBestDiscount().compareTo(coupon.getDiscount()) < 0) {
+            best = coupon;
+            bestUserCouponId = couponUser.getId();
+        }
+    }
+
+    /**
+     * @return 可用优惠券数量
+     */
+    public int getAvailableCount() {
+        return available.size();
+    }
+
+    /**
+     * @return 用户优惠券是否可用
+     */
+    public boolean isAvailable(Integer userCouponId) {
+        return available.containsKey(userCouponId);
+    }
+
+    /**
+     * 查找用户选择的优惠券，用户优惠券ID不匹配时使用该优惠券的任意一张可用用户优惠券
+     *
+     * @return 用户优惠券ID，不可用时返回null
+     */
+    public Integer find(Integer couponId, Integer userCouponId) {
+        if (couponId == null) {
+            return null;
+        }
+        if (userCouponId != null && couponId.equals(couponIds.get(userCouponId))) {
+            return userCouponId;
+        }
+        for (Map.Entry<Integer, Integer> entry : couponIds.entrySet()) {
+            if (couponId.equals(entry.getValue())) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    public LitemallCoupon getCoupon(Integer userCouponId) {
+        return available.get(userCouponId);
+    }
+
+    /**
+     * @return 优惠金额最大的优惠券，没有可用优惠券时返回null
+     */
+    public LitemallCoupon getBest() {
+        return best;
+    }
+
+    public Integer getBestUserCouponId() {
+        return bestUserCouponId;
+    }
+
+    public BigDecimal getBestDiscount() {
+        return best == null ? BigDecimal.ZERO : best.getDiscount();
+    }
+}
@@ -0,0 +1,131 @@
+package org.linlinjava.litemall.db.util;
+
+import org.linlinjava.litemall.db.domain.LitemallCart;
+import org.linlinjava.litemall.db.domain.LitemallCoupon;
+import org.linlinjava.litemall.db.domain.LitemallCouponUser;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的优惠券使用规则
+ * <p>
+ * 优惠券的适用商品或分类编译成有序的int数组，金额换算成分，
+ * 判断时只做数组查找和整数比较，不访问数据库。判断规则与 {@link org.linlinjava.litemall.db.service.CouponVerifyService} 一致。
+ */
+public class CouponRule {
+    private final LitemallCoupon coupon;
+    private final boolean usable; // 未删除且状态正常
+    private final short timeType;
+    private final LocalDateTime startTime;
+    private final LocalDateTime endTime;
+    private final int days;
+    private final short goodsType;
+    private final int[] goodsValue; // 升序
+    private final BigDecimal min;
+    private final long minCents;
+
+    private CouponRule(LitemallCoupon coupon) {
+        this.coupon = coupon;
+        this.usable = !Boolean.TRUE.equals(coupon.getDeleted()) && CouponConstant.STATUS_NORMAL.equals(coupon.getStatus());
+        this.timeType = coupon.getTimeType() == null ? -1 : coupon.getTimeType();
+        this.startTime = coupon.getStartTime();
+        this.endTime = coupon.getEndTime();
+        this.days = coupon.getDays() == null ? 0 : coupon.getDays();
+        this.goodsType = coupon.getGoodsType() == null ? CouponConstant.GOODS_TYPE_ALL : coupon.getGoodsType();
+        Integer[] value = coupon.getGoodsValue() == null ? new Integer[0] : coupon.getGoodsValue();
+        this.goodsValue = Arrays.stream(value).filter(v -> v != null).mapToInt(Integer::intValue).sorted().distinct().toArray();
+        this.min = coupon.getMin() == null ? BigDecimal.ZERO : coupon.getMin();
+        this.minCents = cents(this.min);
+    }
+
+    public static CouponRule compile(LitemallCoupon coupon) {
+        return new CouponRule(coupon);
+    }
+
+    public LitemallCoupon getCoupon() {
+        return coupon;
+    }
+
+    /**
+     * @return 是否按分类限制使用范围，此时需要购物车商品的分类
+     */
+    public boolean byCategory() {
+        return goodsType == CouponConstant.GOODS_TYPE_CATEGORY;
+    }
+
+    /**
+     * 判断优惠券是否可用
+     *
+     * @param couponUser        用户领取的优惠券
+     * @param lines             购物车商品
+     * @param checkedGoodsPrice 订单商品总价
+     * @param now               当前时间
+     */
+    public boolean test(LitemallCouponUser couponUser, Lines lines, BigDecimal checkedGoodsPrice, LocalDateTime now) {
+        if (!usable) {
+            return false;
+        }
+        if (timeType == CouponConstant.TIME_TYPE_TIME) {
+            if (startTime == null || endTime == null || now.isBefore(startTime) || now.isAfter(endTime)) {
+                return false;
+            }
+        } else if (timeType == CouponConstant.TIME_TYPE_DAYS) {
+            if (couponUser.getAddTime() == null || now.isAfter(couponUser.getAddTime().plusDays(days))) {
+                return false;
+            }
+        } else {
+            return false;
+        }
+
+        if (goodsType == CouponConstant.GOODS_TYPE_CATEGORY || goodsType == CouponConstant.GOODS_TYPE_ARRAY) {
+            int[] keys = goodsType == CouponConstant.GOODS_TYPE_ARRAY ? lines.goodsIds : lines.categoryIds;
+            long total = 0;
+            for (int i = 0; i < lines.size; i++) {
+                if (Arrays.binarySearch(goodsValue, keys[i]) >= 0) {
+                    total += lines.cents[i];
+                }
+            }
+            if (total < minCents) {
+                return false;
+            }
+        }
+
+        return checkedGoodsPrice.compareTo(min) >= 0;
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount.movePointRight(2).longValue();
+    }
+
+    /**
+     * 购物车商品的列式表示，商品分类只在需要时解析一次
+     */
+    public static class Lines {
+        private final int size;
+        private final int[] goodsIds;
+        private final int[] categoryIds;
+        private final long[] cents;
+
+        /**
+         * @param cartList   购物车商品
+         * @param categories 商品ID到分类ID的映射，没有按分类限制的优惠券时可为null
+         */
+        public Lines(List<LitemallCart> cartList, Map<Integer, Integer> categories) {
+            size = cartList.size();
+            goodsIds = new int[size];
+            categoryIds = new int[size];
+            cents = new long[size];
+            for (int i = 0; i < size; i++) {
+                LitemallCart cart = cartList.get(i);
+                goodsIds[i] = cart.getGoodsId();
+                Integer categoryId = categories == null ? null : categories.get(cart.getGoodsId());
+                categoryIds[i] = categoryId == null ? -1 : categoryId;
+                cents[i] = cents(cart.getPrice().multiply(new BigDecimal(cart.getNumber())));
+            }
+        }
+    }
+}
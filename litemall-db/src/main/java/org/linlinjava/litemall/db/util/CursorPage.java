@@ -0,0 +1,45 @@
+package org.linlinjava.litemall.db.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * 游标分页的一页数据
+ * <p>
+ * 与PageHelper的Page类似，列表本身就是当前页的数据，另外携带下一页的游标；
+ * 游标分页默认不统计总数，total为null。
+ */
+public class CursorPage<E> extends ArrayList<E> {
+    private final int limit;
+    private final String nextCursor;
+    private final Long total;
+
+    public CursorPage(Collection<? extends E> rows, int limit, String nextCursor, Long total) {
+        super(rows);
+        this.limit = limit;
+        this.nextCursor = nextCursor;
+        this.total = total;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return 下一页的游标，没有更多数据时为null
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    /**
+     * @return 总数，未要求统计时为null
+     */
+    public Long getTotal() {
+        return total;
+    }
+}
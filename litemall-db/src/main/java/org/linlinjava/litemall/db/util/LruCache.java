@@ -0,0 +1,111 @@
+package org.linlinjava.litemall.db.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * 有界的本地缓存
+ * <p>
+ * 超过容量时淘汰最近最少访问的条目；设置了过期时间时，条目从写入起超过该时间后视为不存在。
+ * 所有操作持有同一个锁，适合操作很短的场景，加载数据等耗时操作应在锁外完成。
+ *
+ * @param <K> 键
+ * @param <V> 值
+ */
+public class LruCache<K, V> {
+    private final long ttl; // 毫秒，0表示不过期
+    private final Map<K, Entry<V>> map;
+
+    /**
+     * @param capacity 最大条目数量
+     */
+    public LruCache(int capacity) {
+        this(capacity, 0);
+    }
+
+    /**
+     * @param capacity 最大条目数量
+     * @param ttl      过期时间，毫秒，0表示不过期
+     */
+    public LruCache(int capacity, long ttl) {
+        this.ttl = ttl;
+        this.map = new LinkedHashMap<K, Entry<V>>(Math.min(capacity, 256), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @return 未过期的值，不存在返回null
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expired(System.currentTimeMillis())) {
+            map.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * 写入值，过期时间从现在开始计算
+     */
+    public synchronized void put(K key, V value) {
+        map.put(key, new Entry<>(value, ttl == 0 ? Long.MAX_VALUE : System.currentTimeMillis() + ttl));
+    }
+
+    /**
+     * 存在未过期的值时替换为change的结果，保留原来的过期时间；结果为null时删除
+     *
+     * @return 替换后的值，不存在返回null
+     */
+    public synchronized V computeIfPresent(K key, UnaryOperator<V> change) {
+        Entry<V> entry = map.get(key);
+        if (entry == null || entry.expired(System.currentTimeMillis())) {
+            map.remove(key);
+            return null;
+        }
+        V value = change.apply(entry.value);
+        if (value == null) {
+            map.remove(key);
+        } else {
+            map.put(key, new Entry<>(value, entry.expireAt));
+        }
+        return value;
+    }
+
+    public synchronized void remove(K key) {
+        map.remove(key);
+    }
+
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    /**
+     * @return 条目数量，包括已过期但尚未清除的条目
+     */
+    public synchronized int size() {
+        return map.size();
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long expireAt;
+
+        Entry(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        boolean expired(long now) {
+            return expireAt <= now;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package org.linlinjava.litemall.db.util;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 游标（keyset）分页
+ * <p>
+ * 按（排序列, id）定位上一页最后一行，下一页只查询排在它之后的记录，
+ * 查询代价只与每页大小有关，与翻到第几页无关，并且不需要COUNT。
+ * 排序列支持id和add_time，add_time为空的记录不参与游标分页。
+ * <p>
+ * 游标对客户端不透明，包含排序列、排序方向和上一页最后一行的排序键，
+ * 与本次请求的排序不一致或格式错误时抛出IllegalArgumentException。
+ */
+public class PageCursor {
+    public static final String SORT_ID = "id";
+    public static final String SORT_ADD_TIME = "add_time";
+
+    private static final DateTimeFormatter SQL_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final String sort;
+    private final boolean desc;
+    private final LocalDateTime addTime;
+    private final Integer id;
+
+    private PageCursor(String sort, boolean desc, LocalDateTime addTime, Integer id) {
+        this.sort = sort;
+        this.desc = desc;
+        this.addTime = addTime;
+        this.id = id;
+    }
+
+    /**
+     * 解析游标
+     *
+     * @param token 游标，为空表示第一页
+     * @param sort  排序列，id或add_time，为空时使用add_time
+     * @param order 排序方向，asc或desc，为空时使用desc
+     * @return 游标
+     */
+    public static PageCursor of(String token, String sort, String order) {
+        sort = sort == null || sort.isEmpty() ? SORT_ADD_TIME : sort;
+        if (!SORT_ID.equals(sort) && !SORT_ADD_TIME.equals(sort)) {
+            throw new IllegalArgumentException("游标分页不支持的排序列: " + sort);
+        }
+        boolean desc = order == null || order.isEmpty() || "desc".equalsIgnoreCase(order);
+        if (token == null || token.isEmpty()) {
+            return new PageCursor(sort, desc, null, null);
+        }
+
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|", -1);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+        if (parts.length != 4 || !parts[0].equals(sort) || !parts[1].equals(desc ? "desc" : "asc")) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+        try {
+            LocalDateTime addTime = parts[2].isEmpty() ? null : LocalDateTime.parse(parts[2]);
+            if (SORT_ADD_TIME.equals(sort) && addTime == null) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            return new PageCursor(sort, desc, addTime, Integer.valueOf(parts[3]));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+    }
+
+    /**
+     * @return 是否第一页
+     */
+    public boolean isFirst() {
+        return id == null;
+    }
+
+    public boolean isByAddTime() {
+        return SORT_ADD_TIME.equals(sort);
+    }
+
+    /**
+     * @param alias 表别名，可为null
+     * @return 排序子句，总是以id作为第二排序列保证顺序唯一
+     */
+    public String orderBy(String alias) {
+        String prefix = alias == null ? "" : alias + ".";
+        String direction = desc ? " desc" : " asc";
+        if (isByAddTime()) {
+            return prefix + SORT_ADD_TIME + direction + ", " + prefix + SORT_ID + direction;
+        }
+        return prefix + SORT_ID + direction;
+    }
+
+    /**
+     * 生成MyBatis Example查询条件。
+     * 按add_time排序时需要两组条件：add_time在游标之后，或add_time相同且id在游标之后。
+     *
+     * @param or              创建一组新的OR条件，一般为example::or
+     * @param filters         每组条件都要加上的筛选条件
+     * @param addTimeLessThan Criteria::andAddTimeLessThan
+     * @param addTimeGreaterThan Criteria::andAddTimeGreaterThan
+     * @param addTimeEqualTo  Criteria::andAddTimeEqualTo
+     * @param idLessThan      Criteria::andIdLessThan
+     * @param idGreaterThan   Criteria::andIdGreaterThan
+     */
+    public <C> void where(Supplier<C> or, Consumer<C> filters,
+                          BiFunction<C, LocalDateTime, C> addTimeLessThan,
+                          BiFunction<C, LocalDateTime, C> addTimeGreaterThan,
+                          BiFunction<C, LocalDateTime, C> addTimeEqualTo,
+                          BiFunction<C, Integer, C> idLessThan,
+                          BiFunction<C, Integer, C> idGreaterThan) {
+        BiFunction<C, Integer, C> idAfter = desc ? idLessThan : idGreaterThan;
+        C criteria = or.get();
+        filters.accept(criteria);
+        if (isFirst()) {
+            return;
+        }
+        if (!isByAddTime()) {
+            idAfter.apply(criteria, id);
+            return;
+        }
+        (desc ? addTimeLessThan : addTimeGreaterThan).apply(criteria, addTime);
+        C tie = or.get();
+        filters.accept(tie);
+        idAfter.apply(addTimeEqualTo.apply(tie, addTime), id);
+    }
+
+    /**
+     * 生成SQL查询条件，用于手写的动态SQL
+     *
+     * @param alias 表别名，可为null
+     * @return 条件，第一页返回null
+     */
+    public String condition(String alias) {
+        if (isFirst()) {
+            return null;
+        }
+        String prefix = alias == null ? "" : alias + ".";
+        String op = desc ? " < " : " > ";
+        if (!isByAddTime()) {
+            return prefix + SORT_ID + op + id;
+        }
+        String time = "'" + SQL_TIME.format(addTime) + "'";
+        return "(" + prefix + SORT_ADD_TIME + op + time + " or (" + prefix + SORT_ADD_TIME + " = " + time
+                + " and " + prefix + SORT_ID + op + id + "))";
+    }
+
+    /**
+     * 由查询结果生成一页数据
+     *
+     * @param rows    按 {@link #orderBy(String)} 排序、最多limit + 1行的查询结果
+     * @param limit   每页大小
+     * @param addTime 取行的add_time
+     * @param id      取行的id
+     * @param total   总数，可为null
+     * @return 一页数据
+     */
+    public <T> CursorPage<T> page(List<T> rows, int limit, Function<T, ?> addTime, Function<T, Integer> id, Long total) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, limit, null, total);
+        }
+        List<T> current = rows.subList(0, limit);
+        T last = current.get(limit - 1);
+        LocalDateTime lastTime = isByAddTime() ? toLocalDateTime(addTime.apply(last)) : null;
+        String next = null;
+        if (!isByAddTime() || lastTime != null) {
+            String raw = sort + "|" + (desc ? "desc" : "asc") + "|" + (lastTime == null ? "" : lastTime) + "|" + id.apply(last);
+            next = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+        return new CursorPage<>(current, limit, next, total);
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+}
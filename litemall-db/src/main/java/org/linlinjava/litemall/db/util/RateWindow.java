@@ -0,0 +1,82 @@
+package org.linlinjava.litemall.db.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * 滑动窗口计数
+ * <p>
+ * 环形数组中每个桶对应一秒，记录该秒的次数和金额（分）。桶在下一次被写入时发现秒数过期才清零，
+ * 读取时只累加窗口内的桶，不需要后台线程。
+ */
+public class RateWindow {
+    private final int size;
+    private final LongSupplier clock; // 当前秒数
+    private final AtomicLongArray seconds;
+    private final AtomicLongArray counts;
+    private final AtomicLongArray amounts;
+
+    /**
+     * @param size 窗口秒数
+     */
+    public RateWindow(int size) {
+        this(size, () -> System.currentTimeMillis() / 1000);
+    }
+
+    public RateWindow(int size, LongSupplier clock) {
+        this.size = size;
+        this.clock = clock;
+        this.seconds = new AtomicLongArray(size);
+        this.counts = new AtomicLongArray(size);
+        this.amounts = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            seconds.set(i, -1);
+        }
+    }
+
+    /**
+     * 记录一次
+     * @param amount 金额（分）
+     */
+    public void record(long amount) {
+        long now = clock.getAsLong();
+        int i = (int) (now % size);
+        if (seconds.get(i) != now) {
+            synchronized (this) {
+                if (seconds.get(i) != now) {
+                    counts.set(i, 0);
+                    amounts.set(i, 0);
+                    seconds.set(i, now);
+                }
+            }
+        }
+        counts.incrementAndGet(i);
+        amounts.addAndGet(i, amount);
+    }
+
+    /**
+     * @return 窗口内的次数
+     */
+    public long count() {
+        return sum(counts);
+    }
+
+    /**
+     * @return 窗口内的金额（分）
+     */
+    public long amount() {
+        return sum(amounts);
+    }
+
+    private long sum(AtomicLongArray values) {
+        long now = clock.getAsLong();
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            long age = now - seconds.get(i);
+            if (age >= 0 && age < size) {
+                total += values.get(i);
+            }
+        }
+        return total;
+    }
+}
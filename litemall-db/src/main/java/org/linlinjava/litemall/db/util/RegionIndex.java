@@ -0,0 +1,183 @@
+package org.linlinjava.litemall.db.util;
+
+import org.linlinjava.litemall.db.domain.LitemallRegion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 行政区域索引
+ * <p>
+ * 全部行政区域按 (pid, id) 排序后保存在并行的基本类型数组中，同一父区域的子区域在数组中连续，
+ * 每个区域记录子区域的下标范围；区域ID直接索引到数组下标。省市区全称在构建时拼接好，
+ * 按ID查询名称、全称和子区域都不需要遍历。构建后不再修改。
+ */
+public class RegionIndex {
+    private final int[] ids;
+    private final int[] pids;
+    private final int[] codes;
+    private final byte[] types;
+    private final String[] names;
+    private final String[] fullNames; // 省、市、区县名称依次拼接
+    private final int[] childStart; // 子区域的下标范围 [childStart, childEnd)
+    private final int[] childEnd;
+    private final int[] indexById; // 区域ID -> 下标，不存在时为-1
+    private int rootStart;
+    private int rootEnd;
+
+    public RegionIndex(List<LitemallRegion> regions) {
+        LitemallRegion[] sorted = regions.toArray(new LitemallRegion[0]);
+        Arrays.sort(sorted, Comparator.comparing(LitemallRegion::getPid).thenComparing(LitemallRegion::getId));
+
+        int size = sorted.length;
+        ids = new int[size];
+        pids = new int[size];
+        codes = new int[size];
+        types = new byte[size];
+        names = new String[size];
+        fullNames = new String[size];
+        childStart = new int[size];
+        childEnd = new int[size];
+        int maxId = 0;
+        for (int i = 0; i < size; i++) {
+            LitemallRegion region = sorted[i];
+            ids[i] = region.getId();
+            pids[i] = region.getPid();
+            codes[i] = region.getCode() == null ? 0 : region.getCode();
+            types[i] = region.getType() == null ? 0 : region.getType();
+            names[i] = region.getName();
+            maxId = Math.max(maxId, ids[i]);
+        }
+        indexById = new int[maxId + 1];
+        Arrays.fill(indexById, -1);
+        for (int i = 0; i < size; i++) {
+            indexById[ids[i]] = i;
+        }
+
+        // 相同pid的区域连续，记录到父区域
+        for (int start = 0; start < size; ) {
+            int end = start;
+            while (end < size && pids[end] == pids[start]) {
+                end++;
+            }
+            int parent = indexOf(pids[start]);
+            if (pids[start] == 0) {
+                rootStart = start;
+                rootEnd = end;
+            } else if (parent >= 0) {
+                childStart[parent] = start;
+                childEnd[parent] = end;
+            }
+            start = end;
+        }
+
+        // 从省开始逐级拼接全称
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        for (int i = rootStart; i < rootEnd; i++) {
+            fullNames[i] = names[i];
+            queue[tail++] = i;
+        }
+        while (head < tail) {
+            int parent = queue[head++];
+            for (int i = childStart[parent]; i < childEnd[parent]; i++) {
+                fullNames[i] = fullNames[parent] + names[i];
+                queue[tail++] = i;
+            }
+        }
+    }
+
+    /**
+     * @return 区域下标，不存在时返回-1
+     */
+    public int indexOf(Integer id) {
+        if (id == null || id < 0 || id >= indexById.length) {
+            return -1;
+        }
+        return indexById[id];
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public LitemallRegion get(Integer id) {
+        int index = indexOf(id);
+        return index < 0 ? null : region(index);
+    }
+
+    public String getName(Integer id) {
+        int index = indexOf(id);
+        return index < 0 ? null : names[index];
+    }
+
+    /**
+     * @return 从省开始拼接的全称，例如区县返回省市区县名称，不存在时返回null
+     */
+    public String getFullName(Integer id) {
+        int index = indexOf(id);
+        return index < 0 ? null : fullNames[index];
+    }
+
+    /**
+     * @param pid 父区域ID，0表示省
+     * @return 子区域，按ID排序
+     */
+    public List<LitemallRegion> getChildren(Integer pid) {
+        int start;
+        int end;
+        if (pid != null && pid == 0) {
+            start = rootStart;
+            end = rootEnd;
+        } else {
+            int index = indexOf(pid);
+            if (index < 0) {
+                return new ArrayList<>(0);
+            }
+            start = childStart[index];
+            end = childEnd[index];
+        }
+        List<LitemallRegion> children = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            children.add(region(i));
+        }
+        return children;
+    }
+
+    /**
+     * 从省开始深度优先遍历
+     */
+    public <T> List<T> toTree(NodeMapper<T> mapper) {
+        return toTree(rootStart, rootEnd, mapper);
+    }
+
+    private <T> List<T> toTree(int start, int end, NodeMapper<T> mapper) {
+        List<T> nodes = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            List<T> children = childStart[i] < childEnd[i] ? toTree(childStart[i], childEnd[i], mapper) : null;
+            nodes.add(mapper.map(region(i), children));
+        }
+        return nodes;
+    }
+
+    private LitemallRegion region(int index) {
+        LitemallRegion region = new LitemallRegion();
+        region.setId(ids[index]);
+        region.setPid(pids[index]);
+        region.setName(names[index]);
+        region.setType(types[index]);
+        region.setCode(codes[index]);
+        return region;
+    }
+
+    public interface NodeMapper<T> {
+        /**
+         * @param region   区域
+         * @param children 已转换的子区域，没有子区域时为null
+         */
+        T map(LitemallRegion region, List<T> children);
+    }
+}
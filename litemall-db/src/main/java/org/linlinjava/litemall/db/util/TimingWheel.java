@@ -0,0 +1,89 @@
+package org.linlinjava.litemall.db.util;
+
+import java.util.*;
+
+/**
+ * 时间轮
+ * <p>
+ * 环形数组中每个槽对应一秒，到期秒数取模后放入对应的槽，槽内按到期秒数分组，
+ * 超过一圈的到期时间与当前圈共用一个槽。同一ID同一秒只登记一次。
+ * 非线程安全，调用方需同步访问。
+ */
+public class TimingWheel {
+    private final List<Map<Long, Set<Integer>>> slots;
+    private long current; // 已处理到的秒数
+    private int size;
+
+    /**
+     * @param slotCount 槽数量
+     * @param now       当前秒数
+     */
+    public TimingWheel(int slotCount, long now) {
+        slots = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slots.add(new HashMap<>());
+        }
+        current = now;
+    }
+
+    /**
+     * 登记到期时间，已经到期的在下一秒到期
+     *
+     * @param id       ID
+     * @param deadline 到期秒数
+     * @return 是否新登记
+     */
+    public boolean add(int id, long deadline) {
+        long second = Math.max(deadline, current + 1);
+        boolean added = slot(second).computeIfAbsent(second, s -> new HashSet<>()).add(id);
+        if (added) {
+            size++;
+        }
+        return added;
+    }
+
+    /**
+     * 推进到指定秒数
+     *
+     * @param now 当前秒数
+     * @return 到期的ID
+     */
+    public Set<Integer> advance(long now) {
+        Set<Integer> expired = new HashSet<>();
+        if (now <= current) {
+            return expired;
+        }
+        if (now - current >= slots.size()) {
+            // 停顿超过一圈，检查全部槽
+            for (Map<Long, Set<Integer>> slot : slots) {
+                slot.entrySet().removeIf(entry -> entry.getKey() <= now && collect(expired, entry.getValue()));
+            }
+        } else {
+            for (long second = current + 1; second <= now; second++) {
+                Set<Integer> ids = slot(second).remove(second);
+                if (ids != null) {
+                    collect(expired, ids);
+                }
+            }
+        }
+        current = now;
+        return expired;
+    }
+
+    /**
+     * @return 尚未到期的登记数量
+     */
+    public int size() {
+        return size;
+    }
+
+    private boolean collect(Set<Integer> expired, Set<Integer> ids) {
+        expired.addAll(ids);
+        size -= ids.size();
+        return true;
+    }
+
+    private Map<Long, Set<Integer>> slot(long second) {
+        return slots.get((int) Math.floorMod(second, (long) slots.size()));
+    }
+}
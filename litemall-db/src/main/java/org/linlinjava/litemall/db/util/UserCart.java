@@ -0,0 +1,125 @@
+package org.linlinjava.litemall.db.util;
+
+import org.linlinjava.litemall.db.domain.LitemallCart;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * 用户购物车快照
+ * <p>
+ * 包含用户未删除的购物车商品，以及构建时计算好的商品数量和金额，构建后不再修改。
+ * 购物车修改时由 {@link #add}、{@link #replace}、{@link #remove}、{@link #map} 生成新的快照。
+ * 返回的购物车对象在快照间共享，调用方不应修改。
+ */
+public class UserCart {
+    private final List<LitemallCart> items;
+    private final int goodsCount;
+    private final BigDecimal goodsAmount;
+    private final int checkedGoodsCount;
+    private final BigDecimal checkedGoodsAmount;
+
+    public UserCart(List<LitemallCart> carts) {
+        List<LitemallCart> items = new ArrayList<>(carts);
+        items.sort(Comparator.comparing(LitemallCart::getId));
+        this.items = Collections.unmodifiableList(items);
+
+        int goodsCount = 0;
+        BigDecimal goodsAmount = BigDecimal.ZERO;
+        int checkedGoodsCount = 0;
+        BigDecimal checkedGoodsAmount = BigDecimal.ZERO;
+        for (LitemallCart cart : items) {
+            BigDecimal amount = cart.getPrice().multiply(new BigDecimal(cart.getNumber()));
+            goodsCount += cart.getNumber();
+            goodsAmount = goodsAmount.add(amount);
+            if (Boolean.TRUE.equals(cart.getChecked())) {
+                checkedGoodsCount += cart.getNumber();
+                checkedGoodsAmount = checkedGoodsAmount.add(amount);
+            }
+        }
+        this.goodsCount = goodsCount;
+        this.goodsAmount = goodsAmount;
+        this.checkedGoodsCount = checkedGoodsCount;
+        this.checkedGoodsAmount = checkedGoodsAmount;
+    }
+
+    public List<LitemallCart> getItems() {
+        return items;
+    }
+
+    public List<LitemallCart> getChecked() {
+        List<LitemallCart> checked = new ArrayList<>();
+        for (LitemallCart cart : items) {
+            if (Boolean.TRUE.equals(cart.getChecked())) {
+                checked.add(cart);
+            }
+        }
+        return checked;
+    }
+
+    public LitemallCart findById(Integer id) {
+        for (LitemallCart cart : items) {
+            if (cart.getId().equals(id)) {
+                return cart;
+            }
+        }
+        return null;
+    }
+
+    public LitemallCart find(Integer goodsId, Integer productId) {
+        for (LitemallCart cart : items) {
+            if (cart.getGoodsId().equals(goodsId) && cart.getProductId().equals(productId)) {
+                return cart;
+            }
+        }
+        return null;
+    }
+
+    public int getGoodsCount() {
+        return goodsCount;
+    }
+
+    public BigDecimal getGoodsAmount() {
+        return goodsAmount;
+    }
+
+    public int getCheckedGoodsCount() {
+        return checkedGoodsCount;
+    }
+
+    public BigDecimal getCheckedGoodsAmount() {
+        return checkedGoodsAmount;
+    }
+
+    public UserCart add(LitemallCart cart) {
+        List<LitemallCart> carts = new ArrayList<>(items);
+        carts.add(cart);
+        return new UserCart(carts);
+    }
+
+    /**
+     * 替换相同ID的购物车商品，不存在时不变
+     */
+    public UserCart replace(LitemallCart cart) {
+        return map(item -> item.getId().equals(cart.getId()) ? cart : item);
+    }
+
+    public UserCart remove(Predicate<LitemallCart> filter) {
+        List<LitemallCart> carts = new ArrayList<>(items);
+        carts.removeIf(filter);
+        return new UserCart(carts);
+    }
+
+    /**
+     * @param mapper 返回新的购物车对象，不需要修改时返回原对象
+     */
+    public UserCart map(UnaryOperator<LitemallCart> mapper) {
+        List<LitemallCart> carts = new ArrayList<>(items.size());
+        for (LitemallCart cart : items) {
+            carts.add(mapper.apply(cart));
+        }
+        return new UserCart(carts);
+    }
+}
@@ -0,0 +1,59 @@
+package org.linlinjava.litemall.db;
+
+import org.junit.jupiter.api.Test;
+import org.linlinjava.litemall.db.domain.LitemallCategory;
+import org.linlinjava.litemall.db.util.CategoryTree;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategoryTreeTest {
+
+    @Test
+    void testTree() {
+        CategoryTree tree = new CategoryTree(3, List.of(
+                category(12, 2, "L2"), category(1, 0, "L1"), category(11, 1, "L2"),
+                category(2, 0, "L1"), category(10, 1, "L2")));
+
+        assertEquals(3, tree.getVersion());
+        assertEquals(List.of(1, 2), ids(tree.getL1()));
+        assertEquals(List.of(10, 11, 12), ids(tree.getL2()));
+        assertEquals(List.of(1, 2), ids(tree.getChildren(0)));
+        assertEquals(List.of(10, 11), ids(tree.getChildren(1)));
+        assertTrue(tree.getChildren(10).isEmpty());
+        assertTrue(tree.getChildren(100).isEmpty());
+        assertEquals(2, tree.get(12).getPid());
+        assertNull(tree.get(5));
+        assertNull(tree.get(100));
+        // 频道只包含ID、名称和图标
+        assertNull(tree.getChannel().get(0).getLevel());
+        assertEquals("c1", tree.getChannel().get(0).getName());
+        assertThrows(UnsupportedOperationException.class, () -> tree.getL1().clear());
+    }
+
+    @Test
+    void testSparseIds() {
+        CategoryTree tree = new CategoryTree(1, List.of(
+                category(1036000, 0, "L1"), category(1036004, 1036000, "L2")));
+
+        assertEquals("c1036004", tree.get(1036004).getName());
+        assertEquals(List.of(1036004), ids(tree.getChildren(1036000)));
+        assertNull(tree.get(1036001));
+        assertNull(tree.get(-1));
+    }
+
+    private static List<Integer> ids(List<LitemallCategory> categories) {
+        return categories.stream().map(LitemallCategory::getId).collect(Collectors.toList());
+    }
+
+    private static LitemallCategory category(int id, int pid, String level) {
+        LitemallCategory category = new LitemallCategory();
+        category.setId(id);
+        category.setPid(pid);
+        category.setLevel(level);
+        category.setName("c" + id);
+        return category;
+    }
+}
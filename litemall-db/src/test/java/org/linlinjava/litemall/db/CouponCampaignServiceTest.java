@@ -0,0 +1,130 @@
+package org.linlinjava.litemall.db;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.linlinjava.litemall.db.dao.CouponCampaignMapper;
+import org.linlinjava.litemall.db.dao.CouponClaimMapper;
+import org.linlinjava.litemall.db.domain.LitemallCoupon;
+import org.linlinjava.litemall.db.domain.LitemallCouponCampaign;
+import org.linlinjava.litemall.db.domain.LitemallCouponUser;
+import org.linlinjava.litemall.db.service.CouponCampaignService;
+import org.linlinjava.litemall.db.service.CouponExpiryService;
+import org.linlinjava.litemall.db.service.LitemallCouponService;
+import org.linlinjava.litemall.db.util.CouponCampaignConstant;
+import org.linlinjava.litemall.db.util.CouponConstant;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CouponCampaignServiceTest {
+    private static final int USERS = 25;
+
+    private CouponCampaignMapper campaignMapper;
+    private CouponClaimMapper claimMapper;
+    private CouponCampaignService campaignService;
+    private final Set<Integer> holders = new HashSet<>(); // 已持有优惠券的用户
+    private int claimed;
+    private int total;
+    private int lastUserId;
+
+    @BeforeEach
+    void setUp() {
+        campaignMapper = mock(CouponCampaignMapper.class);
+        claimMapper = mock(CouponClaimMapper.class);
+        LitemallCouponService couponService = mock(LitemallCouponService.class);
+        when(couponService.findById(1)).thenReturn(coupon());
+
+        when(campaignMapper.selectUserIds(any(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            int afterId = invocation.getArgument(1);
+            int limit = invocation.getArgument(2);
+            return IntStream.rangeClosed(1, USERS).filter(id -> id > afterId && !holders.contains(id))
+                    .limit(limit).boxed().collect(Collectors.toList());
+        });
+        when(campaignMapper.advance(eq(1), anyInt(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            if (lastUserId != (int) invocation.getArgument(1)) {
+                return 0;
+            }
+            lastUserId = invocation.getArgument(2);
+            return 1;
+        });
+        when(claimMapper.increaseClaimed(eq(1), anyInt())).thenAnswer(invocation -> {
+            int count = invocation.getArgument(1);
+            if (total != 0 && claimed + count > total) {
+                return 0;
+            }
+            claimed += count;
+            return 1;
+        });
+        when(claimMapper.remaining(1)).thenAnswer(invocation -> total == 0 ? null : total - claimed);
+        when(claimMapper.insertCouponUsers(anyList())).thenAnswer(invocation -> {
+            List<LitemallCouponUser> batch = invocation.getArgument(0);
+            batch.forEach(couponUser -> assertTrue(holders.add(couponUser.getUserId())));
+            return batch.size();
+        });
+
+        campaignService = new CouponCampaignService();
+        ReflectionTestUtils.setField(campaignService, "campaignMapper", campaignMapper);
+        ReflectionTestUtils.setField(campaignService, "claimMapper", claimMapper);
+        ReflectionTestUtils.setField(campaignService, "couponService", couponService);
+        ReflectionTestUtils.setField(campaignService, "expiryService", mock(CouponExpiryService.class));
+    }
+
+    @Test
+    void testDistribute() {
+        holders.add(3);
+        LitemallCouponCampaign campaign = campaign();
+        int batches = 0;
+        while (campaignService.distribute(campaign, 10)) {
+            batches++;
+        }
+        assertEquals(3, batches);
+        assertEquals(USERS, holders.size());
+        assertEquals(USERS, lastUserId);
+        verify(claimMapper, times(3)).insertCouponUsers(anyList());
+        verify(campaignMapper).finish(1, CouponCampaignConstant.STATUS_DONE, null);
+    }
+
+    @Test
+    void testResumeUntilExhausted() {
+        total = 15;
+        // 第一批后中断，从记录的位置继续
+        assertTrue(campaignService.distribute(campaign(), 10));
+        assertEquals(10, lastUserId);
+
+        LitemallCouponCampaign resumed = campaign();
+        assertTrue(campaignService.distribute(resumed, 10));
+        assertFalse(campaignService.distribute(resumed, 10));
+
+        assertEquals(15, holders.size());
+        assertEquals(15, lastUserId);
+        assertEquals(15, claimed);
+        verify(campaignMapper).finish(1, CouponCampaignConstant.STATUS_DONE, "优惠券已发完");
+    }
+
+    private LitemallCouponCampaign campaign() {
+        LitemallCouponCampaign campaign = new LitemallCouponCampaign();
+        campaign.setId(1);
+        campaign.setCouponId(1);
+        campaign.setSegment(CouponCampaignConstant.SEGMENT_ALL);
+        campaign.setLastUserId(lastUserId);
+        return campaign;
+    }
+
+    private static LitemallCoupon coupon() {
+        LitemallCoupon coupon = new LitemallCoupon();
+        coupon.setId(1);
+        coupon.setDeleted(false);
+        coupon.setStatus(CouponConstant.STATUS_NORMAL);
+        coupon.setTimeType(CouponConstant.TIME_TYPE_TIME);
+        coupon.setStartTime(LocalDateTime.now().minusDays(1));
+        coupon.setEndTime(LocalDateTime.now().plusDays(10));
+        return coupon;
+    }
+}
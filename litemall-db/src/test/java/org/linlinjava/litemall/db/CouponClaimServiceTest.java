@@ -0,0 +1,222 @@
+package org.linlinjava.litemall.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.linlinjava.litemall.db.dao.CouponClaimMapper;
+import org.linlinjava.litemall.db.domain.LitemallCoupon;
+import org.linlinjava.litemall.db.domain.LitemallCouponLease;
+import org.linlinjava.litemall.db.domain.LitemallCouponUser;
+import org.linlinjava.litemall.db.service.CouponClaimService;
+import org.linlinjava.litemall.db.service.CouponExpiryService;
+import org.linlinjava.litemall.db.util.CouponConstant;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CouponClaimServiceTest {
+    private CouponClaimMapper claimMapper;
+    private PlatformTransactionManager transactionManager;
+    private CouponClaimService claimService;
+    // 数据库中的领取记录，包括其它途径写入的记录
+    private final List<LitemallCouponUser> rows = new ArrayList<>();
+    // 预占ID -> 扣减的数量
+    private final Map<Integer, Integer> consumed = new HashMap<>();
+    private final AtomicInteger leaseIds = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        claimMapper = mock(CouponClaimMapper.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(claimMapper.insertLease(any(), anyInt())).thenAnswer(invocation -> {
+            LitemallCouponLease lease = invocation.getArgument(0);
+            lease.setId(leaseIds.incrementAndGet());
+            return 1;
+        });
+        when(claimMapper.consumeLease(anyInt(), anyInt())).thenAnswer(invocation -> {
+            synchronized (consumed) {
+                consumed.merge(invocation.getArgument(0), invocation.getArgument(1), Integer::sum);
+            }
+            return 1;
+        });
+        when(claimMapper.countUser(eq(1), anyInt())).thenAnswer(invocation -> count(invocation.getArgument(1)));
+        when(claimMapper.countByUsers(eq(1), anyCollection())).thenAnswer(invocation -> {
+            List<Map<String, Object>> counts = new ArrayList<>();
+            for (Integer userId : (Collection<Integer>) invocation.getArgument(1)) {
+                int count = count(userId);
+                if (count > 0) {
+                    counts.add(Map.of("user_id", userId, "count", (long) count));
+                }
+            }
+            return counts;
+        });
+        when(claimMapper.insertCouponUsers(anyList())).thenAnswer(invocation -> {
+            List<LitemallCouponUser> batch = invocation.getArgument(0);
+            synchronized (rows) {
+                rows.addAll(batch);
+            }
+            return batch.size();
+        });
+
+        claimService = new CouponClaimService();
+        ReflectionTestUtils.setField(claimService, "claimMapper", claimMapper);
+        ReflectionTestUtils.setField(claimService, "expiryService", mock(CouponExpiryService.class));
+        ReflectionTestUtils.setField(claimService, "transactionManager", transactionManager);
+        claimService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        claimService.destroy();
+    }
+
+    @Test
+    void testIssueOnlyLeasedQuota() throws Exception {
+        // 数据库先预占64张，之后只剩36张
+        when(claimMapper.increaseClaimed(1, 64)).thenReturn(1, 0);
+        when(claimMapper.remaining(1)).thenReturn(36, 0);
+        when(claimMapper.increaseClaimed(1, 36)).thenReturn(1);
+
+        LitemallCoupon coupon = coupon((short) 1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<CouponClaimService.Result>> results = new ArrayList<>();
+        for (int userId = 1000; userId < 1300; userId++) {
+            int id = userId;
+            results.add(pool.submit(() -> {
+                CouponClaimService.Result result = claimService.claim(coupon, id);
+                // 返回成功时记录已写入
+                if (result == CouponClaimService.Result.SUCCESS) {
+                    assertEquals(1, count(id));
+                }
+                return result;
+            }));
+        }
+        int success = 0;
+        for (Future<CouponClaimService.Result> result : results) {
+            if (result.get() == CouponClaimService.Result.SUCCESS) {
+                success++;
+            } else {
+                assertEquals(CouponClaimService.Result.EXCEED_TOTAL, result.get());
+            }
+        }
+        pool.shutdown();
+
+        assertEquals(100, success);
+        assertEquals(100, rows.size());
+        // 每个预占扣减的数量等于数据库预占的数量
+        assertEquals(Map.of(1, 64, 2, 36), consumed);
+        verify(claimMapper, times(2)).insertLease(any(), anyInt());
+    }
+
+    @Test
+    void testUserLimitCheckedAgainstDatabase() {
+        when(claimMapper.increaseClaimed(1, 64)).thenReturn(1);
+        LitemallCoupon coupon = coupon((short) 2);
+
+        // 用户7已经通过其它途径获得一张
+        rows.add(couponUser(7));
+        assertEquals(CouponClaimService.Result.SUCCESS, claimService.claim(coupon, 7));
+        assertEquals(CouponClaimService.Result.EXCEED_LIMIT, claimService.claim(coupon, 7));
+
+        // 用户8领取后其它节点又写入一张，内存中的数量偏小，写入前按数据库复核
+        assertEquals(CouponClaimService.Result.SUCCESS, claimService.claim(coupon, 8));
+        rows.add(couponUser(8));
+        assertEquals(CouponClaimService.Result.EXCEED_LIMIT, claimService.claim(coupon, 8));
+        assertEquals(2, count(8));
+
+        // 复核拒绝的数量退回预占，继续使用同一个预占
+        assertEquals(CouponClaimService.Result.SUCCESS, claimService.claim(coupon, 9));
+        assertEquals(Map.of(1, 3), consumed);
+        verify(claimMapper, times(1)).insertLease(any(), anyInt());
+    }
+
+    @Test
+    void testWriteFailure() {
+        when(claimMapper.increaseClaimed(1, 64)).thenReturn(1);
+        when(claimMapper.insertCouponUsers(anyList())).thenThrow(new RuntimeException("insert failed"))
+                .thenAnswer(invocation -> {
+                    List<LitemallCouponUser> batch = invocation.getArgument(0);
+                    synchronized (rows) {
+                        rows.addAll(batch);
+                    }
+                    return batch.size();
+                });
+        LitemallCoupon coupon = coupon((short) 1);
+
+        // 写入失败时不返回成功，事务回滚
+        assertThrows(IllegalStateException.class, () -> claimService.claim(coupon, 7));
+        assertEquals(0, count(7));
+        verify(transactionManager).rollback(any());
+
+        // 数量退回预占，用户已领取数量重新查询
+        assertEquals(CouponClaimService.Result.SUCCESS, claimService.claim(coupon, 7));
+        assertEquals(1, count(7));
+        verify(claimMapper, times(1)).insertLease(any(), anyInt());
+    }
+
+    @Test
+    void testExpiredLease() {
+        when(claimMapper.increaseClaimed(1, 64)).thenReturn(1);
+        // 第一个预占已被回收
+        doReturn(0).when(claimMapper).consumeLease(eq(1), anyInt());
+        LitemallCoupon coupon = coupon((short) 1);
+
+        assertThrows(IllegalStateException.class, () -> claimService.claim(coupon, 7));
+        assertEquals(0, count(7));
+
+        // 不再使用已失效的预占
+        assertEquals(CouponClaimService.Result.SUCCESS, claimService.claim(coupon, 7));
+        assertEquals(Map.of(2, 1), consumed);
+    }
+
+    @Test
+    void testDestroyReturnsLeases() {
+        when(claimMapper.increaseClaimed(1, 64)).thenReturn(1);
+        assertEquals(CouponClaimService.Result.SUCCESS, claimService.claim(coupon((short) 1), 7));
+
+        claimService.destroy();
+        verify(claimMapper).returnLeases(List.of(1));
+        verify(claimMapper).deleteLeases(List.of(1));
+        assertThrows(IllegalStateException.class, () -> claimService.claim(coupon((short) 1), 8));
+    }
+
+    @Test
+    void testRecover() {
+        when(claimMapper.selectExpiredLeasesForUpdate()).thenReturn(List.of(5, 6));
+        assertEquals(2, claimService.recover());
+        verify(claimMapper).returnLeases(List.of(5, 6));
+        verify(claimMapper).deleteLeases(List.of(5, 6));
+    }
+
+    private int count(int userId) {
+        synchronized (rows) {
+            return (int) rows.stream().filter(couponUser -> couponUser.getUserId() == userId).count();
+        }
+    }
+
+    private static LitemallCouponUser couponUser(int userId) {
+        LitemallCouponUser couponUser = new LitemallCouponUser();
+        couponUser.setCouponId(1);
+        couponUser.setUserId(userId);
+        return couponUser;
+    }
+
+    private static LitemallCoupon coupon(short limit) {
+        LitemallCoupon coupon = new LitemallCoupon();
+        coupon.setId(1);
+        coupon.setTotal(100);
+        coupon.setLimit(limit);
+        coupon.setTimeType(CouponConstant.TIME_TYPE_DAYS);
+        coupon.setDays((short) 10);
+        return coupon;
+    }
+}
@@ -0,0 +1,60 @@
+package org.linlinjava.litemall.db;
+
+import org.junit.jupiter.api.Test;
+import org.linlinjava.litemall.db.dao.CouponExpiryMapper;
+import org.linlinjava.litemall.db.domain.LitemallCouponUser;
+import org.linlinjava.litemall.db.service.CouponExpiryService;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CouponExpiryServiceTest {
+
+    @Test
+    void testTickPassesFiringTime() throws InterruptedException {
+        CouponExpiryMapper expiryMapper = mock(CouponExpiryMapper.class);
+        CouponExpiryService expiryService = new CouponExpiryService();
+        ReflectionTestUtils.setField(expiryService, "expiryMapper", expiryMapper);
+
+        LocalDateTime endTime = LocalDateTime.now().plusNanos(500_000_000L);
+        expiryService.register(1, endTime);
+        assertEquals(1, expiryService.pending());
+
+        ReflectionTestUtils.invokeMethod(expiryService, "tick");
+        verifyNoInteractions(expiryMapper);
+
+        Thread.sleep(1600);
+        ReflectionTestUtils.invokeMethod(expiryService, "tick");
+        // 到期时间由应用传入，不早于截止时间，数据库时钟较慢时也能匹配
+        verify(expiryMapper).expireCoupons(eq(Set.of(1)), argThat(now -> !now.isBefore(endTime)));
+        verify(expiryMapper).expireCouponUsers(eq(Set.of(1)), argThat(now -> !now.isBefore(endTime)));
+        assertEquals(0, expiryService.pending());
+    }
+
+    @Test
+    void testRegisterAfterCommit() {
+        CouponExpiryService expiryService = new CouponExpiryService();
+        LitemallCouponUser couponUser = new LitemallCouponUser();
+        couponUser.setCouponId(1);
+        couponUser.setEndTime(LocalDateTime.now().plusMinutes(10));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            expiryService.register(List.of(couponUser));
+            // 事务提交前不登记，回滚时不会留下登记
+            assertEquals(0, expiryService.pending());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(1, expiryService.pending());
+    }
+}
@@ -0,0 +1,116 @@
+package org.linlinjava.litemall.db;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.linlinjava.litemall.db.domain.LitemallCart;
+import org.linlinjava.litemall.db.domain.LitemallCoupon;
+import org.linlinjava.litemall.db.domain.LitemallCouponUser;
+import org.linlinjava.litemall.db.service.CouponVerifyService;
+import org.linlinjava.litemall.db.service.LitemallCouponService;
+import org.linlinjava.litemall.db.service.LitemallCouponUserService;
+import org.linlinjava.litemall.db.service.LitemallGoodsService;
+import org.linlinjava.litemall.db.util.CouponConstant;
+import org.linlinjava.litemall.db.util.CouponEligibility;
+import org.linlinjava.litemall.db.util.CouponRule;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class CouponVerifyServiceTest {
+    private LitemallCouponService couponService;
+    private LitemallGoodsService goodsService;
+    private CouponVerifyService verifyService;
+
+    @BeforeEach
+    void setUp() {
+        couponService = mock(LitemallCouponService.class);
+        goodsService = mock(LitemallGoodsService.class);
+        verifyService = new CouponVerifyService();
+        ReflectionTestUtils.setField(verifyService, "couponService", couponService);
+        ReflectionTestUtils.setField(verifyService, "goodsService", goodsService);
+        ReflectionTestUtils.setField(verifyService, "couponUserService", mock(LitemallCouponUserService.class));
+    }
+
+    @Test
+    void testEvaluate() {
+        Map<Integer, CouponRule> rules = new HashMap<>();
+        // 全场满50减5
+        rules.put(1, CouponRule.compile(coupon(1, CouponConstant.GOODS_TYPE_ALL, "50", "5")));
+        // 指定商品100满30减10，购物车中只有20元
+        rules.put(2, CouponRule.compile(coupon(2, CouponConstant.GOODS_TYPE_ARRAY, "30", "10", 100)));
+        // 分类10满40减8
+        rules.put(3, CouponRule.compile(coupon(3, CouponConstant.GOODS_TYPE_CATEGORY, "40", "8", 10)));
+        // 全场满10减20，但已过期
+        LitemallCoupon expired = coupon(4, CouponConstant.GOODS_TYPE_ALL, "10", "20");
+        expired.setEndTime(LocalDateTime.now().minusDays(1));
+        rules.put(4, CouponRule.compile(expired));
+        when(couponService.findRules(anyCollection())).thenReturn(rules);
+        when(goodsService.queryCategoryIds(anyCollection())).thenReturn(Map.of(100, 20, 200, 10));
+
+        List<LitemallCart> carts = List.of(cart(100, "10", 2), cart(200, "45", 1));
+        List<LitemallCouponUser> couponUsers = List.of(couponUser(11, 1), couponUser(12, 2), couponUser(13, 3), couponUser(14, 4));
+        CouponEligibility eligibility = verifyService.evaluate(couponUsers, new BigDecimal("65"), carts);
+
+        assertEquals(2, eligibility.getAvailableCount());
+        assertTrue(eligibility.isAvailable(11));
+        assertFalse(eligibility.isAvailable(12));
+        assertTrue(eligibility.isAvailable(13));
+        assertFalse(eligibility.isAvailable(14));
+        assertEquals(3, eligibility.getBest().getId());
+        assertEquals(13, eligibility.getBestUserCouponId());
+        assertEquals(11, eligibility.find(1, 99));
+        assertNull(eligibility.find(2, 12));
+        verify(goodsService, times(1)).queryCategoryIds(anyCollection());
+        verify(couponService, never()).findById(any());
+    }
+
+    @Test
+    void testNoCategoryLookup() {
+        when(couponService.findRules(anyCollection())).thenReturn(
+                Map.of(1, CouponRule.compile(coupon(1, CouponConstant.GOODS_TYPE_ARRAY, "10", "5", 100))));
+        CouponEligibility eligibility = verifyService.evaluate(List.of(couponUser(11, 1)), new BigDecimal("20"),
+                List.of(cart(100, "20", 1)));
+        assertTrue(eligibility.isAvailable(11));
+        verify(goodsService, never()).queryCategoryIds(anyCollection());
+    }
+
+    private static LitemallCoupon coupon(int id, Short goodsType, String min, String discount, Integer... goodsValue) {
+        LitemallCoupon coupon = new LitemallCoupon();
+        coupon.setId(id);
+        coupon.setDeleted(false);
+        coupon.setStatus(CouponConstant.STATUS_NORMAL);
+        coupon.setTimeType(CouponConstant.TIME_TYPE_TIME);
+        coupon.setStartTime(LocalDateTime.now().minusDays(10));
+        coupon.setEndTime(LocalDateTime.now().plusDays(10));
+        coupon.setGoodsType(goodsType);
+        coupon.setGoodsValue(goodsValue);
+        coupon.setMin(new BigDecimal(min));
+        coupon.setDiscount(new BigDecimal(discount));
+        return coupon;
+    }
+
+    private static LitemallCouponUser couponUser(int id, int couponId) {
+        LitemallCouponUser couponUser = new LitemallCouponUser();
+        couponUser.setId(id);
+        couponUser.setCouponId(couponId);
+        couponUser.setAddTime(LocalDateTime.now());
+        return couponUser;
+    }
+
+    private static LitemallCart cart(int goodsId, String price, int number) {
+        LitemallCart cart = new LitemallCart();
+        cart.setGoodsId(goodsId);
+        cart.setPrice(new BigDecimal(price));
+        cart.setNumber((short) number);
+        return cart;
+    }
+}
@@ -0,0 +1,95 @@
+package org.linlinjava.litemall.db;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.linlinjava.litemall.db.dao.LitemallCartMapper;
+import org.linlinjava.litemall.db.domain.LitemallCart;
+import org.linlinjava.litemall.db.domain.LitemallCartExample;
+import org.linlinjava.litemall.db.service.LitemallCartService;
+import org.linlinjava.litemall.db.util.UserCart;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LitemallCartServiceTest {
+    private LitemallCartMapper cartMapper;
+    private LitemallCartService cartService;
+
+    @BeforeEach
+    void setUp() {
+        cartMapper = mock(LitemallCartMapper.class);
+        List<LitemallCart> rows = new ArrayList<>();
+        rows.add(cart(1, 11, "10", 2, true));
+        rows.add(cart(2, 12, "5", 1, false));
+        when(cartMapper.selectByExample(any(LitemallCartExample.class))).thenReturn(rows);
+        when(cartMapper.insertSelective(any(LitemallCart.class))).thenAnswer(invocation -> {
+            invocation.<LitemallCart>getArgument(0).setId(3);
+            return 1;
+        });
+        when(cartMapper.updateByPrimaryKeySelective(any(LitemallCart.class))).thenReturn(1);
+
+        cartService = new LitemallCartService();
+        ReflectionTestUtils.setField(cartService, "cartMapper", cartMapper);
+    }
+
+    @Test
+    void testWriteThrough() {
+        UserCart userCart = cartService.getCart(1);
+        assertEquals(3, userCart.getGoodsCount());
+        assertEquals(new BigDecimal("25"), userCart.getGoodsAmount());
+        assertEquals(2, userCart.getCheckedGoodsCount());
+        assertEquals(new BigDecimal("20"), userCart.getCheckedGoodsAmount());
+
+        cartService.add(cart(null, 13, "3", 4, true));
+        LitemallCart exist = cartService.queryExist(11, 11, 1);
+        exist.setNumber((short) 5);
+        cartService.updateById(exist);
+        cartService.updateCheck(1, List.of(12), true);
+        cartService.deleteById(1, 3);
+
+        userCart = cartService.getCart(1);
+        assertEquals(6, userCart.getGoodsCount());
+        assertEquals(6, userCart.getCheckedGoodsCount());
+        assertEquals(new BigDecimal("55"), userCart.getCheckedGoodsAmount());
+        assertNull(cartService.findById(1, 3));
+
+        cartService.clearGoods(1);
+        assertTrue(cartService.getCart(1).getItems().isEmpty());
+        // 修改都在缓存中应用，只加载一次
+        verify(cartMapper, times(1)).selectByExample(any(LitemallCartExample.class));
+    }
+
+    @Test
+    void testEvictInTransaction() {
+        cartService.getCart(1);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cartService.updateCheck(1, List.of(11), false);
+            assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        cartService.getCart(1);
+        verify(cartMapper, times(2)).selectByExample(any(LitemallCartExample.class));
+    }
+
+    private static LitemallCart cart(Integer id, int productId, String price, int number, boolean checked) {
+        LitemallCart cart = new LitemallCart();
+        cart.setId(id);
+        cart.setUserId(1);
+        cart.setGoodsId(productId);
+        cart.setProductId(productId);
+        cart.setPrice(new BigDecimal(price));
+        cart.setNumber((short) number);
+        cart.setChecked(checked);
+        cart.setDeleted(false);
+        return cart;
+    }
+}
@@ -0,0 +1,58 @@
+package org.linlinjava.litemall.db;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.linlinjava.litemall.db.dao.LitemallStorageMapper;
+import org.linlinjava.litemall.db.dao.StorageRefMapper;
+import org.linlinjava.litemall.db.service.LitemallStorageService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class LitemallStorageServiceTest {
+    private static final String KEY = "a.jpg";
+
+    private LitemallStorageMapper storageMapper;
+    private StorageRefMapper storageRefMapper;
+    private LitemallStorageService storageService;
+
+    @BeforeEach
+    void setUp() {
+        storageMapper = mock(LitemallStorageMapper.class);
+        storageRefMapper = mock(StorageRefMapper.class);
+        storageService = new LitemallStorageService();
+        ReflectionTestUtils.setField(storageService, "storageMapper", storageMapper);
+        ReflectionTestUtils.setField(storageService, "storageRefMapper", storageRefMapper);
+    }
+
+    @Test
+    void testReleaseByKey() {
+        when(storageMapper.countByExample(any())).thenReturn(1L);
+        // 还有其它引用时只减少引用次数
+        when(storageRefMapper.release(KEY)).thenReturn(1);
+        assertFalse(storageService.releaseByKey(KEY));
+        verify(storageRefMapper, never()).releaseLast(KEY);
+
+        // 最后一次引用时删除记录
+        when(storageRefMapper.release(KEY)).thenReturn(0);
+        when(storageRefMapper.releaseLast(KEY)).thenReturn(1);
+        assertTrue(storageService.releaseByKey(KEY));
+    }
+
+    @Test
+    void testReleaseByKeyRetry() {
+        when(storageMapper.countByExample(any())).thenReturn(1L);
+        // 两次更新之间其它节点增加了引用
+        when(storageRefMapper.release(KEY)).thenReturn(0, 1);
+        when(storageRefMapper.releaseLast(KEY)).thenReturn(0);
+        assertFalse(storageService.releaseByKey(KEY));
+        verify(storageRefMapper, times(2)).release(KEY);
+
+        // 记录已不存在时不删除文件
+        when(storageMapper.countByExample(any())).thenReturn(0L);
+        assertFalse(storageService.releaseByKey(KEY));
+        verify(storageRefMapper, times(2)).release(KEY);
+    }
+}
@@ -0,0 +1,58 @@
+package org.linlinjava.litemall.db;
+
+import org.junit.jupiter.api.Test;
+import org.linlinjava.litemall.db.util.LruCache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LruCacheTest {
+
+    @Test
+    void testEvictLeastRecentlyUsed() {
+        LruCache<String, Integer> cache = new LruCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        assertEquals(1, cache.get("a"));
+        cache.put("c", 3);
+
+        assertEquals(1, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(3, cache.get("c"));
+        assertEquals(2, cache.size());
+
+        cache.remove("a");
+        assertNull(cache.get("a"));
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testExpire() throws InterruptedException {
+        LruCache<String, Integer> cache = new LruCache<>(10, 100);
+        cache.put("a", 1);
+        assertEquals(1, cache.get("a"));
+
+        Thread.sleep(150);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+        assertNull(cache.computeIfPresent("a", v -> v + 1));
+    }
+
+    @Test
+    void testComputeIfPresent() throws InterruptedException {
+        LruCache<String, Integer> cache = new LruCache<>(10, 200);
+        assertNull(cache.computeIfPresent("a", v -> v + 1));
+        assertNull(cache.get("a"));
+
+        cache.put("a", 1);
+        Thread.sleep(120);
+        assertEquals(2, cache.computeIfPresent("a", v -> v + 1));
+        // 替换不延长过期时间
+        Thread.sleep(120);
+        assertNull(cache.get("a"));
+
+        cache.put("b", 1);
+        assertNull(cache.computeIfPresent("b", v -> null));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,45 @@
+package org.linlinjava.litemall.db;
+
+import org.junit.jupiter.api.Test;
+import org.linlinjava.litemall.db.dao.OrderDeadlineMapper;
+import org.linlinjava.litemall.db.service.OrderDeadlineService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderDeadlineServiceTest {
+
+    @Test
+    void testProcessDue() {
+        OrderDeadlineMapper deadlineMapper = mock(OrderDeadlineMapper.class);
+        when(deadlineMapper.selectDue(10)).thenReturn(List.of(
+                Map.of("id", 1, "order_id", 100, "type", (byte) 1),
+                Map.of("id", 2, "order_id", 200, "type", (byte) 2),
+                Map.of("id", 3, "order_id", 300, "type", (byte) 1)));
+        OrderDeadlineService deadlineService = new OrderDeadlineService();
+        ReflectionTestUtils.setField(deadlineService, "deadlineMapper", deadlineMapper);
+
+        assertEquals(3, deadlineService.processDue(10, 7));
+        verify(deadlineMapper).confirm(List.of(100, 300));
+        verify(deadlineMapper).scheduleComment(List.of(100, 300), 7);
+        verify(deadlineMapper).expireOrderComments(List.of(200));
+        verify(deadlineMapper).expireOrderGoodsComments(List.of(200));
+        verify(deadlineMapper).delete(List.of(1, 2, 3));
+    }
+
+    @Test
+    void testNothingDue() {
+        OrderDeadlineMapper deadlineMapper = mock(OrderDeadlineMapper.class);
+        when(deadlineMapper.selectDue(anyInt())).thenReturn(List.of());
+        OrderDeadlineService deadlineService = new OrderDeadlineService();
+        ReflectionTestUtils.setField(deadlineService, "deadlineMapper", deadlineMapper);
+
+        assertEquals(0, deadlineService.processDue(10, 7));
+        verify(deadlineMapper, never()).delete(anyCollection());
+    }
+}
@@ -0,0 +1,144 @@
+package org.linlinjava.litemall.db;
+
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.linlinjava.litemall.db.dao.StatMapper;
+import org.linlinjava.litemall.db.service.OrderStatStore;
+import org.linlinjava.litemall.db.util.HyperLogLog;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class OrderStatStoreTest {
+    private StatMapper statMapper;
+    private OrderStatStore store;
+
+    @BeforeEach
+    void setUp() {
+        statMapper = mock(StatMapper.class);
+        doAnswer(invocation -> {
+            ResultHandler<Map<String, Object>> handler = invocation.getArgument(0);
+            DefaultResultContext<Map<String, Object>> context = new DefaultResultContext<>();
+            for (Map<String, Object> row : List.of(
+                    row(1, 10, "10.00", "2024-01-01", 1, 11),
+                    row(1, 10, "10.00", "2024-01-01", 1, 12),
+                    row(1, 10, "10.00", "2024-01-01", 2, 21),
+                    row(2, 11, "20.00", "2024-01-02", 1, 11),
+                    row(3, 10, "5.50", "2024-02-01", 2, 21))) {
+                context.nextResultObject(row);
+                handler.handleResult(context);
+            }
+            return null;
+        }).when(statMapper).scanPaidOrderCategories(any());
+
+        store = new OrderStatStore();
+        ReflectionTestUtils.setField(store, "statMapper", statMapper);
+        store.reload();
+    }
+
+    @Test
+    void testStatOrder() {
+        assertTrue(store.isLoaded());
+
+        List<Map<String, Object>> rows = store.statOrder("month", null, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+        assertEquals(2, rows.size());
+        assertEquals("2024-01", rows.get(0).get("period"));
+        assertEquals(2L, rows.get(0).get("orders"));
+        assertEquals(2L, rows.get(0).get("customers"));
+        assertEquals(new BigDecimal("30.00"), rows.get(0).get("amount"));
+        assertEquals(new BigDecimal("5.50"), rows.get(1).get("amount"));
+
+        // 订单1包含一级类目1下的两个二级类目，只计算一次
+        rows = store.statOrder("day", 1, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31));
+        assertEquals(2, rows.size());
+        assertEquals(1L, rows.get(0).get("orders"));
+
+        rows = store.statOrder("year", 21, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+        assertEquals(1, rows.size());
+        assertEquals(2024, rows.get(0).get("period"));
+        assertEquals(2L, rows.get(0).get("orders"));
+        assertEquals(1L, rows.get(0).get("customers"));
+        assertEquals(new BigDecimal("15.50"), rows.get(0).get("amount"));
+    }
+
+    @Test
+    void testAppend() {
+        when(statMapper.selectPaidOrderCategories(4)).thenReturn(List.of(row(4, 12, "8.00", "2024-02-03", 3, 31)));
+        store.append(4);
+
+        List<Map<String, Object>> rows = store.statOrder("quarter", null, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31));
+        assertEquals(1, rows.size());
+        assertEquals("2024-Q1", rows.get(0).get("period"));
+        assertEquals(4L, rows.get(0).get("orders"));
+        assertEquals(3L, rows.get(0).get("customers"));
+        assertEquals(new BigDecimal("43.50"), rows.get(0).get("amount"));
+
+        rows = store.statOrder("month", 31, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31));
+        assertEquals(1, rows.size());
+        assertEquals("2024-02", rows.get(0).get("period"));
+    }
+
+    @Test
+    void testAppendAfterCommit() {
+        when(statMapper.selectPaidOrderCategories(anyInt())).thenReturn(List.of(row(4, 12, "8.00", "2024-02-03", 3, 31)));
+
+        // 回滚的付款不追加
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            store.append(4);
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verify(statMapper, never()).selectPaidOrderCategories(anyInt());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            store.append(4);
+            verify(statMapper, never()).selectPaidOrderCategories(anyInt());
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verify(statMapper).selectPaidOrderCategories(4);
+        List<Map<String, Object>> rows = store.statOrder("month", 31, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31));
+        assertEquals(1, rows.size());
+    }
+
+    @Test
+    void testHyperLogLog() {
+        HyperLogLog hll = new HyperLogLog(11);
+        for (int i = 0; i < 100000; i++) {
+            hll.add(i % 20000);
+        }
+        assertEquals(20000, hll.estimate(), 20000 * 0.08);
+    }
+
+    private static Map<String, Object> row(int orderId, int userId, String amount, String day, int l1, int l2) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", orderId);
+        row.put("user_id", userId);
+        row.put("actual_price", new BigDecimal(amount));
+        row.put("epoch_day", LocalDate.parse(day).toEpochDay());
+        row.put("category_l1", l1);
+        row.put("category_l2", l2);
+        return row;
+    }
+}
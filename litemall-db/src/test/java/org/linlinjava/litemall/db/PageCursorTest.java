@@ -0,0 +1,61 @@
+package org.linlinjava.litemall.db;
+
+import org.junit.jupiter.api.Test;
+import org.linlinjava.litemall.db.domain.LitemallUser;
+import org.linlinjava.litemall.db.domain.LitemallUserExample;
+import org.linlinjava.litemall.db.util.CursorPage;
+import org.linlinjava.litemall.db.util.PageCursor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageCursorTest {
+    @Test
+    void testNextPage() {
+        List<LitemallUser> rows = new ArrayList<>();
+        for (int i = 3; i > 0; i--) {
+            LitemallUser user = new LitemallUser();
+            user.setId(i);
+            user.setAddTime(LocalDateTime.of(2024, 1, 1, 0, 0, i));
+            rows.add(user);
+        }
+
+        PageCursor first = PageCursor.of("", "add_time", "desc");
+        assertTrue(first.isFirst());
+        CursorPage<LitemallUser> page = first.page(rows, 2, LitemallUser::getAddTime, LitemallUser::getId, null);
+        assertEquals(2, page.size());
+        assertTrue(page.hasMore());
+
+        PageCursor next = PageCursor.of(page.getNextCursor(), "add_time", "desc");
+        assertFalse(next.isFirst());
+        assertEquals("o.add_time desc, o.id desc", next.orderBy("o"));
+        assertEquals("(add_time < '2024-01-01 00:00:02' or (add_time = '2024-01-01 00:00:02' and id < 2))", next.condition(null));
+
+        LitemallUserExample example = new LitemallUserExample();
+        next.where(example::or, criteria -> criteria.andDeletedEqualTo(false),
+                LitemallUserExample.Criteria::andAddTimeLessThan, LitemallUserExample.Criteria::andAddTimeGreaterThan,
+                LitemallUserExample.Criteria::andAddTimeEqualTo,
+                LitemallUserExample.Criteria::andIdLessThan, LitemallUserExample.Criteria::andIdGreaterThan);
+        assertEquals(2, example.getOredCriteria().size());
+        assertEquals(2, example.getOredCriteria().get(0).getCriteria().size());
+        assertEquals(3, example.getOredCriteria().get(1).getCriteria().size());
+
+        CursorPage<LitemallUser> last = next.page(rows.subList(2, 3), 2, LitemallUser::getAddTime, LitemallUser::getId, 3L);
+        assertFalse(last.hasMore());
+        assertEquals(3L, last.getTotal());
+    }
+
+    @Test
+    void testInvalidCursor() {
+        String token = PageCursor.of(null, "id", "asc")
+                .page(List.of(1, 2), 1, id -> null, id -> id, null).getNextCursor();
+        assertEquals("id > 1", PageCursor.of(token, "id", "asc").condition(null));
+
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.of(token, "id", "desc"));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.of("not a cursor", "id", "asc"));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.of(null, "mobile", "asc"));
+    }
+}
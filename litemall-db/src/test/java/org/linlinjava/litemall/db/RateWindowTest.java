@@ -0,0 +1,34 @@
+package org.linlinjava.litemall.db;
+
+import org.junit.jupiter.api.Test;
+import org.linlinjava.litemall.db.util.RateWindow;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RateWindowTest {
+    @Test
+    void testSlidingWindow() {
+        AtomicLong now = new AtomicLong(1000);
+        RateWindow window = new RateWindow(60, now::get);
+
+        window.record(100);
+        window.record(250);
+        now.set(1030);
+        window.record(50);
+        assertEquals(3, window.count());
+        assertEquals(400, window.amount());
+
+        // 第一秒的记录滑出窗口
+        now.set(1060);
+        assertEquals(1, window.count());
+        assertEquals(50, window.amount());
+
+        // 复用同一个桶时先清零
+        now.set(1090);
+        window.record(10);
+        assertEquals(1, window.count());
+        assertEquals(10, window.amount());
+    }
+}
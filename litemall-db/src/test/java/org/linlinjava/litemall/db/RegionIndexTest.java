@@ -0,0 +1,48 @@
+package org.linlinjava.litemall.db;
+
+import org.junit.jupiter.api.Test;
+import org.linlinjava.litemall.db.domain.LitemallRegion;
+import org.linlinjava.litemall.db.util.RegionIndex;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegionIndexTest {
+
+    @Test
+    void testIndex() {
+        RegionIndex index = new RegionIndex(List.of(
+                region(30, 20, "西湖区", 3), region(1, 0, "浙江省", 1), region(2, 0, "江苏省", 1),
+                region(20, 1, "杭州市", 2), region(31, 20, "滨江区", 3), region(21, 2, "南京市", 2)));
+
+        assertEquals(6, index.size());
+        assertEquals("浙江省杭州市西湖区", index.getFullName(30));
+        assertEquals("江苏省南京市", index.getFullName(21));
+        assertEquals("杭州市", index.getName(20));
+        assertNull(index.getFullName(99));
+        assertEquals(List.of(1, 2), ids(index.getChildren(0)));
+        assertEquals(List.of(30, 31), ids(index.getChildren(20)));
+        assertTrue(index.getChildren(30).isEmpty());
+        assertEquals(Byte.valueOf((byte) 3), index.get(31).getType());
+
+        List<String> tree = index.toTree((region, children) ->
+                region.getName() + (children == null ? "" : children.toString()));
+        assertEquals(List.of("浙江省[杭州市[西湖区, 滨江区]]", "江苏省[南京市]"), tree);
+    }
+
+    private static List<Integer> ids(List<LitemallRegion> regions) {
+        return regions.stream().map(LitemallRegion::getId).collect(Collectors.toList());
+    }
+
+    private static LitemallRegion region(int id, int pid, String name, int type) {
+        LitemallRegion region = new LitemallRegion();
+        region.setId(id);
+        region.setPid(pid);
+        region.setName(name);
+        region.setType((byte) type);
+        region.setCode(id * 100);
+        return region;
+    }
+}
@@ -0,0 +1,43 @@
+package org.linlinjava.litemall.db;
+
+import org.junit.jupiter.api.Test;
+import org.linlinjava.litemall.db.util.TimingWheel;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    void testAdvance() {
+        TimingWheel wheel = new TimingWheel(8, 100);
+        assertTrue(wheel.add(1, 101));
+        assertFalse(wheel.add(1, 101));
+        assertTrue(wheel.add(2, 103));
+        // 超过一圈，与103共用一个槽
+        assertTrue(wheel.add(3, 111));
+        // 已经到期的在下一秒到期
+        assertTrue(wheel.add(4, 90));
+        assertEquals(4, wheel.size());
+
+        assertEquals(Set.of(1, 4), wheel.advance(101));
+        assertEquals(Set.of(), wheel.advance(102));
+        assertEquals(Set.of(2), wheel.advance(103));
+        assertEquals(Set.of(), wheel.advance(110));
+        assertEquals(Set.of(3), wheel.advance(111));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testAdvanceOverRound() {
+        TimingWheel wheel = new TimingWheel(8, 100);
+        wheel.add(1, 102);
+        wheel.add(2, 120);
+        wheel.add(3, 130);
+        // 停顿超过一圈
+        assertEquals(Set.of(1, 2), wheel.advance(125));
+        assertEquals(Set.of(3), wheel.advance(130));
+        assertEquals(0, wheel.size());
+    }
+}
@@ -1,12 +1,10 @@
 package org.linlinjava.litemall.wx.service;
 
-import org.linlinjava.litemall.db.domain.LitemallRegion;
 import org.linlinjava.litemall.db.service.LitemallRegionService;
+import org.linlinjava.litemall.db.util.RegionIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
-
 /**
  * @author zhy
  * @date 2019-01-17 23:07
@@ -17,18 +15,10 @@ public class GetRegionService {
 	@Autowired
 	private LitemallRegionService regionService;
 
-	private static List<LitemallRegion> litemallRegions;
-
-	protected List<LitemallRegion> getLitemallRegions() {
-		if(litemallRegions==null){
-			createRegion();
-		}
-		return litemallRegions;
-	}
-
-	private synchronized void createRegion(){
-		if (litemallRegions == null) {
-			litemallRegions = regionService.getAll();
-		}
+	/**
+	 * 省市区索引，按ID查询区域名称和全称
+	 */
+	protected RegionIndex getRegionIndex() {
+		return regionService.getIndex();
 	}
 }
@@ -21,6 +21,7 @@ import org.linlinjava.litemall.core.system.SystemConfig;
 import org.linlinjava.litemall.core.task.TaskService;
 import org.linlinjava.litemall.core.util.JacksonUtil;
 import org.linlinjava.litemall.core.util.ResponseUtil;
+import org.linlinjava.litemall.core.wordcloud.WordCloudIndex;
 import org.linlinjava.litemall.db.domain.*;
 import org.linlinjava.litemall.db.service.*;
 import org.linlinjava.litemall.db.util.CouponUserConstant;
@@ -73,6 +74,10 @@ public class WxOrderService {
     @Autowired
     private LitemallOrderGoodsService orderGoodsService;
     @Autowired
+    private OrderStatStore orderStatStore;
+    @Autowired
+    private WordCloudIndex wordCloudIndex;
+    @Autowired
     private LitemallAddressService addressService;
     @Autowired
     private LitemallCartService cartService;
@@ -104,6 +109,8 @@ public class WxOrderService {
     private TaskService taskService;
     @Autowired
     private LitemallAftersaleService aftersaleService;
+    @Autowired
+    private OrderDeadlineService deadlineService;
 
     /**
      * 订单列表
@@ -351,10 +358,7 @@ public class WxOrderService {
 
 
         // 根据订单商品总价计算运费，满足条件（例如88元）则免运费，否则需要支付运费（例如8元）；
-        BigDecimal freightPrice = new BigDecimal(0);
-        if (checkedGoodsPrice.compareTo(SystemConfig.getFreightLimit()) < 0) {
-            freightPrice = SystemConfig.getFreight();
-        }
+        BigDecimal freightPrice = SystemConfig.getFreightPrice(checkedGoodsPrice);
 
         // 可以使用的其他钱，例如用户积分
         BigDecimal integralPrice = new BigDecimal(0);
@@ -416,7 +420,7 @@ public class WxOrderService {
         if(cartId.equals(0)){
             cartService.clearGoods(userId);
         }else{
-            cartService.deleteById(cartId);
+            cartService.deleteById(userId, cartId);
         }
 
         // 商品货品数量减少
@@ -477,6 +481,7 @@ public class WxOrderService {
             o.setId(orderId);
             o.setOrderStatus(OrderUtil.STATUS_PAY);
             orderService.updateSelective(o);
+            orderStatStore.append(orderId);
 
             //  支付成功，有团购信息，更新团购信息
             LitemallGroupon groupon = grouponService.queryByOrderId(order.getId());
@@ -777,6 +782,7 @@ public class WxOrderService {
         if (orderService.updateWithOptimisticLocker(order) == 0) {
             return WxPayNotifyResponse.fail("更新数据已失效");
         }
+        orderStatStore.append(order.getId());
 
         //  支付成功，有团购信息，更新团购信息
         LitemallGroupon groupon = grouponService.queryByOrderId(order.getId());
@@ -874,6 +880,7 @@ public class WxOrderService {
      * @param body   订单信息，{ orderId：xxx }
      * @return 订单操作结果
      */
+    @Transactional
     public Object confirm(Integer userId, String body) {
         if (userId == null) {
             return ResponseUtil.unlogin();
@@ -904,6 +911,7 @@ public class WxOrderService {
         if (orderService.updateWithOptimisticLocker(order) == 0) {
             return ResponseUtil.updatedDateExpired();
         }
+        deadlineService.scheduleComment(orderId, order.getConfirmTime(), SystemConfig.getOrderComment());
         return ResponseUtil.ok();
     }
 
@@ -1033,6 +1041,7 @@ public class WxOrderService {
         comment.setHasPicture(hasPicture);
         comment.setPicUrls(picUrls.toArray(new String[]{}));
         commentService.save(comment);
+        wordCloudIndex.addComment(comment);
 
         // 2. 更新订单商品的评价列表
         orderGoods.setComment(comment.getId());
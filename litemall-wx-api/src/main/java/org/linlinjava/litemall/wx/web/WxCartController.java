@@ -9,6 +9,8 @@ import org.linlinjava.litemall.core.util.JacksonUtil;
 import org.linlinjava.litemall.core.util.ResponseUtil;
 import org.linlinjava.litemall.db.domain.*;
 import org.linlinjava.litemall.db.service.*;
+import org.linlinjava.litemall.db.util.CouponEligibility;
+import org.linlinjava.litemall.db.util.UserCart;
 import org.linlinjava.litemall.wx.annotation.LoginUser;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.validation.annotation.Validated;
@@ -42,8 +44,6 @@ public class WxCartController {
     @Autowired
     private LitemallCouponService couponService;
     @Autowired
-    private LitemallCouponUserService couponUserService;
-    @Autowired
     private CouponVerifyService couponVerifyService;
 
     /**
@@ -58,42 +58,40 @@ public class WxCartController {
             return ResponseUtil.unlogin();
         }
 
-        List<LitemallCart> list = cartService.queryByUid(userId);
-        List<LitemallCart> cartList = new ArrayList<>();
+        UserCart userCart = cartService.getCart(userId);
         // TODO
         // 如果系统检查商品已删除或已下架，则系统自动删除。
         // 更好的效果应该是告知用户商品失效，允许用户点击按钮来清除失效商品。
-        for (LitemallCart cart : list) {
-            LitemallGoods goods = goodsService.findById(cart.getGoodsId());
-            if (goods == null || !goods.getIsOnSale()) {
-                cartService.deleteById(cart.getId());
-                logger.debug("系统自动删除失效购物车商品 goodsId=" + cart.getGoodsId() + " productId=" + cart.getProductId());
+        if (!userCart.getItems().isEmpty()) {
+            Set<Integer> goodsIds = new HashSet<>();
+            for (LitemallCart cart : userCart.getItems()) {
+                goodsIds.add(cart.getGoodsId());
             }
-            else{
-                cartList.add(cart);
+            Set<Integer> onSaleIds = new HashSet<>();
+            for (LitemallGoods goods : goodsService.queryByIds(goodsIds.toArray(new Integer[0]))) {
+                onSaleIds.add(goods.getId());
             }
-        }
-
-        Integer goodsCount = 0;
-        BigDecimal goodsAmount = new BigDecimal(0.00);
-        Integer checkedGoodsCount = 0;
-        BigDecimal checkedGoodsAmount = new BigDecimal(0.00);
-        for (LitemallCart cart : cartList) {
-            goodsCount += cart.getNumber();
-            goodsAmount = goodsAmount.add(cart.getPrice().multiply(new BigDecimal(cart.getNumber())));
-            if (cart.getChecked()) {
-                checkedGoodsCount += cart.getNumber();
-                checkedGoodsAmount = checkedGoodsAmount.add(cart.getPrice().multiply(new BigDecimal(cart.getNumber())));
+            boolean removed = false;
+            for (LitemallCart cart : userCart.getItems()) {
+                if (!onSaleIds.contains(cart.getGoodsId())) {
+                    cartService.deleteById(userId, cart.getId());
+                    removed = true;
+                    logger.debug("系统自动删除失效购物车商品 goodsId=" + cart.getGoodsId() + " productId=" + cart.getProductId());
+                }
+            }
+            if (removed) {
+                userCart = cartService.getCart(userId);
             }
         }
+
         Map<String, Object> cartTotal = new HashMap<>();
-        cartTotal.put("goodsCount", goodsCount);
-        cartTotal.put("goodsAmount", goodsAmount);
-        cartTotal.put("checkedGoodsCount", checkedGoodsCount);
-        cartTotal.put("checkedGoodsAmount", checkedGoodsAmount);
+        cartTotal.put("goodsCount", userCart.getGoodsCount());
+        cartTotal.put("goodsAmount", userCart.getGoodsAmount());
+        cartTotal.put("checkedGoodsCount", userCart.getCheckedGoodsCount());
+        cartTotal.put("checkedGoodsAmount", userCart.getCheckedGoodsAmount());
 
         Map<String, Object> result = new HashMap<>();
-        result.put("cartList", cartList);
+        result.put("cartList", userCart.getItems());
         result.put("cartTotal", cartTotal);
 
         return ResponseUtil.ok(result);
@@ -383,13 +381,7 @@ public class WxCartController {
             return ResponseUtil.ok(0);
         }
 
-        int goodsCount = 0;
-        List<LitemallCart> cartList = cartService.queryByUid(userId);
-        for (LitemallCart cart : cartList) {
-            goodsCount += cart.getNumber();
-        }
-
-        return ResponseUtil.ok(goodsCount);
+        return ResponseUtil.ok(cartService.getCart(userId).getGoodsCount());
     }
 
     /**
@@ -439,7 +431,7 @@ public class WxCartController {
         // 商品价格
         List<LitemallCart> checkedGoodsList = null;
         if (cartId == null || cartId.equals(0)) {
-            checkedGoodsList = cartService.queryByUidAndChecked(userId);
+            checkedGoodsList = cartService.getCart(userId).getChecked();
         } else {
             LitemallCart cart = cartService.findById(userId, cartId);
             if (cart == null) {
@@ -458,27 +450,13 @@ public class WxCartController {
             }
         }
 
-        // 计算优惠券可用情况
-        BigDecimal tmpCouponPrice = new BigDecimal(0.00);
-        Integer tmpCouponId = 0;
-        Integer tmpUserCouponId = 0;
-        int tmpCouponLength = 0;
-        List<LitemallCouponUser> couponUserList = couponUserService.queryAll(userId);
-        for(LitemallCouponUser couponUser : couponUserList){
-            LitemallCoupon coupon = couponVerifyService.checkCoupon(userId, couponUser.getCouponId(), couponUser.getId(), checkedGoodsPrice, checkedGoodsList);
-            if(coupon == null){
-                continue;
-            }
-
-            tmpCouponLength++;
-            if(tmpCouponPrice.compareTo(coupon.getDiscount()) == -1){
-                tmpCouponPrice = coupon.getDiscount();
-                tmpCouponId = coupon.getId();
-                tmpUserCouponId = couponUser.getId();
-            }
-        }
+        // 计算优惠券可用情况，一次计算用户的所有优惠券
+        CouponEligibility eligibility = couponVerifyService.evaluate(userId, checkedGoodsPrice, checkedGoodsList);
+        BigDecimal tmpCouponPrice = eligibility.getBestDiscount();
+        Integer tmpCouponId = eligibility.getBest() == null ? 0 : eligibility.getBest().getId();
+        Integer tmpUserCouponId = eligibility.getBest() == null ? 0 : eligibility.getBestUserCouponId();
         // 获取优惠券减免金额，优惠券可用数量
-        int availableCouponLength = tmpCouponLength;
+        int availableCouponLength = eligibility.getAvailableCount();
         BigDecimal couponPrice = new BigDecimal(0);
         // 这里存在三种情况
         // 1. 用户不想使用优惠券，则不处理
@@ -494,23 +472,21 @@ public class WxCartController {
             userCouponId = tmpUserCouponId;
         }
         else {
-            LitemallCoupon coupon = couponVerifyService.checkCoupon(userId, couponId, userCouponId, checkedGoodsPrice, checkedGoodsList);
+            Integer selected = eligibility.find(couponId, userCouponId);
             // 用户选择的优惠券有问题，则选择合适优惠券，否则使用用户选择的优惠券
-            if(coupon == null){
+            if(selected == null){
                 couponPrice = tmpCouponPrice;
                 couponId = tmpCouponId;
                 userCouponId = tmpUserCouponId;
             }
             else {
-                couponPrice = coupon.getDiscount();
+                userCouponId = selected;
+                couponPrice = eligibility.getCoupon(selected).getDiscount();
             }
         }
 
         // 根据订单商品总价计算运费，满88则免运费，否则8元；
-        BigDecimal freightPrice = new BigDecimal(0.00);
-        if (checkedGoodsPrice.compareTo(SystemConfig.getFreightLimit()) < 0) {
-            freightPrice = SystemConfig.getFreight();
-        }
+        BigDecimal freightPrice = SystemConfig.getFreightPrice(checkedGoodsPrice);
 
         // 可以使用的其他钱，例如用户积分
         BigDecimal integralPrice = new BigDecimal(0.00);
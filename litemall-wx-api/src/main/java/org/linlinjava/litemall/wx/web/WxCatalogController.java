@@ -61,7 +61,7 @@ public class WxCatalogController {
         // 当前一级分类目录
         LitemallCategory currentCategory = null;
         if (id != null) {
-            currentCategory = categoryService.findById(id);
+            currentCategory = categoryService.findCachedById(id);
         } else {
              if (l1CatList.size() > 0) {
                 currentCategory = l1CatList.get(0);
@@ -134,7 +134,7 @@ public class WxCatalogController {
     @GetMapping("current")
     public Object current(@NotNull Integer id) {
         // 当前分类
-        LitemallCategory currentCategory = categoryService.findById(id);
+        LitemallCategory currentCategory = categoryService.findCachedById(id);
         if(currentCategory == null){
             return ResponseUtil.badArgumentValue();
         }
@@ -10,6 +10,7 @@ import jakarta.validation.constraints.NotNull;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.linlinjava.litemall.core.storage.StorageService;
 import org.linlinjava.litemall.core.util.JacksonUtil;
 import org.linlinjava.litemall.core.util.ResponseUtil;
 import org.linlinjava.litemall.core.validator.Order;
@@ -45,6 +46,8 @@ public class WxCollectController {
     private LitemallGoodsService goodsService;
     @Autowired
     private LitemallTopicService topicService;
+    @Autowired
+    private StorageService storageService;
 
     /**
      * 用户收藏列表
@@ -79,7 +82,7 @@ public class WxCollectController {
                 LitemallGoods goods = goodsService.findById(collect.getValueId());
                 c.put("name", goods.getName());
                 c.put("brief", goods.getBrief());
-                c.put("picUrl", goods.getPicUrl());
+                c.put("picUrl", storageService.generateThumbnailUrl(goods.getPicUrl(), StorageService.LIST_IMAGE_SIZE));
                 c.put("retailPrice", goods.getRetailPrice());
             } else {
             	//查询专题信息
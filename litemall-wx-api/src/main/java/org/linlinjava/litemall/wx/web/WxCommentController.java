@@ -4,6 +4,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.linlinjava.litemall.core.util.ResponseUtil;
+import org.linlinjava.litemall.core.wordcloud.WordCloudIndex;
 import org.linlinjava.litemall.db.domain.LitemallComment;
 import org.linlinjava.litemall.db.service.LitemallCommentService;
 import org.linlinjava.litemall.db.service.LitemallGoodsService;
@@ -41,6 +42,8 @@ public class WxCommentController {
     private LitemallGoodsService goodsService;
     @Autowired
     private LitemallTopicService topicService;
+    @Autowired
+    private WordCloudIndex wordCloudIndex;
 
     private Object validate(LitemallComment comment) {
         String content = comment.getContent();
@@ -98,6 +101,7 @@ public class WxCommentController {
 
         comment.setUserId(userId);
         commentService.save(comment);
+        wordCloudIndex.addComment(comment);
         return ResponseUtil.ok(comment);
     }
 
@@ -110,8 +114,9 @@ public class WxCommentController {
      */
     @GetMapping("count")
     public Object count(@NotNull Byte type, @NotNull Integer valueId) {
-        int allCount = commentService.count(type, valueId, 0);
-        int hasPicCount = commentService.count(type, valueId, 1);
+        Map<String, Object> summary = commentService.querySummary(type, valueId);
+        Object allCount = summary.getOrDefault("comment_count", 0);
+        Object hasPicCount = summary.getOrDefault("picture_count", 0);
         Map<String, Object> entity = new HashMap<String, Object>();
         entity.put("allCount", allCount);
         entity.put("hasPicCount", hasPicCount);
@@ -12,6 +12,8 @@ import org.linlinjava.litemall.db.domain.LitemallCouponUser;
 import org.linlinjava.litemall.db.domain.LitemallGrouponRules;
 import org.linlinjava.litemall.db.service.*;
 import org.linlinjava.litemall.db.util.CouponConstant;
+import org.linlinjava.litemall.db.util.CouponEligibility;
+import org.linlinjava.litemall.db.util.CouponRule;
 import org.linlinjava.litemall.wx.annotation.LoginUser;
 import org.linlinjava.litemall.wx.vo.CouponVo;
 import org.linlinjava.litemall.wx.util.WxResponseCode;
@@ -20,9 +22,9 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 优惠券服务
@@ -43,6 +45,8 @@ public class WxCouponController {
     private LitemallCartService cartService;
     @Autowired
     private CouponVerifyService couponVerifyService;
+    @Autowired
+    private CouponClaimService couponClaimService;
 
     /**
      * 优惠券列表
@@ -92,9 +96,17 @@ public class WxCouponController {
 
     private List<CouponVo> change(List<LitemallCouponUser> couponList) {
         List<CouponVo> couponVoList = new ArrayList<>(couponList.size());
+        List<Integer> couponIds = new ArrayList<>(couponList.size());
+        for(LitemallCouponUser couponUser : couponList){
+            couponIds.add(couponUser.getCouponId());
+        }
+        Map<Integer, CouponRule> rules = couponService.findRules(couponIds);
         for(LitemallCouponUser couponUser : couponList){
-            Integer couponId = couponUser.getCouponId();
-            LitemallCoupon coupon = couponService.findById(couponId);
+            CouponRule rule = rules.get(couponUser.getCouponId());
+            if (rule == null) {
+                continue;
+            }
+            LitemallCoupon coupon = rule.getCoupon();
             CouponVo couponVo = new CouponVo();
             couponVo.setId(couponUser.getId());
             couponVo.setCid(coupon.getId());
@@ -137,7 +149,7 @@ public class WxCouponController {
         // 商品价格
         List<LitemallCart> checkedGoodsList = null;
         if (cartId == null || cartId.equals(0)) {
-            checkedGoodsList = cartService.queryByUidAndChecked(userId);
+            checkedGoodsList = cartService.getCart(userId).getChecked();
         } else {
             LitemallCart cart = cartService.findById(userId, cartId);
             if (cart == null) {
@@ -158,9 +170,9 @@ public class WxCouponController {
         // 计算优惠券可用情况
         List<LitemallCouponUser> couponUserList = couponUserService.queryAll(userId);
         List<CouponVo> couponVoList = change(couponUserList);
+        CouponEligibility eligibility = couponVerifyService.evaluate(couponUserList, checkedGoodsPrice, checkedGoodsList);
         for (CouponVo cv : couponVoList) {
-            LitemallCoupon coupon = couponVerifyService.checkCoupon(userId, cv.getCid(), cv.getId(), checkedGoodsPrice, checkedGoodsList);
-            cv.setAvailable(coupon != null);
+            cv.setAvailable(eligibility.isAvailable(cv.getId()));
         }
 
         return ResponseUtil.okList(couponVoList);
@@ -184,25 +196,11 @@ public class WxCouponController {
             return ResponseUtil.badArgument();
         }
 
-        LitemallCoupon coupon = couponService.findById(couponId);
-        if(coupon == null){
+        LitemallCoupon coupon = couponService.findCachedById(couponId);
+        if(coupon == null || coupon.getDeleted()){
             return ResponseUtil.badArgumentValue();
         }
 
-        // 当前已领取数量和总数量比较
-        Integer total = coupon.getTotal();
-        Integer totalCoupons = couponUserService.countCoupon(couponId);
-        if((total != 0) && (totalCoupons >= total)){
-            return ResponseUtil.fail(WxResponseCode.COUPON_EXCEED_LIMIT, "优惠券已领完");
-        }
-
-        // 当前用户已领取数量和用户限领数量比较
-        Integer limit = coupon.getLimit().intValue();
-        Integer userCounpons = couponUserService.countUserAndCoupon(userId, couponId);
-        if((limit != 0) && (userCounpons >= limit)){
-            return ResponseUtil.fail(WxResponseCode.COUPON_EXCEED_LIMIT, "优惠券已经领取过");
-        }
-
         // 优惠券分发类型
         // 例如注册赠券类型的优惠券不能领取
         Short type = coupon.getType();
@@ -225,21 +223,14 @@ public class WxCouponController {
             return ResponseUtil.fail(WxResponseCode.COUPON_RECEIVE_FAIL, "优惠券已经过期");
         }
 
-        // 用户领券记录
-        LitemallCouponUser couponUser = new LitemallCouponUser();
-        couponUser.setCouponId(couponId);
-        couponUser.setUserId(userId);
-        Short timeType = coupon.getTimeType();
-        if (timeType.equals(CouponConstant.TIME_TYPE_TIME)) {
-            couponUser.setStartTime(coupon.getStartTime());
-            couponUser.setEndTime(coupon.getEndTime());
+        // 扣减剩余数量、检查用户限领数量并写入领取记录
+        CouponClaimService.Result result = couponClaimService.claim(coupon, userId);
+        if (result == CouponClaimService.Result.EXCEED_TOTAL) {
+            return ResponseUtil.fail(WxResponseCode.COUPON_EXCEED_LIMIT, "优惠券已领完");
         }
-        else{
-            LocalDateTime now = LocalDateTime.now();
-            couponUser.setStartTime(now);
-            couponUser.setEndTime(now.plusDays(coupon.getDays()));
+        else if (result == CouponClaimService.Result.EXCEED_LIMIT) {
+            return ResponseUtil.fail(WxResponseCode.COUPON_EXCEED_LIMIT, "优惠券已经领取过");
         }
-        couponUserService.add(couponUser);
 
         return ResponseUtil.ok();
     }
@@ -266,22 +257,6 @@ public class WxCouponController {
         if(coupon == null){
             return ResponseUtil.fail(WxResponseCode.COUPON_CODE_INVALID, "优惠券不正确");
         }
-        Integer couponId = coupon.getId();
-
-        // 当前已领取数量和总数量比较
-        Integer total = coupon.getTotal();
-        Integer totalCoupons = couponUserService.countCoupon(couponId);
-        if((total != 0) && (totalCoupons >= total)){
-            return ResponseUtil.fail(WxResponseCode.COUPON_EXCEED_LIMIT, "优惠券已兑换");
-        }
-
-        // 当前用户已领取数量和用户限领数量比较
-        Integer limit = coupon.getLimit().intValue();
-        Integer userCounpons = couponUserService.countUserAndCoupon(userId, couponId);
-        if((limit != 0) && (userCounpons >= limit)){
-            return ResponseUtil.fail(WxResponseCode.COUPON_EXCEED_LIMIT, "优惠券已兑换");
-        }
-
         // 优惠券分发类型
         // 例如注册赠券类型的优惠券不能领取
         Short type = coupon.getType();
@@ -304,21 +279,10 @@ public class WxCouponController {
             return ResponseUtil.fail(WxResponseCode.COUPON_RECEIVE_FAIL, "优惠券已经过期");
         }
 
-        // 用户领券记录
-        LitemallCouponUser couponUser = new LitemallCouponUser();
-        couponUser.setCouponId(couponId);
-        couponUser.setUserId(userId);
-        Short timeType = coupon.getTimeType();
-        if (timeType.equals(CouponConstant.TIME_TYPE_TIME)) {
-            couponUser.setStartTime(coupon.getStartTime());
-            couponUser.setEndTime(coupon.getEndTime());
-        }
-        else{
-            LocalDateTime now = LocalDateTime.now();
-            couponUser.setStartTime(now);
-            couponUser.setEndTime(now.plusDays(coupon.getDays()));
+        // 扣减剩余数量、检查用户限领数量并写入领取记录
+        if (couponClaimService.claim(coupon, userId) != CouponClaimService.Result.SUCCESS) {
+            return ResponseUtil.fail(WxResponseCode.COUPON_EXCEED_LIMIT, "优惠券已兑换");
         }
-        couponUserService.add(couponUser);
 
         return ResponseUtil.ok();
     }
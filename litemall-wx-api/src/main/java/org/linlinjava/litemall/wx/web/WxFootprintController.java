@@ -3,6 +3,7 @@ package org.linlinjava.litemall.wx.web;
 import com.github.pagehelper.PageInfo;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.linlinjava.litemall.core.storage.StorageService;
 import org.linlinjava.litemall.core.util.JacksonUtil;
 import org.linlinjava.litemall.core.util.ResponseUtil;
 import org.linlinjava.litemall.db.domain.LitemallFootprint;
@@ -33,6 +34,8 @@ public class WxFootprintController {
     private LitemallFootprintService footprintService;
     @Autowired
     private LitemallGoodsService goodsService;
+    @Autowired
+    private StorageService storageService;
 
     /**
      * 删除用户足迹
@@ -72,17 +75,21 @@ public class WxFootprintController {
      *
      * @param page 分页页数
      * @param limit 分页大小
+     * @param cursor 游标，传入时按游标分页，忽略page；第一页传空字符串
      * @return 用户足迹列表
      */
     @GetMapping("list")
     public Object list(@LoginUser Integer userId,
                        @RequestParam(defaultValue = "1") Integer page,
-                       @RequestParam(defaultValue = "10") Integer limit) {
+                       @RequestParam(defaultValue = "10") Integer limit,
+                       String cursor) {
         if (userId == null) {
             return ResponseUtil.unlogin();
         }
 
-        List<LitemallFootprint> footprintList = footprintService.queryByAddTime(userId, page, limit);
+        List<LitemallFootprint> footprintList = cursor != null
+                ? footprintService.queryByAddTime(userId, cursor, limit)
+                : footprintService.queryByAddTime(userId, page, limit);
 
         List<Object> footprintVoList = new ArrayList<>(footprintList.size());
         for (LitemallFootprint footprint : footprintList) {
@@ -94,7 +101,7 @@ public class WxFootprintController {
             LitemallGoods goods = goodsService.findById(footprint.getGoodsId());
             c.put("name", goods.getName());
             c.put("brief", goods.getBrief());
-            c.put("picUrl", goods.getPicUrl());
+            c.put("picUrl", storageService.generateThumbnailUrl(goods.getPicUrl(), StorageService.LIST_IMAGE_SIZE));
             c.put("retailPrice", goods.getRetailPrice());
 
             footprintVoList.add(c);
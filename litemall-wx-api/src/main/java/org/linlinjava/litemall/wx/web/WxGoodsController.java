@@ -1,6 +1,7 @@
 package org.linlinjava.litemall.wx.web;
 
 import com.github.pagehelper.PageInfo;
+import org.linlinjava.litemall.core.storage.StorageService;
 import org.linlinjava.litemall.core.system.SystemConfig;
 import org.linlinjava.litemall.core.util.ResponseUtil;
 import org.linlinjava.litemall.core.validator.Order;
@@ -33,6 +34,9 @@ public class WxGoodsController {
 	@Autowired
 	private LitemallGoodsService goodsService;
 
+	@Autowired
+	private StorageService storageService;
+
 	@Autowired
 	private LitemallGoodsProductService productService;
 
@@ -118,7 +122,7 @@ public class WxGoodsController {
 		Callable<Map<String, Object>> commentsCallable = () -> {
 			List<LitemallComment> comments = commentService.queryGoodsByGid(id, 0, 2);
 			List<Map<String, Object>> commentsVo = new ArrayList<>(comments.size());
-			long commentCount = PageInfo.of(comments).getTotal();
+			Object commentCount = commentService.querySummary((byte) 0, id).getOrDefault("comment_count", 0);
 			for (LitemallComment comment : comments) {
 				Map<String, Object> c = new HashMap<>();
 				c.put("id", comment.getId());
@@ -204,7 +208,10 @@ public class WxGoodsController {
 	 */
 	@GetMapping("category")
 	public Object category(@NotNull Integer id) {
-		LitemallCategory cur = categoryService.findById(id);
+		LitemallCategory cur = categoryService.findCachedById(id);
+		if (cur == null) {
+			return ResponseUtil.badArgumentValue();
+		}
 		LitemallCategory parent = null;
 		List<LitemallCategory> children = null;
 
@@ -213,7 +220,7 @@ public class WxGoodsController {
 			children = categoryService.queryByPid(cur.getId());
 			cur = children.size() > 0 ? children.get(0) : cur;
 		} else {
-			parent = categoryService.findById(cur.getPid());
+			parent = categoryService.findCachedById(cur.getPid());
 			children = categoryService.queryByPid(cur.getPid());
 		}
 		Map<String, Object> data = new HashMap<>();
@@ -265,6 +272,9 @@ public class WxGoodsController {
 
 		//查询列表数据
 		List<LitemallGoods> goodsList = goodsService.querySelective(categoryId, brandId, keyword, isHot, isNew, page, limit, sort, order);
+		for (LitemallGoods goods : goodsList) {
+			goods.setPicUrl(storageService.generateThumbnailUrl(goods.getPicUrl(), StorageService.LIST_IMAGE_SIZE));
+		}
 
 		// 查询商品所属类目列表。
 		List<Integer> goodsCatIds = goodsService.getCatIds(brandId, keyword, isHot, isNew);
@@ -2,6 +2,7 @@ package org.linlinjava.litemall.wx.web;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.linlinjava.litemall.core.storage.StorageService;
 import org.linlinjava.litemall.core.system.SystemConfig;
 import org.linlinjava.litemall.core.util.ResponseUtil;
 import org.linlinjava.litemall.db.domain.LitemallAd;
@@ -22,6 +23,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.validation.constraints.NotNull;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -59,12 +61,27 @@ public class WxHomeController {
     @Autowired
     private LitemallCouponService couponService;
 
+    @Autowired
+    private StorageService storageService;
+
     private final static ArrayBlockingQueue<Runnable> WORK_QUEUE = new ArrayBlockingQueue<>(9);
 
     private final static RejectedExecutionHandler HANDLER = new ThreadPoolExecutor.CallerRunsPolicy();
 
     private static ThreadPoolExecutor executorService = new ThreadPoolExecutor(9, 9, 1000, TimeUnit.MILLISECONDS, WORK_QUEUE, HANDLER);
 
+    /**
+     * 首页各区域的显示数量修改后清除首页缓存
+     */
+    @PostConstruct
+    private void listenConfig() {
+        SystemConfig.addListener((previous, current) -> {
+            if (!previous.sameHomeLimits(current)) {
+                HomeCacheManager.clear(HomeCacheManager.INDEX);
+            }
+        });
+    }
+
     @GetMapping("/cache")
     public Object cache(@NotNull String key) {
         if (!key.equals("litemall_cache")) {
@@ -101,9 +118,9 @@ public class WxHomeController {
         }
 
 
-        Callable<List<LitemallGoods>> newGoodsListCallable = () -> goodsService.queryByNew(0, SystemConfig.getNewLimit());
+        Callable<List<LitemallGoods>> newGoodsListCallable = () -> thumbnail(goodsService.queryByNew(0, SystemConfig.getNewLimit()));
 
-        Callable<List<LitemallGoods>> hotGoodsListCallable = () -> goodsService.queryByHot(0, SystemConfig.getHotLimit());
+        Callable<List<LitemallGoods>> hotGoodsListCallable = () -> thumbnail(goodsService.queryByHot(0, SystemConfig.getHotLimit()));
 
         Callable<List<LitemallBrand>> brandListCallable = () -> brandService.query(0, SystemConfig.getBrandLimit());
 
@@ -171,7 +188,7 @@ public class WxHomeController {
             if (l2List.size() == 0) {
                 categoryGoods = new ArrayList<>();
             } else {
-                categoryGoods = goodsService.queryByCategory(l2List, 0, SystemConfig.getCatlogMoreLimit());
+                categoryGoods = thumbnail(goodsService.queryByCategory(l2List, 0, SystemConfig.getCatlogMoreLimit()));
             }
 
             Map<String, Object> catGoods = new HashMap<>();
@@ -183,6 +200,16 @@ public class WxHomeController {
         return categoryList;
     }
 
+    /**
+     * 首页商品列表使用缩略图
+     */
+    private List<LitemallGoods> thumbnail(List<LitemallGoods> goodsList) {
+        for (LitemallGoods goods : goodsList) {
+            goods.setPicUrl(storageService.generateThumbnailUrl(goods.getPicUrl(), StorageService.LIST_IMAGE_SIZE));
+        }
+        return goodsList;
+    }
+
     /**
      * 商城介绍信息
      * @return 商城介绍信息
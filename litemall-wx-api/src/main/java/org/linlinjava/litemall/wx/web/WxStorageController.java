@@ -1,17 +1,16 @@
 package org.linlinjava.litemall.wx.web;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.linlinjava.litemall.core.storage.StorageFileServer;
 import org.linlinjava.litemall.core.storage.StorageService;
 import org.linlinjava.litemall.core.util.CharUtil;
 import org.linlinjava.litemall.core.util.ResponseUtil;
 import org.linlinjava.litemall.db.domain.LitemallStorage;
 import org.linlinjava.litemall.db.service.LitemallStorageService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -33,6 +32,8 @@ public class WxStorageController {
     private StorageService storageService;
     @Autowired
     private LitemallStorageService litemallStorageService;
+    @Autowired
+    private StorageFileServer storageFileServer;
 
     private String generateKey(String originalFilename) {
         int index = originalFilename.lastIndexOf('.');
@@ -58,55 +59,25 @@ public class WxStorageController {
     }
 
     /**
-     * 访问存储对象
+     * 访问存储对象，支持Range和If-None-Match请求
      *
-     * @param key 存储对象key
-     * @return
+     * @param key  存储对象key
+     * @param size 图片尺寸（最长边像素），指定时返回不小于该尺寸的缩略图
      */
     @GetMapping("/fetch/{key:.+}")
-    public ResponseEntity<Resource> fetch(@PathVariable String key) {
-        LitemallStorage litemallStorage = litemallStorageService.findByKey(key);
-        if (litemallStorage==null||key == null) {
-            return ResponseEntity.notFound().build();
-        }
-        if (key.contains("../")) {
-            return ResponseEntity.badRequest().build();
-        }
-        String type = litemallStorage.getType();
-        MediaType mediaType = MediaType.parseMediaType(type);
-
-        Resource file = storageService.loadAsResource(key);
-        if (file == null) {
-            return ResponseEntity.notFound().build();
-        }
-        return ResponseEntity.ok().contentType(mediaType).body(file);
+    public void fetch(@PathVariable String key, @RequestParam(required = false) Integer size,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        storageFileServer.serve(key, size, false, request, response);
     }
 
     /**
-     * 访问存储对象
+     * 下载存储对象，支持Range和If-None-Match请求
      *
      * @param key 存储对象key
-     * @return
      */
     @GetMapping("/download/{key:.+}")
-    public ResponseEntity<Resource> download(@PathVariable String key) {
-        LitemallStorage litemallStorage = litemallStorageService.findByKey(key);
-        if (litemallStorage==null||key == null) {
-            return ResponseEntity.notFound().build();
-        }
-        if (key.contains("../")) {
-            return ResponseEntity.badRequest().build();
-        }
-
-        String type = litemallStorage.getType();
-        MediaType mediaType = MediaType.parseMediaType(type);
-
-        Resource file = storageService.loadAsResource(key);
-        if (file == null) {
-            return ResponseEntity.notFound().build();
-        }
-        return ResponseEntity.ok().contentType(mediaType).header(HttpHeaders.CONTENT_DISPOSITION,
-                "attachment; filename=\"" + file.getFilename() + "\"").body(file);
+    public void download(@PathVariable String key, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        storageFileServer.serve(key, true, request, response);
     }
 
 }